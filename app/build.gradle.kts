@@ -28,6 +28,7 @@ android {
 
         buildConfigField("String", "SUPABASE_URL", "\"${properties.getProperty("SUPABASE_URL", "")}\"")
         buildConfigField("String", "SUPABASE_ANON_KEY", "\"${properties.getProperty("SUPABASE_ANON_KEY", "")}\"")
+        buildConfigField("String", "SUPABASE_REALTIME_URL", "\"${properties.getProperty("SUPABASE_REALTIME_URL", "")}\"")
         buildConfigField("String", "SUPABASE_STORAGE_BUCKET", "\"$storageBucket\"")
         buildConfigField("String", "SUPABASE_LISTINGS_BUCKET", "\"$listingsBucket\"")
         buildConfigField("String", "SUPABASE_PROOFS_BUCKET", "\"$proofsBucket\"")
@@ -70,12 +71,15 @@ dependencies {
     
     // Image loading
     implementation("com.github.bumptech.glide:glide:4.16.0")
+    implementation("com.github.bumptech.glide:okhttp3-integration:4.16.0")
     annotationProcessor("com.github.bumptech.glide:compiler:4.16.0")
 
     // Location services
     implementation("com.google.android.gms:play-services-location:21.3.0")
     
     testImplementation(libs.junit)
+    // Real android.* and org.json classes for JVM unit tests
+    testImplementation("org.robolectric:robolectric:4.14.1")
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
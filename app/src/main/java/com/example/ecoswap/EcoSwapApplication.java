@@ -0,0 +1,15 @@
+package com.example.ecoswap;
+
+import android.app.Application;
+
+import com.example.ecoswap.utils.SupabaseClient;
+
+public class EcoSwapApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Start the DNS/TCP/TLS handshake while the first activity is still inflating.
+        SupabaseClient.getInstance(this).prewarmConnection();
+    }
+}
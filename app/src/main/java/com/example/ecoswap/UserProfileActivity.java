@@ -16,6 +16,7 @@ import com.google.gson.JsonArray;
 import com.example.ecoswap.R;
 import com.example.ecoswap.dashboard.DashboardActivity;
 import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseQuery;
 import com.example.ecoswap.utils.SessionManager;
 
 import java.text.SimpleDateFormat;
@@ -102,7 +103,10 @@ public class UserProfileActivity extends AppCompatActivity {
 
     private void loadUserProfile() {
         // Query profiles table for the specific user
-        String endpoint = "/rest/v1/profiles?id=eq." + userId + "&select=*";
+        String endpoint = SupabaseQuery.from("profiles")
+            .select("name", "email", "location", "created_at", "bio", "impact_score", "total_swaps")
+            .eq("id", userId)
+            .build();
 
         supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
             @Override
@@ -4,6 +4,7 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
+import android.util.Log;
 import android.os.Handler;
 import android.os.Looper;
 import android.view.LayoutInflater;
@@ -25,22 +26,37 @@ import com.example.ecoswap.R;
 import com.example.ecoswap.chat.ChatMessagesAdapter.ChatMessage;
 import com.example.ecoswap.dashboard.UserProfileBottomSheet;
 import com.example.ecoswap.dashboard.listings.MyListingsFragment;
+import com.example.ecoswap.repository.ChatRepository;
+import com.example.ecoswap.repository.ImpactRepository;
+import com.example.ecoswap.repository.RepositoryStreamCallback;
 import com.example.ecoswap.utils.ChatFeatureCompat;
 import com.example.ecoswap.utils.ConversationMetadataStore;
+import com.example.ecoswap.utils.PollingScheduler;
+import com.example.ecoswap.utils.ProfileCache;
 import com.example.ecoswap.utils.SessionManager;
+import com.example.ecoswap.utils.RequestPriority;
+import com.example.ecoswap.utils.RealtimeClient;
+import com.example.ecoswap.utils.RequestScope;
 import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseError;
+import com.example.ecoswap.utils.WriteOutbox;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.floatingactionbutton.ExtendedFloatingActionButton;
 import com.google.gson.JsonObject;
+import java.lang.ref.WeakReference;
 import java.time.Instant;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.TimeZone;
 import okhttp3.HttpUrl;
 import org.json.JSONArray;
@@ -52,12 +68,15 @@ import org.json.JSONObject;
  */
 public class ChatFragment extends Fragment {
 
+    private static final String TAG = "ChatFragment";
     private static final String ARG_OWNER_ID = "owner_id";
     private static final String ARG_LISTING_ID = "listing_id";
     private static final String ARG_LISTING_TITLE = "listing_title";
     private static final String ARG_IMAGE_URL = "image_url";
     private static final String ARG_LISTING_TYPE = "listing_type";
     private static final String ARG_PRESET_MESSAGE = "preset_message";
+    private static final String ARG_FOCUS_MESSAGE_ID = "focus_message_id";
+    private static final String ARG_FOCUS_CREATED_AT = "focus_created_at";
     private static final String STATE_LISTING_DETAILS_EXPANDED = "state_listing_details_expanded";
 
     public static ChatFragment newInstance(String ownerId, String listingId, String listingTitle, String imageUrl) {
@@ -81,11 +100,24 @@ public class ChatFragment extends Fragment {
         return fragment;
     }
 
+    /**
+     * Opens the thread at the given message, e.g. a search hit, instead of at the newest one.
+     */
+    public ChatFragment focusOnMessage(@NonNull String messageId, @NonNull String createdAt) {
+        Bundle args = getArguments() != null ? getArguments() : new Bundle();
+        args.putString(ARG_FOCUS_MESSAGE_ID, messageId);
+        args.putString(ARG_FOCUS_CREATED_AT, createdAt);
+        setArguments(args);
+        return this;
+    }
+
     private RecyclerView rvMessages;
     private ChatMessagesAdapter chatAdapter;
     private LinearLayoutManager messagesLayoutManager;
     private SessionManager sessionManager;
     private SupabaseClient supabaseClient;
+    private ImpactRepository impactRepository;
+    private RequestScope requestScope;
     private ImageButton btnSend;
     private EditText etMessage;
     private CharSequence defaultMessageHint;
@@ -103,10 +135,41 @@ public class ChatFragment extends Fragment {
     private MaterialButton btnPeerAccept;
     private MaterialButton btnPeerDismiss;
     private ConversationMetadataStore conversationMetadataStore;
+    private ChatRepository chatRepository;
+    private WriteOutbox writeOutbox;
 
     private Handler chatRefreshHandler;
-    private Runnable chatRefreshRunnable;
+    private PollingScheduler.Poller threadPoller;
     private static final long CHAT_REFRESH_INTERVAL_MS = 5000L;
+    private static final long CHAT_REFRESH_MAX_INTERVAL_MS = 60_000L;
+    private static final long REALTIME_REFRESH_DEBOUNCE_MS = 250L;
+    private RealtimeClient.Subscription threadSubscription;
+    // Messages fetched per page, and the most kept in the list while paging through history.
+    private static final int THREAD_PAGE_SIZE = 50;
+    private static final int THREAD_MAX_RETAINED_MESSAGES = 200;
+    // How close (in items) to either end of the list scrolling has to get to load the next page.
+    private static final int THREAD_EDGE_DISTANCE = 5;
+    // created_at is stamped when a message is inserted, but the row only becomes visible when its
+    // transaction commits, so it can appear after newer messages were already read. Each delta
+    // re-reads this much before the newest message shown; rows already listed are merged by id.
+    // A full page may end inside that window, so paging then continues from the page's last
+    // (created_at, id) instead of starting over at the same point.
+    private static final long THREAD_DELTA_OVERLAP_MS = 5_000L;
+    // Window of the thread loaded for threadSyncEndpoint: oldest and newest (created_at, id) shown.
+    private String threadSyncEndpoint;
+    private String threadLowWaterCreatedAt;
+    private String threadLowWaterId;
+    private String threadHighWaterCreatedAt;
+    private String threadHighWaterId;
+    private boolean hasOlderMessages = false;
+    private boolean hasNewerMessages = false;
+    private boolean loadingOlderMessages = false;
+    private boolean threadDeltaInFlight = false;
+    private final Runnable realtimeRefreshRunnable = () -> {
+        if (isAdded()) {
+            loadConversationHistory(true);
+        }
+    };
 
     private String listingOwnerId;
     private boolean isListingDetailsExpanded = false;
@@ -116,6 +179,9 @@ public class ChatFragment extends Fragment {
     private String resolvedListingImageUrl;
     private String resolvedListingType;
     private String presetMessage;
+    // Message to open the thread at; cleared once the first load has shown it.
+    private String focusMessageId;
+    private String focusCreatedAt;
     private String conversationCounterpartyId;
     private boolean listingLookupInFlight = false;
     private boolean listingCompletionFinalized = false;
@@ -131,6 +197,10 @@ public class ChatFragment extends Fragment {
             listingOwnerId = sanitizeMetadataValue(getArguments().getString(ARG_OWNER_ID));
             resolvedListingType = sanitizeMetadataValue(getArguments().getString(ARG_LISTING_TYPE));
             presetMessage = sanitizeMetadataValue(getArguments().getString(ARG_PRESET_MESSAGE));
+            if (savedInstanceState == null) {
+                focusMessageId = getArguments().getString(ARG_FOCUS_MESSAGE_ID);
+                focusCreatedAt = getArguments().getString(ARG_FOCUS_CREATED_AT);
+            }
         }
         if (savedInstanceState != null) {
             isListingDetailsExpanded = savedInstanceState.getBoolean(STATE_LISTING_DETAILS_EXPANDED, false);
@@ -143,6 +213,7 @@ public class ChatFragment extends Fragment {
         View view = inflater.inflate(R.layout.fragment_chat, container, false);
         sessionManager = SessionManager.getInstance(requireContext());
         supabaseClient = SupabaseClient.getInstance(requireContext());
+        impactRepository = new ImpactRepository(requireContext());
         supabaseClient.hydrateSession(
                 sessionManager.getAccessToken(),
                 sessionManager.getRefreshToken(),
@@ -150,7 +221,15 @@ public class ChatFragment extends Fragment {
                 sessionManager.getUserId()
         );
         conversationMetadataStore = new ConversationMetadataStore(requireContext());
+        requestScope = RequestScope.bind(getViewLifecycleOwner());
+        chatRepository = new ChatRepository(requireContext(), requestScope);
+        writeOutbox = WriteOutbox.getInstance(requireContext());
+        // Fallback for when the realtime channel is down: fast while messages are flowing,
+        // backing off to a minute in a quiet thread.
+        threadPoller = PollingScheduler.getInstance().register(getViewLifecycleOwner(),
+                CHAT_REFRESH_INTERVAL_MS, CHAT_REFRESH_MAX_INTERVAL_MS, this::pollThread);
         hydrateListingPreviewFromCache();
+        conversationMetadataStore.whenLoaded(this::onConversationMetadataLoaded);
 
         initViews(view);
         setupToolbar(view);
@@ -241,6 +320,19 @@ public class ChatFragment extends Fragment {
         });
     }
 
+    /** The blocked and archived flags were read before the store had loaded; show the stored ones. */
+    private void onConversationMetadataLoaded() {
+        View root = getView();
+        if (!isAdded() || root == null) {
+            return;
+        }
+        updateSendAvailability();
+        MaterialToolbar toolbar = root.findViewById(R.id.chatToolbar);
+        if (toolbar != null) {
+            updateMenuLabels(toolbar);
+        }
+    }
+
     private void updateMenuLabels(@NonNull MaterialToolbar toolbar) {
         boolean archived = isConversationArchived();
         if (toolbar.getMenu() != null) {
@@ -394,6 +486,17 @@ public class ChatFragment extends Fragment {
             }
         });
         rvMessages.setAdapter(chatAdapter);
+        rvMessages.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy < 0 && hasOlderMessages
+                        && messagesLayoutManager.findFirstVisibleItemPosition() <= THREAD_EDGE_DISTANCE) {
+                    loadOlderMessages();
+                } else if (dy > 0 && hasNewerMessages && !threadDeltaInFlight && isNearBottom()) {
+                    loadConversationHistory(true);
+                }
+            }
+        });
     }
 
     private void setupSendButton() {
@@ -434,41 +537,13 @@ public class ChatFragment extends Fragment {
         if (ids.isEmpty()) {
             return;
         }
-        StringBuilder builder = new StringBuilder("(");
-        for (int i = 0; i < ids.size(); i++) {
-            builder.append("\"").append(ids.get(i)).append("\"");
-            if (i < ids.size() - 1) {
-                builder.append(",");
-            }
-        }
-        builder.append(")");
-        String endpoint = "/rest/v1/profiles?select=id,name,profile_image_url&id=in." + Uri.encode(builder.toString());
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
-            @Override
-            public void onSuccess(Object data) {
-                if (!isAdded() || chatAdapter == null) {
-                    return;
-                }
-                try {
-                    JSONArray array = new JSONArray(data.toString());
-                    for (int i = 0; i < array.length(); i++) {
-                        JSONObject profile = array.getJSONObject(i);
-                        String id = profile.optString("id");
-                        if (TextUtils.isEmpty(id)) {
-                            continue;
-                        }
-                        String name = profile.optString("name", null);
-                        String avatar = profile.optString("profile_image_url", null);
-                        chatAdapter.setParticipantProfile(id, name, avatar);
-                    }
-                } catch (JSONException e) {
-                    // Ignore parse issues; avatars are optional.
-                }
+        // Avatars are optional; profiles that fail to load are simply left out.
+        ProfileCache.getInstance(requireContext()).get(ids, profiles -> {
+            if (!isAdded() || chatAdapter == null || requestScope.isCancelled()) {
+                return;
             }
-
-            @Override
-            public void onError(String error) {
-                // Avatars are optional; no user notification needed.
+            for (ProfileCache.Profile profile : profiles.values()) {
+                chatAdapter.setParticipantProfile(profile.id, profile.name, profile.avatarUrl);
             }
         });
     }
@@ -484,9 +559,6 @@ public class ChatFragment extends Fragment {
             return;
         }
 
-        btnSend.setEnabled(false);
-        progressSending.setVisibility(View.VISIBLE);
-
         JsonObject payload = new JsonObject();
         payload.addProperty("sender_id", currentUserId);
         payload.addProperty("receiver_id", ownerId);
@@ -504,64 +576,94 @@ public class ChatFragment extends Fragment {
             }
         }
 
-        dispatchSendMessage(payload, currentUserId, content);
+        // The message is shown right away under the id the outbox assigned to the row, so the
+        // next history refresh lines up with it once the insert lands.
+        String messageId = dispatchSendMessage(payload);
+        appendLocalMessage(messageId, currentUserId, content, null);
+        etMessage.setText("");
+        if (threadPoller != null) {
+            // A reply is likely; poll at the fast rate again.
+            threadPoller.markActive();
+        }
+        // The inbox preview is stale now; have it reload when it is shown again.
+        getParentFragmentManager().setFragmentResult("messages_refresh", new Bundle());
     }
 
-    private void dispatchSendMessage(JsonObject payload, String senderId, String content) {
-        supabaseClient.insert("chats", payload, new SupabaseClient.OnDatabaseCallback() {
-            @Override
-            public void onSuccess(Object data) {
-                if (!isAdded()) {
-                    return;
-                }
-                appendMessageFromResponse(senderId, content, data);
-                etMessage.setText("");
-                btnSend.setEnabled(true);
-                progressSending.setVisibility(View.GONE);
-            }
+    private String dispatchSendMessage(JsonObject payload) {
+        return writeOutbox.enqueueInsert("chats", payload, new SendResultListener(this, writeOutbox, payload));
+    }
 
-            @Override
-            public void onError(String error) {
-                if (!isAdded()) {
-                    return;
-                }
-                if (ChatFeatureCompat.isListingMetadataSupported() && ChatFeatureCompat.isListingMetadataError(error)) {
-                    ChatFeatureCompat.disableListingMetadata();
-                    payload.remove("listing_id");
-                    payload.remove("listing_title_snapshot");
-                    payload.remove("listing_image_url_snapshot");
-                    dispatchSendMessage(payload, senderId, content);
-                    return;
-                }
-                btnSend.setEnabled(true);
-                progressSending.setVisibility(View.GONE);
-            }
-        });
+    /**
+     * Called when the server rejected a sent message for good: the optimistic bubble goes away,
+     * since the outbox no longer holds the row either.
+     */
+    private void onSendRejected(@NonNull String messageId) {
+        if (!isAdded() || chatAdapter == null) {
+            return;
+        }
+        chatAdapter.removeMessage(messageId);
+        Toast.makeText(requireContext(), R.string.chat_send_failed, Toast.LENGTH_SHORT).show();
     }
 
-    private void appendMessageFromResponse(String senderId, String content, Object data) {
-        String id = null;
-        String createdAt = null;
-        try {
-            JSONArray array = new JSONArray(data.toString());
-            if (array.length() > 0) {
-                JSONObject message = array.getJSONObject(0);
-                id = message.optString("id", null);
-                createdAt = message.optString("created_at", null);
+    /**
+     * Outbox callback for a sent message. The write can outlive this screen, so the fragment is
+     * only held weakly; the listing-metadata fallback still re-queues the message once it is gone.
+     */
+    private static final class SendResultListener implements SupabaseClient.OnDatabaseCallback {
+        private final WeakReference<ChatFragment> fragmentRef;
+        private final WriteOutbox writeOutbox;
+        private final JsonObject payload;
+
+        SendResultListener(ChatFragment fragment, WriteOutbox writeOutbox, JsonObject payload) {
+            this.fragmentRef = new WeakReference<>(fragment);
+            this.writeOutbox = writeOutbox;
+            this.payload = payload;
+        }
+
+        @Override
+        public void onSuccess(Object data) {
+            // Already displayed; the refresh loop picks up the server timestamp.
+        }
+
+        @Override
+        public void onError(String error) {
+            if (ChatFeatureCompat.isListingMetadataSupported() && ChatFeatureCompat.isListingMetadataError(error)) {
+                ChatFeatureCompat.disableListingMetadata();
+                payload.remove("listing_id");
+                payload.remove("listing_title_snapshot");
+                payload.remove("listing_image_url_snapshot");
+                // The payload keeps its id, so the bubble already shown still matches the row.
+                writeOutbox.enqueueInsert("chats", payload, this);
+                return;
+            }
+            ChatFragment fragment = fragmentRef.get();
+            if (fragment != null) {
+                fragment.onSendRejected(payload.get("id").getAsString());
             }
-        } catch (JSONException ignored) {
-            // Fall back to local timestamp
         }
-        appendLocalMessage(id, senderId, content, createdAt);
     }
 
     private void appendLocalMessage(String id, String senderId, String content, @Nullable String createdAt) {
+        if (hasNewerMessages) {
+            // The newest messages were trimmed while paging back; reload the latest window, which
+            // also picks up this message from the outbox.
+            threadSyncEndpoint = null;
+            loadConversationHistory(true);
+            return;
+        }
         String displayTime = formatTimestamp(createdAt);
-        chatAdapter.appendMessage(new ChatMessage(id, senderId, content, displayTime));
-        rvMessages.scrollToPosition(Math.max(chatAdapter.getItemCount() - 1, 0));
+        chatAdapter.appendMessage(new ChatMessage(id, senderId, content, displayTime), this::scrollToLatestMessage);
     }
 
     private void loadConversationHistory(boolean silent) {
+        loadConversationHistory(silent, null, null);
+    }
+
+    /**
+     * With {@code afterCreatedAt} and {@code afterId} set, a delta returns the rows after that
+     * keyset position: the next page after a full one.
+     */
+    private void loadConversationHistory(boolean silent, @Nullable String afterCreatedAt, @Nullable String afterId) {
         if (supabaseClient == null) {
             return;
         }
@@ -574,123 +676,458 @@ public class ChatFragment extends Fragment {
             return;
         }
 
-        // Mark messages as read
-        markMessagesAsRead(currentUserId, otherUserId);
+        // The first load fetches the newest page. After that, only rows after the newest one
+        // shown are requested; the window is fetched again only when the thread's filters change
+        // (e.g. the listing was resolved).
+        String windowEndpoint = buildThreadEndpoint(currentUserId, otherUserId, getListingId(), true, null, null);
+        boolean delta = windowEndpoint.equals(threadSyncEndpoint) && threadHighWaterCreatedAt != null;
+        if (delta && hasNewerMessages && !isNearBottom()) {
+            // Newer messages were dropped while the user reads further back; they are paged in
+            // again on the way down.
+            threadPoller.markIdle();
+            return;
+        }
+        // Opening at a message loads the page that starts with it instead of the newest page.
+        String focusId = !delta && !TextUtils.isEmpty(focusMessageId) && !TextUtils.isEmpty(focusCreatedAt)
+                ? focusMessageId : null;
+        String endpoint;
+        if (delta && afterCreatedAt != null && afterId != null) {
+            endpoint = buildThreadEndpoint(currentUserId, otherUserId, getListingId(), false,
+                    afterCreatedAt, afterId, false);
+        } else if (delta && hasNewerMessages) {
+            // The window stops short of the newest message, so re-reading before its end would
+            // return the same full page again.
+            endpoint = buildThreadEndpoint(currentUserId, otherUserId, getListingId(), false,
+                    threadHighWaterCreatedAt, threadHighWaterId, false);
+        } else if (delta) {
+            String overlapStart = shiftTimestamp(threadHighWaterCreatedAt, -THREAD_DELTA_OVERLAP_MS);
+            endpoint = overlapStart != null
+                    ? buildThreadEndpoint(currentUserId, otherUserId, getListingId(), false, overlapStart, null, true)
+                    : buildThreadEndpoint(currentUserId, otherUserId, getListingId(), false,
+                            threadHighWaterCreatedAt, threadHighWaterId, false);
+        } else if (focusId != null) {
+            endpoint = buildThreadEndpoint(currentUserId, otherUserId, getListingId(), false,
+                    focusCreatedAt, focusId, true);
+        } else {
+            endpoint = windowEndpoint;
+        }
+        if (!delta) {
+            markMessagesAsRead(currentUserId, otherUserId);
+        } else {
+            threadDeltaInFlight = true;
+        }
 
-        String endpoint = buildThreadEndpoint(currentUserId, otherUserId, getListingId());
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        boolean includeListingMetadata = ChatFeatureCompat.isListingMetadataSupported();
+        List<ChatMessage> history = new ArrayList<>();
+        chatRepository.streamThreadMessages(endpoint, includeListingMetadata, new RepositoryStreamCallback<ChatRepository.ChatRow>() {
             @Override
-            public void onSuccess(Object data) {
+            public void onRows(@NonNull List<ChatRepository.ChatRow> rows) {
                 if (!isAdded()) {
                     return;
                 }
-                try {
-                    JSONArray array = new JSONArray(data.toString());
-                    List<ChatMessage> history = new ArrayList<>();
-                    for (int i = 0; i < array.length(); i++) {
-                        JSONObject message = array.getJSONObject(i);
-                        if (ChatFeatureCompat.isListingMetadataSupported() && TextUtils.isEmpty(resolvedListingId)) {
-                            String potentialListingId = message.has("listing_id") && !message.isNull("listing_id")
-                                    ? sanitizeMetadataValue(message.optString("listing_id", null))
-                                    : null;
-                            if (!TextUtils.isEmpty(potentialListingId)) {
-                                resolvedListingId = potentialListingId;
-                                loadListingContext();
-                            }
+                for (ChatRepository.ChatRow message : rows) {
+                    if (includeListingMetadata && TextUtils.isEmpty(resolvedListingId)) {
+                        String potentialListingId = sanitizeMetadataValue(message.listingId);
+                        if (!TextUtils.isEmpty(potentialListingId)) {
+                            resolvedListingId = potentialListingId;
+                            loadListingContext();
                         }
-                        if (ChatFeatureCompat.isListingMetadataSupported()) {
-                            if (!hasMeaningfulValue(resolvedListingTitle)) {
-                                String snapshotTitle = sanitizeMetadataValue(message.optString("listing_title_snapshot", null));
-                                if (hasMeaningfulValue(snapshotTitle)) {
-                                    resolvedListingTitle = snapshotTitle;
-                                    applyListingPreview();
-                                }
+                    }
+                    if (includeListingMetadata) {
+                        if (!hasMeaningfulValue(resolvedListingTitle)) {
+                            String snapshotTitle = sanitizeMetadataValue(message.listingTitleSnapshot);
+                            if (hasMeaningfulValue(snapshotTitle)) {
+                                resolvedListingTitle = snapshotTitle;
+                                applyListingPreview();
                             }
-                            if (!hasMeaningfulValue(resolvedListingImageUrl)) {
-                                String snapshotImage = primaryImage(sanitizeMetadataValue(message.optString("listing_image_url_snapshot", null)));
-                                if (hasMeaningfulValue(snapshotImage)) {
-                                    resolvedListingImageUrl = snapshotImage;
-                                    applyListingPreview();
-                                }
+                        }
+                        if (!hasMeaningfulValue(resolvedListingImageUrl)) {
+                            String snapshotImage = primaryImage(sanitizeMetadataValue(message.listingImageSnapshot));
+                            if (hasMeaningfulValue(snapshotImage)) {
+                                resolvedListingImageUrl = snapshotImage;
+                                applyListingPreview();
                             }
                         }
-                        history.add(new ChatMessage(
-                                message.optString("id"),
-                                message.optString("sender_id"),
-                                message.optString("message"),
-                                formatTimestamp(message.optString("created_at"))
-                        ));
-                        String senderId = message.optString("sender_id", null);
-                        if (!TextUtils.isEmpty(senderId) && !senderId.equals(currentUserId)) {
-                            conversationCounterpartyId = senderId;
+                    }
+                    history.add(toChatMessage(message));
+                    String senderId = message.senderId;
+                    if (!TextUtils.isEmpty(senderId) && !senderId.equals(currentUserId)) {
+                        conversationCounterpartyId = senderId;
+                    }
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                if (delta) {
+                    threadDeltaInFlight = false;
+                }
+                if (!isAdded()) {
+                    return;
+                }
+                if (delta && !windowEndpoint.equals(threadSyncEndpoint)) {
+                    // The thread was reloaded in full while this delta was in flight.
+                    return;
+                }
+                if (delta) {
+                    hasNewerMessages = history.size() >= THREAD_PAGE_SIZE;
+                    if (history.isEmpty()) {
+                        threadPoller.markIdle();
+                        return;
+                    }
+                    // The overlap returns messages already shown; only the others count as new.
+                    boolean receivedNew = false;
+                    boolean receivedIncoming = false;
+                    for (ChatMessage message : history) {
+                        if (!chatAdapter.containsMessage(message.getId())) {
+                            receivedNew = true;
+                            receivedIncoming |= !TextUtils.equals(message.getSenderId(), currentUserId);
                         }
                     }
-                    chatAdapter.setMessages(history);
-                    rvMessages.scrollToPosition(Math.max(history.size() - 1, 0));
-                } catch (JSONException e) {
-                    if (isAdded() && !silent) {
-                        Toast.makeText(requireContext(), R.string.chat_history_error, Toast.LENGTH_SHORT).show();
+                    if (receivedNew) {
+                        threadPoller.markActive();
+                    } else {
+                        threadPoller.markIdle();
+                    }
+                    chatAdapter.mergeMessages(history, isNearBottom() ? ChatFragment.this::scrollToLatestMessage : null);
+                    updateThreadWindowBounds();
+                    trimThreadWindow(false);
+                    if (receivedIncoming) {
+                        markMessagesAsRead(currentUserId, otherUserId);
+                    }
+                    if (hasNewerMessages && isNearBottom()) {
+                        // Delta pages run oldest first; keep paging from the last row until a
+                        // page comes back short.
+                        ChatMessage last = history.get(history.size() - 1);
+                        if (!TextUtils.isEmpty(last.getCreatedAt()) && !TextUtils.isEmpty(last.getId())) {
+                            loadConversationHistory(true, last.getCreatedAt(), last.getId());
+                        }
                     }
+                    return;
+                }
+                threadSyncEndpoint = windowEndpoint;
+                if (focusId != null) {
+                    focusMessageId = null;
+                    focusCreatedAt = null;
+                    // The page runs forward from the focused message; anything before it is paged
+                    // in on scroll-up, and the newest messages on the way down.
+                    hasOlderMessages = true;
+                    hasNewerMessages = history.size() >= THREAD_PAGE_SIZE;
+                    if (!hasNewerMessages) {
+                        appendPendingMessages(history, currentUserId, otherUserId);
+                    }
+                    chatAdapter.setMessages(history, () -> scrollToMessage(focusId));
+                    updateThreadWindowBounds();
+                    return;
                 }
+                // The window query runs newest first; the list shows oldest first.
+                Collections.reverse(history);
+                hasOlderMessages = history.size() >= THREAD_PAGE_SIZE;
+                hasNewerMessages = false;
+                appendPendingMessages(history, currentUserId, otherUserId);
+                // History is ordered oldest first and pinned to the bottom. Rows that did not change
+                // since the last render are diffed away and not bound again.
+                chatAdapter.setMessages(history, ChatFragment.this::scrollToLatestMessage);
+                updateThreadWindowBounds();
             }
 
             @Override
             public void onError(String error) {
+                if (delta) {
+                    threadDeltaInFlight = false;
+                }
                 if (isAdded() && !silent) {
                     Toast.makeText(requireContext(), R.string.chat_history_error, Toast.LENGTH_SHORT).show();
                 }
             }
+
+            @Override
+            public void onFailure(@NonNull SupabaseError error) {
+                if (error.isTransient()) {
+                    // Poll less often while the backend is struggling instead of adding to its load.
+                    threadPoller.backOff(error.getRetryAfterMs());
+                }
+                onError(error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Loads the page of messages before the oldest one shown, as the user scrolls up.
+     */
+    private void loadOlderMessages() {
+        if (loadingOlderMessages || !hasOlderMessages || threadLowWaterCreatedAt == null
+                || supabaseClient == null || chatRepository == null) {
+            return;
+        }
+        String currentUserId = sessionManager.getUserId();
+        String otherUserId = getOwnerIdArg();
+        if (TextUtils.isEmpty(currentUserId) || TextUtils.isEmpty(otherUserId)) {
+            return;
+        }
+        String windowEndpoint = buildThreadEndpoint(currentUserId, otherUserId, getListingId(), true, null, null);
+        if (!windowEndpoint.equals(threadSyncEndpoint)) {
+            return;
+        }
+        loadingOlderMessages = true;
+        String endpoint = buildThreadEndpoint(currentUserId, otherUserId, getListingId(), true,
+                threadLowWaterCreatedAt, threadLowWaterId);
+        List<ChatMessage> page = new ArrayList<>();
+        chatRepository.streamThreadMessages(endpoint, ChatFeatureCompat.isListingMetadataSupported(),
+                new RepositoryStreamCallback<ChatRepository.ChatRow>() {
+            @Override
+            public void onRows(@NonNull List<ChatRepository.ChatRow> rows) {
+                for (ChatRepository.ChatRow row : rows) {
+                    page.add(toChatMessage(row));
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                loadingOlderMessages = false;
+                if (!isAdded() || !windowEndpoint.equals(threadSyncEndpoint)) {
+                    return;
+                }
+                hasOlderMessages = page.size() >= THREAD_PAGE_SIZE;
+                Collections.reverse(page);
+                chatAdapter.prependMessages(page);
+                trimThreadWindow(true);
+                updateThreadWindowBounds();
+            }
+
+            @Override
+            public void onError(String error) {
+                loadingOlderMessages = false;
+                Log.w(TAG, "Failed to load older messages: " + error);
+            }
         });
     }
 
+    private ChatMessage toChatMessage(@NonNull ChatRepository.ChatRow row) {
+        return new ChatMessage(row.id, row.senderId, row.message, formatTimestamp(row.createdAt), row.createdAt);
+    }
+
+    /**
+     * Caps the thread at {@link #THREAD_MAX_RETAINED_MESSAGES} by dropping the end the user is not
+     * looking at: the newest messages after paging back, the oldest ones otherwise. The dropped end
+     * is paged in again if the user scrolls back to it.
+     */
+    private void trimThreadWindow(boolean dropNewest) {
+        int excess = chatAdapter.getMessageCount() - THREAD_MAX_RETAINED_MESSAGES;
+        if (excess <= 0) {
+            return;
+        }
+        if (dropNewest) {
+            chatAdapter.dropNewest(excess);
+            hasNewerMessages = true;
+        } else {
+            chatAdapter.dropOldest(excess);
+            hasOlderMessages = true;
+        }
+        updateThreadWindowBounds();
+    }
+
+    /**
+     * Points the low- and high-water marks at the oldest and newest confirmed messages shown.
+     * Messages still in the outbox have no created_at and are skipped.
+     */
+    private void updateThreadWindowBounds() {
+        threadLowWaterCreatedAt = null;
+        threadLowWaterId = null;
+        threadHighWaterCreatedAt = null;
+        threadHighWaterId = null;
+        int count = chatAdapter.getMessageCount();
+        for (int i = 0; i < count; i++) {
+            ChatMessage message = chatAdapter.getMessageAt(i);
+            if (!TextUtils.isEmpty(message.getCreatedAt()) && !TextUtils.isEmpty(message.getId())) {
+                threadLowWaterCreatedAt = message.getCreatedAt();
+                threadLowWaterId = message.getId();
+                break;
+            }
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            ChatMessage message = chatAdapter.getMessageAt(i);
+            if (!TextUtils.isEmpty(message.getCreatedAt()) && !TextUtils.isEmpty(message.getId())) {
+                threadHighWaterCreatedAt = message.getCreatedAt();
+                threadHighWaterId = message.getId();
+                break;
+            }
+        }
+    }
+
+    private void scrollToMessage(@NonNull String messageId) {
+        if (rvMessages == null) {
+            return;
+        }
+        for (int i = 0; i < chatAdapter.getItemCount(); i++) {
+            if (messageId.equals(chatAdapter.getMessageAt(i).getId())) {
+                messagesLayoutManager.scrollToPositionWithOffset(i, rvMessages.getHeight() / 3);
+                return;
+            }
+        }
+        scrollToLatestMessage();
+    }
+
+    private void scrollToLatestMessage() {
+        if (rvMessages != null && chatAdapter.getItemCount() > 0) {
+            rvMessages.scrollToPosition(chatAdapter.getItemCount() - 1);
+        }
+    }
+
+    private boolean isNearBottom() {
+        int count = chatAdapter != null ? chatAdapter.getItemCount() : 0;
+        return count == 0 || messagesLayoutManager.findLastVisibleItemPosition() >= count - 1 - THREAD_EDGE_DISTANCE;
+    }
+
+    /**
+     * Keeps messages that are still waiting in the outbox visible across history refreshes.
+     */
+    private void appendPendingMessages(List<ChatMessage> history, String currentUserId, String otherUserId) {
+        Set<String> knownIds = new HashSet<>();
+        for (ChatMessage message : history) {
+            knownIds.add(message.getId());
+        }
+        for (JSONObject pending : writeOutbox.pendingInserts("chats")) {
+            String id = pending.optString("id");
+            if (knownIds.contains(id)
+                    || !TextUtils.equals(currentUserId, pending.optString("sender_id"))
+                    || !TextUtils.equals(otherUserId, pending.optString("receiver_id"))) {
+                continue;
+            }
+            history.add(new ChatMessage(id, currentUserId, pending.optString("message"), getString(R.string.chat_sending)));
+        }
+    }
+
     @Override
     public void onResume() {
         super.onResume();
-        startChatRefreshLoop();
+        subscribeToThreadChanges();
     }
 
     @Override
     public void onPause() {
-        stopChatRefreshLoop();
+        unsubscribeFromThreadChanges();
         super.onPause();
     }
 
     @Override
     public void onDestroyView() {
-        stopChatRefreshLoop();
+        unsubscribeFromThreadChanges();
         super.onDestroyView();
     }
 
-    private void startChatRefreshLoop() {
-        if (chatRefreshHandler == null) {
-            chatRefreshHandler = new Handler(Looper.getMainLooper());
+    private void pollThread() {
+        if (!isAdded()) {
+            return;
         }
-        if (chatRefreshRunnable == null) {
-            chatRefreshRunnable = new Runnable() {
-                @Override
-                public void run() {
-                    if (!isAdded()) {
+        if (!listingCompletionFinalized) {
+            loadListingContext();
+        }
+        loadConversationHistory(true);
+    }
+
+    /**
+     * Listens for new and changed messages in this thread and for changes to the listing over
+     * Supabase Realtime. Messages sent from the user's other devices arrive as well. While the
+     * channel is live the thread poller is suspended; whenever it drops polling resumes, and each
+     * (re)join triggers one refresh to pick up anything missed.
+     */
+    private void subscribeToThreadChanges() {
+        String currentUserId = sessionManager != null ? sessionManager.getUserId() : null;
+        String otherUserId = getOwnerIdArg();
+        if (supabaseClient == null || threadSubscription != null
+                || TextUtils.isEmpty(currentUserId) || TextUtils.isEmpty(otherUserId)) {
+            return;
+        }
+        List<RealtimeClient.Binding> bindings = new ArrayList<>();
+        // A binding takes a single filter, so each side of the conversation needs its own.
+        bindings.add(new RealtimeClient.Binding("INSERT", "chats", "receiver_id=eq." + currentUserId));
+        bindings.add(new RealtimeClient.Binding("INSERT", "chats", "sender_id=eq." + currentUserId));
+        bindings.add(new RealtimeClient.Binding("UPDATE", "chats", "receiver_id=eq." + currentUserId));
+        bindings.add(new RealtimeClient.Binding("UPDATE", "chats", "sender_id=eq." + currentUserId));
+        String listingId = getListingId();
+        if (!TextUtils.isEmpty(listingId)) {
+            bindings.add(new RealtimeClient.Binding("UPDATE", "posts", "id=eq." + listingId));
+        }
+        threadSubscription = supabaseClient.getRealtime().subscribe("chat", bindings, new RealtimeClient.ChannelListener() {
+            @Override
+            public void onSubscribed() {
+                if (!isAdded()) {
+                    return;
+                }
+                threadPoller.setEnabled(false);
+                loadConversationHistory(true);
+                if (!listingCompletionFinalized) {
+                    loadListingContext();
+                }
+            }
+
+            @Override
+            public void onChange(@NonNull String table, @NonNull String type, @NonNull JSONObject record,
+                                 @Nullable JSONObject oldRecord) {
+                if (!isAdded()) {
+                    return;
+                }
+                if ("chats".equals(table)) {
+                    if (!isThreadMessage(record, currentUserId, otherUserId)) {
                         return;
                     }
-                    if (!listingCompletionFinalized) {
-                        loadListingContext();
-                    }
-                    loadConversationHistory(true);
-                    if (chatRefreshHandler != null) {
-                        chatRefreshHandler.postDelayed(this, CHAT_REFRESH_INTERVAL_MS);
+                    if ("UPDATE".equals(type)) {
+                        // Updated rows sit anywhere in the window, so the delta would not see them.
+                        applyUpdatedMessage(record);
+                        return;
                     }
+                    // A burst of messages costs one refresh.
+                    ensureChatRefreshHandler();
+                    chatRefreshHandler.removeCallbacks(realtimeRefreshRunnable);
+                    chatRefreshHandler.postDelayed(realtimeRefreshRunnable, REALTIME_REFRESH_DEBOUNCE_MS);
+                } else if ("posts".equals(table) && !listingCompletionFinalized) {
+                    loadListingContext();
+                }
+            }
+
+            @Override
+            public void onUnavailable() {
+                if (threadPoller != null) {
+                    threadPoller.setEnabled(true);
                 }
-            };
+            }
+        });
+    }
+
+    private static boolean isThreadMessage(@NonNull JSONObject record, String currentUserId, String otherUserId) {
+        String senderId = record.optString("sender_id");
+        String receiverId = record.optString("receiver_id");
+        return (TextUtils.equals(senderId, currentUserId) && TextUtils.equals(receiverId, otherUserId))
+                || (TextUtils.equals(senderId, otherUserId) && TextUtils.equals(receiverId, currentUserId));
+    }
+
+    private void applyUpdatedMessage(@NonNull JSONObject record) {
+        String id = record.optString("id", null);
+        String createdAt = record.optString("created_at", null);
+        if (TextUtils.isEmpty(id) || chatAdapter == null) {
+            return;
         }
-        stopChatRefreshLoop();
-        if (chatRefreshHandler != null && chatRefreshRunnable != null) {
-            chatRefreshHandler.postDelayed(chatRefreshRunnable, CHAT_REFRESH_INTERVAL_MS);
+        chatAdapter.updateMessage(new ChatMessage(id, record.optString("sender_id"), record.optString("message"),
+                formatTimestamp(createdAt), createdAt));
+    }
+
+    private void unsubscribeFromThreadChanges() {
+        if (threadSubscription != null) {
+            threadSubscription.unsubscribe();
+            threadSubscription = null;
+        }
+        if (threadPoller != null) {
+            threadPoller.setEnabled(true);
+        }
+        if (chatRefreshHandler != null) {
+            chatRefreshHandler.removeCallbacks(realtimeRefreshRunnable);
         }
     }
 
-    private void stopChatRefreshLoop() {
-        if (chatRefreshHandler != null && chatRefreshRunnable != null) {
-            chatRefreshHandler.removeCallbacks(chatRefreshRunnable);
+    private void ensureChatRefreshHandler() {
+        if (chatRefreshHandler == null) {
+            chatRefreshHandler = new Handler(Looper.getMainLooper());
         }
     }
 
@@ -704,7 +1141,7 @@ public class ChatFragment extends Fragment {
             "/rest/v1/chats?sender_id=eq.%s&receiver_id=eq.%s&is_read=eq.false", 
             otherUserId, currentUserId);
             
-        supabaseClient.updateRecord(endpoint, payload, new SupabaseClient.OnDatabaseCallback() {
+        supabaseClient.updateRecord(endpoint, payload, RequestPriority.BACKGROUND, new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
                 // Messages marked as read
@@ -717,7 +1154,23 @@ public class ChatFragment extends Fragment {
         });
     }
 
-    private String buildThreadEndpoint(String userId, String otherUserId, @Nullable String listingId) {
+    /**
+     * Thread endpoint ordered by (created_at, id). With a cursor set, only rows after that keyset
+     * position are returned.
+     */
+    private String buildThreadEndpoint(String userId, String otherUserId, @Nullable String listingId,
+                                       boolean older, @Nullable String cursorCreatedAt, @Nullable String cursorId) {
+        return buildThreadEndpoint(userId, otherUserId, listingId, older, cursorCreatedAt, cursorId, false);
+    }
+
+    /**
+     * Builds a page of the thread: the newest messages ({@code older}, without a cursor), the ones
+     * before a cursor ({@code older}) or the ones after it. {@code inclusive} also returns the
+     * cursor's own message. Without {@code cursorId} the cursor is a point in time only.
+     */
+    private String buildThreadEndpoint(String userId, String otherUserId, @Nullable String listingId,
+                                       boolean older, @Nullable String cursorCreatedAt, @Nullable String cursorId,
+                                       boolean inclusive) {
         if (supabaseClient == null || TextUtils.isEmpty(supabaseClient.getSupabaseUrl())) {
             return "/rest/v1/chats";
         }
@@ -734,7 +1187,18 @@ public class ChatFragment extends Fragment {
                 ? "id,message,created_at,sender_id,receiver_id,listing_id,listing_title_snapshot,listing_image_url_snapshot"
                         : "id,message,created_at,sender_id,receiver_id")
                 .addQueryParameter("or", participantsFilter)
-                .addQueryParameter("order", "created_at.asc");
+                .addQueryParameter("order", older ? "created_at.desc,id.desc" : "created_at.asc,id.asc")
+                .addQueryParameter("limit", String.valueOf(THREAD_PAGE_SIZE));
+        if (!TextUtils.isEmpty(cursorCreatedAt) && TextUtils.isEmpty(cursorId)) {
+            String op = older ? "lt" : "gt";
+            builder.addQueryParameter("created_at", (inclusive ? op + "e" : op) + "." + cursorCreatedAt);
+        } else if (!TextUtils.isEmpty(cursorCreatedAt)) {
+            // Timestamps contain reserved characters (. : +) and must be quoted inside logic trees.
+            String op = older ? "lt" : "gt";
+            builder.addQueryParameter("and", String.format(Locale.US,
+                    "(or(created_at.%3$s.\"%1$s\",and(created_at.eq.\"%1$s\",id.%4$s.%2$s)))",
+                    cursorCreatedAt, cursorId, op, inclusive ? op + "e" : op));
+        }
         if (ChatFeatureCompat.isListingMetadataSupported() && !TextUtils.isEmpty(listingId)) {
             // Keep threads scoped to the selected listing to avoid jumping to older completed chats.
             builder.addQueryParameter("listing_id", "eq." + listingId);
@@ -774,7 +1238,7 @@ public class ChatFragment extends Fragment {
         String endpoint = String.format(Locale.US,
             "/rest/v1/posts?select=id,user_id,category,status,title,image_url,listing_type&id=eq.%s&limit=1",
             listingId);
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        supabaseClient.query(endpoint, requestScope.wrap(new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
                 if (!isAdded()) {
@@ -819,7 +1283,7 @@ public class ChatFragment extends Fragment {
                 }
                 loadCompletionFromTradeRecords();
             }
-        });
+        }));
     }
 
     private void bindListingContext(@Nullable String rawCategory, @Nullable String rawStatus) {
@@ -903,7 +1367,7 @@ public class ChatFragment extends Fragment {
                 .addQueryParameter("order", "created_at.desc")
                 .addQueryParameter("limit", "1");
         String endpoint = builder.build().toString().replace(supabaseClient.getSupabaseUrl(), "");
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        supabaseClient.query(endpoint, requestScope.wrap(new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
                 listingLookupInFlight = false;
@@ -939,7 +1403,7 @@ public class ChatFragment extends Fragment {
                     showListingContextFallback();
                 }
             }
-        });
+        }));
 
     }
 
@@ -960,7 +1424,7 @@ public class ChatFragment extends Fragment {
         String endpoint = String.format(Locale.US,
                 "/rest/v1/swaps?select=status,completed_at&post1_id=eq.%s&limit=1",
                 listingId);
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        supabaseClient.query(endpoint, requestScope.wrap(new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
                 if (!isAdded()) {
@@ -978,14 +1442,14 @@ public class ChatFragment extends Fragment {
                 }
                 queryDonationCompletion(listingId);
             }
-        });
+        }));
     }
 
     private void queryDonationCompletion(@NonNull String listingId) {
         String endpoint = String.format(Locale.US,
                 "/rest/v1/donations?select=status,completed_at&post_id=eq.%s&limit=1",
                 listingId);
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        supabaseClient.query(endpoint, requestScope.wrap(new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
                 if (!isAdded()) {
@@ -1003,7 +1467,7 @@ public class ChatFragment extends Fragment {
                 }
                 showListingContextFallback();
             }
-        });
+        }));
     }
 
     private boolean applyCompletionFromTrade(Object data) {
@@ -1188,8 +1652,7 @@ public class ChatFragment extends Fragment {
         }
 
         if (supabaseClient == null || TextUtils.isEmpty(listingId) || TextUtils.isEmpty(owner) || TextUtils.isEmpty(counterparty)) {
-            tradeRecordPersisted = true;
-            updateImpactForInvolvedUsers(status);
+            onTradeRecordMissing();
             return;
         }
 
@@ -1262,13 +1725,12 @@ public class ChatFragment extends Fragment {
             @Override
             public void onSuccess(Object data) {
                 tradeRecordPersisted = true;
-                updateImpactForInvolvedUsers(status);
+                recordTradeImpact(ImpactRepository.TRADE_SWAP, ImpactRepository.firstRowId(data));
             }
 
             @Override
             public void onError(String error) {
-                tradeRecordPersisted = true;
-                updateImpactForInvolvedUsers(status);
+                onTradeRecordMissing();
             }
         });
     }
@@ -1281,13 +1743,12 @@ public class ChatFragment extends Fragment {
             @Override
             public void onSuccess(Object data) {
                 tradeRecordPersisted = true;
-                updateImpactForInvolvedUsers(status);
+                recordTradeImpact(ImpactRepository.TRADE_SWAP, swapId);
             }
 
             @Override
             public void onError(String error) {
-                tradeRecordPersisted = true;
-                updateImpactForInvolvedUsers(status);
+                onTradeRecordMissing();
             }
         });
     }
@@ -1335,13 +1796,12 @@ public class ChatFragment extends Fragment {
             @Override
             public void onSuccess(Object data) {
                 tradeRecordPersisted = true;
-                updateImpactForInvolvedUsers(status);
+                recordTradeImpact(ImpactRepository.TRADE_DONATION, ImpactRepository.firstRowId(data));
             }
 
             @Override
             public void onError(String error) {
-                tradeRecordPersisted = true;
-                updateImpactForInvolvedUsers(status);
+                onTradeRecordMissing();
             }
         });
     }
@@ -1354,13 +1814,12 @@ public class ChatFragment extends Fragment {
             @Override
             public void onSuccess(Object data) {
                 tradeRecordPersisted = true;
-                updateImpactForInvolvedUsers(status);
+                recordTradeImpact(ImpactRepository.TRADE_DONATION, donationId);
             }
 
             @Override
             public void onError(String error) {
-                tradeRecordPersisted = true;
-                updateImpactForInvolvedUsers(status);
+                onTradeRecordMissing();
             }
         });
     }
@@ -1447,22 +1906,19 @@ public class ChatFragment extends Fragment {
 
     private void inferCounterpartyAndPersist(String status, boolean restrictToListing) {
         if (supabaseClient == null || sessionManager == null) {
-            tradeRecordPersisted = true;
-            updateImpactForInvolvedUsers(status);
+            onTradeRecordMissing();
             return;
         }
         String currentUser = sessionManager.getUserId();
         String owner = !TextUtils.isEmpty(listingOwnerId) ? listingOwnerId : getOwnerIdArg();
         if (TextUtils.isEmpty(currentUser) || TextUtils.isEmpty(owner)) {
-            tradeRecordPersisted = true;
-            updateImpactForInvolvedUsers(status);
+            onTradeRecordMissing();
             return;
         }
 
         HttpUrl baseUrl = HttpUrl.parse(supabaseClient.getSupabaseUrl());
         if (baseUrl == null) {
-            tradeRecordPersisted = true;
-            updateImpactForInvolvedUsers(status);
+            onTradeRecordMissing();
             return;
         }
 
@@ -1504,8 +1960,7 @@ public class ChatFragment extends Fragment {
                         inferCounterpartyAndPersist(status, false);
                         return;
                     }
-                    tradeRecordPersisted = true;
-                    updateImpactForInvolvedUsers(status);
+                    onTradeRecordMissing();
                     return;
                 }
                 persistTradeRecord(status);
@@ -1517,159 +1972,24 @@ public class ChatFragment extends Fragment {
                     inferCounterpartyAndPersist(status, false);
                     return;
                 }
-                tradeRecordPersisted = true;
-                updateImpactForInvolvedUsers(status);
+                onTradeRecordMissing();
             }
         });
     }
 
-    private void updateImpactForInvolvedUsers(String status) {
-        String owner = listingOwnerId;
-        if (TextUtils.isEmpty(owner)) {
-            owner = getOwnerIdArg();
-        }
-        String currentUser = sessionManager != null ? sessionManager.getUserId() : null;
-        String counterparty = resolveTradeCounterpartyId();
-        List<String> targetUsers = new ArrayList<>();
-        if (!TextUtils.isEmpty(owner)) {
-            targetUsers.add(owner);
+    private void recordTradeImpact(String tradeType, @Nullable String tradeId) {
+        if (impactRepository != null) {
+            impactRepository.recordTradeImpact(tradeType, tradeId);
         }
-        if (!TextUtils.isEmpty(currentUser) && !currentUser.equals(owner)) {
-            targetUsers.add(currentUser);
-        }
-        if (!TextUtils.isEmpty(counterparty) && !targetUsers.contains(counterparty)) {
-            targetUsers.add(counterparty);
-        }
-        for (String user : targetUsers) {
-            updateImpactForUser(user, status);
-        }
-    }
-
-    private void updateImpactForUser(String userId, String status) {
-        if (supabaseClient == null || TextUtils.isEmpty(userId)) return;
-        String profileQuery = "/rest/v1/profiles?id=eq." + userId + "&select=total_swaps,total_donations,total_purchases";
-        supabaseClient.query(profileQuery, new SupabaseClient.OnDatabaseCallback() {
-            @Override
-            public void onSuccess(Object data) {
-                try {
-                    JSONArray array = new JSONArray(data.toString());
-                    if (array.length() == 0) return;
-                    JSONObject profile = array.getJSONObject(0);
-                    int swaps = profile.optInt("total_swaps", 0);
-                    int donations = profile.optInt("total_donations", 0);
-                    int purchases = profile.optInt("total_purchases", 0);
-
-                    if ("swapped".equals(status)) {
-                        swaps++;
-                    } else if ("donated".equals(status)) {
-                        donations++;
-                    }
-
-                    int newScore = (swaps * 2) + (donations * 3) + (purchases * 1);
-                    String newLevel = "Beginner EcoSaver";
-                    String newIcon = "🌱";
-                    if (newScore >= 100) {
-                        newLevel = "Planet Pioneer";
-                        newIcon = "🌞";
-                    } else if (newScore >= 50) {
-                        newLevel = "Eco Guardian";
-                        newIcon = "🦋";
-                    } else if (newScore >= 25) {
-                        newLevel = "Sustainable Hero";
-                        newIcon = "🌍";
-                    } else if (newScore >= 10) {
-                        newLevel = "Rising Recycler";
-                        newIcon = "♻️";
-                    }
-
-                    JsonObject updatePayload = new JsonObject();
-                    updatePayload.addProperty("total_swaps", swaps);
-                    updatePayload.addProperty("total_donations", donations);
-                    updatePayload.addProperty("impact_score", newScore);
-                    updatePayload.addProperty("eco_level", newLevel);
-                    updatePayload.addProperty("eco_icon", newIcon);
-
-                    supabaseClient.update("profiles", userId, updatePayload, new SupabaseClient.OnDatabaseCallback() {
-                        @Override
-                        public void onSuccess(Object data) {
-                            updateEcoSavings(userId, status);
-                        }
-
-                        @Override
-                        public void onError(String error) {
-                            // ignore silently
-                        }
-                    });
-                } catch (JSONException ignored) {
-                }
-            }
-
-            @Override
-            public void onError(String error) {
-                // ignore silently
-            }
-        });
     }
 
-    private void updateEcoSavings(String userId, String status) {
-        if (supabaseClient == null || TextUtils.isEmpty(userId)) return;
-        String savingsQuery = "/rest/v1/eco_savings?user_id=eq." + userId + "&select=*";
-        supabaseClient.query(savingsQuery, new SupabaseClient.OnDatabaseCallback() {
-            @Override
-            public void onSuccess(Object data) {
-                try {
-                    JSONArray array = new JSONArray(data.toString());
-                    if (array.length() == 0) return;
-                    JSONObject savings = array.getJSONObject(0);
-                    double co2 = savings.optDouble("co2_saved", 0);
-                    double water = savings.optDouble("water_saved", 0);
-                    double waste = savings.optDouble("waste_diverted", 0);
-                    double energy = savings.optDouble("energy_saved", 0);
-                    int itemsSwapped = savings.optInt("items_swapped", 0);
-                    int itemsDonated = savings.optInt("items_donated", 0);
-
-                    if ("swapped".equals(status)) {
-                        co2 += 5;
-                        water += 100;
-                        waste += 2;
-                        energy += 10;
-                        itemsSwapped++;
-                    } else if ("donated".equals(status)) {
-                        co2 += 7;
-                        water += 150;
-                        waste += 3;
-                        energy += 15;
-                        itemsDonated++;
-                    }
-
-                    JsonObject updatePayload = new JsonObject();
-                    updatePayload.addProperty("co2_saved", co2);
-                    updatePayload.addProperty("water_saved", water);
-                    updatePayload.addProperty("waste_diverted", waste);
-                    updatePayload.addProperty("energy_saved", energy);
-                    updatePayload.addProperty("items_swapped", itemsSwapped);
-                    updatePayload.addProperty("items_donated", itemsDonated);
-
-                    supabaseClient.update("eco_savings", "user_id", userId, updatePayload, new SupabaseClient.OnDatabaseCallback() {
-                        @Override
-                        public void onSuccess(Object data) {
-                            // ok
-                        }
-
-                        @Override
-                        public void onError(String error) {
-                            // ignore
-                        }
-                    });
-                } catch (JSONException ignored) {
-                }
-            }
-
-            @Override
-            public void onError(String error) {
-                // ignore
-            }
-        });
+    /**
+     * Impact is credited by the server from the trade row, so a trade that could not be saved
+     * earns none.
+     */
+    private void onTradeRecordMissing() {
+        tradeRecordPersisted = true;
+        Log.w(TAG, "Trade record could not be saved; impact not credited");
     }
 
     private void applyListingPreview() {
@@ -1860,6 +2180,38 @@ public class ChatFragment extends Fragment {
         }
     }
 
+    /**
+     * Moves a server timestamp by {@code deltaMs} and returns it in UTC, or null if it cannot be
+     * read. Fractions beyond milliseconds are cut off, which only widens a window that starts
+     * earlier.
+     */
+    @Nullable
+    static String shiftTimestamp(@Nullable String isoDate, long deltaMs) {
+        if (isoDate == null || isoDate.length() < 19) {
+            return null;
+        }
+        int zoneStart = 19;
+        int millis = 0;
+        if (isoDate.length() > 19 && isoDate.charAt(19) == '.') {
+            zoneStart = 20;
+            while (zoneStart < isoDate.length() && Character.isDigit(isoDate.charAt(zoneStart))) {
+                zoneStart++;
+            }
+            String fraction = (isoDate.substring(20, zoneStart) + "000").substring(0, 3);
+            millis = Integer.parseInt(fraction);
+        }
+        try {
+            SimpleDateFormat parser = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", Locale.US);
+            parser.setLenient(false);
+            long time = parser.parse(isoDate.substring(0, 19) + isoDate.substring(zoneStart)).getTime();
+            SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+            formatter.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return formatter.format(new Date(time + millis + deltaMs));
+        } catch (ParseException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     private long parseIsoDate(String isoDate) throws ParseException {
         ParseException lastException = null;
         String[] patterns = {"yyyy-MM-dd'T'HH:mm:ss.SSSX", "yyyy-MM-dd'T'HH:mm:ssX"};
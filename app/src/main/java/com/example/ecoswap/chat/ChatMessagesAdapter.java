@@ -7,22 +7,61 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.example.ecoswap.R;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
+/**
+ * Chat bubbles for one thread, oldest first.
+ *
+ * Every update is submitted as a new list and diffed against the shown one on a background thread,
+ * so only inserted, removed and changed rows are bound again; a refresh that changed nothing binds
+ * nothing. Item ids are stable per message id. The mutators build on the latest submitted list, so
+ * they can be called back to back before the previous diff has been applied.
+ */
 public class ChatMessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
     private static final int VIEW_OUTGOING = 1;
     private static final int VIEW_INCOMING = 2;
+    // Rebinds only the avatar of a bubble whose sender's profile was loaded.
+    private static final Object PAYLOAD_PROFILE = new Object();
+
+    private static final DiffUtil.ItemCallback<ChatMessage> DIFF_CALLBACK = new DiffUtil.ItemCallback<ChatMessage>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ChatMessage oldItem, @NonNull ChatMessage newItem) {
+            return TextUtils.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ChatMessage oldItem, @NonNull ChatMessage newItem) {
+            return TextUtils.equals(oldItem.getSenderId(), newItem.getSenderId())
+                    && TextUtils.equals(oldItem.getMessage(), newItem.getMessage())
+                    && TextUtils.equals(oldItem.getDisplayTimestamp(), newItem.getDisplayTimestamp())
+                    && TextUtils.equals(oldItem.getCreatedAt(), newItem.getCreatedAt());
+        }
+    };
 
     private final String currentUserId;
-    private final List<ChatMessage> messages = new ArrayList<>();
+    private final AsyncListDiffer<ChatMessage> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    // Latest list handed to the differ; what is shown once the pending diffs are applied.
+    private List<ChatMessage> messages = new ArrayList<>();
+    // Callbacks of submitted lists that are not shown yet. A list superseded before its diff was
+    // applied hands its callbacks on to the next one.
+    private final List<Runnable> commitCallbacks = new ArrayList<>();
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private long nextStableId = 1L;
     private final Map<String, ParticipantProfile> participantProfiles = new HashMap<>();
     private final OnAvatarClickListener avatarClickListener;
 
@@ -33,11 +72,26 @@ public class ChatMessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
     public ChatMessagesAdapter(@NonNull String currentUserId, OnAvatarClickListener listener) {
         this.currentUserId = currentUserId;
         this.avatarClickListener = listener;
+        setHasStableIds(true);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String id = differ.getCurrentList().get(position).getId();
+        if (id == null) {
+            return RecyclerView.NO_ID;
+        }
+        Long stableId = stableIds.get(id);
+        if (stableId == null) {
+            stableId = nextStableId++;
+            stableIds.put(id, stableId);
+        }
+        return stableId;
     }
 
     @Override
     public int getItemViewType(int position) {
-        ChatMessage message = messages.get(position);
+        ChatMessage message = differ.getCurrentList().get(position);
         if (message.getSenderId() != null && message.getSenderId().equals(currentUserId)) {
             return VIEW_OUTGOING;
         }
@@ -54,30 +108,216 @@ public class ChatMessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
 
     @Override
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
-        ChatMessage message = messages.get(position);
+        ChatMessage message = differ.getCurrentList().get(position);
         ParticipantProfile profile = participantProfiles.get(message.getSenderId());
         ((MessageViewHolder) holder).bind(message, profile, avatarClickListener);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty() || !payloads.contains(PAYLOAD_PROFILE) || payloads.size() > 1) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        ChatMessage message = differ.getCurrentList().get(position);
+        ((MessageViewHolder) holder).bindAvatar(participantProfiles.get(message.getSenderId()),
+                message.getSenderId(), avatarClickListener);
+    }
+
+    /** Number of bubbles on screen; see {@link #getMessageCount()} for the latest list. */
     @Override
     public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    /** Number of messages in the latest list, including updates that are still being diffed. */
+    public int getMessageCount() {
         return messages.size();
     }
 
-    public void setMessages(@NonNull List<ChatMessage> newMessages) {
-        messages.clear();
-        messages.addAll(newMessages);
-        notifyDataSetChanged();
+    /**
+     * Replaces the thread. {@code onCommitted} runs once the new list, or a later one built on it,
+     * is shown, e.g. to scroll to it.
+     */
+    public void setMessages(@NonNull List<ChatMessage> newMessages, @Nullable Runnable onCommitted) {
+        submit(new ArrayList<>(newMessages), onCommitted);
+    }
+
+    public void appendMessage(@NonNull ChatMessage message, @Nullable Runnable onCommitted) {
+        List<ChatMessage> updated = new ArrayList<>(messages);
+        updated.add(message);
+        submit(updated, onCommitted);
+    }
+
+    /**
+     * Adds a page of older messages, oldest first, above those shown.
+     */
+    public void prependMessages(@NonNull List<ChatMessage> olderMessages) {
+        if (olderMessages.isEmpty()) {
+            return;
+        }
+        List<ChatMessage> updated = new ArrayList<>(olderMessages.size() + messages.size());
+        updated.addAll(olderMessages);
+        updated.addAll(messages);
+        submit(updated, null);
+    }
+
+    /**
+     * Drops the {@code count} oldest messages, e.g. once they are far above the visible window.
+     */
+    public void dropOldest(int count) {
+        int removed = Math.min(count, messages.size());
+        if (removed <= 0) {
+            return;
+        }
+        submit(new ArrayList<>(messages.subList(removed, messages.size())), null);
+    }
+
+    /**
+     * Drops the {@code count} newest messages, e.g. once they are far below the visible window.
+     */
+    public void dropNewest(int count) {
+        int removed = Math.min(count, messages.size());
+        if (removed <= 0) {
+            return;
+        }
+        submit(new ArrayList<>(messages.subList(0, messages.size() - removed)), null);
+    }
+
+    /**
+     * Removes the message with the given id, e.g. a sent message the server rejected.
+     */
+    public void removeMessage(@NonNull String messageId) {
+        int index = indexOf(messages, messageId);
+        if (index < 0) {
+            return;
+        }
+        List<ChatMessage> updated = new ArrayList<>(messages);
+        updated.remove(index);
+        submit(updated, null);
     }
 
-    public void appendMessage(@NonNull ChatMessage message) {
-        messages.add(message);
-        notifyItemInserted(messages.size() - 1);
+    /**
+     * Replaces the message with the same id, e.g. after the server changed it. Messages that are
+     * not shown are ignored.
+     */
+    public void updateMessage(@NonNull ChatMessage message) {
+        int index = indexOf(messages, message.getId());
+        if (index < 0) {
+            return;
+        }
+        List<ChatMessage> updated = new ArrayList<>(messages);
+        updated.set(index, message);
+        submit(updated, null);
+    }
+
+    /** Message at {@code position} in the latest list. */
+    @NonNull
+    public ChatMessage getMessageAt(int position) {
+        return messages.get(position);
+    }
+
+    /**
+     * Adds messages at the newer end of those shown. A message whose id is already listed, such
+     * as a sent message that was still pending, is replaced in place instead. New messages are
+     * placed by (created_at, id), so one that committed after newer ones were shown still lands in
+     * order; messages that are still pending stay last.
+     */
+    public void mergeMessages(@NonNull List<ChatMessage> newerMessages, @Nullable Runnable onCommitted) {
+        List<ChatMessage> updated = new ArrayList<>(messages);
+        for (ChatMessage message : newerMessages) {
+            int index = indexOf(updated, message.getId());
+            if (index >= 0) {
+                updated.set(index, message);
+            } else {
+                updated.add(insertionIndex(updated, message), message);
+            }
+        }
+        submit(updated, onCommitted);
     }
 
+    public boolean containsMessage(@NonNull String messageId) {
+        return indexOf(messages, messageId) >= 0;
+    }
+
+    private static int insertionIndex(List<ChatMessage> list, ChatMessage message) {
+        int index = list.size();
+        if (message.getCreatedAt() == null) {
+            return index;
+        }
+        while (index > 0) {
+            ChatMessage previous = list.get(index - 1);
+            if (previous.getCreatedAt() != null && compareKeyset(previous, message) <= 0) {
+                break;
+            }
+            index--;
+        }
+        return index;
+    }
+
+    /** PostgREST writes every created_at in UTC, so the strings sort chronologically. */
+    private static int compareKeyset(ChatMessage a, ChatMessage b) {
+        int byTime = a.getCreatedAt().compareTo(b.getCreatedAt());
+        return byTime != 0 ? byTime : String.valueOf(a.getId()).compareTo(String.valueOf(b.getId()));
+    }
+
+    private static int indexOf(List<ChatMessage> list, String messageId) {
+        // New rows almost always match the most recent messages, so search from the end.
+        for (int i = list.size() - 1; i >= 0; i--) {
+            if (TextUtils.equals(list.get(i).getId(), messageId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void submit(@NonNull List<ChatMessage> updated, @Nullable Runnable onCommitted) {
+        messages = updated;
+        if (onCommitted != null) {
+            commitCallbacks.add(onCommitted);
+        }
+        differ.submitList(updated, () -> {
+            if (updated != messages) {
+                return;
+            }
+            pruneStableIds();
+            List<Runnable> callbacks = new ArrayList<>(commitCallbacks);
+            commitCallbacks.clear();
+            for (Runnable callback : callbacks) {
+                callback.run();
+            }
+        });
+    }
+
+    /** Forgets the ids of messages that are no longer listed, once no pending diff refers to them. */
+    private void pruneStableIds() {
+        Set<String> listed = new HashSet<>();
+        for (ChatMessage message : messages) {
+            listed.add(message.getId());
+        }
+        Iterator<String> iterator = stableIds.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (!listed.contains(iterator.next())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Sets the name and avatar shown for {@code userId}, rebinding only that sender's avatars and
+     * only if they changed.
+     */
     public void setParticipantProfile(@NonNull String userId, String displayName, String avatarUrl) {
-        participantProfiles.put(userId, new ParticipantProfile(displayName, avatarUrl));
-        notifyDataSetChanged();
+        ParticipantProfile profile = new ParticipantProfile(displayName, avatarUrl);
+        if (profile.equals(participantProfiles.put(userId, profile))) {
+            return;
+        }
+        List<ChatMessage> shown = differ.getCurrentList();
+        for (int i = 0; i < shown.size(); i++) {
+            if (TextUtils.equals(shown.get(i).getSenderId(), userId)) {
+                notifyItemChanged(i, PAYLOAD_PROFILE);
+            }
+        }
     }
 
     static class MessageViewHolder extends RecyclerView.ViewHolder {
@@ -100,7 +340,7 @@ public class ChatMessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
             bindAvatar(profile, message.getSenderId(), listener);
         }
 
-        private void bindAvatar(ParticipantProfile profile, String senderId, OnAvatarClickListener listener) {
+        void bindAvatar(ParticipantProfile profile, String senderId, OnAvatarClickListener listener) {
             if (imgAvatar == null || tvAvatarFallback == null) {
                 return;
             }
@@ -151,6 +391,23 @@ public class ChatMessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
             this.displayName = displayName;
             this.avatarUrl = avatarUrl;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ParticipantProfile)) {
+                return false;
+            }
+            ParticipantProfile other = (ParticipantProfile) o;
+            return TextUtils.equals(displayName, other.displayName) && TextUtils.equals(avatarUrl, other.avatarUrl);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(displayName, avatarUrl);
+        }
     }
 
     public static class ChatMessage {
@@ -158,12 +415,20 @@ public class ChatMessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
         private final String senderId;
         private final String message;
         private final String displayTimestamp;
+        @Nullable
+        private final String createdAt;
 
         public ChatMessage(String id, String senderId, String message, String displayTimestamp) {
+            this(id, senderId, message, displayTimestamp, null);
+        }
+
+        public ChatMessage(String id, String senderId, String message, String displayTimestamp,
+                           @Nullable String createdAt) {
             this.id = id;
             this.senderId = senderId;
             this.message = message;
             this.displayTimestamp = displayTimestamp;
+            this.createdAt = createdAt;
         }
 
         public String getId() {
@@ -181,5 +446,11 @@ public class ChatMessagesAdapter extends RecyclerView.Adapter<RecyclerView.ViewH
         public String getDisplayTimestamp() {
             return displayTimestamp;
         }
+
+        /** Raw created_at from the server; null while the message is still being sent. */
+        @Nullable
+        public String getCreatedAt() {
+            return createdAt;
+        }
     }
 }
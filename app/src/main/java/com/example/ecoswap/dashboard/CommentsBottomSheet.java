@@ -17,12 +17,17 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.ecoswap.R;
 import com.example.ecoswap.utils.SessionManager;
+import com.example.ecoswap.utils.RequestPriority;
+import com.example.ecoswap.utils.RequestScope;
 import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseQuery;
+import com.example.ecoswap.utils.WriteOutbox;
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
 import com.google.gson.JsonObject;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -100,7 +105,12 @@ public class CommentsBottomSheet extends BottomSheetDialogFragment {
         progressBar.setVisibility(View.VISIBLE);
         tvNoComments.setVisibility(View.GONE);
         
-        String query = "/rest/v1/comments?select=*,profiles(name,profile_image_url)&post_id=eq." + postId + "&order=created_at.desc";
+        String query = SupabaseQuery.from("comments")
+                .select("id", "content", "created_at")
+                .embed("profiles", "name")
+                .eq("post_id", postId)
+                .order("created_at", false)
+                .build();
         
         supabaseClient.query(query, new SupabaseClient.OnDatabaseCallback() {
             @Override
@@ -163,21 +173,24 @@ public class CommentsBottomSheet extends BottomSheetDialogFragment {
             return;
         }
         
-        btnSend.setEnabled(false);
-        
+        // The row id is generated here so the optimistic comment and every outbox replay share it.
+        String provisionalId = UUID.randomUUID().toString();
         JsonObject payload = new JsonObject();
+        payload.addProperty("id", provisionalId);
         payload.addProperty("post_id", postId);
         payload.addProperty("author_id", userId);
         payload.addProperty("content", content);
 
         // Optimistic insert
-        String provisionalId = "temp_" + System.currentTimeMillis();
         CommentsAdapter.Comment provisional = new CommentsAdapter.Comment(provisionalId, "You", content, getString(R.string.just_now));
         commentList.add(0, provisional);
         adapter.notifyDataSetChanged();
         tvNoComments.setVisibility(View.GONE);
+        etCommentInput.setText("");
 
-        supabaseClient.insert("comments", payload, new SupabaseClient.OnDatabaseCallback() {
+        // Scoped to the view so a comment still queued offline does not keep this sheet alive.
+        RequestScope scope = RequestScope.bind(getViewLifecycleOwner());
+        WriteOutbox.getInstance(requireContext()).enqueueInsert("comments", payload, scope.wrap(new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
                 String newId = provisionalId;
@@ -196,8 +209,6 @@ public class CommentsBottomSheet extends BottomSheetDialogFragment {
                 final String finalDisplayTime = displayTime;
                 if (isAdded()) {
                     requireActivity().runOnUiThread(() -> {
-                        etCommentInput.setText("");
-                        btnSend.setEnabled(true);
                         replaceProvisional(provisionalId, finalNewId, finalDisplayTime);
                         sendNotification("comment", "commented on your post", postOwnerId, postId, finalNewId);
                         Toast.makeText(getContext(), "Comment posted", Toast.LENGTH_SHORT).show();
@@ -209,13 +220,12 @@ public class CommentsBottomSheet extends BottomSheetDialogFragment {
             public void onError(String error) {
                 if (isAdded()) {
                     requireActivity().runOnUiThread(() -> {
-                        btnSend.setEnabled(true);
                         removeProvisional(provisionalId);
                         Toast.makeText(getContext(), "Failed to post comment: " + error, Toast.LENGTH_SHORT).show();
                     });
                 }
             }
-        });
+        }));
     }
 
     private void replaceProvisional(String provisionalId, String newId, String displayTime) {
@@ -275,7 +285,7 @@ public class CommentsBottomSheet extends BottomSheetDialogFragment {
         if (!TextUtils.isEmpty(commentId)) {
             payload.addProperty("comment_id", commentId);
         }
-        supabaseClient.insert("notifications", payload, new SupabaseClient.OnDatabaseCallback() {
+        supabaseClient.insert("notifications", payload, RequestPriority.BACKGROUND, new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) { }
 
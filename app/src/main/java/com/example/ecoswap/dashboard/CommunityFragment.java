@@ -30,8 +30,14 @@ import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import com.example.ecoswap.R;
 import com.example.ecoswap.BuildConfig;
+import com.example.ecoswap.repository.CommunityRepository;
+import com.example.ecoswap.repository.RepositoryPageCallback;
+import com.example.ecoswap.utils.PaginationScrollListener;
+import com.example.ecoswap.utils.PollingScheduler;
+import com.example.ecoswap.utils.RequestScope;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseError;
 import com.bumptech.glide.Glide;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -44,11 +50,12 @@ import java.util.List;
 import java.util.Locale;
 import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 public class CommunityFragment extends Fragment {
     
     private static final String TAG = "CommunityFragment";
+    private static final long BADGE_POLL_INTERVAL_MS = 30_000L;
+    private static final long BADGE_POLL_MAX_INTERVAL_MS = 10 * 60_000L;
     
     private RecyclerView rvCommunityPosts;
     private FloatingActionButton fabCreatePost;
@@ -63,6 +70,17 @@ public class CommunityFragment extends Fragment {
     private String currentFilter = "All Posts";
     
     private SupabaseClient supabaseClient;
+    private RequestScope requestScope;
+    private PollingScheduler.Poller badgePoller;
+    private int lastUnreadNotifications = -1;
+    private CommunityRepository communityRepository;
+    @Nullable
+    private String feedTopic;
+    @Nullable
+    private String feedNextPageToken;
+    private boolean loadingFeedPage = false;
+    // Bumped on every reload so pages requested for an earlier feed are ignored.
+    private int feedGeneration = 0;
     private SessionManager sessionManager;
     private String userId;
     private Uri selectedImageUri = null;
@@ -81,26 +99,31 @@ public class CommunityFragment extends Fragment {
         supabaseClient = SupabaseClient.getInstance(requireContext());
         userId = sessionManager.getUserId();
         initImagePicker();
-        getParentFragmentManager().setFragmentResultListener("notifications_refresh", this, (requestKey, result) -> loadNotificationBadge());
-    }
-
-    @Override
-    public void onResume() {
-        super.onResume();
-        loadNotificationBadge();
+        getParentFragmentManager().setFragmentResultListener("notifications_refresh", this, (requestKey, result) -> {
+            if (badgePoller != null) {
+                badgePoller.pollNow();
+            } else {
+                loadNotificationBadge();
+            }
+        });
     }
     
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container, @Nullable Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_community, container, false);
+        requestScope = RequestScope.bind(getViewLifecycleOwner());
+        communityRepository = new CommunityRepository(requireContext(), requestScope);
         
         initViews(view);
         setupCategoryFilters();
         setupRecyclerView();
         loadPosts();
         setupFAB();
+        lastUnreadNotifications = -1;
         loadNotificationBadge();
+        badgePoller = PollingScheduler.getInstance().register(getViewLifecycleOwner(),
+                BADGE_POLL_INTERVAL_MS, BADGE_POLL_MAX_INTERVAL_MS, this::loadNotificationBadge);
         
         return view;
     }
@@ -159,6 +182,17 @@ public class CommunityFragment extends Fragment {
         postAdapter = new CommunityPostAdapter(postList, getContext());
         rvCommunityPosts.setLayoutManager(new LinearLayoutManager(getContext()));
         rvCommunityPosts.setAdapter(postAdapter);
+        rvCommunityPosts.addOnScrollListener(new PaginationScrollListener(new PaginationScrollListener.Pager() {
+            @Override
+            public boolean canLoadMore() {
+                return !loadingFeedPage && feedNextPageToken != null;
+            }
+
+            @Override
+            public void loadMore() {
+                loadFeedPage(feedTopic, feedNextPageToken);
+            }
+        }));
     }
 
     private void loadNotificationBadge() {
@@ -168,12 +202,20 @@ public class CommunityFragment extends Fragment {
         String endpoint = String.format(Locale.US,
             "/rest/v1/notifications?select=id&user_id=eq.%s&is_read=eq.false",
             userId);
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        supabaseClient.query(endpoint, requestScope.wrap(new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
                 try {
                     JSONArray array = new JSONArray(data.toString());
                     int unread = array.length();
+                    if (badgePoller != null && lastUnreadNotifications >= 0) {
+                        if (unread != lastUnreadNotifications) {
+                            badgePoller.markActive();
+                        } else {
+                            badgePoller.markIdle();
+                        }
+                    }
+                    lastUnreadNotifications = unread;
                     if (isAdded() && tvNotificationBadge != null) {
                         requireActivity().runOnUiThread(() -> {
                             if (unread > 0) {
@@ -192,171 +234,89 @@ public class CommunityFragment extends Fragment {
             public void onError(String error) {
                 // ignore badge errors
             }
-        });
-    }
-    
-    private void loadPosts() {
-        if (swipeRefreshLayout != null) {
-            swipeRefreshLayout.setRefreshing(true);
-        }
-        
-        String query = "/rest/v1/posts?select=*,profiles(name,profile_image_url),comments(count)&category=eq.community&order=created_at.desc";
-        
-        supabaseClient.query(query, new SupabaseClient.OnDatabaseCallback() {
+
             @Override
-            public void onSuccess(Object data) {
-                try {
-                    JSONArray array = new JSONArray(data.toString());
-                    List<CommunityPost> newPosts = new ArrayList<>();
-                    
-                    for (int i = 0; i < array.length(); i++) {
-                        JSONObject obj = array.getJSONObject(i);
-                        String id = obj.optString("id");
-                        String title = obj.optString("title"); // Using title as sub-category
-                        String content = obj.optString("description");
-                        String imageUrl = obj.isNull("image_url") ? null : obj.optString("image_url", null);
-                        if (imageUrl != null && imageUrl.trim().isEmpty()) {
-                            imageUrl = null;
-                        }
-                        int likes = obj.optInt("likes", 0);
-                        int commentCount = 0;
-                        JSONArray comments = obj.optJSONArray("comments");
-                        if (comments != null && comments.length() > 0) {
-                            commentCount = comments.optJSONObject(0).optInt("count", 0);
-                        }
-                        String createdAt = obj.optString("created_at");
-                        String ownerId = obj.optString("user_id", "");
-                        
-                        JSONObject profile = obj.optJSONObject("profiles");
-                        String userName = "Unknown User";
-                        String userAvatar = null;
-
-                        if (profile != null) {
-                            userName = profile.optString("name", "Unknown User");
-                            userAvatar = profile.optString("profile_image_url");
-                        }
-                        
-                        String timeAgo = formatRelative(createdAt);
-                        
-                        newPosts.add(new CommunityPost(
-                            id, ownerId, userName, userAvatar, timeAgo, title, content, likes, commentCount, imageUrl, createdAt
-                        ));
-                    }
-                    
-                    requireActivity().runOnUiThread(() -> {
-                        postList.clear();
-                        postList.addAll(newPosts);
-                        postAdapter.notifyDataSetChanged();
-                        if (scrollToTopAfterLoad && rvCommunityPosts != null) {
-                            rvCommunityPosts.scrollToPosition(0);
-                            scrollToTopAfterLoad = false;
-                        }
-                        if (swipeRefreshLayout != null) {
-                            swipeRefreshLayout.setRefreshing(false);
-                        }
-                    });
-                    
-                } catch (JSONException e) {
-                    Log.e(TAG, "Error parsing posts", e);
-                    if (swipeRefreshLayout != null) {
-                        swipeRefreshLayout.setRefreshing(false);
-                    }
+            public void onFailure(@NonNull SupabaseError error) {
+                if (error.isTransient() && badgePoller != null) {
+                    badgePoller.backOff(error.getRetryAfterMs());
                 }
             }
-            
-            @Override
-            public void onError(String error) {
-                Log.e(TAG, "Error loading posts: " + error);
-                if (swipeRefreshLayout != null) {
-                    swipeRefreshLayout.setRefreshing(false);
-                }
-                requireActivity().runOnUiThread(() -> 
-                    Toast.makeText(getContext(), "Failed to load posts", Toast.LENGTH_SHORT).show()
-                );
-            }
-        });
-    }
-
-    private String formatRelative(@Nullable String iso) {
-        if (TextUtils.isEmpty(iso)) {
-            return getString(R.string.just_now);
-        }
-        try {
-            java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", java.util.Locale.US);
-            sdf.setTimeZone(java.util.TimeZone.getTimeZone("UTC"));
-            java.util.Date date = sdf.parse(iso);
-            if (date == null) return iso;
-            long delta = System.currentTimeMillis() - date.getTime();
-            long minutes = Math.max(1, delta / 60000);
-            if (minutes < 60) return minutes + "m ago";
-            long hours = minutes / 60;
-            if (hours < 24) return hours + "h ago";
-            long days = hours / 24;
-            return days + "d ago";
-        } catch (Exception e) {
-            return iso;
-        }
+        }));
     }
     
+    private void loadPosts() {
+        loadFeed(null);
+    }
+
     private void filterPosts(String category) {
         if (category.equals("All Posts")) {
             loadPosts();
             return;
         }
-        
-        // Filter locally for now or query DB
-        // For simplicity, let's query DB with title filter
+        loadFeed(category);
+    }
+
+    private void loadFeed(@Nullable String topic) {
         if (swipeRefreshLayout != null) {
             swipeRefreshLayout.setRefreshing(true);
         }
-        
-        String query = "/rest/v1/posts?select=*,profiles(name,profile_image_url),comments(count)&category=eq.community&title=eq." + category + "&order=created_at.desc";
-        supabaseClient.query(query, new SupabaseClient.OnDatabaseCallback() {
+        feedTopic = topic;
+        feedGeneration++;
+        loadFeedPage(topic, null);
+    }
+
+    private void loadFeedPage(@Nullable String topic, @Nullable String pageToken) {
+        loadingFeedPage = true;
+        int generation = feedGeneration;
+        communityRepository.loadCommunityPosts(topic, pageToken, new RepositoryPageCallback<CommunityPost>() {
             @Override
-            public void onSuccess(Object data) {
-                // Same parsing logic... reusing loadPosts logic would be better but for now:
-                try {
-                    JSONArray array = new JSONArray(data.toString());
-                    List<CommunityPost> newPosts = new ArrayList<>();
-                    for (int i = 0; i < array.length(); i++) {
-                        JSONObject obj = array.getJSONObject(i);
-                        String id = obj.optString("id");
-                        String title = obj.optString("title");
-                        String content = obj.optString("description");
-                        String imageUrl = obj.isNull("image_url") ? null : obj.optString("image_url", null);
-                        if (imageUrl != null && imageUrl.trim().isEmpty()) {
-                            imageUrl = null;
-                        }
-                        int likes = obj.optInt("likes", 0);
-                        int commentCount = 0;
-                        JSONArray comments = obj.optJSONArray("comments");
-                        if (comments != null && comments.length() > 0) {
-                            commentCount = comments.optJSONObject(0).optInt("count", 0);
-                        }
-                        String createdAt = obj.optString("created_at");
-                        String ownerId = obj.optString("user_id", "");
-                        JSONObject profile = obj.optJSONObject("profiles");
-                        String userName = profile != null ? profile.optString("name", "Unknown") : "Unknown";
-                        String userAvatar = profile != null ? profile.optString("profile_image_url") : null;
-                        
-                        newPosts.add(new CommunityPost(
-                            id, ownerId, userName, userAvatar, formatRelative(createdAt), title, content, likes, commentCount, imageUrl, createdAt
-                        ));
+            public void onPage(@NonNull List<CommunityPost> items, @Nullable String nextPageToken) {
+                if (!isAdded() || generation != feedGeneration) {
+                    return;
+                }
+                loadingFeedPage = false;
+                feedNextPageToken = nextPageToken;
+                if (pageToken == null) {
+                    postList.clear();
+                    postList.addAll(items);
+                    postAdapter.notifyDataSetChanged();
+                    if (scrollToTopAfterLoad && rvCommunityPosts != null) {
+                        rvCommunityPosts.scrollToPosition(0);
+                        scrollToTopAfterLoad = false;
                     }
-                    requireActivity().runOnUiThread(() -> {
-                        postList.clear();
-                        postList.addAll(newPosts);
-                        postAdapter.notifyDataSetChanged();
-                        if (swipeRefreshLayout != null) swipeRefreshLayout.setRefreshing(false);
-                    });
-                } catch (JSONException e) {
-                    if (swipeRefreshLayout != null) swipeRefreshLayout.setRefreshing(false);
+                } else {
+                    int start = postList.size();
+                    postList.addAll(items);
+                    postAdapter.notifyItemRangeInserted(start, items.size());
+                }
+                if (swipeRefreshLayout != null) {
+                    swipeRefreshLayout.setRefreshing(false);
                 }
             }
-            
+
+            @Override
+            public void onCachedPage(@NonNull List<CommunityPost> items) {
+                if (!isAdded() || generation != feedGeneration || items.isEmpty()) {
+                    return;
+                }
+                // Show the stored feed while the refresh indicator keeps spinning for fresh posts.
+                postList.clear();
+                postList.addAll(items);
+                postAdapter.notifyDataSetChanged();
+            }
+
             @Override
             public void onError(String error) {
-                if (swipeRefreshLayout != null) swipeRefreshLayout.setRefreshing(false);
+                Log.e(TAG, "Error loading posts: " + error);
+                if (generation == feedGeneration) {
+                    loadingFeedPage = false;
+                }
+                if (swipeRefreshLayout != null) {
+                    swipeRefreshLayout.setRefreshing(false);
+                }
+                if (isAdded() && topic == null && pageToken == null) {
+                    Toast.makeText(getContext(), "Failed to load posts", Toast.LENGTH_SHORT).show();
+                }
             }
         });
     }
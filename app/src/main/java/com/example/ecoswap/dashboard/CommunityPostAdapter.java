@@ -1,5 +1,6 @@
 package com.example.ecoswap.dashboard;
 
+import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.content.ClipData;
@@ -19,8 +20,10 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import com.bumptech.glide.Glide;
 import com.example.ecoswap.R;
+import com.example.ecoswap.utils.RequestPriority;
 import com.example.ecoswap.utils.SupabaseClient;
 import com.example.ecoswap.utils.SessionManager;
+import com.example.ecoswap.utils.WriteOutbox;
 import com.google.android.material.chip.Chip;
 import com.google.gson.JsonObject;
 import java.time.Instant;
@@ -28,6 +31,7 @@ import com.bumptech.glide.load.DataSource;
 import com.bumptech.glide.load.engine.GlideException;
 import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.target.Target;
+import java.lang.ref.WeakReference;
 import java.util.List;
 
 public class CommunityPostAdapter extends RecyclerView.Adapter<CommunityPostAdapter.PostViewHolder> {
@@ -55,6 +59,7 @@ public class CommunityPostAdapter extends RecyclerView.Adapter<CommunityPostAdap
     @Override
     public void onBindViewHolder(@NonNull PostViewHolder holder, int position) {
         CommunityFragment.CommunityPost post = posts.get(position);
+        holder.boundPostId = post.getId();
 
         holder.tvUserName.setText(post.getUserName());
         holder.tvPostTime.setText(post.getPostTime());
@@ -139,27 +144,23 @@ public class CommunityPostAdapter extends RecyclerView.Adapter<CommunityPostAdap
 
         // Like button click with server-backed update
         holder.layoutLike.setOnClickListener(v -> {
-            int current = Math.max(0, post.getLikeCount());
-            int newCount = current + 1;
+            String actorId = sessionManager != null ? sessionManager.getUserId() : null;
+            if (TextUtils.isEmpty(actorId)) {
+                Toast.makeText(context, "Unable to like right now", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            int newCount = Math.max(0, post.getLikeCount()) + 1;
             holder.tvLikeCount.setText(String.valueOf(newCount));
             post.setLikeCount(newCount);
 
+            // One post_likes row per tap; the server adds it to posts.likes (database/post_likes.sql),
+            // so a like replayed from the outbox after reconnecting neither repeats nor overwrites
+            // likes from other users.
             JsonObject payload = new JsonObject();
-            payload.addProperty("likes", newCount);
-            supabaseClient.update("posts", post.getId(), payload, new SupabaseClient.OnDatabaseCallback() {
-                @Override
-                public void onSuccess(Object data) {
-                    sendNotification("like", "liked your post", post.getOwnerId(), post.getId(), null);
-                }
-
-                @Override
-                public void onError(String error) {
-                    // revert to previous count on failure
-                    post.setLikeCount(current);
-                    holder.tvLikeCount.setText(String.valueOf(current));
-                    Toast.makeText(context, "Unable to like right now", Toast.LENGTH_SHORT).show();
-                }
-            });
+            payload.addProperty("post_id", post.getId());
+            payload.addProperty("user_id", actorId);
+            WriteOutbox.getInstance(context).enqueueInsert("post_likes", payload,
+                new LikeResultListener(this, holder, supabaseClient, actorId, post.getId(), post.getOwnerId()));
         });
 
         // Comment button click
@@ -191,7 +192,67 @@ public class CommunityPostAdapter extends RecyclerView.Adapter<CommunityPostAdap
         return posts.size();
     }
 
+    /**
+     * Outcome of a queued like. Holds the adapter and the row through weak references, since the
+     * like may stay queued long after the screen is gone; the notification is sent regardless.
+     */
+    private static final class LikeResultListener implements SupabaseClient.OnDatabaseCallback {
+        private final WeakReference<CommunityPostAdapter> adapterRef;
+        private final WeakReference<PostViewHolder> holderRef;
+        private final SupabaseClient supabaseClient;
+        private final String actorId;
+        private final String postId;
+        private final String ownerId;
+
+        LikeResultListener(CommunityPostAdapter adapter, PostViewHolder holder, SupabaseClient supabaseClient,
+                           String actorId, String postId, String ownerId) {
+            this.adapterRef = new WeakReference<>(adapter);
+            this.holderRef = new WeakReference<>(holder);
+            this.supabaseClient = supabaseClient;
+            this.actorId = actorId;
+            this.postId = postId;
+            this.ownerId = ownerId;
+        }
+
+        @Override
+        public void onSuccess(Object data) {
+            sendNotification(supabaseClient, actorId, "like", "liked your post", ownerId, postId, null);
+        }
+
+        @Override
+        public void onError(String error) {
+            CommunityPostAdapter adapter = adapterRef.get();
+            if (adapter == null || adapter.isHostGone()) {
+                return;
+            }
+            // Take back this like only; the list may have been reloaded since the tap.
+            for (CommunityFragment.CommunityPost post : adapter.posts) {
+                if (!postId.equals(post.getId())) {
+                    continue;
+                }
+                int reverted = Math.max(0, post.getLikeCount() - 1);
+                post.setLikeCount(reverted);
+                PostViewHolder holder = holderRef.get();
+                if (holder != null && postId.equals(holder.boundPostId)) {
+                    holder.tvLikeCount.setText(String.valueOf(reverted));
+                }
+                break;
+            }
+            Toast.makeText(adapter.context, "Unable to like right now", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private boolean isHostGone() {
+        if (context instanceof Activity) {
+            Activity activity = (Activity) context;
+            return activity.isFinishing() || activity.isDestroyed();
+        }
+        return context == null;
+    }
+
     static class PostViewHolder extends RecyclerView.ViewHolder {
+        // Id of the post this row currently shows; rows are recycled while likes are queued.
+        String boundPostId;
         TextView tvUserAvatar, tvUserName, tvPostTime, tvPostContent;
         TextView tvLikeCount, tvCommentCount;
         Chip chipCategory;
@@ -240,8 +301,8 @@ public class CommunityPostAdapter extends RecyclerView.Adapter<CommunityPostAdap
         popup.show();
     }
 
-    private void sendNotification(String type, String message, String recipientId, String postId, @Nullable String commentId) {
-        String actorId = sessionManager != null ? sessionManager.getUserId() : null;
+    private static void sendNotification(SupabaseClient supabaseClient, String actorId, String type, String message,
+                                         String recipientId, String postId, @Nullable String commentId) {
         if (supabaseClient == null || TextUtils.isEmpty(actorId) || TextUtils.isEmpty(recipientId) || actorId.equals(recipientId)) {
             return;
         }
@@ -258,7 +319,7 @@ public class CommunityPostAdapter extends RecyclerView.Adapter<CommunityPostAdap
         if (!TextUtils.isEmpty(commentId)) {
             payload.addProperty("comment_id", commentId);
         }
-        supabaseClient.insert("notifications", payload, new SupabaseClient.OnDatabaseCallback() {
+        supabaseClient.insert("notifications", payload, RequestPriority.BACKGROUND, new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
                 // no-op
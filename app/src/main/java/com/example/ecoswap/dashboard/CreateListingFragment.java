@@ -35,6 +35,7 @@ import com.example.ecoswap.utils.LocationFeatureCompat;
 import com.example.ecoswap.utils.LocationUtils;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseQuery;
 import com.google.android.gms.location.FusedLocationProviderClient;
 import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
@@ -151,7 +152,10 @@ public class CreateListingFragment extends Fragment {
         if (supabaseClient == null || TextUtils.isEmpty(editListingId)) return;
         
         setLoading(true);
-        String endpoint = "/rest/v1/posts?id=eq." + editListingId + "&select=*";
+        String endpoint = SupabaseQuery.from("posts")
+                .select("title", "description", "location", "listing_type", "category", "condition")
+                .eq("id", editListingId)
+                .build();
         supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
@@ -3,14 +3,17 @@ package com.example.ecoswap.dashboard;
 import android.content.Intent;
 import android.os.Bundle;
 import android.widget.FrameLayout;
+import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.Fragment;
 import com.example.ecoswap.R;
+import com.example.ecoswap.auth.LoginActivity;
 import com.example.ecoswap.market.SwapActivity;
 import com.example.ecoswap.market.DonationActivity;
 import com.example.ecoswap.market.BiddingActivity;
 import com.example.ecoswap.tracker.EcoTrackerActivity;
 import com.example.ecoswap.settings.SettingsActivity;
+import com.example.ecoswap.utils.WriteOutbox;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
 
 public class DashboardActivity extends AppCompatActivity {
@@ -25,6 +28,9 @@ public class DashboardActivity extends AppCompatActivity {
         
         initViews();
         setupBottomNavigation();
+
+        // Deliver writes that were still queued when the app last closed.
+        WriteOutbox.getInstance(this).flush();
         
         // Load default fragment (Home = Marketplace)
         if (savedInstanceState == null) {
@@ -33,6 +39,30 @@ public class DashboardActivity extends AppCompatActivity {
         }
     }
     
+    @Override
+    protected void onStart() {
+        super.onStart();
+        WriteOutbox.getInstance(this).setSignInRequiredListener(this::onSignInRequired);
+    }
+
+    @Override
+    protected void onStop() {
+        WriteOutbox.getInstance(this).setSignInRequiredListener(null);
+        super.onStop();
+    }
+
+    /**
+     * Queued writes wait for the user to sign in again; they are sent once this activity is
+     * recreated with the new session.
+     */
+    private void onSignInRequired() {
+        Toast.makeText(this, R.string.outbox_sign_in_required, Toast.LENGTH_LONG).show();
+        Intent intent = new Intent(this, LoginActivity.class);
+        intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        startActivity(intent);
+        finish();
+    }
+
     private void initViews() {
         fragmentContainer = findViewById(R.id.fragmentContainer);
         bottomNavigationView = findViewById(R.id.bottomNavigationView);
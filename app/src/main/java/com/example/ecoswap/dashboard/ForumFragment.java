@@ -19,6 +19,7 @@ import com.example.ecoswap.adapters.PostAdapter;
 import com.example.ecoswap.models.Post;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseQuery;
 import com.google.gson.JsonObject;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import org.json.JSONArray;
@@ -90,7 +91,13 @@ public class ForumFragment extends Fragment {
             return;
         }
 
-        String query = "/rest/v1/posts?select=*,profiles(name)&category=eq.community&order=created_at.desc&limit=50";
+        String query = SupabaseQuery.from("posts")
+                .select("id", "user_id", "title", "description", "image_url", "created_at")
+                .embed("profiles", "name")
+                .eq("category", "community")
+                .order("created_at", false)
+                .limit(50)
+                .build();
 
         supabaseClient.query(query, new SupabaseClient.OnDatabaseCallback() {
             @Override
@@ -19,6 +19,7 @@ import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
 import com.bumptech.glide.Glide;
 import com.example.ecoswap.R;
 import com.example.ecoswap.chat.ChatFragment;
+import com.example.ecoswap.repository.ImpactRepository;
 import com.example.ecoswap.utils.ConversationMetadataStore;
 import com.example.ecoswap.utils.LocationUtils;
 import com.example.ecoswap.utils.SessionManager;
@@ -28,12 +29,8 @@ import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.gson.JsonObject;
 import android.widget.LinearLayout;
 import android.widget.Toast;
-import android.util.Log;
 import java.util.List;
 import java.util.ArrayList;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 public class ListingPreviewBottomSheet extends BottomSheetDialogFragment {
 
@@ -70,6 +67,7 @@ public class ListingPreviewBottomSheet extends BottomSheetDialogFragment {
     private ConversationMetadataStore conversationMetadataStore;
     private SessionManager sessionManager;
     private SupabaseClient supabaseClient;
+    private ImpactRepository impactRepository;
     private String currentUserId;
 
     public static ListingPreviewBottomSheet newInstance(@NonNull MarketplaceFragment.MarketplaceItem item) {
@@ -133,6 +131,7 @@ public class ListingPreviewBottomSheet extends BottomSheetDialogFragment {
             conversationMetadataStore = new ConversationMetadataStore(requireContext());
             sessionManager = SessionManager.getInstance(requireContext());
             supabaseClient = SupabaseClient.getInstance(requireContext());
+            impactRepository = new ImpactRepository(requireContext());
             currentUserId = sessionManager != null ? sessionManager.getUserId() : null;
             persistListingContext();
         }
@@ -300,7 +299,6 @@ public class ListingPreviewBottomSheet extends BottomSheetDialogFragment {
 
     private void persistTradeRecord(String status) {
         if (supabaseClient == null || TextUtils.isEmpty(listingId)) {
-            updateImpactForInvolvedUsers(status);
             return;
         }
         boolean isDonation = "donated".equals(status);
@@ -313,7 +311,6 @@ public class ListingPreviewBottomSheet extends BottomSheetDialogFragment {
 
     private void createSwapRecord(String status) {
         if (TextUtils.isEmpty(ownerId) || TextUtils.isEmpty(currentUserId)) {
-            updateImpactForInvolvedUsers(status);
             return;
         }
         JsonObject payload = new JsonObject();
@@ -325,19 +322,18 @@ public class ListingPreviewBottomSheet extends BottomSheetDialogFragment {
         supabaseClient.insert("swaps", payload, new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
-                updateImpactForInvolvedUsers(status);
+                recordTradeImpact(ImpactRepository.TRADE_SWAP, ImpactRepository.firstRowId(data));
             }
 
             @Override
             public void onError(String error) {
-                updateImpactForInvolvedUsers(status);
+                // Impact is credited from the trade row, so there is nothing to record.
             }
         });
     }
 
     private void createDonationRecord(String status) {
         if (TextUtils.isEmpty(ownerId) || TextUtils.isEmpty(currentUserId)) {
-            updateImpactForInvolvedUsers(status);
             return;
         }
         JsonObject payload = new JsonObject();
@@ -353,160 +349,20 @@ public class ListingPreviewBottomSheet extends BottomSheetDialogFragment {
         supabaseClient.insert("donations", payload, new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
-                updateImpactForInvolvedUsers(status);
+                recordTradeImpact(ImpactRepository.TRADE_DONATION, ImpactRepository.firstRowId(data));
             }
 
             @Override
             public void onError(String error) {
-                updateImpactForInvolvedUsers(status);
+                // Impact is credited from the trade row, so there is nothing to record.
             }
         });
     }
 
-    private void updateImpactForInvolvedUsers(String status) {
-        if (supabaseClient == null) return;
-        List<String> targetUsers = new ArrayList<>();
-        if (!TextUtils.isEmpty(ownerId)) {
-            targetUsers.add(ownerId);
+    private void recordTradeImpact(String tradeType, @Nullable String tradeId) {
+        if (impactRepository != null) {
+            impactRepository.recordTradeImpact(tradeType, tradeId);
         }
-        if (!TextUtils.isEmpty(currentUserId) && !currentUserId.equals(ownerId)) {
-            targetUsers.add(currentUserId);
-        }
-        for (String user : targetUsers) {
-            updateImpactForUser(user, status);
-        }
-    }
-
-    private void updateImpactForUser(String userId, String status) {
-        if (TextUtils.isEmpty(userId)) return;
-
-        String profileQuery = "/rest/v1/profiles?id=eq." + userId + "&select=total_swaps,total_donations,total_purchases";
-        supabaseClient.query(profileQuery, new SupabaseClient.OnDatabaseCallback() {
-            @Override
-            public void onSuccess(Object data) {
-                try {
-                    JSONArray array = new JSONArray(data.toString());
-                    if (array.length() == 0) return;
-                    JSONObject profile = array.getJSONObject(0);
-                    int swaps = profile.optInt("total_swaps", 0);
-                    int donations = profile.optInt("total_donations", 0);
-                    int purchases = profile.optInt("total_purchases", 0);
-
-                    if ("swapped".equals(status)) {
-                        swaps++;
-                    } else if ("donated".equals(status)) {
-                        donations++;
-                    }
-
-                    int newScore = (swaps * 2) + (donations * 3) + (purchases * 1);
-
-                    String newLevel = "Beginner EcoSaver";
-                    String newIcon = "🌱";
-
-                    if (newScore >= 100) {
-                        newLevel = "Planet Pioneer";
-                        newIcon = "🌞";
-                    } else if (newScore >= 50) {
-                        newLevel = "Eco Guardian";
-                        newIcon = "🦋";
-                    } else if (newScore >= 25) {
-                        newLevel = "Sustainable Hero";
-                        newIcon = "🌍";
-                    } else if (newScore >= 10) {
-                        newLevel = "Rising Recycler";
-                        newIcon = "♻️";
-                    }
-
-                    JsonObject updatePayload = new JsonObject();
-                    updatePayload.addProperty("total_swaps", swaps);
-                    updatePayload.addProperty("total_donations", donations);
-                    updatePayload.addProperty("impact_score", newScore);
-                    updatePayload.addProperty("eco_level", newLevel);
-                    updatePayload.addProperty("eco_icon", newIcon);
-
-                    supabaseClient.update("profiles", userId, updatePayload, new SupabaseClient.OnDatabaseCallback() {
-                        @Override
-                        public void onSuccess(Object data) {
-                            Log.d("ImpactUpdate", "Profile stats updated for user " + userId);
-                            updateEcoSavings(userId, status);
-                        }
-
-                        @Override
-                        public void onError(String error) {
-                            Log.e("ImpactUpdate", "Failed to update profile for user " + userId + ": " + error);
-                        }
-                    });
-                } catch (JSONException e) {
-                    Log.e("ImpactUpdate", "Error parsing profile data for user " + userId, e);
-                }
-            }
-
-            @Override
-            public void onError(String error) {
-                Log.e("ImpactUpdate", "Failed to fetch profile stats for user " + userId + ": " + error);
-            }
-        });
-    }
-
-    private void updateEcoSavings(String userId, String status) {
-        String savingsQuery = "/rest/v1/eco_savings?user_id=eq." + userId + "&select=*";
-        supabaseClient.query(savingsQuery, new SupabaseClient.OnDatabaseCallback() {
-            @Override
-            public void onSuccess(Object data) {
-                try {
-                    JSONArray array = new JSONArray(data.toString());
-                    if (array.length() == 0) return;
-                    JSONObject savings = array.getJSONObject(0);
-                    double co2 = savings.optDouble("co2_saved", 0);
-                    double water = savings.optDouble("water_saved", 0);
-                    double waste = savings.optDouble("waste_diverted", 0);
-                    double energy = savings.optDouble("energy_saved", 0);
-                    int itemsSwapped = savings.optInt("items_swapped", 0);
-                    int itemsDonated = savings.optInt("items_donated", 0);
-
-                    if ("swapped".equals(status)) {
-                        co2 += 5;
-                        water += 100;
-                        waste += 2;
-                        energy += 10;
-                        itemsSwapped++;
-                    } else if ("donated".equals(status)) {
-                        co2 += 7;
-                        water += 150;
-                        waste += 3;
-                        energy += 15;
-                        itemsDonated++;
-                    }
-
-                    JsonObject updatePayload = new JsonObject();
-                    updatePayload.addProperty("co2_saved", co2);
-                    updatePayload.addProperty("water_saved", water);
-                    updatePayload.addProperty("waste_diverted", waste);
-                    updatePayload.addProperty("energy_saved", energy);
-                    updatePayload.addProperty("items_swapped", itemsSwapped);
-                    updatePayload.addProperty("items_donated", itemsDonated);
-
-                    supabaseClient.update("eco_savings", "user_id", userId, updatePayload, new SupabaseClient.OnDatabaseCallback() {
-                        @Override
-                        public void onSuccess(Object data) {
-                            Log.d("ImpactUpdate", "Eco savings updated for user " + userId);
-                        }
-
-                        @Override
-                        public void onError(String error) {
-                            Log.e("ImpactUpdate", "Failed to update eco savings for user " + userId + ": " + error);
-                        }
-                    });
-                } catch (JSONException e) {
-                    Log.e("ImpactUpdate", "Error parsing eco savings for user " + userId, e);
-                }
-            }
-
-            @Override
-            public void onError(String error) {
-                Log.e("ImpactUpdate", "Failed to fetch eco savings for user " + userId + ": " + error);
-            }
-        });
     }
 
     private void showDeleteConfirmation() {
@@ -28,8 +28,12 @@ import androidx.recyclerview.widget.StaggeredGridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.ecoswap.R;
+import com.example.ecoswap.repository.ListingsRepository;
+import com.example.ecoswap.repository.RepositoryPageCallback;
 import com.example.ecoswap.utils.LocationFeatureCompat;
 import com.example.ecoswap.utils.LocationUtils;
+import com.example.ecoswap.utils.PaginationScrollListener;
+import com.example.ecoswap.utils.RequestScope;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
 import com.google.android.gms.location.FusedLocationProviderClient;
@@ -37,7 +41,6 @@ import com.google.android.gms.location.LocationServices;
 import com.google.android.gms.location.Priority;
 import com.google.android.gms.tasks.CancellationTokenSource;
 import com.google.android.material.chip.Chip;
-import okhttp3.HttpUrl;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -51,6 +54,7 @@ import java.util.concurrent.Executors;
 public class MarketplaceFragment extends Fragment {
 
     private static final String TAG = "MarketplaceFragment";
+    private static final long SEARCH_DEBOUNCE_MS = 300L;
     private EditText etSearch;
     private Chip chipAll, chipElectronics, chipClothing, chipBooks, chipFurniture;
     private Chip chipTypeAll, chipTypeSwap, chipTypeDonation;
@@ -59,16 +63,25 @@ public class MarketplaceFragment extends Fragment {
     private TextView tvEmptyState;
     private MarketplaceAdapter adapter;
     private final List<MarketplaceItem> allItems = new ArrayList<>();
-    private final List<MarketplaceItem> filteredItems = new ArrayList<>();
+    private final List<MarketplaceItem> displayedItems = new ArrayList<>();
     private String selectedCategory = "All";
     private String selectedListingType = "all";
     private String userLocation;
     private SupabaseClient supabaseClient;
+    private RequestScope requestScope;
     private SessionManager sessionManager;
+    private ListingsRepository listingsRepository;
+    @Nullable
+    private String listingsNextPageToken;
+    private boolean loadingListingsPage = false;
+    private PaginationScrollListener paginationListener;
+    // Bumped on every full reload so pages requested for an earlier load are ignored.
+    private int listingsGeneration = 0;
     private Double userLatitude;
     private Double userLongitude;
     private final ExecutorService geocodeExecutor = Executors.newSingleThreadExecutor();
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchReload = this::reloadListings;
     private FusedLocationProviderClient fusedLocationClient;
     private CancellationTokenSource locationTokenSource;
     private final ActivityResultLauncher<String[]> locationPermissionLauncher =
@@ -127,6 +140,8 @@ public class MarketplaceFragment extends Fragment {
             sessionManager.getAccessTokenExpiry(),
             sessionManager.getUserId()
         );
+        requestScope = RequestScope.bind(getViewLifecycleOwner());
+        listingsRepository = new ListingsRepository(requireContext(), requestScope);
     }
 
     private void setupRecyclerView() {
@@ -135,6 +150,18 @@ public class MarketplaceFragment extends Fragment {
         layoutManager.setGapStrategy(StaggeredGridLayoutManager.GAP_HANDLING_MOVE_ITEMS_BETWEEN_SPANS);
         rvItems.setLayoutManager(layoutManager);
         rvItems.setAdapter(adapter);
+        paginationListener = new PaginationScrollListener(new PaginationScrollListener.Pager() {
+            @Override
+            public boolean canLoadMore() {
+                return !loadingListingsPage && listingsNextPageToken != null;
+            }
+
+            @Override
+            public void loadMore() {
+                loadListingsPage(listingsNextPageToken);
+            }
+        });
+        rvItems.addOnScrollListener(paginationListener);
     }
 
     private void setupSearchListener() {
@@ -144,7 +171,9 @@ public class MarketplaceFragment extends Fragment {
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                applyFilters();
+                // Search runs on the server; wait for a pause in typing before reloading.
+                mainHandler.removeCallbacks(searchReload);
+                mainHandler.postDelayed(searchReload, SEARCH_DEBOUNCE_MS);
             }
 
             @Override
@@ -161,7 +190,7 @@ public class MarketplaceFragment extends Fragment {
             clickedChip.setTextColor(getResources().getColor(R.color.text_white, null));
 
             selectedCategory = clickedChip.getText().toString();
-            applyFilters();
+            reloadListings();
         };
 
         chipAll.setOnClickListener(categoryListener);
@@ -195,7 +224,7 @@ public class MarketplaceFragment extends Fragment {
                 chipAll.setChipBackgroundColorResource(R.color.primary_green);
                 chipAll.setTextColor(getResources().getColor(R.color.text_white, null));
             }
-            applyFilters();
+            reloadListings();
         };
 
         chipTypeAll.setOnClickListener(typeListener);
@@ -232,7 +261,7 @@ public class MarketplaceFragment extends Fragment {
         }
 
         String endpoint = "/rest/v1/profiles?select=location&id=eq." + userId + "&limit=1";
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        supabaseClient.query(endpoint, requestScope.wrap(new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
                 if (!isAdded()) {
@@ -245,7 +274,7 @@ public class MarketplaceFragment extends Fragment {
                         String locationValue = profile.optString("location", null);
                         if (!TextUtils.isEmpty(locationValue)) {
                             userLocation = locationValue;
-                            applyFilters();
+                            showListings();
                             geocodeUserCoordinates(locationValue);
                         }
                     }
@@ -258,7 +287,7 @@ public class MarketplaceFragment extends Fragment {
             public void onError(String error) {
                 Log.w(TAG, "Unable to fetch user location: " + error);
             }
-        });
+        }));
     }
 
     private void requestDeviceLocation() {
@@ -307,12 +336,12 @@ public class MarketplaceFragment extends Fragment {
                     }
                     userLatitude = location.getLatitude();
                     userLongitude = location.getLongitude();
-                    mainHandler.post(this::applyFilters);
+                    mainHandler.post(this::showListings);
                     geocodeExecutor.execute(() -> {
                         String resolvedAddress = LocationUtils.reverseGeocodeCoordinates(appContext, userLatitude, userLongitude);
                         if (!TextUtils.isEmpty(resolvedAddress)) {
                             userLocation = resolvedAddress;
-                            mainHandler.post(this::applyFilters);
+                            mainHandler.post(this::showListings);
                         }
                     });
                 })
@@ -334,34 +363,79 @@ public class MarketplaceFragment extends Fragment {
                 userLatitude = null;
                 userLongitude = null;
             }
-            mainHandler.post(this::applyFilters);
+            mainHandler.post(this::showListings);
         });
     }
 
     private void loadListingsFromSupabase() {
-        if (supabaseClient == null) {
+        if (supabaseClient == null || listingsRepository == null) {
             Log.e(TAG, "Supabase client not initialized");
             return;
         }
         showLoading(true);
+        listingsGeneration++;
+        loadListingsPage(null);
+    }
+
+    /**
+     * Starts over from the first page, e.g. after the category, type or search text changed.
+     * Filters are applied by the server, so pages loaded for the old filters are discarded.
+     */
+    private void reloadListings() {
+        mainHandler.removeCallbacks(searchReload);
+        listingsNextPageToken = null;
+        loadListingsFromSupabase();
+    }
+
+    private void loadListingsPage(@Nullable String pageToken) {
         boolean includeCoordinates = LocationFeatureCompat.areCoordinatesSupported();
-        String endpoint = buildListingsEndpoint(includeCoordinates);
+        int generation = listingsGeneration;
+        loadingListingsPage = true;
+        String listingType = "all".equals(selectedListingType) ? null : selectedListingType;
+        String search = etSearch.getText() != null ? etSearch.getText().toString().trim() : null;
+        String category = normalizeCategory(selectedCategory);
+
+        listingsRepository.loadMarketplaceListings(includeCoordinates, category, listingType,
+                search, pageToken, new RepositoryPageCallback<MarketplaceItem>() {
+            @Override
+            public void onPage(@NonNull List<MarketplaceItem> items, @Nullable String nextPageToken) {
+                if (!isAdded() || generation != listingsGeneration) {
+                    return;
+                }
+                loadingListingsPage = false;
+                listingsNextPageToken = nextPageToken;
+                showLoading(false);
+                if (pageToken == null) {
+                    allItems.clear();
+                }
+                allItems.addAll(items);
+                showListings();
+                if (nextPageToken != null) {
+                    listingsRepository.prefetchMarketplaceListings(includeCoordinates, category, listingType,
+                            search, nextPageToken);
+                }
+                // A narrow filter can leave the screen unfilled; keep loading until it scrolls.
+                paginationListener.onItemsChanged(rvItems);
+            }
 
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
             @Override
-            public void onSuccess(Object data) {
-                if (!isAdded()) {
+            public void onCachedPage(@NonNull List<MarketplaceItem> items) {
+                if (!isAdded() || generation != listingsGeneration || items.isEmpty()) {
                     return;
                 }
+                // Show the listings from last time while the first page reloads.
                 showLoading(false);
-                parseListings(data);
+                allItems.clear();
+                allItems.addAll(items);
+                showListings();
             }
 
             @Override
             public void onError(String error) {
-                if (!isAdded()) {
+                if (!isAdded() || generation != listingsGeneration) {
                     return;
                 }
+                loadingListingsPage = false;
                 if (LocationFeatureCompat.areCoordinatesSupported() && isMissingCoordinateColumnError(error)) {
                     Log.w(TAG, "Supabase is missing latitude/longitude columns; reloading without distance data.");
                     LocationFeatureCompat.markCoordinatesUnsupported();
@@ -371,96 +445,14 @@ public class MarketplaceFragment extends Fragment {
                     return;
                 }
                 showLoading(false);
-                handleListingsError(error);
-            }
-        });
-    }
-
-    private String buildListingsEndpoint(boolean includeCoordinates) {
-        if (supabaseClient == null || TextUtils.isEmpty(supabaseClient.getSupabaseUrl())) {
-            return "/rest/v1/posts";
-        }
-        HttpUrl baseUrl = HttpUrl.parse(supabaseClient.getSupabaseUrl());
-        if (baseUrl == null) {
-            return "/rest/v1/posts";
-        }
-
-        String selectFields = "id,title,description,category,listing_type,condition,location,image_url,user_id,status";
-        if (includeCoordinates) {
-            selectFields += ",latitude,longitude";
-        }
-        selectFields += ",profiles(name,location,profile_image_url)";
-
-        HttpUrl url = baseUrl.newBuilder()
-                .addPathSegments("rest/v1/posts")
-                .addQueryParameter("select", selectFields)
-            .addQueryParameter("category", "neq.community")
-                .addQueryParameter("status", "eq.available")
-                .addQueryParameter("order", "created_at.desc")
-                .addQueryParameter("limit", "50")
-                .build();
-
-        return url.toString().replace(supabaseClient.getSupabaseUrl(), "");
-    }
-
-    private void parseListings(Object data) {
-        try {
-            JSONArray listings = new JSONArray(data.toString());
-            allItems.clear();
-            for (int i = 0; i < listings.length(); i++) {
-                JSONObject listing = listings.getJSONObject(i);
-                MarketplaceItem item = mapListing(listing);
-                if (item != null) {
-                    allItems.add(item);
+                if (pageToken == null && allItems.isEmpty()) {
+                    handleListingsError(error);
+                } else if (pageToken == null && getContext() != null) {
+                    // Keep the stored listings on screen; they are better than an error page.
+                    Toast.makeText(getContext(), R.string.error_loading_listings, Toast.LENGTH_SHORT).show();
                 }
             }
-            applyFilters();
-        } catch (JSONException e) {
-            Log.e(TAG, "Failed to parse listings", e);
-            handleListingsError("Unable to load listings right now.");
-        }
-    }
-
-    private MarketplaceItem mapListing(JSONObject listing) {
-        MarketplaceItem item = new MarketplaceItem();
-        item.setId(listing.optString("id"));
-        item.setTitle(listing.optString("title", "Untitled listing"));
-        item.setDescription(listing.optString("description"));
-        item.setRawCategory(listing.optString("category", "other"));
-        item.setListingType(listing.optString("listing_type", "swap"));
-        item.setDisplayCategory(formatCategoryLabel(item.getRawCategory()));
-        item.setRawCondition(listing.optString("condition", "good"));
-        item.setDisplayCondition(formatConditionLabel(item.getRawCondition()));
-        item.setImageUrl(listing.optString("image_url", null));
-        item.setOwnerId(listing.optString("user_id"));
-        if (listing.has("latitude") && !listing.isNull("latitude")) {
-            item.setLatitude(listing.optDouble("latitude"));
-        }
-        if (listing.has("longitude") && !listing.isNull("longitude")) {
-            item.setLongitude(listing.optDouble("longitude"));
-        }
-
-        String listingLocation = listing.optString("location", null);
-        JSONObject profile = listing.optJSONObject("profiles");
-        if (profile != null) {
-            String posterName = profile.optString("name", null);
-            if (!TextUtils.isEmpty(posterName)) {
-                item.setPostedBy(posterName);
-            }
-            if (TextUtils.isEmpty(listingLocation)) {
-                listingLocation = profile.optString("location", null);
-            }
-            
-            String profileImage = profile.optString("profile_image_url", null);
-            if (!TextUtils.isEmpty(profileImage)) {
-                item.setOwnerProfileImageUrl(profileImage);
-            }
-        }
-
-        item.setPostedBy(!TextUtils.isEmpty(item.getPostedBy()) ? item.getPostedBy() : getString(R.string.app_name));
-        item.setLocation(!TextUtils.isEmpty(listingLocation) ? listingLocation : getString(R.string.location_unknown));
-
-        return item;
+        });
     }
 
     private void openListingPreview(@NonNull MarketplaceItem item) {
@@ -471,57 +463,44 @@ public class MarketplaceFragment extends Fragment {
                 .show(getParentFragmentManager(), "listing_preview_sheet");
     }
 
-    private void applyFilters() {
+    /**
+     * Shows the loaded listings ranked by distance to the user. Category, type and search are
+     * already applied by the server (see {@link #reloadListings}).
+     */
+    private void showListings() {
         if (adapter == null) {
             return;
         }
-        filteredItems.clear();
-        String searchQuery = etSearch.getText() != null ? etSearch.getText().toString().trim().toLowerCase(Locale.US) : "";
-        String categoryKey = normalizeCategory(selectedCategory);
+        displayedItems.clear();
         String normalizedLocation = !TextUtils.isEmpty(userLocation) ? userLocation.toLowerCase(Locale.US) : null;
         boolean hasUserCoordinates = userLatitude != null && userLongitude != null;
 
         for (MarketplaceItem item : allItems) {
-            boolean matchesListingType = true;
-            if ("swap".equals(selectedListingType)) {
-                matchesListingType = "swap".equalsIgnoreCase(item.getListingType());
-            } else if ("donation".equals(selectedListingType)) {
-                matchesListingType = "donation".equalsIgnoreCase(item.getListingType());
-            }
-            if (!matchesListingType) {
-                continue;
+            Double computedDistance = null;
+            if (hasUserCoordinates && item.hasCoordinates()) {
+                computedDistance = LocationUtils.calculateDistanceKm(
+                        userLatitude,
+                        userLongitude,
+                        item.getLatitude(),
+                        item.getLongitude()
+                );
             }
 
-            boolean matchesCategory = TextUtils.isEmpty(categoryKey) || categoryKey.equalsIgnoreCase(item.getRawCategory());
-            boolean matchesQuery = searchQuery.isEmpty() || matchesQuery(item, searchQuery);
-
-            if (matchesCategory && matchesQuery) {
-                Double computedDistance = null;
-                if (hasUserCoordinates && item.hasCoordinates()) {
-                    computedDistance = LocationUtils.calculateDistanceKm(
-                            userLatitude,
-                            userLongitude,
-                            item.getLatitude(),
-                            item.getLongitude()
-                    );
-                }
-
-                item.setDistanceKm(computedDistance);
+            item.setDistanceKm(computedDistance);
 
-                boolean isNearUser;
-                if (computedDistance != null) {
-                    isNearUser = computedDistance <= 10d;
-                } else {
-                    isNearUser = !TextUtils.isEmpty(normalizedLocation) && item.getLocation() != null
-                            && item.getLocation().toLowerCase(Locale.US).contains(normalizedLocation);
-                }
-                item.setNearUser(isNearUser);
-                filteredItems.add(item);
+            boolean isNearUser;
+            if (computedDistance != null) {
+                isNearUser = computedDistance <= 10d;
+            } else {
+                isNearUser = !TextUtils.isEmpty(normalizedLocation) && item.getLocation() != null
+                        && item.getLocation().toLowerCase(Locale.US).contains(normalizedLocation);
             }
+            item.setNearUser(isNearUser);
+            displayedItems.add(item);
         }
 
         if (hasUserCoordinates) {
-            Collections.sort(filteredItems, (first, second) -> {
+            Collections.sort(displayedItems, (first, second) -> {
                 Double firstDistance = first.getDistanceKm();
                 Double secondDistance = second.getDistanceKm();
                 if (firstDistance == null && secondDistance == null) {
@@ -536,7 +515,7 @@ public class MarketplaceFragment extends Fragment {
                 return Double.compare(firstDistance, secondDistance);
             });
         } else if (!TextUtils.isEmpty(normalizedLocation)) {
-            Collections.sort(filteredItems, (first, second) -> {
+            Collections.sort(displayedItems, (first, second) -> {
                 if (first.isNearUser() == second.isNearUser()) {
                     return 0;
                 }
@@ -544,17 +523,10 @@ public class MarketplaceFragment extends Fragment {
             });
         }
 
-        adapter.updateItems(filteredItems);
+        adapter.updateItems(displayedItems);
         updateEmptyState();
     }
 
-    private boolean matchesQuery(MarketplaceItem item, String query) {
-        return (item.getTitle() != null && item.getTitle().toLowerCase(Locale.US).contains(query))
-                || (item.getDescription() != null && item.getDescription().toLowerCase(Locale.US).contains(query))
-                || (item.getLocation() != null && item.getLocation().toLowerCase(Locale.US).contains(query))
-                || (item.getDisplayCategory() != null && item.getDisplayCategory().toLowerCase(Locale.US).contains(query));
-    }
-
     private void updateEmptyState() {
         boolean hasItems = adapter.getItemCount() > 0;
         rvItems.setVisibility(hasItems ? View.VISIBLE : View.GONE);
@@ -595,57 +567,6 @@ public class MarketplaceFragment extends Fragment {
         }
     }
 
-    private String formatCategoryLabel(String rawCategory) {
-        if (TextUtils.isEmpty(rawCategory)) {
-            return getString(R.string.category_other);
-        }
-        String lowered = rawCategory.toLowerCase(Locale.US);
-        switch (lowered) {
-            case "electronics":
-                return getString(R.string.category_electronics);
-            case "clothing":
-                return getString(R.string.category_clothing);
-            case "books":
-                return getString(R.string.category_books);
-            case "furniture":
-                return getString(R.string.category_furniture);
-            case "swap":
-                return getString(R.string.category_swap);
-            case "donation":
-                return getString(R.string.category_donation);
-            default:
-                return capitalize(lowered);
-        }
-    }
-
-    private String formatConditionLabel(String rawCondition) {
-        if (TextUtils.isEmpty(rawCondition)) {
-            return getString(R.string.condition_good);
-        }
-        switch (rawCondition.toLowerCase(Locale.US)) {
-            case "new":
-                return getString(R.string.condition_new);
-            case "like_new":
-                return getString(R.string.condition_like_new);
-            case "good":
-                return getString(R.string.condition_good);
-            case "fair":
-                return getString(R.string.condition_fair);
-            case "poor":
-                return getString(R.string.condition_poor);
-            default:
-                return capitalize(rawCondition);
-        }
-    }
-
-    private String capitalize(String value) {
-        if (TextUtils.isEmpty(value)) {
-            return value;
-        }
-        String lower = value.toLowerCase(Locale.US);
-        return Character.toUpperCase(lower.charAt(0)) + lower.substring(1);
-    }
-
     private boolean isMissingCoordinateColumnError(String error) {
         if (TextUtils.isEmpty(error)) {
             return false;
@@ -664,6 +585,7 @@ public class MarketplaceFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        mainHandler.removeCallbacks(searchReload);
         cancelLocationRequest();
     }
 
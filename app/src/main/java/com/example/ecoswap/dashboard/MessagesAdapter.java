@@ -332,8 +332,8 @@ public class MessagesAdapter extends RecyclerView.Adapter<MessagesAdapter.Messag
             }
         }
 
-        public void incrementUnreadCount() {
-            unreadCount++;
+        public void addUnreadCount(int count) {
+            unreadCount += count;
         }
 
         public boolean matchesQuery(String query) {
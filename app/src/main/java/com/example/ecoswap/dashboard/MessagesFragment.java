@@ -23,12 +23,18 @@ import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 import com.example.ecoswap.R;
 import com.example.ecoswap.chat.ChatFragment;
-import com.example.ecoswap.utils.ChatFeatureCompat;
+import com.example.ecoswap.repository.ChatRepository;
+import com.example.ecoswap.repository.RepositoryPageCallback;
 import com.example.ecoswap.utils.ConversationMetadataStore;
+import com.example.ecoswap.utils.MessageSearchIndex;
+import com.example.ecoswap.utils.PaginationScrollListener;
+import com.example.ecoswap.utils.PollingScheduler;
+import com.example.ecoswap.utils.ProfileCache;
+import com.example.ecoswap.utils.RequestScope;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseError;
 import com.google.android.material.tabs.TabLayout;
-import okhttp3.HttpUrl;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -36,6 +42,7 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -47,6 +54,11 @@ import java.util.TimeZone;
 public class MessagesFragment extends Fragment {
 
     private static final String TAG = "MessagesFragment";
+    private static final long INBOX_POLL_INTERVAL_MS = 15_000L;
+    private static final long INBOX_POLL_MAX_INTERVAL_MS = 5 * 60_000L;
+    // Shorter queries match too much of every conversation to be useful.
+    private static final int MESSAGE_SEARCH_MIN_LENGTH = 2;
+    private static final int MESSAGE_SEARCH_LIMIT = 50;
 
     private static final String[] ISO_PATTERNS = {
             "yyyy-MM-dd'T'HH:mm:ss.SSSX",
@@ -55,17 +67,31 @@ public class MessagesFragment extends Fragment {
 
     private RecyclerView rvMessages;
     private MessagesAdapter adapter;
+    private RecyclerView rvSearchResults;
+    private MessagesAdapter searchAdapter;
+    private MessageSearchIndex messageSearchIndex;
+    private String messageSearchQuery = "";
+    // Search result rows that stand for a single message rather than a whole conversation.
+    private final Map<MessagesAdapter.Message, MessageSearchIndex.Message> searchHits = new IdentityHashMap<>();
     private EditText etSearchMessages;
     private ImageView btnClearSearch, btnFilter;
     private TabLayout tabLayout;
     private SwipeRefreshLayout swipeRefresh;
     private TextView tvEmptyMessages;
     private final List<MessagesAdapter.Message> messagesList = new ArrayList<>();
+    // Conversation summaries loaded so far, most recent first.
+    private final List<ChatRepository.ConversationRow> conversationRows = new ArrayList<>();
+    private String inboxNextPageToken;
+    private boolean loadingInboxPage = false;
     private final Map<String, ListingMetadata> listingMetadataCache = new HashMap<>();
     private final Set<String> pendingListingLookups = new HashSet<>();
     private SessionManager sessionManager;
     private SupabaseClient supabaseClient;
+    private RequestScope requestScope;
     private ConversationMetadataStore conversationMetadataStore;
+    private ChatRepository chatRepository;
+    private PollingScheduler.Poller inboxPoller;
+    private String lastInboxFingerprint;
     
     @Nullable
     @Override
@@ -75,6 +101,7 @@ public class MessagesFragment extends Fragment {
         initDataProviders();
         // Initialize views
         rvMessages = view.findViewById(R.id.rvMessages);
+        rvSearchResults = view.findViewById(R.id.rvSearchResults);
         etSearchMessages = view.findViewById(R.id.etSearchMessages);
         btnClearSearch = view.findViewById(R.id.btnClearSearch);
         btnFilter = view.findViewById(R.id.btnFilter);
@@ -96,15 +123,12 @@ public class MessagesFragment extends Fragment {
         
         // Setup filter button
         btnFilter.setOnClickListener(v -> showFilterDialog());
-        return view;
-    }
 
-    @Override
-    public void onResume() {
-        super.onResume();
-        if (rvMessages != null) {
-            loadMessages();
-        }
+        lastInboxFingerprint = null;
+        loadMessages();
+        inboxPoller = PollingScheduler.getInstance().register(getViewLifecycleOwner(),
+                INBOX_POLL_INTERVAL_MS, INBOX_POLL_MAX_INTERVAL_MS, () -> loadMessages(false));
+        return view;
     }
 
     private void initDataProviders() {
@@ -120,9 +144,18 @@ public class MessagesFragment extends Fragment {
                 sessionManager.getUserId()
         );
         conversationMetadataStore = new ConversationMetadataStore(requireContext());
+        // Archived and blocked flags may still be loading; rebuild the list once they are in.
+        conversationMetadataStore.whenLoaded(this::onConversationMetadataLoaded);
+        messageSearchIndex = MessageSearchIndex.getInstance(requireContext());
+        requestScope = RequestScope.bind(getViewLifecycleOwner());
+        chatRepository = new ChatRepository(requireContext(), requestScope);
 
         getParentFragmentManager().setFragmentResultListener("messages_refresh", this, (requestKey, bundle) -> {
-            loadMessages();
+            if (inboxPoller != null) {
+                inboxPoller.pollNow();
+            } else {
+                loadMessages();
+            }
         });
     }
     
@@ -131,6 +164,21 @@ public class MessagesFragment extends Fragment {
         adapter = new MessagesAdapter(requireContext(), messagesList, this::openConversation);
         rvMessages.setAdapter(adapter);
         adapter.filterByTab(0);
+        rvMessages.addOnScrollListener(new PaginationScrollListener(new PaginationScrollListener.Pager() {
+            @Override
+            public boolean canLoadMore() {
+                return !loadingInboxPage && inboxNextPageToken != null;
+            }
+
+            @Override
+            public void loadMore() {
+                loadMoreConversations();
+            }
+        }));
+
+        rvSearchResults.setLayoutManager(new LinearLayoutManager(requireContext()));
+        searchAdapter = new MessagesAdapter(requireContext(), new ArrayList<>(), this::openSearchResult);
+        rvSearchResults.setAdapter(searchAdapter);
     }
     
     private void setupSearch() {
@@ -142,6 +190,7 @@ public class MessagesFragment extends Fragment {
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 String query = s.toString().trim();
                 adapter.filter(query);
+                searchMessages(query);
                 
                 // Show/hide clear button
                 if (query.isEmpty()) {
@@ -161,6 +210,101 @@ public class MessagesFragment extends Fragment {
         });
     }
     
+    /**
+     * Searches message bodies across every conversation in the on-device index, alongside the
+     * conversations whose name, listing or last message match. Works offline; the index holds the
+     * messages of threads that were opened and the last message of every loaded conversation.
+     */
+    private void searchMessages(@NonNull String query) {
+        messageSearchQuery = query;
+        String currentUserId = sessionManager != null ? sessionManager.getUserId() : null;
+        if (query.length() < MESSAGE_SEARCH_MIN_LENGTH || TextUtils.isEmpty(currentUserId) || messageSearchIndex == null) {
+            rvSearchResults.setVisibility(View.GONE);
+            searchHits.clear();
+            updateEmptyState();
+            return;
+        }
+        messageSearchIndex.search(currentUserId, query, MESSAGE_SEARCH_LIMIT, (searched, hits) -> {
+            if (!isAdded() || rvSearchResults == null || !searched.equals(messageSearchQuery)) {
+                return;
+            }
+            showSearchResults(searched, hits, currentUserId);
+        });
+    }
+
+    private boolean isSearchActive() {
+        return messageSearchQuery.length() >= MESSAGE_SEARCH_MIN_LENGTH;
+    }
+
+    private void showSearchResults(@NonNull String query, @NonNull List<MessageSearchIndex.Message> hits,
+                                   @NonNull String currentUserId) {
+        List<MessagesAdapter.Message> results = new ArrayList<>();
+        for (MessagesAdapter.Message conversation : messagesList) {
+            if (!conversation.isArchived() && conversation.matchesQuery(query)) {
+                results.add(conversation);
+            }
+        }
+        searchHits.clear();
+        for (MessageSearchIndex.Message hit : hits) {
+            MessagesAdapter.Message conversation = findConversation(hit.counterpartId, hit.listingId);
+            String name;
+            String avatarUrl;
+            if (conversation != null) {
+                name = conversation.getUserName();
+                avatarUrl = conversation.getAvatarUrl();
+            } else {
+                ProfileCache.Profile profile = ProfileCache.getInstance(requireContext()).peek(hit.counterpartId);
+                name = profile != null && profile.name != null ? profile.name : getString(R.string.messages_unknown_user);
+                avatarUrl = profile != null ? profile.avatarUrl : null;
+            }
+            String listingTitle = conversation != null ? conversation.getListingTitle() : null;
+            String listingImage = conversation != null ? conversation.getListingImageUrl() : null;
+            MessagesAdapter.Message row = new MessagesAdapter.Message(
+                    name,
+                    hit.body,
+                    formatTimestamp(hit.createdAt),
+                    0,
+                    false,
+                    listingTitle,
+                    hit.counterpartId,
+                    hit.listingId,
+                    listingTitle,
+                    listingImage,
+                    avatarUrl,
+                    false
+            );
+            searchHits.put(row, hit);
+            results.add(row);
+        }
+        searchAdapter.setMessages(results);
+        rvMessages.setVisibility(View.GONE);
+        rvSearchResults.setVisibility(View.VISIBLE);
+        boolean empty = results.isEmpty();
+        tvEmptyMessages.setText(getString(R.string.messages_search_no_results, query));
+        tvEmptyMessages.setVisibility(empty ? View.VISIBLE : View.GONE);
+    }
+
+    @Nullable
+    private MessagesAdapter.Message findConversation(@Nullable String counterpartId, @Nullable String listingId) {
+        MessagesAdapter.Message direct = null;
+        for (MessagesAdapter.Message conversation : messagesList) {
+            if (!TextUtils.equals(conversation.getUserId(), counterpartId)) {
+                continue;
+            }
+            if (TextUtils.equals(sanitizeMetadata(conversation.getListingId()), sanitizeMetadata(listingId))) {
+                return conversation;
+            }
+            if (direct == null) {
+                direct = conversation;
+            }
+        }
+        return direct;
+    }
+
+    private void openSearchResult(MessagesAdapter.Message message) {
+        openConversation(message, searchHits.get(message));
+    }
+
     private void setupTabs() {
         tabLayout.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
             @Override
@@ -197,10 +341,18 @@ public class MessagesFragment extends Fragment {
     }
 
     private void loadMessages() {
+        loadMessages(true);
+    }
+
+    /**
+     * Reloads the inbox. Background polls pass {@code userInitiated = false}: they skip the
+     * refresh spinner and error toasts, and tell the inbox poller whether anything changed.
+     */
+    private void loadMessages(boolean userInitiated) {
         if (!isAdded() || rvMessages == null) {
             return;
         }
-        if (swipeRefresh != null && !swipeRefresh.isRefreshing()) {
+        if (userInitiated && swipeRefresh != null && !swipeRefresh.isRefreshing()) {
             swipeRefresh.setRefreshing(true);
         }
 
@@ -217,21 +369,33 @@ public class MessagesFragment extends Fragment {
                 swipeRefresh.setRefreshing(false);
             }
             messagesList.clear();
+            conversationRows.clear();
+            inboxNextPageToken = null;
             adapter.setMessages(messagesList);
             updateEmptyState();
             return;
         }
 
-        boolean includeListingMetadata = ChatFeatureCompat.isListingMetadataSupported();
-        String endpoint = buildChatsEndpoint(currentUserId, includeListingMetadata);
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        chatRepository.loadConversations(currentUserId, null, !userInitiated, new RepositoryPageCallback<ChatRepository.ConversationRow>() {
             @Override
-            public void onSuccess(Object data) {
+            public void onPage(@NonNull List<ChatRepository.ConversationRow> rows, @Nullable String nextPageToken) {
                 if (!isAdded()) {
                     return;
                 }
                 swipeRefresh.setRefreshing(false);
-                parseConversations(data, currentUserId);
+                updateInboxPollRate(rows);
+                mergeFirstPage(rows, nextPageToken);
+                buildConversations(conversationRows, currentUserId);
+            }
+
+            @Override
+            public void onCachedPage(@NonNull List<ChatRepository.ConversationRow> rows) {
+                if (!isAdded() || rows.isEmpty() || !conversationRows.isEmpty()) {
+                    return;
+                }
+                // Conversations from the last load; the refresh indicator stays up until fresh
+                // rows replace them.
+                buildConversations(rows, currentUserId);
             }
 
             @Override
@@ -240,194 +404,259 @@ public class MessagesFragment extends Fragment {
                     return;
                 }
                 swipeRefresh.setRefreshing(false);
-                if (ChatFeatureCompat.isListingMetadataSupported() && ChatFeatureCompat.isListingMetadataError(error)) {
-                    Log.w(TAG, "Supabase missing listing metadata columns; falling back to base conversations.");
-                    ChatFeatureCompat.disableListingMetadata();
-                    loadMessages();
-                    return;
-                }
                 Log.e(TAG, "Failed to load conversations: " + error);
-                Toast.makeText(requireContext(), R.string.messages_error_generic, Toast.LENGTH_SHORT).show();
+                if (userInitiated) {
+                    Toast.makeText(requireContext(), R.string.messages_error_generic, Toast.LENGTH_SHORT).show();
+                }
                 updateEmptyState();
             }
+
+            @Override
+            public void onFailure(@NonNull SupabaseError error) {
+                if (error.isTransient() && inboxPoller != null) {
+                    inboxPoller.backOff(error.getRetryAfterMs());
+                }
+                onError(error.getMessage());
+            }
         });
     }
 
-    private String buildChatsEndpoint(String userId, boolean includeListingMetadata) {
-        if (supabaseClient == null || TextUtils.isEmpty(supabaseClient.getSupabaseUrl())) {
-            return "/rest/v1/chats";
+    private void onConversationMetadataLoaded() {
+        String currentUserId = sessionManager != null ? sessionManager.getUserId() : null;
+        if (!isAdded() || adapter == null || conversationRows.isEmpty() || TextUtils.isEmpty(currentUserId)) {
+            return;
         }
-        HttpUrl baseUrl = HttpUrl.parse(supabaseClient.getSupabaseUrl());
-        if (baseUrl == null) {
-            return "/rest/v1/chats";
+        buildConversations(conversationRows, currentUserId);
+    }
+
+    private void loadMoreConversations() {
+        String currentUserId = sessionManager != null ? sessionManager.getUserId() : null;
+        String pageToken = inboxNextPageToken;
+        if (TextUtils.isEmpty(currentUserId) || pageToken == null || chatRepository == null) {
+            return;
         }
+        loadingInboxPage = true;
+        chatRepository.loadConversations(currentUserId, pageToken, true, new RepositoryPageCallback<ChatRepository.ConversationRow>() {
+            @Override
+            public void onPage(@NonNull List<ChatRepository.ConversationRow> rows, @Nullable String nextPageToken) {
+                loadingInboxPage = false;
+                if (!isAdded() || !pageToken.equals(inboxNextPageToken)) {
+                    return;
+                }
+                inboxNextPageToken = nextPageToken;
+                Set<String> loadedIds = new HashSet<>();
+                for (ChatRepository.ConversationRow row : conversationRows) {
+                    loadedIds.add(row.id);
+                }
+                for (ChatRepository.ConversationRow row : rows) {
+                    if (loadedIds.add(row.id)) {
+                        conversationRows.add(row);
+                    }
+                }
+                buildConversations(conversationRows, currentUserId);
+            }
+
+            @Override
+            public void onError(String error) {
+                loadingInboxPage = false;
+                Log.w(TAG, "Failed to load more conversations: " + error);
+            }
+        });
+    }
 
-        StringBuilder selectFields = new StringBuilder("id,message,created_at,is_read,sender_id,receiver_id");
-        if (includeListingMetadata) {
-            selectFields.append(",listing_id,listing_title_snapshot,listing_image_url_snapshot,listing:posts!chats_listing_id_fkey(id,title,image_url)");
+    /**
+     * Replaces the first page of conversations. Rows loaded from later pages stay when they still
+     * sort after the new first page, so a refresh does not collapse an inbox the user scrolled
+     * through; conversations that moved up are taken from the new page.
+     */
+    private void mergeFirstPage(@NonNull List<ChatRepository.ConversationRow> firstPage, @Nullable String nextPageToken) {
+        boolean scrolledPastFirstPage = inboxNextPageToken != null && conversationRows.size() > firstPage.size();
+        if (!scrolledPastFirstPage || nextPageToken == null || firstPage.isEmpty()) {
+            conversationRows.clear();
+            conversationRows.addAll(firstPage);
+            inboxNextPageToken = nextPageToken;
+            return;
+        }
+        ChatRepository.ConversationRow boundary = firstPage.get(firstPage.size() - 1);
+        Set<String> pageIds = new HashSet<>();
+        for (ChatRepository.ConversationRow row : firstPage) {
+            pageIds.add(row.id);
+        }
+        List<ChatRepository.ConversationRow> merged = new ArrayList<>(firstPage);
+        for (ChatRepository.ConversationRow row : conversationRows) {
+            if (!pageIds.contains(row.id) && sortsAfter(row, boundary)) {
+                merged.add(row);
+            }
         }
-        selectFields.append(",sender:profiles!chats_sender_id_fkey(id,name,profile_image_url),receiver:profiles!chats_receiver_id_fkey(id,name,profile_image_url)");
-        String orFilter = String.format(Locale.US, "(sender_id.eq.%s,receiver_id.eq.%s)", userId, userId);
+        conversationRows.clear();
+        conversationRows.addAll(merged);
+        // The token of the deepest page loaded still continues after the kept rows.
+    }
 
-        HttpUrl url = baseUrl.newBuilder()
-                .addPathSegments("rest/v1/chats")
-                .addQueryParameter("select", selectFields.toString())
-                .addQueryParameter("or", orFilter)
-                .addQueryParameter("order", "created_at.desc")
-                .build();
+    /** Keyset order of the inbox: created_at, then id, both descending. */
+    static boolean sortsAfter(@NonNull ChatRepository.ConversationRow row,
+                              @NonNull ChatRepository.ConversationRow boundary) {
+        int byTime = TextUtils.isEmpty(row.createdAt) || TextUtils.isEmpty(boundary.createdAt)
+                ? 0 : row.createdAt.compareTo(boundary.createdAt);
+        if (byTime != 0) {
+            return byTime < 0;
+        }
+        return row.id != null && boundary.id != null && row.id.compareTo(boundary.id) < 0;
+    }
 
-        return url.toString().replace(supabaseClient.getSupabaseUrl(), "");
+    /**
+     * Speeds the inbox poll up when the newest conversation or the unread count changed since the
+     * last load and slows it down otherwise.
+     */
+    private void updateInboxPollRate(List<ChatRepository.ConversationRow> rows) {
+        if (inboxPoller == null) {
+            return;
+        }
+        int unread = 0;
+        for (ChatRepository.ConversationRow row : rows) {
+            unread += row.unreadCount;
+        }
+        ChatRepository.ConversationRow newest = rows.isEmpty() ? null : rows.get(0);
+        String fingerprint = rows.size() + "|" + unread + "|"
+                + (newest != null ? newest.id + "@" + newest.createdAt : "");
+        if (lastInboxFingerprint != null && !fingerprint.equals(lastInboxFingerprint)) {
+            inboxPoller.markActive();
+        } else if (lastInboxFingerprint != null) {
+            inboxPoller.markIdle();
+        }
+        lastInboxFingerprint = fingerprint;
     }
 
-    private void parseConversations(Object data, String currentUserId) {
-        try {
-            JSONArray array = new JSONArray(data.toString());
-            Map<String, MessagesAdapter.Message> conversations = new LinkedHashMap<>();
-
-            for (int i = 0; i < array.length(); i++) {
-                JSONObject chat = array.getJSONObject(i);
-                String senderId = chat.optString("sender_id");
-                String receiverId = chat.optString("receiver_id");
-                String listingId = chat.has("listing_id") && !chat.isNull("listing_id") ? chat.optString("listing_id", null) : null;
-                listingId = sanitizeMetadata(listingId);
-                String messageBody = chat.optString("message", "");
-                boolean isRead = chat.optBoolean("is_read", false);
-                String createdAt = chat.optString("created_at");
-
-                boolean fromCurrentUser = currentUserId.equals(senderId);
-                String counterpartId = fromCurrentUser ? receiverId : senderId;
-                if (TextUtils.isEmpty(counterpartId)) {
-                    continue;
-                }
+    private void buildConversations(List<ChatRepository.ConversationRow> rows, String currentUserId) {
+        Map<String, MessagesAdapter.Message> conversations = new LinkedHashMap<>();
 
-                JSONObject senderProfile = chat.optJSONObject("sender");
-                JSONObject receiverProfile = chat.optJSONObject("receiver");
-                JSONObject listingObject = ChatFeatureCompat.isListingMetadataSupported() ? chat.optJSONObject("listing") : null;
-                String listingTitleSnapshot = ChatFeatureCompat.isListingMetadataSupported()
-                    ? chat.optString("listing_title_snapshot", null)
-                    : null;
-                String listingImageSnapshot = ChatFeatureCompat.isListingMetadataSupported()
-                    ? chat.optString("listing_image_url_snapshot", null)
+        for (ChatRepository.ConversationRow conversation : rows) {
+            String listingId = sanitizeMetadata(conversation.listingId);
+            String messageBody = conversation.lastMessage;
+            String createdAt = conversation.createdAt;
+
+            String counterpartId = conversation.counterpartId;
+            if (TextUtils.isEmpty(counterpartId) || counterpartId.equals(currentUserId)) {
+                continue;
+            }
+
+            String listingTitleSnapshot = sanitizeMetadata(conversation.listingTitleSnapshot);
+            String listingImageSnapshot = sanitizeMetadata(conversation.listingImageSnapshot);
+
+            String counterpartName = conversation.counterpartName;
+            if (counterpartName == null) {
+                counterpartName = getString(R.string.messages_unknown_user);
+            }
+            String avatarUrl = conversation.counterpartAvatarUrl;
+
+            String listingTitle = sanitizeMetadata(conversation.listingTitle);
+            String listingImage = sanitizeMetadata(conversation.listingImageUrl);
+            if (TextUtils.isEmpty(listingTitle) && !TextUtils.isEmpty(listingTitleSnapshot)) {
+                listingTitle = listingTitleSnapshot;
+            }
+            if (TextUtils.isEmpty(listingImage) && !TextUtils.isEmpty(listingImageSnapshot)) {
+                listingImage = listingImageSnapshot;
+            }
+            if (!TextUtils.isEmpty(listingId) && (!TextUtils.isEmpty(listingTitle) || !TextUtils.isEmpty(listingImage))) {
+                listingMetadataCache.put(listingId, new ListingMetadata(listingTitle, listingImage));
+            }
+            ConversationMetadataStore.ListingContext storedContext = conversationMetadataStore != null
+                    ? conversationMetadataStore.getListingContext(counterpartId, listingId)
                     : null;
-                listingTitleSnapshot = sanitizeMetadata(listingTitleSnapshot);
-                listingImageSnapshot = sanitizeMetadata(listingImageSnapshot);
-
-                JSONObject counterpartProfile = fromCurrentUser ? receiverProfile : senderProfile;
-                String counterpartName = counterpartProfile != null
-                        ? counterpartProfile.optString("name", getString(R.string.messages_unknown_user))
-                        : getString(R.string.messages_unknown_user);
-                String avatarUrl = counterpartProfile != null ? counterpartProfile.optString("profile_image_url", null) : null;
-
-                String listingTitle = listingObject != null ? listingObject.optString("title", null) : null;
-                String listingImage = listingObject != null ? listingObject.optString("image_url", null) : null;
-                listingTitle = sanitizeMetadata(listingTitle);
-                listingImage = sanitizeMetadata(listingImage);
-                if (TextUtils.isEmpty(listingTitle) && !TextUtils.isEmpty(listingTitleSnapshot)) {
-                    listingTitle = listingTitleSnapshot;
+            if (storedContext != null) {
+                if (TextUtils.isEmpty(listingId) && !TextUtils.isEmpty(storedContext.listingId)) {
+                    listingId = storedContext.listingId;
                 }
-                if (TextUtils.isEmpty(listingImage) && !TextUtils.isEmpty(listingImageSnapshot)) {
-                    listingImage = listingImageSnapshot;
+                if (TextUtils.isEmpty(listingTitle) && !TextUtils.isEmpty(storedContext.title)) {
+                    listingTitle = storedContext.title;
                 }
-                if (!TextUtils.isEmpty(listingId) && (!TextUtils.isEmpty(listingTitle) || !TextUtils.isEmpty(listingImage))) {
-                    listingMetadataCache.put(listingId, new ListingMetadata(listingTitle, listingImage));
-                }
-                ConversationMetadataStore.ListingContext storedContext = conversationMetadataStore != null
-                        ? conversationMetadataStore.getListingContext(counterpartId, listingId)
-                        : null;
-                if (storedContext != null) {
-                    if (TextUtils.isEmpty(listingId) && !TextUtils.isEmpty(storedContext.listingId)) {
-                        listingId = storedContext.listingId;
-                    }
-                    if (TextUtils.isEmpty(listingTitle) && !TextUtils.isEmpty(storedContext.title)) {
-                        listingTitle = storedContext.title;
-                    }
-                    if (TextUtils.isEmpty(listingImage) && !TextUtils.isEmpty(storedContext.imageUrl)) {
-                        listingImage = storedContext.imageUrl;
-                    }
+                if (TextUtils.isEmpty(listingImage) && !TextUtils.isEmpty(storedContext.imageUrl)) {
+                    listingImage = storedContext.imageUrl;
                 }
+            }
 
-                ListingMetadata cachedMetadata = !TextUtils.isEmpty(listingId) ? listingMetadataCache.get(listingId) : null;
-                if (cachedMetadata != null) {
-                    if (TextUtils.isEmpty(listingTitle)) {
-                        listingTitle = cachedMetadata.title;
-                    }
-                    if (TextUtils.isEmpty(listingImage)) {
-                        listingImage = cachedMetadata.imageUrl;
-                    }
-                }
-                boolean archived = conversationMetadataStore != null && conversationMetadataStore.isArchived(counterpartId, listingId);
-                if (conversationMetadataStore != null && conversationMetadataStore.isBlocked(counterpartId, listingId)) {
-                    continue;
-                }
-                String key = counterpartId + "|" + (listingId != null ? listingId : "direct");
-
-                MessagesAdapter.Message summary = conversations.get(key);
-                if (summary == null) {
-                    int unreadCount = (!fromCurrentUser && !isRead) ? 1 : 0;
-                        summary = new MessagesAdapter.Message(
-                            counterpartName,
-                            messageBody,
-                            formatTimestamp(createdAt),
-                            unreadCount,
-                            false,
-                            listingTitle,
-                            counterpartId,
-                            listingId,
-                            listingTitle,
-                            listingImage,
-                            avatarUrl,
-                            archived
-                    );
-                    conversations.put(key, summary);
-                } else if (!fromCurrentUser && !isRead) {
-                    summary.incrementUnreadCount();
-                }
-                if (storedContext != null && summary != null) {
-                    summary.setListingId(storedContext.listingId);
-                    summary.setListingMetadata(storedContext.title, storedContext.imageUrl);
-                }
-                if (!TextUtils.isEmpty(avatarUrl)) {
-                    summary.setAvatarUrl(avatarUrl);
+            ListingMetadata cachedMetadata = !TextUtils.isEmpty(listingId) ? listingMetadataCache.get(listingId) : null;
+            if (cachedMetadata != null) {
+                if (TextUtils.isEmpty(listingTitle)) {
+                    listingTitle = cachedMetadata.title;
                 }
-                if (!TextUtils.isEmpty(listingId) && TextUtils.isEmpty(summary.getItemName())) {
-                    summary.setListingMetadata(listingTitle, listingImage);
+                if (TextUtils.isEmpty(listingImage)) {
+                    listingImage = cachedMetadata.imageUrl;
                 }
-                if (!TextUtils.isEmpty(listingId) && TextUtils.isEmpty(summary.getListingTitle())) {
-                    if (!listingMetadataCache.containsKey(listingId)) {
-                        pendingListingLookups.add(listingId);
-                    }
+            }
+            boolean archived = conversationMetadataStore != null && conversationMetadataStore.isArchived(counterpartId, listingId);
+            if (conversationMetadataStore != null && conversationMetadataStore.isBlocked(counterpartId, listingId)) {
+                continue;
+            }
+            String key = counterpartId + "|" + (listingId != null ? listingId : "direct");
+
+            // Rows are most recent first, so the first row of a key holds its last message. Two rows
+            // only share a key when a stored listing context filled in a missing listing id.
+            MessagesAdapter.Message summary = conversations.get(key);
+            if (summary == null) {
+                summary = new MessagesAdapter.Message(
+                        counterpartName,
+                        messageBody,
+                        formatTimestamp(createdAt),
+                        conversation.unreadCount,
+                        false,
+                        listingTitle,
+                        counterpartId,
+                        listingId,
+                        listingTitle,
+                        listingImage,
+                        avatarUrl,
+                        archived
+                );
+                conversations.put(key, summary);
+            } else {
+                summary.addUnreadCount(conversation.unreadCount);
+            }
+            if (storedContext != null && summary != null) {
+                summary.setListingId(storedContext.listingId);
+                summary.setListingMetadata(storedContext.title, storedContext.imageUrl);
+            }
+            if (!TextUtils.isEmpty(avatarUrl)) {
+                summary.setAvatarUrl(avatarUrl);
+            }
+            if (!TextUtils.isEmpty(listingId) && TextUtils.isEmpty(summary.getItemName())) {
+                summary.setListingMetadata(listingTitle, listingImage);
+            }
+            if (!TextUtils.isEmpty(listingId) && TextUtils.isEmpty(summary.getListingTitle())) {
+                if (!listingMetadataCache.containsKey(listingId)) {
+                    pendingListingLookups.add(listingId);
                 }
             }
+        }
 
-            messagesList.clear();
-            messagesList.addAll(conversations.values());
-            adapter.setMessages(messagesList);
-            if (conversationMetadataStore != null) {
-                for (MessagesAdapter.Message message : messagesList) {
-                    if (message == null || TextUtils.isEmpty(message.getUserId())) {
-                        continue;
-                    }
-                    if (TextUtils.isEmpty(message.getListingId())
-                            && TextUtils.isEmpty(message.getListingTitle())
-                            && TextUtils.isEmpty(message.getListingImageUrl())) {
-                        continue;
-                    }
-                    conversationMetadataStore.saveListingContext(
-                            message.getUserId(),
-                            sanitizeMetadata(message.getListingId()),
-                            sanitizeMetadata(message.getListingTitle()),
-                            sanitizeMetadata(message.getListingImageUrl())
-                    );
+        messagesList.clear();
+        messagesList.addAll(conversations.values());
+        adapter.setMessages(messagesList);
+        if (conversationMetadataStore != null) {
+            for (MessagesAdapter.Message message : messagesList) {
+                if (message == null || TextUtils.isEmpty(message.getUserId())) {
+                    continue;
                 }
+                if (TextUtils.isEmpty(message.getListingId())
+                        && TextUtils.isEmpty(message.getListingTitle())
+                        && TextUtils.isEmpty(message.getListingImageUrl())) {
+                    continue;
+                }
+                conversationMetadataStore.saveListingContext(
+                        message.getUserId(),
+                        sanitizeMetadata(message.getListingId()),
+                        sanitizeMetadata(message.getListingTitle()),
+                        sanitizeMetadata(message.getListingImageUrl())
+                );
             }
-            if (!pendingListingLookups.isEmpty()) {
-                fetchMissingListingMetadata();
-            }
-            updateEmptyState();
-        } catch (JSONException e) {
-            Log.e(TAG, "Failed to parse conversations", e);
-            Toast.makeText(requireContext(), R.string.messages_error_generic, Toast.LENGTH_SHORT).show();
-            updateEmptyState();
+        }
+        if (!pendingListingLookups.isEmpty()) {
+            fetchMissingListingMetadata();
+        }
+        updateEmptyState();
+        if (isSearchActive()) {
+            // Newly loaded last messages are in the index now; refresh the open search.
+            searchMessages(messageSearchQuery);
         }
     }
 
@@ -446,7 +675,7 @@ public class MessagesFragment extends Fragment {
         }
         builder.append(")");
         String endpoint = "/rest/v1/posts?select=id,title,image_url&id=in." + Uri.encode(builder.toString());
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        supabaseClient.query(endpoint, requestScope.wrap(new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
                 try {
@@ -479,10 +708,14 @@ public class MessagesFragment extends Fragment {
             public void onError(String error) {
                 Log.e(TAG, "Failed to fetch listing metadata: " + error);
             }
-        });
+        }));
     }
 
     private void updateEmptyState() {
+        if (isSearchActive()) {
+            // Search results manage the list and empty text while a query is entered.
+            return;
+        }
         boolean hasMessages = !messagesList.isEmpty();
         rvMessages.setVisibility(hasMessages ? View.VISIBLE : View.GONE);
         if (!hasMessages && tvEmptyMessages != null) {
@@ -545,6 +778,13 @@ public class MessagesFragment extends Fragment {
     }
 
     private void openConversation(MessagesAdapter.Message message) {
+        openConversation(message, null);
+    }
+
+    /**
+     * Opens the conversation, at {@code hit} when it was found by a message search.
+     */
+    private void openConversation(MessagesAdapter.Message message, @Nullable MessageSearchIndex.Message hit) {
         if (message == null || getActivity() == null) {
             return;
         }
@@ -580,6 +820,9 @@ public class MessagesFragment extends Fragment {
             null,
             null
         );
+        if (hit != null && !TextUtils.isEmpty(hit.id) && !TextUtils.isEmpty(hit.createdAt)) {
+            fragment.focusOnMessage(hit.id, hit.createdAt);
+        }
 
         getParentFragmentManager()
                 .beginTransaction()
@@ -13,8 +13,11 @@ import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.ecoswap.R;
+import com.example.ecoswap.utils.EntityStore;
+import com.example.ecoswap.utils.PaginationScrollListener;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseQuery;
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -24,7 +27,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
 import org.json.JSONArray;
-import org.json.JSONException;
 import org.json.JSONObject;
 
 public class NotificationsBottomSheet extends BottomSheetDialogFragment {
@@ -37,6 +39,10 @@ public class NotificationsBottomSheet extends BottomSheetDialogFragment {
     private SessionManager sessionManager;
     private Button btnMarkAllRead;
     private String userId;
+    @Nullable
+    private String nextPageToken;
+    private boolean loadingPage = false;
+    private boolean firstPageLoaded = false;
 
     public static NotificationsBottomSheet newInstance() {
         return new NotificationsBottomSheet();
@@ -58,6 +64,17 @@ public class NotificationsBottomSheet extends BottomSheetDialogFragment {
         adapter = new NotificationsAdapter(new ArrayList<>());
         rvNotifications.setLayoutManager(new LinearLayoutManager(getContext()));
         rvNotifications.setAdapter(adapter);
+        rvNotifications.addOnScrollListener(new PaginationScrollListener(new PaginationScrollListener.Pager() {
+            @Override
+            public boolean canLoadMore() {
+                return !loadingPage && nextPageToken != null;
+            }
+
+            @Override
+            public void loadMore() {
+                loadNotificationsPage(nextPageToken);
+            }
+        }));
         sessionManager = SessionManager.getInstance(requireContext());
         supabaseClient = SupabaseClient.getInstance(requireContext());
         userId = sessionManager != null ? sessionManager.getUserId() : null;
@@ -74,46 +91,74 @@ public class NotificationsBottomSheet extends BottomSheetDialogFragment {
         }
         progressBar.setVisibility(View.VISIBLE);
         tvEmpty.setVisibility(View.GONE);
-        String endpoint = "/rest/v1/notifications?select=*&user_id=eq." + userId + "&order=created_at.desc";
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        loadNotificationsPage(null);
+        EntityStore.getInstance(requireContext()).loadCollection(notificationsCollectionKey(), rows -> {
+            // Stored notifications are only a placeholder; the first fresh page replaces them.
+            if (rows == null || rows.length() == 0 || !isAdded() || firstPageLoaded) {
+                return;
+            }
+            adapter.replace(mapNotifications(rows));
+            progressBar.setVisibility(View.GONE);
+            btnMarkAllRead.setVisibility(View.VISIBLE);
+        });
+    }
+
+    private String notificationsCollectionKey() {
+        return "notifications:" + userId;
+    }
+
+    private List<NotificationItem> mapNotifications(JSONArray array) {
+        List<NotificationItem> items = new ArrayList<>();
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject obj = array.optJSONObject(i);
+            if (obj == null) continue;
+            String id = obj.optString("id");
+            String type = obj.optString("type", "");
+            String message = obj.optString("message", "");
+            boolean isRead = obj.optBoolean("is_read", false);
+            String createdAt = obj.optString("created_at", "");
+            items.add(new NotificationItem(id, type, message, isRead, createdAt));
+        }
+        return items;
+    }
+
+    private void loadNotificationsPage(@Nullable String pageToken) {
+        loadingPage = true;
+        String endpoint = SupabaseQuery.from("notifications")
+                .select("id", "type", "message", "is_read", "created_at")
+                .eq("user_id", userId)
+                .build();
+        supabaseClient.queryPage(endpoint, pageToken, SupabaseClient.DEFAULT_PAGE_SIZE, new SupabaseClient.OnPageCallback() {
             @Override
-            public void onSuccess(Object data) {
-                try {
-                    JSONArray array = new JSONArray(data.toString());
-                    List<NotificationItem> items = new ArrayList<>();
-                    for (int i = 0; i < array.length(); i++) {
-                        JSONObject obj = array.getJSONObject(i);
-                        String id = obj.optString("id");
-                        String type = obj.optString("type", "");
-                        String message = obj.optString("message", "");
-                        boolean isRead = obj.optBoolean("is_read", false);
-                        String createdAt = obj.optString("created_at", "");
-                        items.add(new NotificationItem(id, type, message, isRead, createdAt));
-                    }
-                    if (isAdded()) {
-                        requireActivity().runOnUiThread(() -> {
-                            adapter.replace(items);
-                            progressBar.setVisibility(View.GONE);
-                            boolean empty = items.isEmpty();
-                            tvEmpty.setVisibility(empty ? View.VISIBLE : View.GONE);
-                            btnMarkAllRead.setVisibility(empty ? View.GONE : View.VISIBLE);
-                            markUnreadAsRead(items);
-                        });
-                    }
-                } catch (JSONException e) {
-                    if (isAdded()) {
-                        requireActivity().runOnUiThread(() -> progressBar.setVisibility(View.GONE));
-                    }
+            public void onSuccess(JSONArray array, @Nullable String nextToken) {
+                loadingPage = false;
+                nextPageToken = nextToken;
+                List<NotificationItem> items = mapNotifications(array);
+                if (pageToken == null && getContext() != null) {
+                    firstPageLoaded = true;
+                    EntityStore.getInstance(getContext()).saveCollection(notificationsCollectionKey(), "notifications", array);
+                }
+                if (!isAdded()) {
+                    return;
+                }
+                if (pageToken == null) {
+                    adapter.replace(items);
+                } else {
+                    adapter.append(items);
                 }
+                progressBar.setVisibility(View.GONE);
+                boolean empty = adapter.getItemCount() == 0;
+                tvEmpty.setVisibility(empty ? View.VISIBLE : View.GONE);
+                btnMarkAllRead.setVisibility(empty ? View.GONE : View.VISIBLE);
+                markUnreadAsRead(items);
             }
 
             @Override
             public void onError(String error) {
-                if (isAdded()) {
-                    requireActivity().runOnUiThread(() -> {
-                        progressBar.setVisibility(View.GONE);
-                        tvEmpty.setVisibility(View.VISIBLE);
-                    });
+                loadingPage = false;
+                if (isAdded() && pageToken == null) {
+                    progressBar.setVisibility(View.GONE);
+                    tvEmpty.setVisibility(View.VISIBLE);
                 }
             }
         });
@@ -121,18 +166,21 @@ public class NotificationsBottomSheet extends BottomSheetDialogFragment {
 
     private void markUnreadAsRead(List<NotificationItem> items) {
         if (supabaseClient == null || items == null) return;
+        List<String> unreadIds = new ArrayList<>();
         for (NotificationItem item : items) {
             if (item == null || item.isRead || TextUtils.isEmpty(item.id)) continue;
-            com.google.gson.JsonObject payload = new com.google.gson.JsonObject();
-            payload.addProperty("is_read", true);
-            supabaseClient.update("notifications", item.id, payload, new SupabaseClient.OnDatabaseCallback() {
-                @Override
-                public void onSuccess(Object data) { }
-
-                @Override
-                public void onError(String error) { }
-            });
+            unreadIds.add(item.id);
         }
+        if (unreadIds.isEmpty()) return;
+        com.google.gson.JsonObject payload = new com.google.gson.JsonObject();
+        payload.addProperty("is_read", true);
+        supabaseClient.updateWhereIn("notifications", "id", unreadIds, payload, new SupabaseClient.OnDatabaseCallback() {
+            @Override
+            public void onSuccess(Object data) { }
+
+            @Override
+            public void onError(String error) { }
+        });
     }
 
     private void markAllRead() {
@@ -193,6 +241,12 @@ public class NotificationsBottomSheet extends BottomSheetDialogFragment {
             notifyDataSetChanged();
         }
 
+        void append(List<NotificationItem> data) {
+            int start = items.size();
+            items.addAll(data);
+            notifyItemRangeInserted(start, data.size());
+        }
+
         @NonNull
         @Override
         public NotificationViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
@@ -12,6 +12,7 @@ import com.example.ecoswap.R;
 import com.example.ecoswap.models.Post;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseQuery;
 import com.bumptech.glide.Glide;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -131,9 +132,12 @@ public class PostDetailActivity extends AppCompatActivity {
             return;
         }
 
-        String endpoint = String.format(Locale.US,
-                "/rest/v1/comments?select=*,profiles(name)&post_id=eq.%s&order=created_at.desc",
-                postId);
+        String endpoint = SupabaseQuery.from("comments")
+                .select("id", "content", "created_at")
+                .embed("profiles", "name")
+                .eq("post_id", postId)
+                .order("created_at", false)
+                .build();
 
         supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
             @Override
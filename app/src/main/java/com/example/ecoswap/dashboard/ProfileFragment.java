@@ -40,9 +40,13 @@ import com.bumptech.glide.request.target.Target;
 import com.example.ecoswap.auth.LoginActivity;
 import com.example.ecoswap.R;
 import com.example.ecoswap.dashboard.listings.MyListingsFragment;
+import com.example.ecoswap.utils.EntityStore;
 import com.example.ecoswap.utils.ProfileImageUploader;
+import com.example.ecoswap.utils.RequestScope;
+import com.example.ecoswap.utils.ReviewFeatureCompat;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseQuery;
 import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.dialog.MaterialAlertDialogBuilder;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -92,6 +96,9 @@ public class ProfileFragment extends Fragment {
     
     private SessionManager sessionManager;
     private SupabaseClient supabaseClient;
+    private RequestScope requestScope;
+    private EntityStore entityStore;
+    private boolean profileLoaded;
     private Gson gson;
     private final List<ReviewRow> reviewRows = new ArrayList<>();
     
@@ -249,6 +256,8 @@ public class ProfileFragment extends Fragment {
         super.onViewCreated(view, savedInstanceState);
         
         Log.d(TAG, "=========== ProfileFragment onViewCreated() called ===========");
+        requestScope = RequestScope.bind(getViewLifecycleOwner());
+        entityStore = EntityStore.getInstance(requireContext());
         
         // Load user profile from database
         loadUserProfile();
@@ -264,10 +273,16 @@ public class ProfileFragment extends Fragment {
         }
         
         Log.d(TAG, "Loading profile for user ID: " + currentUserId);
-        String endpoint = "/rest/v1/profiles?id=eq." + currentUserId + "&select=*";
+        profileLoaded = false;
+        loadStoredProfile();
+        String endpoint = SupabaseQuery.from("profiles")
+            .select("id", "name", "email", "bio", "contact_number", "location", "profile_image_url",
+                "total_swaps", "total_donations", "impact_score", "eco_level", "eco_icon")
+            .eq("id", currentUserId)
+            .build();
         Log.d(TAG, "Endpoint: " + endpoint);
         
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        supabaseClient.query(endpoint, requestScope.wrap(new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
                 Log.d(TAG, "Database query successful, data received: " + (data != null ? data.toString() : "null"));
@@ -278,7 +293,10 @@ public class ProfileFragment extends Fragment {
                     if (result != null && result.size() > 0) {
                         JsonObject profile = result.get(0).getAsJsonObject();
                         Log.d(TAG, "Profile object retrieved: " + profile.toString());
+                        profileLoaded = true;
+                        entityStore.save("profiles", data);
                         displayProfileData(profile);
+                        loadRatingSummary();
                     } else {
                         Log.e(TAG, "Profile not found for user: " + currentUserId);
                         // Show basic info from session
@@ -299,7 +317,70 @@ public class ProfileFragment extends Fragment {
                 Toast.makeText(requireContext(), 
                     "Error loading profile: " + error, 
                     Toast.LENGTH_SHORT).show();
-                displayFallbackData();
+                if (!profileLoaded) {
+                    displayFallbackData();
+                }
+            }
+        }));
+    }
+
+    /**
+     * Rating and review count only exist once database/reviews.sql has been applied, so they are
+     * read separately; without them the rating section keeps its estimate from swaps and impact.
+     */
+    private void loadRatingSummary() {
+        if (!ReviewFeatureCompat.isProfileRatingSupported()) {
+            return;
+        }
+        String endpoint = SupabaseQuery.from("profiles")
+            .select("rating", "review_count")
+            .eq("id", currentUserId)
+            .build();
+        supabaseClient.query(endpoint, requestScope.wrap(new SupabaseClient.OnDatabaseCallback() {
+            @Override
+            public void onSuccess(Object data) {
+                try {
+                    JsonArray result = gson.fromJson(data.toString(), JsonArray.class);
+                    if (result == null || result.size() == 0) {
+                        return;
+                    }
+                    JsonObject summary = result.get(0).getAsJsonObject();
+                    Double ratingValue = summary.has("rating") && !summary.get("rating").isJsonNull()
+                        ? summary.get("rating").getAsDouble()
+                        : null;
+                    Integer reviewCountValue = summary.has("review_count") && !summary.get("review_count").isJsonNull()
+                        ? summary.get("review_count").getAsInt()
+                        : null;
+                    updateRatingSection(ratingValue, reviewCountValue, totalSwapsValue, impactScoreValue);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Ignoring unreadable rating summary", e);
+                }
+            }
+
+            @Override
+            public void onError(String error) {
+                if (ReviewFeatureCompat.isProfileRatingError(error)) {
+                    ReviewFeatureCompat.disableProfileRating();
+                }
+                Log.d(TAG, "Rating summary unavailable: " + error);
+            }
+        }));
+    }
+
+    /**
+     * Shows the profile as last stored on the device while the network copy loads.
+     */
+    private void loadStoredProfile() {
+        entityStore.load("profiles", currentUserId, rows -> {
+            if (rows == null || profileLoaded || requestScope.isCancelled()) {
+                return;
+            }
+            try {
+                JsonObject profile = gson.fromJson(rows.getJSONObject(0).toString(), JsonObject.class);
+                profileLoaded = true;
+                displayProfileData(profile);
+            } catch (JSONException e) {
+                Log.w(TAG, "Ignoring unreadable stored profile", e);
             }
         });
     }
@@ -542,7 +623,7 @@ public class ProfileFragment extends Fragment {
 
     private void fetchReviews(@NonNull ReviewAdapter adapter, @NonNull TextView tvEmpty) {
         String endpoint = "/rest/v1/reviews?select=rating,comment,created_at,rater:profiles(name,profile_image_url)&ratee_id=eq." + currentUserId + "&order=created_at.desc&limit=50";
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        supabaseClient.query(endpoint, requestScope.wrap(new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
                 try {
@@ -577,7 +658,7 @@ public class ProfileFragment extends Fragment {
                     tvEmpty.setText(R.string.profile_reviews_load_error);
                 });
             }
-        });
+        }));
     }
 
     private static class ReviewAdapter extends RecyclerView.Adapter<ReviewAdapter.ReviewViewHolder> {
@@ -22,7 +22,9 @@ import com.bumptech.glide.request.RequestListener;
 import com.bumptech.glide.request.target.Target;
 import com.example.ecoswap.R;
 import com.example.ecoswap.chat.ChatFragment;
+import com.example.ecoswap.utils.ProfileCache;
 import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseQuery;
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
@@ -107,63 +109,26 @@ public class UserProfileBottomSheet extends BottomSheetDialogFragment {
     }
 
     private void loadUserProfile() {
-        String endpoint = "/rest/v1/profiles?id=eq." + userId + "&select=*";
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
-            @Override
-            public void onSuccess(Object data) {
-                try {
-                    com.google.gson.Gson gson = new com.google.gson.Gson();
-                    JsonArray result = gson.fromJson(data.toString(), JsonArray.class);
-                    if (result != null && result.size() > 0) {
-                        JsonObject profile = result.get(0).getAsJsonObject();
-                        
-                        String name = profile.has("name") && !profile.get("name").isJsonNull() 
-                                ? profile.get("name").getAsString() : "User";
-                        tvProfileName.setText(name);
-                        tvProfileAvatar.setText(getInitials(name));
-
-                        String location = profile.has("location") && !profile.get("location").isJsonNull()
-                                ? profile.get("location").getAsString() : "Unknown Location";
-                        tvProfileLocation.setText(location);
-
-                        // Load stats if available
-                        if (profile.has("total_swaps")) {
-                            tvProfileSwaps.setText(String.valueOf(profile.get("total_swaps").getAsInt()));
-                        }
-                        if (profile.has("total_donations")) {
-                            tvProfileDonated.setText(String.valueOf(profile.get("total_donations").getAsInt()));
-                        }
-
-                        if (profile.has("bio") && !profile.get("bio").isJsonNull()) {
-                            String bio = profile.get("bio").getAsString();
-                            if (!bio.isEmpty()) {
-                                tvProfileBio.setText(bio);
-                                tvProfileBio.setVisibility(View.VISIBLE);
-                            }
-                        }
-                        
-                        // Check for profile_image_url first (used in ProfileFragment)
-                        String avatarUrl = null;
-                        if (profile.has("profile_image_url") && !profile.get("profile_image_url").isJsonNull()) {
-                            avatarUrl = profile.get("profile_image_url").getAsString();
-                        } else if (profile.has("avatar_url") && !profile.get("avatar_url").isJsonNull()) {
-                            avatarUrl = profile.get("avatar_url").getAsString();
-                        }
-
-                        loadAvatarWithFallback(name, avatarUrl);
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+        ProfileCache.getInstance(requireContext()).get(userId, profiles -> {
+            if (!isAdded()) {
+                return;
             }
-
-            @Override
-            public void onError(String error) {
-                // Handle error
-                if (getContext() != null) {
-                    Toast.makeText(getContext(), "Failed to load profile: " + error, Toast.LENGTH_SHORT).show();
-                }
+            ProfileCache.Profile profile = profiles.get(userId);
+            if (profile == null) {
+                Toast.makeText(requireContext(), "Failed to load profile", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            String name = !TextUtils.isEmpty(profile.name) ? profile.name : "User";
+            tvProfileName.setText(name);
+            tvProfileAvatar.setText(getInitials(name));
+            tvProfileLocation.setText(!TextUtils.isEmpty(profile.location) ? profile.location : "Unknown Location");
+            tvProfileSwaps.setText(String.valueOf(profile.totalSwaps));
+            tvProfileDonated.setText(String.valueOf(profile.totalDonations));
+            if (!TextUtils.isEmpty(profile.bio)) {
+                tvProfileBio.setText(profile.bio);
+                tvProfileBio.setVisibility(View.VISIBLE);
             }
+            loadAvatarWithFallback(name, profile.avatarUrl);
         });
     }
 
@@ -226,7 +191,13 @@ public class UserProfileBottomSheet extends BottomSheetDialogFragment {
     private void loadUserListings() {
         progressBarListings.setVisibility(View.VISIBLE);
         // Query active listings for this user, including profile name and image
-        String endpoint = "/rest/v1/posts?user_id=eq." + userId + "&status=eq.available&select=*,profiles(name,profile_image_url)&order=created_at.desc";
+        String endpoint = SupabaseQuery.from("posts")
+                .select("id", "title", "description", "image_url", "location", "category", "listing_type")
+                .embed("profiles", "name", "profile_image_url")
+                .eq("user_id", userId)
+                .eq("status", "available")
+                .order("created_at", false)
+                .build();
         
         supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
             @Override
@@ -25,6 +25,9 @@ import com.example.ecoswap.dashboard.CreateListingFragment;
 import com.example.ecoswap.dashboard.trades.TradeDetailActivity;
 import com.example.ecoswap.dashboard.trades.TradeHistoryAdapter;
 import com.example.ecoswap.dashboard.trades.TradeRecord;
+import com.example.ecoswap.repository.ImpactRepository;
+import com.example.ecoswap.utils.EntityStore;
+import com.example.ecoswap.utils.ProfileCache;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
 import com.example.ecoswap.utils.TradeFeatureCompat;
@@ -76,6 +79,8 @@ public class MyListingsFragment extends Fragment
 
     private SessionManager sessionManager;
     private SupabaseClient supabaseClient;
+    private ImpactRepository impactRepository;
+    private EntityStore entityStore;
     private String userId;
 
     private boolean loadingActiveListings = false;
@@ -102,6 +107,8 @@ public class MyListingsFragment extends Fragment
         super.onCreate(savedInstanceState);
         sessionManager = SessionManager.getInstance(requireContext());
         supabaseClient = SupabaseClient.getInstance(requireContext());
+        impactRepository = new ImpactRepository(requireContext());
+        entityStore = EntityStore.getInstance(requireContext());
         supabaseClient.hydrateSession(
                 sessionManager.getAccessToken(),
                 sessionManager.getRefreshToken(),
@@ -224,13 +231,22 @@ public class MyListingsFragment extends Fragment
         }
         loadingActiveListings = true;
         updateGlobalLoadingIndicator();
+        String collectionKey = "my_listings:" + userId;
+        boolean[] freshArrived = {false};
+        entityStore.loadCollection(collectionKey, rows -> {
+            if (rows != null && !freshArrived[0] && isAdded()) {
+                parseActiveListings(rows, true);
+            }
+        });
         String endpoint = String.format(Locale.US,
             "/rest/v1/posts?select=id,title,description,image_url,status,category,listing_type,condition,location,updated_at&user_id=eq.%s&listing_type=not.is.null&listing_type=neq.community&category=not.ilike.community&order=updated_at.desc",
             userId);
         supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
-                parseActiveListings(data);
+                freshArrived[0] = true;
+                entityStore.saveCollection(collectionKey, "posts", data);
+                parseActiveListings(data, false);
             }
 
             @Override
@@ -244,7 +260,11 @@ public class MyListingsFragment extends Fragment
         });
     }
 
-    private void parseActiveListings(Object data) {
+    /**
+     * Shows the given posts as the active listings. Rows from the entity store only fill the list;
+     * the loading state is left to the network result that follows.
+     */
+    private void parseActiveListings(Object data, boolean fromStore) {
         List<ActiveListingsAdapter.ActiveListing> parsed = new ArrayList<>();
         if (data != null) {
             try {
@@ -294,6 +314,10 @@ public class MyListingsFragment extends Fragment
         activeListings.clear();
         activeListings.addAll(parsed);
         activeAdapter.replaceData(activeListings);
+        if (fromStore) {
+            updateActiveEmptyState();
+            return;
+        }
         swipeActive.setRefreshing(false);
         loadingActiveListings = false;
         updateGlobalLoadingIndicator();
@@ -638,40 +662,17 @@ public class MyListingsFragment extends Fragment
     }
 
     private void fetchProfileNames() {
-        List<String> ids = new ArrayList<>(pendingProfileLookups);
-        StringBuilder params = new StringBuilder();
-        for (int i = 0; i < ids.size(); i++) {
-            params.append("\"").append(ids.get(i)).append("\"");
-            if (i < ids.size() - 1) {
-                params.append(",");
+        // Every counterparty resolves in one batched, cached lookup; missing names stay blank.
+        ProfileCache.getInstance(requireContext()).get(pendingProfileLookups, profiles -> {
+            if (!isAdded()) {
+                return;
             }
-        }
-        String encoded = Uri.encode("(" + params + ")");
-        String endpoint = "/rest/v1/profiles?select=id,name&id=in." + encoded;
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
-            @Override
-            public void onSuccess(Object data) {
-                try {
-                    JSONArray array = new JSONArray(data.toString());
-                    for (int i = 0; i < array.length(); i++) {
-                        JSONObject profile = array.getJSONObject(i);
-                        String id = profile.optString("id");
-                        String name = profile.optString("name");
-                        if (!TextUtils.isEmpty(id) && !TextUtils.isEmpty(name)) {
-                            userNameCache.put(id, name);
-                        }
-                    }
-                } catch (JSONException e) {
-                    Log.e(TAG, "Failed to parse profile names", e);
+            for (ProfileCache.Profile profile : profiles.values()) {
+                if (!TextUtils.isEmpty(profile.name)) {
+                    userNameCache.put(profile.id, profile.name);
                 }
-                publishTradeRecords();
-            }
-
-            @Override
-            public void onError(String error) {
-                Log.e(TAG, "Failed to fetch profile names: " + error);
-                publishTradeRecords();
             }
+            publishTradeRecords();
         });
     }
 
@@ -759,7 +760,7 @@ public class MyListingsFragment extends Fragment
             public void onSuccess(Object data) {
                 uploadingProof = false;
                 Toast.makeText(getContext(), R.string.trade_history_confirm_success, Toast.LENGTH_SHORT).show();
-                updateImpactForInvolvedUsers(record);
+                recordTradeImpact(record);
                 loadCompletedTrades();
             }
 
@@ -846,161 +847,14 @@ public class MyListingsFragment extends Fragment
         });
     }
 
-    private void updateImpactForInvolvedUsers(@NonNull TradeRecord record) {
-        String impactStatus = mapImpactStatus(record);
-        if (TextUtils.isEmpty(impactStatus) || supabaseClient == null) {
+    private void recordTradeImpact(@NonNull TradeRecord record) {
+        if (impactRepository == null) {
             return;
         }
-        List<String> targetUsers = new ArrayList<>();
-        if (!TextUtils.isEmpty(userId)) {
-            targetUsers.add(userId);
-        }
-        if (!TextUtils.isEmpty(record.getCounterpartyId()) && !record.getCounterpartyId().equals(userId)) {
-            targetUsers.add(record.getCounterpartyId());
-        }
-        for (String target : targetUsers) {
-            updateImpactForUser(target, impactStatus);
-        }
-    }
-
-    @Nullable
-    private String mapImpactStatus(@NonNull TradeRecord record) {
-        if (record.getType() == TradeRecord.TradeType.SWAP) {
-            return "swapped";
-        }
-        if (record.getType() == TradeRecord.TradeType.DONATION) {
-            return "donated";
-        }
-        return null;
-    }
-
-    private void updateImpactForUser(String targetUserId, String status) {
-        if (TextUtils.isEmpty(targetUserId) || supabaseClient == null) return;
-        String profileQuery = "/rest/v1/profiles?id=eq." + targetUserId + "&select=total_swaps,total_donations,total_purchases";
-        supabaseClient.query(profileQuery, new SupabaseClient.OnDatabaseCallback() {
-            @Override
-            public void onSuccess(Object data) {
-                try {
-                    JSONArray array = new JSONArray(data.toString());
-                    if (array.length() == 0) return;
-                    JSONObject profile = array.getJSONObject(0);
-                    int swaps = profile.optInt("total_swaps", 0);
-                    int donations = profile.optInt("total_donations", 0);
-                    int purchases = profile.optInt("total_purchases", 0);
-
-                    if ("swapped".equals(status)) {
-                        swaps++;
-                    } else if ("donated".equals(status)) {
-                        donations++;
-                    }
-
-                    int newScore = (swaps * 2) + (donations * 3) + (purchases * 1);
-                    String newLevel = "Beginner EcoSaver";
-                        String newIcon = "🌱";
-                    if (newScore >= 100) {
-                        newLevel = "Planet Pioneer";
-                            newIcon = "🌞";
-                    } else if (newScore >= 50) {
-                        newLevel = "Eco Guardian";
-                            newIcon = "🦋";
-                    } else if (newScore >= 25) {
-                        newLevel = "Sustainable Hero";
-                            newIcon = "🌍";
-                    } else if (newScore >= 10) {
-                        newLevel = "Rising Recycler";
-                            newIcon = "♻️";
-                    }
-
-                    JsonObject updatePayload = new JsonObject();
-                    updatePayload.addProperty("total_swaps", swaps);
-                    updatePayload.addProperty("total_donations", donations);
-                    updatePayload.addProperty("impact_score", newScore);
-                    updatePayload.addProperty("eco_level", newLevel);
-                    updatePayload.addProperty("eco_icon", newIcon);
-
-                    supabaseClient.update("profiles", targetUserId, updatePayload, new SupabaseClient.OnDatabaseCallback() {
-                        @Override
-                        public void onSuccess(Object data) {
-                            updateEcoSavings(targetUserId, status);
-                        }
-
-                        @Override
-                        public void onError(String error) {
-                            // best-effort
-                        }
-                    });
-                } catch (JSONException ignored) {
-                    // best-effort
-                }
-            }
-
-            @Override
-            public void onError(String error) {
-                // best-effort
-            }
-        });
-    }
-
-    private void updateEcoSavings(String targetUserId, String status) {
-        if (supabaseClient == null || TextUtils.isEmpty(targetUserId)) return;
-        String savingsQuery = "/rest/v1/eco_savings?user_id=eq." + targetUserId + "&select=*";
-        supabaseClient.query(savingsQuery, new SupabaseClient.OnDatabaseCallback() {
-            @Override
-            public void onSuccess(Object data) {
-                try {
-                    JSONArray array = new JSONArray(data.toString());
-                    if (array.length() == 0) return;
-                    JSONObject savings = array.getJSONObject(0);
-                    double co2 = savings.optDouble("co2_saved", 0);
-                    double water = savings.optDouble("water_saved", 0);
-                    double waste = savings.optDouble("waste_diverted", 0);
-                    double energy = savings.optDouble("energy_saved", 0);
-                    int itemsSwapped = savings.optInt("items_swapped", 0);
-                    int itemsDonated = savings.optInt("items_donated", 0);
-
-                    if ("swapped".equals(status)) {
-                        co2 += 5;
-                        water += 100;
-                        waste += 2;
-                        energy += 10;
-                        itemsSwapped++;
-                    } else if ("donated".equals(status)) {
-                        co2 += 7;
-                        water += 150;
-                        waste += 3;
-                        energy += 15;
-                        itemsDonated++;
-                    }
-
-                    JsonObject updatePayload = new JsonObject();
-                    updatePayload.addProperty("co2_saved", co2);
-                    updatePayload.addProperty("water_saved", water);
-                    updatePayload.addProperty("waste_diverted", waste);
-                    updatePayload.addProperty("energy_saved", energy);
-                    updatePayload.addProperty("items_swapped", itemsSwapped);
-                    updatePayload.addProperty("items_donated", itemsDonated);
-
-                    supabaseClient.update("eco_savings", savings.optString("id"), updatePayload, new SupabaseClient.OnDatabaseCallback() {
-                        @Override
-                        public void onSuccess(Object data) {
-                            // success
-                        }
-
-                        @Override
-                        public void onError(String error) {
-                            // best-effort
-                        }
-                    });
-                } catch (JSONException ignored) {
-                    // best-effort
-                }
-            }
-
-            @Override
-            public void onError(String error) {
-                // best-effort
-            }
-        });
+        String tradeType = record.getType() == TradeRecord.TradeType.SWAP
+                ? ImpactRepository.TRADE_SWAP
+                : ImpactRepository.TRADE_DONATION;
+        impactRepository.recordTradeImpact(tradeType, record.getId());
     }
 
     @Override
@@ -18,6 +18,7 @@ import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import com.bumptech.glide.Glide;
 import com.example.ecoswap.R;
+import com.example.ecoswap.utils.ProfileCache;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
 import com.example.ecoswap.utils.TradeProofUploader;
@@ -260,35 +261,21 @@ public class TradeDetailActivity extends AppCompatActivity {
 
     private void fetchCounterpartyName() {
         if (supabaseClient == null || TextUtils.isEmpty(counterpartyId)) return;
-        String endpoint = "/rest/v1/profiles?select=name&id=eq." + counterpartyId;
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
-            @Override
-            public void onSuccess(Object data) {
-                try {
-                    JSONArray array = new JSONArray(data.toString());
-                    if (array.length() > 0) {
-                        JSONObject profile = array.getJSONObject(0);
-                        String name = profile.optString("name", null);
-                        if (!TextUtils.isEmpty(name)) {
-                            counterpartyName = name;
-                            runOnUiThread(() -> {
-                                TextView tvPartner = findViewById(R.id.tvPartner);
-                                if (tvPartner != null) {
-                                    if ("donation".equalsIgnoreCase(tradeType)) {
-                                        tvPartner.setText(getString(R.string.trade_history_donation_with, name));
-                                    } else {
-                                        tvPartner.setText(getString(R.string.trade_history_swap_with, name));
-                                    }
-                                }
-                            });
-                        }
-                    }
-                } catch (Exception ignored) { }
+        // best-effort
+        ProfileCache.getInstance(this).get(counterpartyId, profiles -> {
+            ProfileCache.Profile profile = profiles.get(counterpartyId);
+            String name = profile != null ? profile.name : null;
+            if (TextUtils.isEmpty(name) || isFinishing() || isDestroyed()) {
+                return;
             }
-
-            @Override
-            public void onError(String error) {
-                // best-effort
+            counterpartyName = name;
+            TextView tvPartner = findViewById(R.id.tvPartner);
+            if (tvPartner != null) {
+                if ("donation".equalsIgnoreCase(tradeType)) {
+                    tvPartner.setText(getString(R.string.trade_history_donation_with, name));
+                } else {
+                    tvPartner.setText(getString(R.string.trade_history_swap_with, name));
+                }
             }
         });
     }
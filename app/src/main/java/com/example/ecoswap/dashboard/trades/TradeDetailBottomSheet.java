@@ -13,6 +13,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.bumptech.glide.Glide;
 import com.example.ecoswap.R;
+import com.example.ecoswap.utils.ProfileCache;
 import com.example.ecoswap.utils.SupabaseClient;
 import com.google.android.material.bottomsheet.BottomSheetDialogFragment;
 import com.google.android.material.button.MaterialButton;
@@ -214,36 +215,24 @@ public class TradeDetailBottomSheet extends BottomSheetDialogFragment {
         if (supabaseClient == null || TextUtils.isEmpty(counterpartyId)) {
             return;
         }
-        String endpoint = "/rest/v1/profiles?select=name&id=eq." + counterpartyId;
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
-            @Override
-            public void onSuccess(Object data) {
-                try {
-                    JSONArray array = new JSONArray(data.toString());
-                    if (array.length() > 0) {
-                        JSONObject profile = array.getJSONObject(0);
-                        String name = profile.optString("name", null);
-                        if (!TextUtils.isEmpty(name)) {
-                            counterpartyName = name;
-                            View root = getView();
-                            if (root != null) {
-                                TextView tvPartner = root.findViewById(R.id.tvPartner);
-                                if (tvPartner != null) {
-                                    if ("donation".equalsIgnoreCase(tradeType)) {
-                                        tvPartner.setText(getString(R.string.trade_history_donation_with, name));
-                                    } else {
-                                        tvPartner.setText(getString(R.string.trade_history_swap_with, name));
-                                    }
-                                }
-                            }
-                        }
-                    }
-                } catch (Exception ignored) { }
+        // best-effort
+        ProfileCache.getInstance(requireContext()).get(counterpartyId, profiles -> {
+            ProfileCache.Profile profile = profiles.get(counterpartyId);
+            String name = profile != null ? profile.name : null;
+            if (TextUtils.isEmpty(name) || !isAdded()) {
+                return;
             }
-
-            @Override
-            public void onError(String error) {
-                // best-effort
+            counterpartyName = name;
+            View root = getView();
+            if (root != null) {
+                TextView tvPartner = root.findViewById(R.id.tvPartner);
+                if (tvPartner != null) {
+                    if ("donation".equalsIgnoreCase(tradeType)) {
+                        tvPartner.setText(getString(R.string.trade_history_donation_with, name));
+                    } else {
+                        tvPartner.setText(getString(R.string.trade_history_swap_with, name));
+                    }
+                }
             }
         });
     }
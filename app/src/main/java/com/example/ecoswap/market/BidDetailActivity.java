@@ -8,6 +8,7 @@ import android.view.ViewGroup;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageView;
+import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
@@ -15,12 +16,16 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.ecoswap.R;
 import com.example.ecoswap.models.Bid;
+import com.example.ecoswap.utils.NetworkUtils;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseQuery;
+import com.example.ecoswap.utils.WriteOutbox;
 import com.google.gson.JsonObject;
 import com.bumptech.glide.Glide;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -38,6 +43,9 @@ public class BidDetailActivity extends AppCompatActivity {
     private SessionManager sessionManager;
     private String itemId;
     private double currentBidValue = 0.0;
+    private ScrollView scrollBidDetail;
+    private String nextBidsPageToken;
+    private boolean loadingBids = false;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -68,6 +76,7 @@ public class BidDetailActivity extends AppCompatActivity {
         etBidAmount = findViewById(R.id.etBidAmount);
         btnPlaceBid = findViewById(R.id.btnPlaceBid);
         recyclerViewBids = findViewById(R.id.recyclerViewBids);
+        scrollBidDetail = findViewById(R.id.scrollBidDetail);
         bidList = new ArrayList<>();
     }
 
@@ -88,6 +97,12 @@ public class BidDetailActivity extends AppCompatActivity {
         recyclerViewBids.setLayoutManager(new LinearLayoutManager(this));
         bidListAdapter = new BidListAdapter(bidList);
         recyclerViewBids.setAdapter(bidListAdapter);
+        // The bid list is laid out inside the page's ScrollView, so page on reaching its bottom.
+        scrollBidDetail.setOnScrollChangeListener((v, scrollX, scrollY, oldScrollX, oldScrollY) -> {
+            if (scrollY > oldScrollY && !v.canScrollVertically(1) && !loadingBids && nextBidsPageToken != null) {
+                loadBidsPage(nextBidsPageToken);
+            }
+        });
     }
     
     private void setupListeners() {
@@ -150,36 +165,51 @@ public class BidDetailActivity extends AppCompatActivity {
             return;
         }
 
-        String endpoint = String.format(Locale.US,
-                "/rest/v1/bids?select=*,profiles(name)&post_id=eq.%s&order=created_at.desc",
-                itemId);
+        loadBidsPage(null);
+    }
 
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+    private void loadBidsPage(String pageToken) {
+        String endpoint = SupabaseQuery.from("bids")
+                .select("id", "bidder_id", "amount", "created_at")
+                .embed("profiles", "name")
+                .eq("post_id", itemId)
+                .build();
+
+        loadingBids = true;
+        supabaseClient.queryPage(endpoint, pageToken, SupabaseClient.DEFAULT_PAGE_SIZE, new SupabaseClient.OnPageCallback() {
             @Override
-            public void onSuccess(Object data) {
-                try {
-                    JSONArray array = new JSONArray(data.toString());
+            public void onSuccess(JSONArray array, String nextPageToken) {
+                loadingBids = false;
+                nextBidsPageToken = nextPageToken;
+                if (pageToken == null) {
                     bidList.clear();
-                    for (int i = 0; i < array.length(); i++) {
-                        JSONObject obj = array.getJSONObject(i);
-                        String id = obj.optString("id");
-                        String bidderId = obj.optString("bidder_id", "");
-                        double amount = obj.optDouble("amount", 0.0);
-                        String createdAt = obj.optString("created_at", "");
-                        JSONObject profile = obj.optJSONObject("profiles");
-                        String bidderName = profile != null ? profile.optString("name", "Bidder") : "Bidder";
-
-                        Bid bid = new Bid(id, itemId, bidderId, bidderName, amount, createdAt);
-                        bidList.add(bid);
+                }
+                int start = bidList.size();
+                for (int i = 0; i < array.length(); i++) {
+                    JSONObject obj = array.optJSONObject(i);
+                    if (obj == null) {
+                        continue;
                     }
+                    String id = obj.optString("id");
+                    String bidderId = obj.optString("bidder_id", "");
+                    double amount = obj.optDouble("amount", 0.0);
+                    String createdAt = obj.optString("created_at", "");
+                    JSONObject profile = obj.optJSONObject("profiles");
+                    String bidderName = profile != null ? profile.optString("name", "Bidder") : "Bidder";
+
+                    Bid bid = new Bid(id, itemId, bidderId, bidderName, amount, createdAt);
+                    bidList.add(bid);
+                }
+                if (pageToken == null) {
                     bidListAdapter.notifyDataSetChanged();
-                } catch (Exception e) {
-                    Toast.makeText(BidDetailActivity.this, "Failed to parse bids", Toast.LENGTH_SHORT).show();
+                } else {
+                    bidListAdapter.notifyItemRangeInserted(start, bidList.size() - start);
                 }
             }
 
             @Override
             public void onError(String error) {
+                loadingBids = false;
                 Toast.makeText(BidDetailActivity.this, "Could not load bids: " + error, Toast.LENGTH_SHORT).show();
             }
         });
@@ -215,35 +245,71 @@ public class BidDetailActivity extends AppCompatActivity {
             return;
         }
 
-        btnPlaceBid.setEnabled(false);
-
         JsonObject payload = new JsonObject();
         payload.addProperty("post_id", itemId);
         payload.addProperty("bidder_id", userId);
         payload.addProperty("amount", amount);
         payload.addProperty("status", "active");
 
-        supabaseClient.insert("bids", payload, new SupabaseClient.OnDatabaseCallback() {
-            @Override
-            public void onSuccess(Object data) {
-                currentBidValue = amount;
-                tvCurrentBid.setText("Current Bid: " + formatCurrency(currentBidValue));
-                etBidAmount.setText("");
-                btnPlaceBid.setEnabled(true);
-                updateCurrentBidOnPost(amount);
-                loadBids();
-                Toast.makeText(BidDetailActivity.this, "Bid placed", Toast.LENGTH_SHORT).show();
+        // Show the bid right away; the outbox delivers it once the connection allows.
+        double previousBid = currentBidValue;
+        currentBidValue = amount;
+        tvCurrentBid.setText("Current Bid: " + formatCurrency(currentBidValue));
+        etBidAmount.setText("");
+        if (!NetworkUtils.isOnline(this)) {
+            Toast.makeText(this, "You're offline. Your bid will be sent when you reconnect.", Toast.LENGTH_SHORT).show();
+        }
+
+        WriteOutbox.getInstance(this).enqueueInsert("bids", payload,
+            new BidResultListener(this, supabaseClient, itemId, amount, previousBid));
+    }
+
+    /**
+     * Outbox callback for a placed bid. The bid can land after this screen is gone, so the
+     * activity is only held weakly; the post's current bid is updated either way.
+     */
+    private static final class BidResultListener implements SupabaseClient.OnDatabaseCallback {
+        private final WeakReference<BidDetailActivity> activityRef;
+        private final SupabaseClient supabaseClient;
+        private final String itemId;
+        private final double amount;
+        private final double previousBid;
+
+        BidResultListener(BidDetailActivity activity, SupabaseClient supabaseClient, String itemId,
+                          double amount, double previousBid) {
+            this.activityRef = new WeakReference<>(activity);
+            this.supabaseClient = supabaseClient;
+            this.itemId = itemId;
+            this.amount = amount;
+            this.previousBid = previousBid;
+        }
+
+        @Override
+        public void onSuccess(Object data) {
+            updateCurrentBidOnPost(supabaseClient, itemId, amount);
+            BidDetailActivity activity = activityRef.get();
+            if (activity == null || activity.isFinishing() || activity.isDestroyed()) {
+                return;
             }
+            activity.loadBids();
+            Toast.makeText(activity, "Bid placed", Toast.LENGTH_SHORT).show();
+        }
 
-            @Override
-            public void onError(String error) {
-                btnPlaceBid.setEnabled(true);
-                Toast.makeText(BidDetailActivity.this, "Failed to place bid: " + error, Toast.LENGTH_SHORT).show();
+        @Override
+        public void onError(String error) {
+            BidDetailActivity activity = activityRef.get();
+            if (activity == null || activity.isFinishing() || activity.isDestroyed()) {
+                return;
             }
-        });
+            if (activity.currentBidValue == amount) {
+                activity.currentBidValue = previousBid;
+                activity.tvCurrentBid.setText("Current Bid: " + activity.formatCurrency(activity.currentBidValue));
+            }
+            Toast.makeText(activity, "Failed to place bid: " + error, Toast.LENGTH_SHORT).show();
+        }
     }
 
-    private void updateCurrentBidOnPost(double amount) {
+    private static void updateCurrentBidOnPost(SupabaseClient supabaseClient, String itemId, double amount) {
         if (supabaseClient == null) {
             return;
         }
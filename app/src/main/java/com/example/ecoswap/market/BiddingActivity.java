@@ -14,6 +14,7 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.ecoswap.R;
 import com.example.ecoswap.models.Item;
+import com.example.ecoswap.utils.PaginationScrollListener;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -31,6 +32,8 @@ public class BiddingActivity extends AppCompatActivity {
     private BiddingItemAdapter biddingItemAdapter;
     private SupabaseClient supabaseClient;
     private SessionManager sessionManager;
+    private String nextPageToken;
+    private boolean loadingPage = false;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -75,6 +78,17 @@ public class BiddingActivity extends AppCompatActivity {
             startActivity(intent);
         });
         recyclerViewBiddingItems.setAdapter(biddingItemAdapter);
+        recyclerViewBiddingItems.addOnScrollListener(new PaginationScrollListener(new PaginationScrollListener.Pager() {
+            @Override
+            public boolean canLoadMore() {
+                return !loadingPage && nextPageToken != null;
+            }
+
+            @Override
+            public void loadMore() {
+                loadBiddingItemsPage(nextPageToken);
+            }
+        }));
     }
     
     private void setupListeners() {
@@ -89,16 +103,25 @@ public class BiddingActivity extends AppCompatActivity {
             return;
         }
 
+        loadBiddingItemsPage(null);
+    }
+
+    private void loadBiddingItemsPage(String pageToken) {
         String endpoint = "/rest/v1/posts?" +
-                "select=id,title,description,category,image_url,current_bid,starting_bid,bid_end_date&" +
-                "category=eq.bidding&order=created_at.desc&limit=30";
+                "select=id,title,description,category,image_url,current_bid,starting_bid,bid_end_date,created_at&" +
+                "category=eq.bidding";
 
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        loadingPage = true;
+        supabaseClient.queryPage(endpoint, pageToken, SupabaseClient.DEFAULT_PAGE_SIZE, new SupabaseClient.OnPageCallback() {
             @Override
-            public void onSuccess(Object data) {
+            public void onSuccess(JSONArray array, String nextToken) {
+                loadingPage = false;
+                nextPageToken = nextToken;
                 try {
-                    JSONArray array = new JSONArray(data.toString());
-                    biddingItems.clear();
+                    if (pageToken == null) {
+                        biddingItems.clear();
+                    }
+                    int start = biddingItems.size();
 
                     for (int i = 0; i < array.length(); i++) {
                         JSONObject obj = array.getJSONObject(i);
@@ -117,7 +140,11 @@ public class BiddingActivity extends AppCompatActivity {
                         }
                     }
 
-                    biddingItemAdapter.notifyDataSetChanged();
+                    if (pageToken == null) {
+                        biddingItemAdapter.notifyDataSetChanged();
+                    } else {
+                        biddingItemAdapter.notifyItemRangeInserted(start, biddingItems.size() - start);
+                    }
                 } catch (Exception e) {
                     Toast.makeText(BiddingActivity.this, "Failed to parse bidding items", Toast.LENGTH_SHORT).show();
                 }
@@ -125,6 +152,7 @@ public class BiddingActivity extends AppCompatActivity {
 
             @Override
             public void onError(String error) {
+                loadingPage = false;
                 Toast.makeText(BiddingActivity.this, "Could not load bidding items: " + error, Toast.LENGTH_SHORT).show();
             }
         });
@@ -9,6 +9,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.ecoswap.R;
 import com.example.ecoswap.adapters.ItemAdapter;
 import com.example.ecoswap.models.Item;
+import com.example.ecoswap.utils.PaginationScrollListener;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -25,6 +26,8 @@ public class DonationActivity extends AppCompatActivity {
     private List<Item> donationItems;
     private SupabaseClient supabaseClient;
     private SessionManager sessionManager;
+    private String nextPageToken;
+    private boolean loadingPage = false;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -63,6 +66,17 @@ public class DonationActivity extends AppCompatActivity {
             Toast.makeText(this, "Donation: " + item.getName(), Toast.LENGTH_SHORT).show();
         });
         recyclerViewDonations.setAdapter(itemAdapter);
+        recyclerViewDonations.addOnScrollListener(new PaginationScrollListener(new PaginationScrollListener.Pager() {
+            @Override
+            public boolean canLoadMore() {
+                return !loadingPage && nextPageToken != null;
+            }
+
+            @Override
+            public void loadMore() {
+                loadDonationsPage(nextPageToken);
+            }
+        }));
     }
     
     private void setupListeners() {
@@ -77,16 +91,25 @@ public class DonationActivity extends AppCompatActivity {
             return;
         }
 
+        loadDonationsPage(null);
+    }
+
+    private void loadDonationsPage(String pageToken) {
         String endpoint = "/rest/v1/posts?" +
-                "select=id,title,description,category,image_url,user_id,status,listing_type,current_bid&" +
-                "listing_type=eq.donation&status=eq.available&order=created_at.desc&limit=30";
+                "select=id,title,description,category,image_url,user_id,status,listing_type,current_bid,created_at&" +
+                "listing_type=eq.donation&status=eq.available";
 
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        loadingPage = true;
+        supabaseClient.queryPage(endpoint, pageToken, SupabaseClient.DEFAULT_PAGE_SIZE, new SupabaseClient.OnPageCallback() {
             @Override
-            public void onSuccess(Object data) {
+            public void onSuccess(JSONArray array, String nextToken) {
+                loadingPage = false;
+                nextPageToken = nextToken;
                 try {
-                    JSONArray array = new JSONArray(data.toString());
-                    donationItems.clear();
+                    if (pageToken == null) {
+                        donationItems.clear();
+                    }
+                    int start = donationItems.size();
 
                     for (int i = 0; i < array.length(); i++) {
                         JSONObject obj = array.getJSONObject(i);
@@ -106,7 +129,11 @@ public class DonationActivity extends AppCompatActivity {
                         }
                     }
 
-                    itemAdapter.notifyDataSetChanged();
+                    if (pageToken == null) {
+                        itemAdapter.notifyDataSetChanged();
+                    } else {
+                        itemAdapter.notifyItemRangeInserted(start, donationItems.size() - start);
+                    }
                 } catch (Exception e) {
                     Toast.makeText(DonationActivity.this, "Failed to parse donations", Toast.LENGTH_SHORT).show();
                 }
@@ -114,6 +141,7 @@ public class DonationActivity extends AppCompatActivity {
 
             @Override
             public void onError(String error) {
+                loadingPage = false;
                 Toast.makeText(DonationActivity.this, "Could not load donations: " + error, Toast.LENGTH_SHORT).show();
             }
         });
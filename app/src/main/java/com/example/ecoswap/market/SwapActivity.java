@@ -10,6 +10,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.ecoswap.R;
 import com.example.ecoswap.adapters.ItemAdapter;
 import com.example.ecoswap.models.Item;
+import com.example.ecoswap.utils.PaginationScrollListener;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
@@ -26,6 +27,8 @@ public class SwapActivity extends AppCompatActivity {
     private List<Item> swapItems;
     private SupabaseClient supabaseClient;
     private SessionManager sessionManager;
+    private String nextPageToken;
+    private boolean loadingPage = false;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -64,6 +67,17 @@ public class SwapActivity extends AppCompatActivity {
             Toast.makeText(this, "Item: " + item.getName(), Toast.LENGTH_SHORT).show();
         });
         recyclerViewSwapItems.setAdapter(itemAdapter);
+        recyclerViewSwapItems.addOnScrollListener(new PaginationScrollListener(new PaginationScrollListener.Pager() {
+            @Override
+            public boolean canLoadMore() {
+                return !loadingPage && nextPageToken != null;
+            }
+
+            @Override
+            public void loadMore() {
+                loadSwapItemsPage(nextPageToken);
+            }
+        }));
     }
     
     private void setupListeners() {
@@ -78,16 +92,25 @@ public class SwapActivity extends AppCompatActivity {
             return;
         }
 
+        loadSwapItemsPage(null);
+    }
+
+    private void loadSwapItemsPage(String pageToken) {
         String endpoint = "/rest/v1/posts?" +
-                "select=id,title,description,category,image_url,user_id,status,listing_type,current_bid&" +
-                "listing_type=eq.swap&status=eq.available&order=created_at.desc&limit=30";
+                "select=id,title,description,category,image_url,user_id,status,listing_type,current_bid,created_at&" +
+                "listing_type=eq.swap&status=eq.available";
 
-        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+        loadingPage = true;
+        supabaseClient.queryPage(endpoint, pageToken, SupabaseClient.DEFAULT_PAGE_SIZE, new SupabaseClient.OnPageCallback() {
             @Override
-            public void onSuccess(Object data) {
+            public void onSuccess(JSONArray array, String nextToken) {
+                loadingPage = false;
+                nextPageToken = nextToken;
                 try {
-                    JSONArray array = new JSONArray(data.toString());
-                    swapItems.clear();
+                    if (pageToken == null) {
+                        swapItems.clear();
+                    }
+                    int start = swapItems.size();
 
                     for (int i = 0; i < array.length(); i++) {
                         JSONObject obj = array.getJSONObject(i);
@@ -110,7 +133,11 @@ public class SwapActivity extends AppCompatActivity {
                         }
                     }
 
-                    itemAdapter.notifyDataSetChanged();
+                    if (pageToken == null) {
+                        itemAdapter.notifyDataSetChanged();
+                    } else {
+                        itemAdapter.notifyItemRangeInserted(start, swapItems.size() - start);
+                    }
                 } catch (Exception e) {
                     Toast.makeText(SwapActivity.this, "Failed to parse swaps", Toast.LENGTH_SHORT).show();
                 }
@@ -118,6 +145,7 @@ public class SwapActivity extends AppCompatActivity {
 
             @Override
             public void onError(String error) {
+                loadingPage = false;
                 Toast.makeText(SwapActivity.this, "Could not load swaps: " + error, Toast.LENGTH_SHORT).show();
             }
         });
@@ -0,0 +1,441 @@
+package com.example.ecoswap.repository;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.ecoswap.utils.EntityStore;
+import com.example.ecoswap.utils.RequestPriority;
+import com.example.ecoswap.utils.RequestScope;
+import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseError;
+import com.example.ecoswap.utils.SupabaseRpc;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Shared plumbing for typed repositories: runs queries through {@link SupabaseClient} and decodes
+ * the response on a background executor so the main thread only receives finished model lists.
+ * A repository created with a {@link RequestScope} skips decoding and delivery once it is cancelled.
+ *
+ * The cached variants read through the {@link EntityStore}: the rows a query returned last time are
+ * delivered first, then the network result, which replaces them in the store.
+ */
+abstract class BaseRepository {
+
+    private static final String TAG = "Repository";
+    private static final ExecutorService DECODE_EXECUTOR = Executors.newFixedThreadPool(2);
+    private static final int STREAM_BATCH_SIZE = 50;
+
+    protected final Context appContext;
+    protected final SupabaseClient supabaseClient;
+    protected final EntityStore entityStore;
+    @Nullable
+    private final RequestScope scope;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    BaseRepository(@Nullable Context context, @Nullable RequestScope scope) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+        this.appContext = context.getApplicationContext();
+        this.supabaseClient = SupabaseClient.getInstance(this.appContext);
+        this.entityStore = EntityStore.getInstance(this.appContext);
+        this.scope = scope;
+    }
+
+    protected <T> void queryList(@NonNull String endpoint,
+                                 @NonNull RowMapper<T> mapper,
+                                 @NonNull RepositoryCallback<T> callback) {
+        supabaseClient.query(endpoint, scoped(new SupabaseClient.OnDatabaseCallback() {
+            @Override
+            public void onSuccess(Object data) {
+                decodeAsync(data, mapper, callback);
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+
+            @Override
+            public void onFailure(SupabaseError error) {
+                callback.onFailure(error);
+            }
+        }));
+    }
+
+    /**
+     * {@link #queryList} with stale-while-revalidate: the rows last stored under
+     * {@code collectionKey} go to {@link RepositoryCallback#onCached} while the query runs, and
+     * the fresh rows of {@code table} are stored under the key before onSuccess. Background
+     * refreshes pass {@code readStored = false} to only write the store.
+     */
+    protected <T> void queryListCached(@NonNull String endpoint,
+                                       @NonNull String table,
+                                       @NonNull String collectionKey,
+                                       boolean readStored,
+                                       @NonNull RowMapper<T> mapper,
+                                       @NonNull RepositoryCallback<T> callback) {
+        boolean[] freshArrived = {false};
+        if (readStored) {
+            deliverCached(collectionKey, mapper, freshArrived, callback::onCached);
+        }
+        supabaseClient.query(endpoint, scoped(new SupabaseClient.OnDatabaseCallback() {
+            @Override
+            public void onSuccess(Object data) {
+                freshArrived[0] = true;
+                entityStore.saveCollection(collectionKey, table, data);
+                decodeAsync(data, mapper, callback);
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+
+            @Override
+            public void onFailure(SupabaseError error) {
+                callback.onFailure(error);
+            }
+        }));
+    }
+
+    /**
+     * Calls a Postgres function (see {@link SupabaseClient#rpc}) and decodes the rows it returns.
+     * A function returning a single composite value yields one item; a void function yields none.
+     */
+    protected <T> void callRpc(@NonNull SupabaseRpc rpc,
+                               @NonNull RequestPriority priority,
+                               @NonNull RowMapper<T> mapper,
+                               @NonNull RepositoryCallback<T> callback) {
+        supabaseClient.rpc(rpc, priority, scoped(new SupabaseClient.OnDatabaseCallback() {
+            @Override
+            public void onSuccess(Object data) {
+                String body = data != null ? data.toString().trim() : "";
+                if (body.isEmpty()) {
+                    body = "[]";
+                } else if (body.startsWith("{")) {
+                    body = "[" + body + "]";
+                }
+                decodeAsync(body, mapper, callback);
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+
+            @Override
+            public void onFailure(SupabaseError error) {
+                callback.onFailure(error);
+            }
+        }));
+    }
+
+    protected <T> void decodeAsync(@Nullable Object data,
+                                   @NonNull RowMapper<T> mapper,
+                                   @NonNull RepositoryCallback<T> callback) {
+        DECODE_EXECUTOR.execute(() -> {
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                List<T> items = mapRows(new JSONArray(data != null ? data.toString() : "[]"), mapper);
+                postIfLive(() -> callback.onSuccess(items));
+            } catch (JSONException | RuntimeException e) {
+                // A mapper bug must still end the request, or the screen waits forever.
+                Log.e(TAG, "Failed to decode rows", e);
+                postIfLive(() -> callback.onError("Parse error: " + e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Loads one keyset page (see {@link SupabaseClient#queryPage}) and decodes it off the main
+     * thread. The endpoint must select created_at and id and must not set order or limit.
+     */
+    protected <T> void queryPage(@NonNull String endpoint,
+                                 @Nullable String pageToken,
+                                 int pageSize,
+                                 @NonNull RowMapper<T> mapper,
+                                 @NonNull RepositoryPageCallback<T> callback) {
+        supabaseClient.queryPage(endpoint, pageToken, pageSize, scoped(new SupabaseClient.OnPageCallback() {
+            @Override
+            public void onSuccess(JSONArray rows, @Nullable String nextPageToken) {
+                decodePageAsync(rows, nextPageToken, mapper, callback);
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+
+            @Override
+            public void onFailure(SupabaseError error) {
+                callback.onFailure(error);
+            }
+        }));
+    }
+
+    /**
+     * Requests a keyset page on the {@link RequestPriority#PREFETCH} lane and discards it, so the
+     * HTTP cache can answer the {@link #queryPage} for the same page if the user reaches it while
+     * it is still fresh. Only worth it for tables the cache keeps (see SupabaseResponseCache).
+     */
+    protected void prefetchPage(@NonNull String endpoint, @NonNull String pageToken, int pageSize) {
+        supabaseClient.queryPage(endpoint, pageToken, pageSize, RequestPriority.PREFETCH,
+            scoped(new SupabaseClient.OnPageCallback() {
+                @Override
+                public void onSuccess(JSONArray rows, @Nullable String nextPageToken) {
+                    // Kept by the HTTP cache; nothing to decode until the page is asked for.
+                }
+
+                @Override
+                public void onError(String error) {
+                    Log.d(TAG, "Prefetch skipped: " + error);
+                }
+            }));
+    }
+
+    /**
+     * {@link #queryPage} with stale-while-revalidate for the first page: the rows last stored
+     * under {@code collectionKey} go to {@link RepositoryPageCallback#onCachedPage} while the query
+     * runs, and the fresh first page of {@code table} is stored under the key. Later pages are
+     * neither read from nor written to the store.
+     */
+    protected <T> void queryPageCached(@NonNull String endpoint,
+                                       @NonNull String table,
+                                       @NonNull String collectionKey,
+                                       @Nullable String pageToken,
+                                       int pageSize,
+                                       @NonNull RowMapper<T> mapper,
+                                       @NonNull RepositoryPageCallback<T> callback) {
+        queryPageCached(endpoint, table, collectionKey, pageToken, pageSize, true, mapper, callback);
+    }
+
+    /**
+     * {@link #queryPageCached} for refreshes that only write the store: background refreshes pass
+     * {@code readStored = false}.
+     */
+    protected <T> void queryPageCached(@NonNull String endpoint,
+                                       @NonNull String table,
+                                       @NonNull String collectionKey,
+                                       @Nullable String pageToken,
+                                       int pageSize,
+                                       boolean readStored,
+                                       @NonNull RowMapper<T> mapper,
+                                       @NonNull RepositoryPageCallback<T> callback) {
+        if (pageToken != null) {
+            queryPage(endpoint, pageToken, pageSize, mapper, callback);
+            return;
+        }
+        boolean[] freshArrived = {false};
+        if (readStored) {
+            deliverCached(collectionKey, mapper, freshArrived, callback::onCachedPage);
+        }
+        supabaseClient.queryPage(endpoint, null, pageSize, scoped(new SupabaseClient.OnPageCallback() {
+            @Override
+            public void onSuccess(JSONArray rows, @Nullable String nextPageToken) {
+                freshArrived[0] = true;
+                entityStore.saveCollection(collectionKey, table, rows);
+                decodePageAsync(rows, nextPageToken, mapper, callback);
+            }
+
+            @Override
+            public void onError(String error) {
+                callback.onError(error);
+            }
+
+            @Override
+            public void onFailure(SupabaseError error) {
+                callback.onFailure(error);
+            }
+        }));
+    }
+
+    private <T> void decodePageAsync(@NonNull JSONArray rows,
+                                     @Nullable String nextPageToken,
+                                     @NonNull RowMapper<T> mapper,
+                                     @NonNull RepositoryPageCallback<T> callback) {
+        DECODE_EXECUTOR.execute(() -> {
+            if (isCancelled()) {
+                return;
+            }
+            try {
+                List<T> items = mapRows(rows, mapper);
+                postIfLive(() -> callback.onPage(items, nextPageToken));
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Failed to decode page", e);
+                postIfLive(() -> callback.onError("Parse error: " + e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Reads a stored collection and hands its mapped rows to {@code delivery} on the main thread,
+     * unless the network result has arrived in the meantime. {@code freshArrived} is only touched
+     * on the main thread.
+     */
+    private <T> void deliverCached(@NonNull String collectionKey,
+                                   @NonNull RowMapper<T> mapper,
+                                   @NonNull boolean[] freshArrived,
+                                   @NonNull Consumer<List<T>> delivery) {
+        entityStore.loadCollection(collectionKey, rows -> {
+            if (rows == null || freshArrived[0] || isCancelled()) {
+                return;
+            }
+            DECODE_EXECUTOR.execute(() -> {
+                List<T> items;
+                try {
+                    items = mapRows(rows, mapper);
+                } catch (RuntimeException e) {
+                    // Stored rows are only a head start; the network result still arrives.
+                    Log.w(TAG, "Failed to decode stored rows for " + collectionKey, e);
+                    return;
+                }
+                postIfLive(() -> {
+                    if (!freshArrived[0]) {
+                        delivery.accept(items);
+                    }
+                });
+            });
+        });
+    }
+
+    private static <T> List<T> mapRows(@NonNull JSONArray array, @NonNull RowMapper<T> mapper) {
+        List<T> items = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject row = array.optJSONObject(i);
+            if (row == null) {
+                continue;
+            }
+            T mapped = mapper.map(row);
+            if (mapped != null) {
+                items.add(mapped);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Streams a JSON array response and delivers mapped rows in batches. The first batch is sent
+     * after {@code firstBatchSize} rows so a screenful can render before the body has finished.
+     */
+    protected <T> void streamList(@NonNull String endpoint,
+                                  int firstBatchSize,
+                                  @NonNull RowMapper<T> mapper,
+                                  @NonNull RepositoryStreamCallback<T> callback) {
+        supabaseClient.queryStream(endpoint, scoped(new SupabaseClient.OnRowStreamCallback() {
+            private List<T> pending = new ArrayList<>();
+            private int batchSize = Math.max(1, firstBatchSize);
+            private boolean failed = false;
+
+            @Override
+            public void onRow(JSONObject row) {
+                if (failed) {
+                    return;
+                }
+                T mapped;
+                try {
+                    mapped = mapper.map(row);
+                } catch (RuntimeException e) {
+                    // Report once; the rows still arriving on this stream are ignored.
+                    Log.e(TAG, "Failed to decode streamed row", e);
+                    failed = true;
+                    flush();
+                    postIfLive(() -> callback.onError("Parse error: " + e.getMessage()));
+                    return;
+                }
+                if (mapped == null) {
+                    return;
+                }
+                pending.add(mapped);
+                if (pending.size() >= batchSize) {
+                    flush();
+                    batchSize = STREAM_BATCH_SIZE;
+                }
+            }
+
+            @Override
+            public void onComplete() {
+                if (failed) {
+                    return;
+                }
+                flush();
+                postIfLive(callback::onComplete);
+            }
+
+            @Override
+            public void onError(String error) {
+                if (failed) {
+                    return;
+                }
+                flush();
+                postIfLive(() -> callback.onError(error));
+            }
+
+            @Override
+            public void onFailure(SupabaseError error) {
+                if (failed) {
+                    return;
+                }
+                flush();
+                postIfLive(() -> callback.onFailure(error));
+            }
+
+            private void flush() {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                List<T> batch = pending;
+                pending = new ArrayList<>();
+                postIfLive(() -> callback.onRows(batch));
+            }
+        }));
+    }
+
+    protected boolean isCancelled() {
+        return scope != null && scope.isCancelled();
+    }
+
+    /**
+     * Posts a result to the main thread unless the scope has been cancelled by the time it runs.
+     */
+    private void postIfLive(@NonNull Runnable delivery) {
+        mainHandler.post(() -> {
+            if (!isCancelled()) {
+                delivery.run();
+            }
+        });
+    }
+
+    private SupabaseClient.OnDatabaseCallback scoped(SupabaseClient.OnDatabaseCallback callback) {
+        return scope != null ? scope.wrap(callback) : callback;
+    }
+
+    private SupabaseClient.OnPageCallback scoped(SupabaseClient.OnPageCallback callback) {
+        return scope != null ? scope.wrap(callback) : callback;
+    }
+
+    private SupabaseClient.OnRowStreamCallback scoped(SupabaseClient.OnRowStreamCallback callback) {
+        return scope != null ? scope.wrap(callback) : callback;
+    }
+
+    @NonNull
+    protected String relativeEndpoint(@NonNull String absoluteUrl) {
+        return absoluteUrl.replace(supabaseClient.getSupabaseUrl(), "");
+    }
+}
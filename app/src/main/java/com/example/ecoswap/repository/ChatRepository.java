@@ -0,0 +1,400 @@
+package com.example.ecoswap.repository;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.ecoswap.utils.ChatFeatureCompat;
+import com.example.ecoswap.utils.MessageSearchIndex;
+import com.example.ecoswap.utils.RequestScope;
+import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseError;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import okhttp3.HttpUrl;
+import org.json.JSONObject;
+
+/**
+ * Loads conversation summaries for the inbox and chat rows for threads, and decodes them into
+ * {@link ConversationRow}s and {@link ChatRow}s off the main thread. Every message loaded is also
+ * added to the {@link MessageSearchIndex}.
+ */
+public class ChatRepository extends BaseRepository {
+
+    private static final String CHATS_ENDPOINT = "/rest/v1/chats";
+    private static final String CONVERSATIONS_ENDPOINT = "/rest/v1/conversations";
+    private static final int THREAD_BATCH_ROWS = 50;
+
+    @Nullable
+    private final MessageSearchIndex searchIndex;
+
+    public ChatRepository(@Nullable Context context) {
+        this(context, null);
+    }
+
+    /**
+     * Creates a repository whose reads are cancelled, and whose results are dropped, once the
+     * scope is cancelled.
+     */
+    public ChatRepository(@Nullable Context context, @Nullable RequestScope scope) {
+        super(context, scope);
+        this.searchIndex = context != null ? MessageSearchIndex.getInstance(context) : null;
+    }
+
+    /**
+     * Loads one page of the user's conversations, most recent first, from the summaries the
+     * database keeps per conversation (see database/conversations.sql), with the counterpart's
+     * profile and the listing embedded. Unless {@code background} is set, the first page of the
+     * previous load is delivered from the entity store while it runs.
+     *
+     * On a server without the conversations table the summaries are built from the user's chat
+     * rows instead, as a single page.
+     */
+    public void loadConversations(@NonNull String userId,
+                                  @Nullable String pageToken,
+                                  boolean background,
+                                  @NonNull RepositoryPageCallback<ConversationRow> callback) {
+        if (!ChatFeatureCompat.isConversationsSupported()) {
+            if (pageToken == null) {
+                loadConversationsFromChats(userId, background, callback);
+            } else {
+                callback.onPage(new ArrayList<>(), null);
+            }
+            return;
+        }
+        queryPageCached(
+            buildConversationsEndpoint(userId),
+            "conversations",
+            "conversations:" + userId,
+            pageToken,
+            SupabaseClient.DEFAULT_PAGE_SIZE,
+            !background,
+            this::mapConversationRow,
+            new RepositoryPageCallback<ConversationRow>() {
+                @Override
+                public void onPage(@NonNull List<ConversationRow> items, @Nullable String nextPageToken) {
+                    indexLastMessages(userId, items);
+                    callback.onPage(items, nextPageToken);
+                }
+
+                @Override
+                public void onCachedPage(@NonNull List<ConversationRow> items) {
+                    callback.onCachedPage(items);
+                }
+
+                @Override
+                public void onError(String error) {
+                    callback.onError(error);
+                }
+
+                @Override
+                public void onFailure(@NonNull SupabaseError error) {
+                    if (ChatFeatureCompat.isConversationsMissingError(error)) {
+                        ChatFeatureCompat.disableConversations();
+                        loadConversations(userId, pageToken, background, callback);
+                        return;
+                    }
+                    callback.onFailure(error);
+                }
+            }
+        );
+    }
+
+    /**
+     * Builds the conversation summaries from every chat row the user sent or received, the way
+     * the inbox did before database/conversations.sql. Its cost grows with the number of messages.
+     */
+    private void loadConversationsFromChats(@NonNull String userId,
+                                            boolean background,
+                                            @NonNull RepositoryPageCallback<ConversationRow> callback) {
+        boolean includeListingMetadata = ChatFeatureCompat.isListingMetadataSupported();
+        queryListCached(
+            buildChatsEndpoint(userId, includeListingMetadata),
+            "chats",
+            "inbox:" + userId,
+            !background,
+            row -> mapChatAsConversation(row, userId, includeListingMetadata),
+            new RepositoryCallback<ConversationRow>() {
+                @Override
+                public void onSuccess(@NonNull List<ConversationRow> rows) {
+                    List<ConversationRow> conversations = groupConversations(rows);
+                    indexLastMessages(userId, conversations);
+                    callback.onPage(conversations, null);
+                }
+
+                @Override
+                public void onCached(@NonNull List<ConversationRow> rows) {
+                    callback.onCachedPage(groupConversations(rows));
+                }
+
+                @Override
+                public void onError(String error) {
+                    if (ChatFeatureCompat.isListingMetadataSupported()
+                            && ChatFeatureCompat.isListingMetadataError(error)) {
+                        ChatFeatureCompat.disableListingMetadata();
+                        loadConversationsFromChats(userId, background, callback);
+                        return;
+                    }
+                    callback.onError(error);
+                }
+            }
+        );
+    }
+
+    /**
+     * Folds per-message rows, most recent first, into one row per counterpart and listing. The
+     * first row of each conversation holds its last message; unread counts are added up.
+     */
+    @NonNull
+    static List<ConversationRow> groupConversations(@NonNull List<ConversationRow> messageRows) {
+        Map<String, ConversationRow> conversations = new LinkedHashMap<>();
+        for (ConversationRow row : messageRows) {
+            if (row.counterpartId == null || row.counterpartId.isEmpty()) {
+                continue;
+            }
+            String key = row.counterpartId + "|" + (row.listingId != null ? row.listingId : "direct");
+            ConversationRow conversation = conversations.get(key);
+            if (conversation == null) {
+                row.id = key;
+                conversations.put(key, row);
+            } else {
+                conversation.unreadCount += row.unreadCount;
+            }
+        }
+        return new ArrayList<>(conversations.values());
+    }
+
+    /**
+     * Streams the messages of one thread. The thread endpoint is built by the chat screen because
+     * it depends on the listing the conversation is scoped to.
+     */
+    public void streamThreadMessages(@NonNull String endpoint,
+                                     boolean includeListingMetadata,
+                                     @NonNull RepositoryStreamCallback<ChatRow> callback) {
+        streamList(endpoint, THREAD_BATCH_ROWS, row -> mapChatRow(row, includeListingMetadata),
+            new RepositoryStreamCallback<ChatRow>() {
+                @Override
+                public void onRows(@NonNull List<ChatRow> rows) {
+                    indexMessages(rows);
+                    callback.onRows(rows);
+                }
+
+                @Override
+                public void onComplete() {
+                    callback.onComplete();
+                }
+
+                @Override
+                public void onError(String error) {
+                    callback.onError(error);
+                }
+
+                @Override
+                public void onFailure(@NonNull SupabaseError error) {
+                    callback.onFailure(error);
+                }
+            });
+    }
+
+    private void indexMessages(@NonNull List<ChatRow> rows) {
+        String ownerId = supabaseClient.getCurrentUserId();
+        if (searchIndex == null || TextUtils.isEmpty(ownerId)) {
+            return;
+        }
+        List<MessageSearchIndex.Message> messages = new ArrayList<>(rows.size());
+        for (ChatRow row : rows) {
+            String counterpartId = ownerId.equals(row.senderId) ? row.receiverId : row.senderId;
+            messages.add(new MessageSearchIndex.Message(row.id, counterpartId, row.listingId, row.senderId,
+                row.message, row.createdAt));
+        }
+        searchIndex.index(ownerId, messages);
+    }
+
+    /** Each summary carries its conversation's last message, so even unopened threads are searchable. */
+    private void indexLastMessages(@NonNull String userId, @NonNull List<ConversationRow> rows) {
+        if (searchIndex == null) {
+            return;
+        }
+        List<MessageSearchIndex.Message> messages = new ArrayList<>(rows.size());
+        for (ConversationRow row : rows) {
+            if (!TextUtils.isEmpty(row.lastMessageId)) {
+                messages.add(new MessageSearchIndex.Message(row.lastMessageId, row.counterpartId, row.listingId,
+                    row.lastSenderId, row.lastMessage, row.createdAt));
+            }
+        }
+        searchIndex.index(userId, messages);
+    }
+
+    private String buildChatsEndpoint(String userId, boolean includeListingMetadata) {
+        if (TextUtils.isEmpty(supabaseClient.getSupabaseUrl())) {
+            return CHATS_ENDPOINT;
+        }
+        HttpUrl baseUrl = HttpUrl.parse(supabaseClient.getSupabaseUrl());
+        if (baseUrl == null) {
+            return CHATS_ENDPOINT;
+        }
+
+        StringBuilder selectFields = new StringBuilder("id,message,created_at,is_read,sender_id,receiver_id");
+        if (includeListingMetadata) {
+            selectFields.append(",listing_id,listing_title_snapshot,listing_image_url_snapshot,listing:posts!chats_listing_id_fkey(id,title,image_url)");
+        }
+        selectFields.append(",sender:profiles!chats_sender_id_fkey(id,name,profile_image_url),receiver:profiles!chats_receiver_id_fkey(id,name,profile_image_url)");
+        String orFilter = String.format(Locale.US, "(sender_id.eq.%s,receiver_id.eq.%s)", userId, userId);
+
+        HttpUrl url = baseUrl.newBuilder()
+                .addPathSegments("rest/v1/chats")
+                .addQueryParameter("select", selectFields.toString())
+                .addQueryParameter("or", orFilter)
+                .addQueryParameter("order", "created_at.desc")
+                .build();
+
+        return relativeEndpoint(url.toString());
+    }
+
+    private String buildConversationsEndpoint(String userId) {
+        if (TextUtils.isEmpty(supabaseClient.getSupabaseUrl())) {
+            return CONVERSATIONS_ENDPOINT;
+        }
+        HttpUrl baseUrl = HttpUrl.parse(supabaseClient.getSupabaseUrl());
+        if (baseUrl == null) {
+            return CONVERSATIONS_ENDPOINT;
+        }
+
+        // Order and limit are added by queryPage.
+        HttpUrl url = baseUrl.newBuilder()
+                .addPathSegments("rest/v1/conversations")
+                .addQueryParameter("select", "id,created_at,counterpart_id,listing_id,listing_title_snapshot,"
+                        + "listing_image_url_snapshot,last_message_id,last_message,last_sender_id,unread_count,"
+                        + "counterpart:profiles!conversations_counterpart_id_fkey(id,name,profile_image_url),"
+                        + "listing:posts!conversations_listing_id_fkey(id,title,image_url)")
+                .addQueryParameter("user_id", "eq." + userId)
+                .build();
+
+        return relativeEndpoint(url.toString());
+    }
+
+    private ConversationRow mapConversationRow(@NonNull JSONObject conversation) {
+        ConversationRow row = new ConversationRow();
+        row.id = conversation.optString("id");
+        row.createdAt = conversation.optString("created_at");
+        row.counterpartId = conversation.optString("counterpart_id");
+        row.lastMessageId = optNullableString(conversation, "last_message_id");
+        row.lastMessage = conversation.optString("last_message", "");
+        row.lastSenderId = optNullableString(conversation, "last_sender_id");
+        row.unreadCount = conversation.optInt("unread_count", 0);
+        row.listingId = optNullableString(conversation, "listing_id");
+        row.listingTitleSnapshot = optNullableString(conversation, "listing_title_snapshot");
+        row.listingImageSnapshot = optNullableString(conversation, "listing_image_url_snapshot");
+
+        JSONObject counterpart = conversation.optJSONObject("counterpart");
+        if (counterpart != null) {
+            row.counterpartName = optNullableString(counterpart, "name");
+            row.counterpartAvatarUrl = optNullableString(counterpart, "profile_image_url");
+        }
+        JSONObject listing = conversation.optJSONObject("listing");
+        if (listing != null) {
+            row.listingTitle = optNullableString(listing, "title");
+            row.listingImageUrl = optNullableString(listing, "image_url");
+        }
+        return row;
+    }
+
+    /** One chat row as a single-message summary from the point of view of {@code userId}. */
+    private ConversationRow mapChatAsConversation(@NonNull JSONObject chat, @NonNull String userId,
+                                                  boolean includeListingMetadata) {
+        ConversationRow row = new ConversationRow();
+        String senderId = chat.optString("sender_id");
+        boolean fromCurrentUser = userId.equals(senderId);
+        row.createdAt = chat.optString("created_at");
+        row.counterpartId = fromCurrentUser ? chat.optString("receiver_id") : senderId;
+        row.lastMessageId = optNullableString(chat, "id");
+        row.lastMessage = chat.optString("message", "");
+        row.lastSenderId = senderId;
+        row.unreadCount = !fromCurrentUser && !chat.optBoolean("is_read", false) ? 1 : 0;
+
+        JSONObject counterpart = chat.optJSONObject(fromCurrentUser ? "receiver" : "sender");
+        if (counterpart != null) {
+            row.counterpartName = optNullableString(counterpart, "name");
+            row.counterpartAvatarUrl = optNullableString(counterpart, "profile_image_url");
+        }
+        if (includeListingMetadata) {
+            row.listingId = optNullableString(chat, "listing_id");
+            row.listingTitleSnapshot = optNullableString(chat, "listing_title_snapshot");
+            row.listingImageSnapshot = optNullableString(chat, "listing_image_url_snapshot");
+            JSONObject listing = chat.optJSONObject("listing");
+            if (listing != null) {
+                row.listingTitle = optNullableString(listing, "title");
+                row.listingImageUrl = optNullableString(listing, "image_url");
+            }
+        }
+        return row;
+    }
+
+    private ChatRow mapChatRow(@NonNull JSONObject chat, boolean includeListingMetadata) {
+        ChatRow row = new ChatRow();
+        row.id = chat.optString("id");
+        row.message = chat.optString("message", "");
+        row.createdAt = chat.optString("created_at");
+        row.isRead = chat.optBoolean("is_read", false);
+        row.senderId = chat.optString("sender_id");
+        row.receiverId = chat.optString("receiver_id");
+
+        if (includeListingMetadata) {
+            row.listingId = optNullableString(chat, "listing_id");
+            row.listingTitleSnapshot = optNullableString(chat, "listing_title_snapshot");
+            row.listingImageSnapshot = optNullableString(chat, "listing_image_url_snapshot");
+        }
+        return row;
+    }
+
+    @Nullable
+    private static String optNullableString(@NonNull JSONObject object, @NonNull String key) {
+        if (!object.has(key) || object.isNull(key)) {
+            return null;
+        }
+        return object.optString(key, null);
+    }
+
+    /**
+     * One user's summary of one conversation: the last message and how many messages from the
+     * counterpart are unread. {@code createdAt} is the time of the last message.
+     */
+    public static class ConversationRow {
+        public String id;
+        public String createdAt;
+        public String counterpartId;
+        @Nullable public String counterpartName;
+        @Nullable public String counterpartAvatarUrl;
+        @Nullable public String lastMessageId;
+        public String lastMessage;
+        @Nullable public String lastSenderId;
+        public int unreadCount;
+        @Nullable public String listingId;
+        @Nullable public String listingTitleSnapshot;
+        @Nullable public String listingImageSnapshot;
+        @Nullable public String listingTitle;
+        @Nullable public String listingImageUrl;
+    }
+
+    /**
+     * One row of the chats table.
+     */
+    public static class ChatRow {
+        public String id;
+        public String message;
+        public String createdAt;
+        public boolean isRead;
+        public String senderId;
+        public String receiverId;
+        @Nullable public String listingId;
+        @Nullable public String listingTitleSnapshot;
+        @Nullable public String listingImageSnapshot;
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.ecoswap.repository;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.ecoswap.R;
+import com.example.ecoswap.dashboard.CommunityFragment.CommunityPost;
+import com.example.ecoswap.utils.RequestScope;
+import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseQuery;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Pages through the community feed and decodes it into {@link CommunityPost}s off the main thread.
+ */
+public class CommunityRepository extends BaseRepository {
+
+    public CommunityRepository(@Nullable Context context) {
+        super(context, null);
+    }
+
+    /**
+     * Creates a repository whose reads are cancelled, and whose results are dropped, once the
+     * scope is cancelled.
+     */
+    public CommunityRepository(@Nullable Context context, @Nullable RequestScope scope) {
+        super(context, scope);
+    }
+
+    /**
+     * Loads one page of community posts, newest first. A non-null topic restricts the feed to that
+     * sub-category. Pass null for the first page and the returned token for each following page.
+     * The first page is also served from the entity store while it loads.
+     */
+    public void loadCommunityPosts(@Nullable String topic,
+                                   @Nullable String pageToken,
+                                   @NonNull RepositoryPageCallback<CommunityPost> callback) {
+        SupabaseQuery query = SupabaseQuery.from("posts")
+            .select("id", "user_id", "title", "description", "image_url", "likes", "created_at")
+            .embed("profiles", "name", "profile_image_url")
+            .embedCount("comments")
+            .eq("category", "community");
+        if (!TextUtils.isEmpty(topic)) {
+            query.eq("title", topic);
+        }
+        String collectionKey = "community:" + (TextUtils.isEmpty(topic) ? "all" : topic);
+        queryPageCached(query.build(), "posts", collectionKey, pageToken, SupabaseClient.DEFAULT_PAGE_SIZE,
+            this::mapPost, callback);
+    }
+
+    private CommunityPost mapPost(@NonNull JSONObject obj) {
+        String id = obj.optString("id");
+        String title = obj.optString("title"); // Using title as sub-category
+        String content = obj.optString("description");
+        String imageUrl = obj.isNull("image_url") ? null : obj.optString("image_url", null);
+        if (imageUrl != null && imageUrl.trim().isEmpty()) {
+            imageUrl = null;
+        }
+        int likes = obj.optInt("likes", 0);
+        int commentCount = 0;
+        JSONArray comments = obj.optJSONArray("comments");
+        if (comments != null && comments.length() > 0) {
+            commentCount = comments.optJSONObject(0).optInt("count", 0);
+        }
+        String createdAt = obj.optString("created_at");
+        String ownerId = obj.optString("user_id", "");
+
+        JSONObject profile = obj.optJSONObject("profiles");
+        String userName = "Unknown User";
+        String userAvatar = null;
+        if (profile != null) {
+            userName = profile.optString("name", "Unknown User");
+            userAvatar = profile.optString("profile_image_url");
+        }
+
+        return new CommunityPost(
+            id, ownerId, userName, userAvatar, formatRelative(createdAt), title, content, likes, commentCount, imageUrl, createdAt
+        );
+    }
+
+    private String formatRelative(@Nullable String iso) {
+        if (TextUtils.isEmpty(iso)) {
+            return appContext.getString(R.string.just_now);
+        }
+        try {
+            java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX", java.util.Locale.US);
+            sdf.setTimeZone(java.util.TimeZone.getTimeZone("UTC"));
+            java.util.Date date = sdf.parse(iso);
+            if (date == null) return iso;
+            long delta = System.currentTimeMillis() - date.getTime();
+            long minutes = Math.max(1, delta / 60000);
+            if (minutes < 60) return minutes + "m ago";
+            long hours = minutes / 60;
+            if (hours < 24) return hours + "h ago";
+            long days = hours / 24;
+            return days + "d ago";
+        } catch (Exception e) {
+            return iso;
+        }
+    }
+}
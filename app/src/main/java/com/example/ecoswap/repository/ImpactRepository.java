@@ -0,0 +1,97 @@
+package com.example.ecoswap.repository;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.ecoswap.utils.RequestPriority;
+import com.example.ecoswap.utils.SupabaseError;
+import com.example.ecoswap.utils.SupabaseRpc;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.List;
+
+/**
+ * Credits completed swaps and donations to the profiles and eco savings of everyone involved.
+ *
+ * Uses the {@code record_trade_impact} function from database/rpc_functions.sql, which does the
+ * whole update in one round trip and one transaction. The function reads the participants from
+ * the trade row, only accepts completed trades recorded by one of their parties, and credits each
+ * trade once. The function is a required migration: without it the server answers 404, which is
+ * logged as an error and credits nothing. A per-user read-then-write chain on the phone is no
+ * substitute, since it loses increments under concurrent trades and can credit a trade twice.
+ */
+public class ImpactRepository extends BaseRepository {
+
+    public static final String TRADE_SWAP = "swap";
+    public static final String TRADE_DONATION = "donation";
+
+    private static final String TAG = "ImpactUpdate";
+    private static final String RECORD_TRADE_IMPACT = "record_trade_impact";
+
+    public ImpactRepository(@Nullable Context context) {
+        super(context, null);
+    }
+
+    /**
+     * Records a completed trade for both of its parties. {@code tradeType} is {@link #TRADE_SWAP}
+     * or {@link #TRADE_DONATION}; recording the same trade again changes nothing. Best effort:
+     * failures are logged, never surfaced, and the call is not tied to any screen.
+     */
+    public void recordTradeImpact(@NonNull String tradeType, @Nullable String tradeId) {
+        if (TextUtils.isEmpty(tradeId)) {
+            Log.w(TAG, "No " + tradeType + " record; impact is only credited for recorded trades");
+            return;
+        }
+        SupabaseRpc rpc = SupabaseRpc.call(RECORD_TRADE_IMPACT)
+            .arg("p_trade_type", tradeType)
+            .arg("p_trade_id", tradeId)
+            .invalidates("profiles", "eco_savings");
+        callRpc(rpc, RequestPriority.BACKGROUND, row -> row.optString("user_id", null), new RepositoryCallback<String>() {
+            @Override
+            public void onSuccess(@NonNull List<String> updated) {
+                Log.d(TAG, "Trade impact recorded for " + updated);
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Failed to record trade impact: " + error);
+            }
+
+            @Override
+            public void onFailure(@NonNull SupabaseError error) {
+                if (error.getKind() == SupabaseError.Kind.REJECTED && error.getStatusCode() == 404) {
+                    Log.e(TAG, RECORD_TRADE_IMPACT + " is not deployed; run database/rpc_functions.sql."
+                        + " Impact not recorded for " + tradeType + " " + tradeId);
+                    return;
+                }
+                onError(error.getMessage());
+            }
+        });
+    }
+
+    /**
+     * The id of the first row returned by an insert or update sent with
+     * {@code Prefer: return=representation}, or null.
+     */
+    @Nullable
+    public static String firstRowId(@Nullable Object data) {
+        if (data == null) {
+            return null;
+        }
+        try {
+            JSONArray rows = new JSONArray(data.toString());
+            if (rows.length() == 0) {
+                return null;
+            }
+            String id = rows.getJSONObject(0).optString("id", null);
+            return TextUtils.isEmpty(id) ? null : id;
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.ecoswap.repository;
+
+import android.content.Context;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.ecoswap.R;
+import com.example.ecoswap.dashboard.MarketplaceFragment.MarketplaceItem;
+import com.example.ecoswap.utils.RequestScope;
+import com.example.ecoswap.utils.SupabaseClient;
+
+import java.util.Locale;
+
+import okhttp3.HttpUrl;
+import org.json.JSONObject;
+
+/**
+ * Loads marketplace listings and decodes them into {@link MarketplaceItem}s off the main thread.
+ */
+public class ListingsRepository extends BaseRepository {
+
+    private static final String POSTS_ENDPOINT = "/rest/v1/posts";
+    private static final String MARKETPLACE_COLLECTION = "marketplace";
+
+    public ListingsRepository(@Nullable Context context) {
+        super(context, null);
+    }
+
+    /**
+     * Creates a repository whose reads are cancelled, and whose results are dropped, once the
+     * scope is cancelled.
+     */
+    public ListingsRepository(@Nullable Context context, @Nullable RequestScope scope) {
+        super(context, scope);
+    }
+
+    /**
+     * Loads one page of available listings, newest first. Pass null for the first page and the
+     * returned token for each following page. Category, listing type and search text are applied
+     * by the server, so every page holds only matching listings; null or empty values do not
+     * filter. The unfiltered first page is also served from the entity store while it loads.
+     */
+    public void loadMarketplaceListings(boolean includeCoordinates,
+                                        @Nullable String category,
+                                        @Nullable String listingType,
+                                        @Nullable String search,
+                                        @Nullable String pageToken,
+                                        @NonNull RepositoryPageCallback<MarketplaceItem> callback) {
+        String endpoint = buildListingsEndpoint(includeCoordinates, category, listingType, search);
+        if (TextUtils.isEmpty(category) && TextUtils.isEmpty(listingType) && TextUtils.isEmpty(search)) {
+            queryPageCached(endpoint, "posts", MARKETPLACE_COLLECTION, pageToken,
+                SupabaseClient.DEFAULT_PAGE_SIZE, this::mapListing, callback);
+        } else {
+            queryPage(endpoint, pageToken, SupabaseClient.DEFAULT_PAGE_SIZE, this::mapListing, callback);
+        }
+    }
+
+    /**
+     * Fetches the page after the one just shown on the prefetch lane, so loading it on scroll is
+     * answered by the HTTP cache. Takes the same filters as {@link #loadMarketplaceListings}.
+     */
+    public void prefetchMarketplaceListings(boolean includeCoordinates,
+                                            @Nullable String category,
+                                            @Nullable String listingType,
+                                            @Nullable String search,
+                                            @NonNull String pageToken) {
+        prefetchPage(buildListingsEndpoint(includeCoordinates, category, listingType, search),
+            pageToken, SupabaseClient.DEFAULT_PAGE_SIZE);
+    }
+
+    private String buildListingsEndpoint(boolean includeCoordinates, @Nullable String category,
+                                         @Nullable String listingType, @Nullable String search) {
+        if (TextUtils.isEmpty(supabaseClient.getSupabaseUrl())) {
+            return POSTS_ENDPOINT;
+        }
+        HttpUrl baseUrl = HttpUrl.parse(supabaseClient.getSupabaseUrl());
+        if (baseUrl == null) {
+            return POSTS_ENDPOINT;
+        }
+
+        String selectFields = "id,title,description,category,listing_type,condition,location,image_url,user_id,status,created_at";
+        if (includeCoordinates) {
+            selectFields += ",latitude,longitude";
+        }
+        selectFields += ",profiles(name,location,profile_image_url)";
+
+        HttpUrl.Builder url = baseUrl.newBuilder()
+                .addPathSegments("rest/v1/posts")
+                .addQueryParameter("select", selectFields)
+                .addQueryParameter("category", "neq.community")
+                .addQueryParameter("status", "eq.available");
+        if (!TextUtils.isEmpty(category)) {
+            url.addQueryParameter("category", "eq." + category);
+        }
+        if (!TextUtils.isEmpty(listingType)) {
+            url.addQueryParameter("listing_type", "eq." + listingType);
+        }
+        if (!TextUtils.isEmpty(search)) {
+            url.addQueryParameter("or", searchFilter(search));
+        }
+
+        return relativeEndpoint(url.build().toString());
+    }
+
+    /**
+     * Case-insensitive substring match on any of the text columns the marketplace search covers.
+     * The term is double-quoted so commas, dots and parentheses typed by the user are not read as
+     * PostgREST syntax.
+     */
+    static String searchFilter(@NonNull String search) {
+        String term = "\"*" + search.replace("\\", "\\\\").replace("\"", "\\\"") + "*\"";
+        return "(title.ilike." + term
+            + ",description.ilike." + term
+            + ",location.ilike." + term
+            + ",category.ilike." + term + ")";
+    }
+
+    private MarketplaceItem mapListing(@NonNull JSONObject listing) {
+        MarketplaceItem item = new MarketplaceItem();
+        item.setId(listing.optString("id"));
+        item.setTitle(listing.optString("title", "Untitled listing"));
+        item.setDescription(listing.optString("description"));
+        item.setRawCategory(listing.optString("category", "other"));
+        item.setListingType(listing.optString("listing_type", "swap"));
+        item.setDisplayCategory(formatCategoryLabel(item.getRawCategory()));
+        item.setRawCondition(listing.optString("condition", "good"));
+        item.setDisplayCondition(formatConditionLabel(item.getRawCondition()));
+        item.setImageUrl(listing.optString("image_url", null));
+        item.setOwnerId(listing.optString("user_id"));
+        if (listing.has("latitude") && !listing.isNull("latitude")) {
+            item.setLatitude(listing.optDouble("latitude"));
+        }
+        if (listing.has("longitude") && !listing.isNull("longitude")) {
+            item.setLongitude(listing.optDouble("longitude"));
+        }
+
+        String listingLocation = listing.optString("location", null);
+        JSONObject profile = listing.optJSONObject("profiles");
+        if (profile != null) {
+            String posterName = profile.optString("name", null);
+            if (!TextUtils.isEmpty(posterName)) {
+                item.setPostedBy(posterName);
+            }
+            if (TextUtils.isEmpty(listingLocation)) {
+                listingLocation = profile.optString("location", null);
+            }
+
+            String profileImage = profile.optString("profile_image_url", null);
+            if (!TextUtils.isEmpty(profileImage)) {
+                item.setOwnerProfileImageUrl(profileImage);
+            }
+        }
+
+        item.setPostedBy(!TextUtils.isEmpty(item.getPostedBy()) ? item.getPostedBy() : appContext.getString(R.string.app_name));
+        item.setLocation(!TextUtils.isEmpty(listingLocation) ? listingLocation : appContext.getString(R.string.location_unknown));
+
+        return item;
+    }
+
+    private String formatCategoryLabel(String rawCategory) {
+        if (TextUtils.isEmpty(rawCategory)) {
+            return appContext.getString(R.string.category_other);
+        }
+        String lowered = rawCategory.toLowerCase(Locale.US);
+        switch (lowered) {
+            case "electronics":
+                return appContext.getString(R.string.category_electronics);
+            case "clothing":
+                return appContext.getString(R.string.category_clothing);
+            case "books":
+                return appContext.getString(R.string.category_books);
+            case "furniture":
+                return appContext.getString(R.string.category_furniture);
+            case "swap":
+                return appContext.getString(R.string.category_swap);
+            case "donation":
+                return appContext.getString(R.string.category_donation);
+            default:
+                return capitalize(lowered);
+        }
+    }
+
+    private String formatConditionLabel(String rawCondition) {
+        if (TextUtils.isEmpty(rawCondition)) {
+            return appContext.getString(R.string.condition_good);
+        }
+        switch (rawCondition.toLowerCase(Locale.US)) {
+            case "new":
+                return appContext.getString(R.string.condition_new);
+            case "like_new":
+                return appContext.getString(R.string.condition_like_new);
+            case "good":
+                return appContext.getString(R.string.condition_good);
+            case "fair":
+                return appContext.getString(R.string.condition_fair);
+            case "poor":
+                return appContext.getString(R.string.condition_poor);
+            default:
+                return capitalize(rawCondition);
+        }
+    }
+
+    private String capitalize(String value) {
+        if (TextUtils.isEmpty(value)) {
+            return value;
+        }
+        String lower = value.toLowerCase(Locale.US);
+        return Character.toUpperCase(lower.charAt(0)) + lower.substring(1);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.ecoswap.repository;
+
+import androidx.annotation.NonNull;
+
+import com.example.ecoswap.utils.SupabaseError;
+
+import java.util.List;
+
+/**
+ * Receives decoded rows on the main thread.
+ */
+public interface RepositoryCallback<T> {
+    void onSuccess(@NonNull List<T> items);
+    void onError(String error);
+
+    /**
+     * Rows kept on the device from an earlier load, delivered before onSuccess by reads that go
+     * through the entity store. Not called when nothing is stored or the network answered first.
+     */
+    default void onCached(@NonNull List<T> items) {
+    }
+
+    /** Structured form of the failure; by default only the message is forwarded. */
+    default void onFailure(@NonNull SupabaseError error) {
+        onError(error.getMessage());
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.ecoswap.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.example.ecoswap.utils.SupabaseError;
+
+import java.util.List;
+
+/**
+ * Receives one decoded page on the main thread. A null next page token means there are no
+ * further pages.
+ */
+public interface RepositoryPageCallback<T> {
+    void onPage(@NonNull List<T> items, @Nullable String nextPageToken);
+    void onError(String error);
+
+    /**
+     * The first page as kept on the device from an earlier load, delivered before onPage by reads
+     * that go through the entity store. Not called when nothing is stored or the network answered
+     * first.
+     */
+    default void onCachedPage(@NonNull List<T> items) {
+    }
+
+    /** Structured form of the failure; by default only the message is forwarded. */
+    default void onFailure(@NonNull SupabaseError error) {
+        onError(error.getMessage());
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.ecoswap.repository;
+
+import androidx.annotation.NonNull;
+
+import com.example.ecoswap.utils.SupabaseError;
+
+import java.util.List;
+
+/**
+ * Receives decoded rows in batches, on the main thread, while the response is still arriving.
+ */
+public interface RepositoryStreamCallback<T> {
+    void onRows(@NonNull List<T> rows);
+    void onComplete();
+    void onError(String error);
+
+    /** Structured form of the failure; by default only the message is forwarded. */
+    default void onFailure(@NonNull SupabaseError error) {
+        onError(error.getMessage());
+    }
+}
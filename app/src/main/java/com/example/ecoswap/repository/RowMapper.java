@@ -0,0 +1,15 @@
+package com.example.ecoswap.repository;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONObject;
+
+/**
+ * Maps a single PostgREST row to a model object. Returning null skips the row.
+ * Always invoked on a background thread.
+ */
+public interface RowMapper<T> {
+    @Nullable
+    T map(@NonNull JSONObject row);
+}
@@ -7,6 +7,7 @@ import androidx.appcompat.app.AppCompatActivity;
 import com.example.ecoswap.R;
 import com.example.ecoswap.utils.SessionManager;
 import com.example.ecoswap.utils.SupabaseClient;
+import com.example.ecoswap.utils.SupabaseQuery;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import java.util.Locale;
@@ -44,7 +45,10 @@ public class EcoTrackerActivity extends AppCompatActivity {
             Toast.makeText(this, "Login required to load eco stats", Toast.LENGTH_SHORT).show();
             return;
         }
-        String endpoint = "/rest/v1/eco_savings?user_id=eq." + userId + "&select=*";
+        String endpoint = SupabaseQuery.from("eco_savings")
+                .select("co2_saved", "water_saved", "waste_diverted", "items_swapped", "items_donated")
+                .eq("user_id", userId)
+                .build();
         supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
             @Override
             public void onSuccess(Object data) {
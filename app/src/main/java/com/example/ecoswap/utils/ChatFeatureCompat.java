@@ -4,11 +4,12 @@ import android.text.TextUtils;
 import java.util.Locale;
 
 /**
- * Centralized feature switches for chat-related optional columns.
+ * Centralized feature switches for chat-related optional columns and tables.
  */
 public final class ChatFeatureCompat {
 
     private static volatile boolean listingMetadataSupported = true;
+    private static volatile boolean conversationsSupported = true;
 
     private ChatFeatureCompat() {
         // Utility class
@@ -37,4 +38,29 @@ public final class ChatFeatureCompat {
             || lower.contains("listing_title_snapshot")
             || lower.contains("listing_image_url_snapshot");
     }
+
+    /** False once the server answered that the conversations table (database/conversations.sql) is missing. */
+    public static boolean isConversationsSupported() {
+        return conversationsSupported;
+    }
+
+    public static void disableConversations() {
+        conversationsSupported = false;
+    }
+
+    public static void setConversationsSupported(boolean supported) {
+        conversationsSupported = supported;
+    }
+
+    /**
+     * True when PostgREST does not know the conversations table: it answers 404, with code
+     * PGRST205 on current versions.
+     */
+    public static boolean isConversationsMissingError(SupabaseError error) {
+        if (error == null || error.getKind() != SupabaseError.Kind.REJECTED) {
+            return false;
+        }
+        return error.getStatusCode() == 404
+            || error.getMessage().toUpperCase(Locale.US).contains("PGRST205");
+    }
 }
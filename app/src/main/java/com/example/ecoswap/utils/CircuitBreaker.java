@@ -0,0 +1,209 @@
+package com.example.ecoswap.utils;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Tracks the recent failure rate of one endpoint group (a table, RPC function or storage bucket)
+ * and stops sending requests to it while it is unhealthy.
+ *
+ * Only transient failures count: no response, 408, 429 and 5xx. Once at least
+ * {@link #MIN_SAMPLES} calls in the last {@link #WINDOW_MS} include {@link #FAILURE_RATE_THRESHOLD}
+ * failures, the breaker opens and every call fails fast with {@link OpenException}. After the
+ * cooldown (doubled on each consecutive trip, and never shorter than the server's Retry-After) one
+ * probe is let through; its success closes the breaker, its failure opens it again.
+ *
+ * The breaker also holds the group's retry budget. Each retry spends a token and each success
+ * earns back a fraction of one, so retries fade out on their own when a group keeps failing.
+ */
+final class CircuitBreaker {
+
+    private static final String TAG = "CircuitBreaker";
+    private static final long WINDOW_MS = 30_000L;
+    private static final int MIN_SAMPLES = 6;
+    private static final double FAILURE_RATE_THRESHOLD = 0.5;
+    private static final long BASE_OPEN_MS = 5_000L;
+    private static final long MAX_OPEN_MS = 2 * 60_000L;
+    private static final double MAX_RETRY_TOKENS = 10.0;
+    private static final double RETRY_TOKENS_PER_SUCCESS = 0.2;
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * Failure delivered instead of sending a request while the breaker is open.
+     */
+    static final class OpenException extends IOException {
+        private final long retryAfterMs;
+
+        OpenException(@NonNull String group, long retryAfterMs) {
+            super("Circuit open for " + group);
+            this.retryAfterMs = retryAfterMs;
+        }
+
+        long getRetryAfterMs() {
+            return retryAfterMs;
+        }
+    }
+
+    private final String group;
+    private final ArrayDeque<Sample> samples = new ArrayDeque<>();
+    private State state = State.CLOSED;
+    private long openUntilMs;
+    private int consecutiveTrips;
+    private boolean probeInFlight;
+    private double retryTokens = MAX_RETRY_TOKENS;
+
+    CircuitBreaker(@NonNull String group) {
+        this.group = group;
+    }
+
+    /**
+     * Groups requests by what fails together: a PostgREST table or RPC function, a storage
+     * bucket, or otherwise the API (auth, realtime).
+     */
+    @NonNull
+    static String groupFor(@NonNull HttpUrl url) {
+        List<String> segments = url.pathSegments();
+        String api = segments.isEmpty() ? "" : segments.get(0);
+        if ("rest".equals(api) && segments.size() > 2) {
+            if ("rpc".equals(segments.get(2)) && segments.size() > 3) {
+                return "rpc/" + segments.get(3);
+            }
+            return "rest/" + segments.get(2);
+        }
+        if ("storage".equals(api) && segments.size() > 3) {
+            // object/<bucket>/... and object/public/<bucket>/...
+            String bucket = "public".equals(segments.get(3)) && segments.size() > 4 ? segments.get(4) : segments.get(3);
+            return "storage/" + bucket;
+        }
+        return api;
+    }
+
+    @NonNull
+    String getGroup() {
+        return group;
+    }
+
+    /**
+     * Returns true if a request may be sent now. In the half-open state only one probe is
+     * admitted; it must be followed by exactly one of the record methods.
+     */
+    synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (SystemClock.elapsedRealtime() < openUntilMs) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probeInFlight = true;
+                return true;
+            case HALF_OPEN:
+            default:
+                if (probeInFlight) {
+                    return false;
+                }
+                probeInFlight = true;
+                return true;
+        }
+    }
+
+    synchronized long remainingOpenMs() {
+        return state == State.CLOSED ? 0L : Math.max(0L, openUntilMs - SystemClock.elapsedRealtime());
+    }
+
+    synchronized boolean isOpen() {
+        return state != State.CLOSED;
+    }
+
+    /** The server answered with something other than a transient failure. */
+    synchronized void recordSuccess() {
+        retryTokens = Math.min(MAX_RETRY_TOKENS, retryTokens + RETRY_TOKENS_PER_SUCCESS);
+        if (state == State.HALF_OPEN) {
+            Log.i(TAG, group + " recovered; closing circuit");
+            state = State.CLOSED;
+            consecutiveTrips = 0;
+            probeInFlight = false;
+            samples.clear();
+            return;
+        }
+        addSample(false);
+    }
+
+    /** A transient failure; {@code retryAfterMs} is the server's Retry-After, or 0. */
+    synchronized void recordFailure(long retryAfterMs) {
+        if (state == State.HALF_OPEN) {
+            trip(retryAfterMs);
+            return;
+        }
+        addSample(true);
+        if (state == State.CLOSED && shouldTrip()) {
+            trip(retryAfterMs);
+        }
+    }
+
+    /** The call was canceled by the app; it says nothing about the server. */
+    synchronized void recordCanceled() {
+        probeInFlight = false;
+    }
+
+    /** Spends one retry token if the breaker is closed and the budget allows it. */
+    synchronized boolean tryAcquireRetry() {
+        if (state != State.CLOSED || retryTokens < 1.0) {
+            return false;
+        }
+        retryTokens -= 1.0;
+        return true;
+    }
+
+    private void addSample(boolean failed) {
+        long now = SystemClock.elapsedRealtime();
+        samples.addLast(new Sample(now, failed));
+        while (!samples.isEmpty() && now - samples.peekFirst().atMs > WINDOW_MS) {
+            samples.removeFirst();
+        }
+    }
+
+    private boolean shouldTrip() {
+        if (samples.size() < MIN_SAMPLES) {
+            return false;
+        }
+        int failures = 0;
+        for (Sample sample : samples) {
+            if (sample.failed) {
+                failures++;
+            }
+        }
+        return failures >= samples.size() * FAILURE_RATE_THRESHOLD;
+    }
+
+    private void trip(long retryAfterMs) {
+        consecutiveTrips++;
+        long cooldownMs = Math.min(MAX_OPEN_MS, BASE_OPEN_MS << Math.min(consecutiveTrips - 1, 8));
+        cooldownMs = Math.max(cooldownMs, Math.min(retryAfterMs, MAX_OPEN_MS));
+        state = State.OPEN;
+        openUntilMs = SystemClock.elapsedRealtime() + cooldownMs;
+        probeInFlight = false;
+        samples.clear();
+        Log.w(TAG, group + " unhealthy; opening circuit for " + cooldownMs + "ms");
+    }
+
+    private static final class Sample {
+        final long atMs;
+        final boolean failed;
+
+        Sample(long atMs, boolean failed) {
+            this.atMs = atMs;
+            this.failed = failed;
+        }
+    }
+}
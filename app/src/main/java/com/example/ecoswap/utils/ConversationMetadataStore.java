@@ -1,33 +1,67 @@
 package com.example.ecoswap.utils;
 
+import android.content.ContentValues;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.TextUtils;
+import android.util.Log;
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
-import java.util.HashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 /**
  * Persists lightweight conversation metadata (listing id/title/image) so that
- * chat and inbox screens can display context even if the backend omits it.
+ * chat and inbox screens can display context even if the backend omits it,
+ * plus which conversations the user archived or blocked.
+ *
+ * Entries live in a small SQLite table keyed by conversation and are cached in
+ * memory, shared by every instance. Reads are answered from the cache, which is
+ * filled in the background on first use, and never touch the database: until the
+ * cache is filled they only see changes made since, so screens re-check in
+ * {@link #whenLoaded}. Writes update the cache at once and reach the database in
+ * batches, one transaction per burst of changes.
  */
 public class ConversationMetadataStore {
 
-    private static final String PREFS = "conversation_metadata_store";
+    private static final String TAG = "ConversationMetadata";
+    private static final String DB_NAME = "conversation_metadata.db";
+    private static final int DB_VERSION = 1;
+    // Metadata used to live in these preferences; they are imported once and then cleared.
+    private static final String LEGACY_PREFS = "conversation_metadata_store";
+    private static final String LEGACY_KEY_ARCHIVED = "archived_conversations";
+    private static final String LEGACY_KEY_BLOCKED = "blocked_conversations";
     private static final String KEY_TEMPLATE = "%s|%s";
-    private static final String KEY_ARCHIVED = "archived_conversations";
-    private static final String KEY_BLOCKED = "blocked_conversations";
+    // Changes made within this window are written in one transaction.
+    private static final long FLUSH_DELAY_MS = 500L;
 
-    private final SharedPreferences prefs;
+    private static Shared shared;
+
+    private final Shared state;
 
     public ConversationMetadataStore(@Nullable Context context) {
         if (context == null) {
             throw new IllegalArgumentException("Context cannot be null");
         }
-        this.prefs = context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        this.state = Shared.get(context.getApplicationContext());
     }
 
     public void saveListingContext(String userId, @Nullable String listingId, @Nullable String title, @Nullable String imageUrl) {
@@ -42,85 +76,52 @@ public class ConversationMetadataStore {
                 && TextUtils.isEmpty(normalizedImage)) {
             return;
         }
-        JSONObject payload = new JSONObject();
-        try {
-            if (!TextUtils.isEmpty(normalizedListingId)) {
-                payload.put("listingId", normalizedListingId);
-            }
-            if (!TextUtils.isEmpty(normalizedTitle)) {
-                payload.put("title", normalizedTitle);
-            }
-            if (!TextUtils.isEmpty(normalizedImage)) {
-                payload.put("imageUrl", normalizedImage);
-            }
-        } catch (JSONException ignored) {
-            // If we cannot encode, skip persisting.
-            return;
-        }
         String key = buildKey(userId, normalizedListingId);
-        prefs.edit().putString(key, payload.toString()).apply();
-        if (TextUtils.isEmpty(normalizedListingId)) {
-            // Only store under the "direct" key when there is no listing id (direct chat).
-            prefs.edit().putString(buildKey(userId, null), payload.toString()).apply();
-        }
+        state.update(key, entry -> {
+            entry.hasContext = true;
+            entry.listingId = normalizedListingId;
+            entry.title = normalizedTitle;
+            entry.imageUrl = normalizedImage;
+        });
     }
 
     public void setArchived(String userId, @Nullable String listingId, boolean archived) {
         if (TextUtils.isEmpty(userId)) {
             return;
         }
-        String key = buildKey(userId, listingId);
-        Set<String> archivedSet = getArchivedSet();
-        if (archived) {
-            archivedSet.add(key);
-        } else {
-            archivedSet.remove(key);
-        }
-        prefs.edit().putStringSet(KEY_ARCHIVED, archivedSet).apply();
+        state.update(buildKey(userId, listingId), entry -> entry.archived = archived);
     }
 
     public boolean isArchived(String userId, @Nullable String listingId) {
         if (TextUtils.isEmpty(userId)) {
             return false;
         }
-        return getArchivedSet().contains(buildKey(userId, listingId));
+        Entry entry = state.lookup(buildKey(userId, listingId));
+        return entry != null && entry.archived;
     }
 
     public void setBlocked(String userId, @Nullable String listingId, boolean blocked) {
         if (TextUtils.isEmpty(userId)) {
             return;
         }
-        String key = buildKey(userId, listingId);
-        Set<String> blockedSet = getBlockedSet();
-        if (blocked) {
-            blockedSet.add(key);
-        } else {
-            blockedSet.remove(key);
-        }
-        prefs.edit().putStringSet(KEY_BLOCKED, blockedSet).apply();
+        state.update(buildKey(userId, listingId), entry -> entry.blocked = blocked);
     }
 
     public boolean isBlocked(String userId, @Nullable String listingId) {
         if (TextUtils.isEmpty(userId)) {
             return false;
         }
-        return getBlockedSet().contains(buildKey(userId, listingId));
+        Entry entry = state.lookup(buildKey(userId, listingId));
+        return entry != null && entry.blocked;
     }
 
-    private Set<String> getArchivedSet() {
-        Set<String> stored = prefs.getStringSet(KEY_ARCHIVED, null);
-        if (stored == null) {
-            return new java.util.HashSet<>();
-        }
-        return new java.util.HashSet<>(stored);
-    }
-
-    private Set<String> getBlockedSet() {
-        Set<String> stored = prefs.getStringSet(KEY_BLOCKED, null);
-        if (stored == null) {
-            return new java.util.HashSet<>();
-        }
-        return new java.util.HashSet<>(stored);
+    /**
+     * Runs {@code callback} on the main thread once the stored entries are in memory, right away
+     * when they already are. Answers given before that may have missed stored flags.
+     */
+    @MainThread
+    public void whenLoaded(@NonNull Runnable callback) {
+        state.whenLoaded(callback);
     }
 
     @Nullable
@@ -128,34 +129,21 @@ public class ConversationMetadataStore {
         if (TextUtils.isEmpty(userId)) {
             return null;
         }
-        String encoded = prefs.getString(buildKey(userId, listingId), null);
-        if (encoded == null && TextUtils.isEmpty(listingId)) {
-            encoded = prefs.getString(buildKey(userId, null), null);
-        }
-        if (TextUtils.isEmpty(encoded)) {
-            return null;
-        }
-        try {
-            JSONObject object = new JSONObject(encoded);
-            String resolvedListingId = normalize(object.optString("listingId", listingId));
-            String resolvedTitle = normalize(object.optString("title", null));
-            String resolvedImage = normalize(object.optString("imageUrl", null));
-            if (TextUtils.isEmpty(resolvedListingId)) {
-                resolvedListingId = listingId;
-            }
-            return new ListingContext(resolvedListingId, resolvedTitle, resolvedImage);
-        } catch (JSONException e) {
+        Entry entry = state.lookup(buildKey(userId, listingId));
+        if (entry == null || !entry.hasContext) {
             return null;
         }
+        String resolvedListingId = !TextUtils.isEmpty(entry.listingId) ? entry.listingId : listingId;
+        return new ListingContext(resolvedListingId, entry.title, entry.imageUrl);
     }
 
-    private String buildKey(String userId, @Nullable String listingId) {
+    private static String buildKey(String userId, @Nullable String listingId) {
         String resolvedListingId = !TextUtils.isEmpty(listingId) ? listingId : "direct";
         return String.format(Locale.US, KEY_TEMPLATE, userId, resolvedListingId);
     }
 
     @Nullable
-    private String normalize(@Nullable String value) {
+    private static String normalize(@Nullable String value) {
         if (TextUtils.isEmpty(value)) {
             return null;
         }
@@ -180,4 +168,286 @@ public class ConversationMetadataStore {
             this.imageUrl = imageUrl;
         }
     }
+
+    private interface Mutation {
+        void apply(@NonNull Entry entry);
+    }
+
+    /**
+     * Everything stored for one conversation. A row can hold listing context, flags, or both.
+     */
+    private static final class Entry {
+        boolean hasContext;
+        String listingId;
+        String title;
+        String imageUrl;
+        boolean archived;
+        boolean blocked;
+
+        Entry copy() {
+            Entry copy = new Entry();
+            copy.hasContext = hasContext;
+            copy.listingId = listingId;
+            copy.title = title;
+            copy.imageUrl = imageUrl;
+            copy.archived = archived;
+            copy.blocked = blocked;
+            return copy;
+        }
+
+        boolean isEmpty() {
+            return !hasContext && !archived && !blocked;
+        }
+    }
+
+    /**
+     * Cache and database shared by all instances. The cache is guarded by its own lock; the
+     * database is only touched on the store's thread.
+     */
+    private static final class Shared {
+        private final Helper helper;
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+        private final Map<String, Entry> cache = new HashMap<>();
+        // Changes made before the cache was filled, replayed over the stored rows once it is.
+        private final Map<String, List<Mutation>> pending = new LinkedHashMap<>();
+        private final List<Runnable> loadedCallbacks = new ArrayList<>();
+        private final Map<String, Entry> dirty = new LinkedHashMap<>();
+        private boolean loaded = false;
+        private boolean flushScheduled = false;
+
+        private Shared(@NonNull Context context) {
+            this.helper = new Helper(context);
+            executor.execute(this::loadAll);
+        }
+
+        static synchronized Shared get(@NonNull Context context) {
+            if (shared == null) {
+                shared = new Shared(context);
+            }
+            return shared;
+        }
+
+        /** The cached entry, or null when there is none or the cache is not filled yet. */
+        @Nullable
+        Entry lookup(@NonNull String key) {
+            synchronized (cache) {
+                return cache.get(key);
+            }
+        }
+
+        void update(@NonNull String key, @NonNull Mutation mutation) {
+            synchronized (cache) {
+                // Read under the lock so concurrent updates of one key apply on top of each other.
+                Entry current = cache.get(key);
+                Entry entry = current != null ? current.copy() : new Entry();
+                mutation.apply(entry);
+                cache.put(key, entry);
+                if (!loaded) {
+                    // The stored row is not known yet; loadAll() writes the result once it is.
+                    List<Mutation> mutations = pending.get(key);
+                    if (mutations == null) {
+                        mutations = new ArrayList<>();
+                        pending.put(key, mutations);
+                    }
+                    mutations.add(mutation);
+                    return;
+                }
+                markDirty(key, entry);
+            }
+        }
+
+        @MainThread
+        void whenLoaded(@NonNull Runnable callback) {
+            synchronized (cache) {
+                if (!loaded) {
+                    loadedCallbacks.add(callback);
+                    return;
+                }
+            }
+            mainHandler.post(callback);
+        }
+
+        private void markDirty(@NonNull String key, @NonNull Entry entry) {
+            dirty.put(key, entry);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                executor.schedule(this::flush, FLUSH_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        @WorkerThread
+        private void loadAll() {
+            Map<String, Entry> rows = new HashMap<>();
+            try (Cursor cursor = helper.getReadableDatabase().query(Helper.TABLE, Helper.COLUMNS,
+                    null, null, null, null, null)) {
+                while (cursor.moveToNext()) {
+                    rows.put(cursor.getString(0), readEntry(cursor));
+                }
+            } catch (SQLiteException e) {
+                // Carry on without stored rows so reads and writes keep working in this session.
+                Log.w(TAG, "Failed to load conversation metadata", e);
+            }
+            List<Runnable> callbacks;
+            synchronized (cache) {
+                cache.putAll(rows);
+                for (Map.Entry<String, List<Mutation>> changes : pending.entrySet()) {
+                    Entry stored = rows.get(changes.getKey());
+                    Entry entry = stored != null ? stored.copy() : new Entry();
+                    for (Mutation mutation : changes.getValue()) {
+                        mutation.apply(entry);
+                    }
+                    cache.put(changes.getKey(), entry);
+                    markDirty(changes.getKey(), entry);
+                }
+                pending.clear();
+                loaded = true;
+                callbacks = new ArrayList<>(loadedCallbacks);
+                loadedCallbacks.clear();
+            }
+            for (Runnable callback : callbacks) {
+                mainHandler.post(callback);
+            }
+        }
+
+        @WorkerThread
+        private void flush() {
+            Map<String, Entry> batch;
+            synchronized (cache) {
+                batch = new LinkedHashMap<>(dirty);
+                dirty.clear();
+                flushScheduled = false;
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                SQLiteDatabase db = helper.getWritableDatabase();
+                db.beginTransaction();
+                try {
+                    for (Map.Entry<String, Entry> change : batch.entrySet()) {
+                        write(db, change.getKey(), change.getValue());
+                    }
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (SQLiteException e) {
+                Log.w(TAG, "Failed to write " + batch.size() + " conversation metadata changes", e);
+            }
+        }
+
+        private static Entry readEntry(@NonNull Cursor cursor) {
+            Entry entry = new Entry();
+            entry.hasContext = cursor.getInt(1) != 0;
+            entry.listingId = cursor.getString(2);
+            entry.title = cursor.getString(3);
+            entry.imageUrl = cursor.getString(4);
+            entry.archived = cursor.getInt(5) != 0;
+            entry.blocked = cursor.getInt(6) != 0;
+            return entry;
+        }
+
+        static void write(@NonNull SQLiteDatabase db, @NonNull String key, @NonNull Entry entry) {
+            if (entry.isEmpty()) {
+                db.delete(Helper.TABLE, "key = ?", new String[]{key});
+                return;
+            }
+            ContentValues values = new ContentValues();
+            values.put("key", key);
+            values.put("has_context", entry.hasContext ? 1 : 0);
+            values.put("listing_id", entry.listingId);
+            values.put("title", entry.title);
+            values.put("image_url", entry.imageUrl);
+            values.put("archived", entry.archived ? 1 : 0);
+            values.put("blocked", entry.blocked ? 1 : 0);
+            db.insertWithOnConflict(Helper.TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        }
+    }
+
+    private static final class Helper extends SQLiteOpenHelper {
+        static final String TABLE = "conversation_metadata";
+        static final String[] COLUMNS = {
+            "key", "has_context", "listing_id", "title", "image_url", "archived", "blocked"
+        };
+
+        private final Context context;
+
+        Helper(Context context) {
+            super(context, DB_NAME, null, DB_VERSION);
+            this.context = context;
+            setWriteAheadLoggingEnabled(true);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + TABLE + " ("
+                + "key TEXT PRIMARY KEY NOT NULL, "
+                + "has_context INTEGER NOT NULL DEFAULT 0, "
+                + "listing_id TEXT, "
+                + "title TEXT, "
+                + "image_url TEXT, "
+                + "archived INTEGER NOT NULL DEFAULT 0, "
+                + "blocked INTEGER NOT NULL DEFAULT 0) WITHOUT ROWID");
+            importLegacyPreferences(db);
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // No upgrades yet; archived and blocked flags must not be dropped when one is added.
+        }
+
+        /**
+         * Moves what the SharedPreferences-based store kept into the new table, then clears it.
+         */
+        private void importLegacyPreferences(@NonNull SQLiteDatabase db) {
+            SharedPreferences prefs = context.getSharedPreferences(LEGACY_PREFS, Context.MODE_PRIVATE);
+            Map<String, ?> legacy = prefs.getAll();
+            if (legacy.isEmpty()) {
+                return;
+            }
+            Map<String, Entry> entries = new HashMap<>();
+            for (Map.Entry<String, ?> pref : legacy.entrySet()) {
+                String key = pref.getKey();
+                Object value = pref.getValue();
+                if (LEGACY_KEY_ARCHIVED.equals(key) || LEGACY_KEY_BLOCKED.equals(key)) {
+                    if (!(value instanceof Set)) {
+                        continue;
+                    }
+                    for (Object conversationKey : (Set<?>) value) {
+                        Entry entry = entryFor(entries, String.valueOf(conversationKey));
+                        if (LEGACY_KEY_ARCHIVED.equals(key)) {
+                            entry.archived = true;
+                        } else {
+                            entry.blocked = true;
+                        }
+                    }
+                } else if (value instanceof String) {
+                    try {
+                        JSONObject object = new JSONObject((String) value);
+                        Entry entry = entryFor(entries, key);
+                        entry.hasContext = true;
+                        entry.listingId = normalize(object.optString("listingId", null));
+                        entry.title = normalize(object.optString("title", null));
+                        entry.imageUrl = normalize(object.optString("imageUrl", null));
+                    } catch (JSONException e) {
+                        Log.w(TAG, "Skipping unreadable conversation metadata for " + key);
+                    }
+                }
+            }
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                Shared.write(db, entry.getKey(), entry.getValue());
+            }
+            prefs.edit().clear().apply();
+        }
+
+        private static Entry entryFor(@NonNull Map<String, Entry> entries, @NonNull String key) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+            }
+            return entry;
+        }
+    }
 }
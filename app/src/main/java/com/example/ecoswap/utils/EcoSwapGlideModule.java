@@ -0,0 +1,35 @@
+package com.example.ecoswap.utils;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.Registry;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.integration.okhttp3.OkHttpUrlLoader;
+import com.bumptech.glide.load.model.GlideUrl;
+import com.bumptech.glide.module.AppGlideModule;
+
+import java.io.InputStream;
+
+/**
+ * Routes Glide's network loads through the Supabase OkHttp connection pool and dispatcher.
+ */
+@GlideModule
+public final class EcoSwapGlideModule extends AppGlideModule {
+
+    @Override
+    public void registerComponents(@NonNull Context context, @NonNull Glide glide, @NonNull Registry registry) {
+        registry.replace(
+            GlideUrl.class,
+            InputStream.class,
+            new OkHttpUrlLoader.Factory(SupabaseClient.getInstance(context).newImageCallFactory())
+        );
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
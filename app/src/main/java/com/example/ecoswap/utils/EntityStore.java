@@ -0,0 +1,487 @@
+package com.example.ecoswap.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * On-device copy of the rows screens have already shown, so they can render straight away and
+ * reconcile once the network answers (stale-while-revalidate).
+ *
+ * Rows are stored normalized: one entry per (table, id), and embedded resources such as a post's
+ * profile or a chat's sender are split out into their own tables. Writing a row merges its columns
+ * into what is already stored, so a profile fetched on one screen updates every screen that shows
+ * it. A collection remembers which rows one query returned, in order; reading it back re-embeds
+ * the related rows under the same keys PostgREST used, so the usual row mappers work unchanged.
+ *
+ * Methods marked {@link WorkerThread} touch the database directly. The others queue the work on
+ * the store's own thread and deliver results on the main thread.
+ */
+public final class EntityStore {
+
+    private static final String TAG = "EntityStore";
+    private static final String DB_NAME = "entity_store.db";
+    private static final int DB_VERSION = 1;
+    private static final long MAX_AGE_MS = 30L * 24L * 60L * 60L * 1000L;
+    private static final int MAX_EMBED_DEPTH = 2;
+
+    private static final Map<String, List<Relation>> RELATIONS = new HashMap<>();
+
+    static {
+        relation("posts", "profiles", "profiles", "user_id");
+        relation("chats", "sender", "profiles", "sender_id");
+        relation("chats", "receiver", "profiles", "receiver_id");
+        relation("chats", "listing", "posts", "listing_id");
+        relation("conversations", "counterpart", "profiles", "counterpart_id");
+        relation("conversations", "listing", "posts", "listing_id");
+        relation("swaps", "post1", "posts", "post1_id");
+        relation("swaps", "post2", "posts", "post2_id");
+        relation("donations", "post", "posts", "post_id");
+    }
+
+    private static EntityStore instance;
+
+    private final Helper helper;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Receives the rows of a collection or entity on the main thread; null when nothing is stored.
+     */
+    public interface OnLoadedCallback {
+        void onLoaded(@Nullable JSONArray rows);
+    }
+
+    private EntityStore(@NonNull Context context) {
+        this.helper = new Helper(context.getApplicationContext());
+        executor.execute(this::prune);
+    }
+
+    public static synchronized EntityStore getInstance(@Nullable Context context) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+        if (instance == null) {
+            instance = new EntityStore(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Registers {@code embedKey} on rows of {@code table} as an embedded row of
+     * {@code targetTable} whose id is the row's {@code foreignKey} column.
+     */
+    private static void relation(String table, String embedKey, String targetTable, String foreignKey) {
+        List<Relation> relations = RELATIONS.get(table);
+        if (relations == null) {
+            relations = new ArrayList<>();
+            RELATIONS.put(table, relations);
+        }
+        relations.add(new Relation(embedKey, targetTable, foreignKey));
+    }
+
+    // ========== Main-thread API ==========
+
+    @MainThread
+    public void loadCollection(@NonNull String key, @NonNull OnLoadedCallback callback) {
+        executor.execute(() -> {
+            JSONArray rows = getCollection(key);
+            mainHandler.post(() -> callback.onLoaded(rows));
+        });
+    }
+
+    @MainThread
+    public void load(@NonNull String table, @NonNull String id, @NonNull OnLoadedCallback callback) {
+        executor.execute(() -> {
+            JSONObject row = get(table, id);
+            JSONArray rows = row != null ? new JSONArray().put(row) : null;
+            mainHandler.post(() -> callback.onLoaded(rows));
+        });
+    }
+
+    /**
+     * Stores a PostgREST response body as the contents of {@code key}.
+     */
+    public void saveCollection(@NonNull String key, @NonNull String table, @Nullable Object data) {
+        if (data == null) {
+            return;
+        }
+        String body = data.toString();
+        executor.execute(() -> {
+            try {
+                putCollection(key, table, new JSONArray(body));
+            } catch (JSONException e) {
+                Log.w(TAG, "Not storing unparseable rows for " + key);
+            }
+        });
+    }
+
+    /**
+     * Merges the rows of a PostgREST response body into {@code table}.
+     */
+    public void save(@NonNull String table, @Nullable Object data) {
+        if (data == null) {
+            return;
+        }
+        String body = data.toString();
+        executor.execute(() -> {
+            try {
+                upsert(table, new JSONArray(body));
+            } catch (JSONException e) {
+                Log.w(TAG, "Not storing unparseable rows for " + table);
+            }
+        });
+    }
+
+    public void remove(@NonNull String table, @NonNull Collection<String> ids) {
+        List<String> copy = new ArrayList<>(ids);
+        executor.execute(() -> delete(table, copy));
+    }
+
+    /**
+     * Forgets everything, e.g. when the user signs out.
+     */
+    public void clear() {
+        executor.execute(() -> {
+            try {
+                SQLiteDatabase db = helper.getWritableDatabase();
+                db.beginTransaction();
+                try {
+                    db.delete(Helper.TABLE_ENTITIES, null, null);
+                    db.delete(Helper.TABLE_COLLECTIONS, null, null);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+            } catch (SQLiteException e) {
+                Log.w(TAG, "Failed to clear entity store", e);
+            }
+        });
+    }
+
+    // ========== Direct access ==========
+
+    /**
+     * Returns the rows last stored under {@code key} with their embedded rows re-attached, or null
+     * if the collection was never stored.
+     */
+    @WorkerThread
+    @Nullable
+    public JSONArray getCollection(@NonNull String key) {
+        try {
+            SQLiteDatabase db = helper.getReadableDatabase();
+            String table;
+            JSONArray ids;
+            try (Cursor cursor = db.query(Helper.TABLE_COLLECTIONS, new String[]{"type", "ids"},
+                    "key = ?", new String[]{key}, null, null, null)) {
+                if (!cursor.moveToFirst()) {
+                    return null;
+                }
+                table = cursor.getString(0);
+                ids = new JSONArray(cursor.getString(1));
+            }
+            Map<String, JSONObject> loaded = new HashMap<>();
+            JSONArray rows = new JSONArray();
+            for (int i = 0; i < ids.length(); i++) {
+                JSONObject row = assemble(db, table, ids.optString(i), 0, loaded);
+                if (row != null) {
+                    rows.put(row);
+                }
+            }
+            return rows;
+        } catch (SQLiteException | JSONException e) {
+            Log.w(TAG, "Failed to read collection " + key, e);
+            return null;
+        }
+    }
+
+    @WorkerThread
+    @Nullable
+    public JSONObject get(@NonNull String table, @NonNull String id) {
+        try {
+            return assemble(helper.getReadableDatabase(), table, id, 0, new HashMap<>());
+        } catch (SQLiteException | JSONException e) {
+            Log.w(TAG, "Failed to read " + table + "/" + id, e);
+            return null;
+        }
+    }
+
+    /**
+     * Merges {@code rows} into the store and records their ids, in order, as the contents of
+     * {@code key}. Rows without an id are not stored.
+     */
+    @WorkerThread
+    public void putCollection(@NonNull String key, @NonNull String table, @NonNull JSONArray rows) {
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            long now = System.currentTimeMillis();
+            db.beginTransaction();
+            try {
+                JSONArray ids = new JSONArray();
+                for (int i = 0; i < rows.length(); i++) {
+                    JSONObject row = rows.optJSONObject(i);
+                    String id = row != null ? writeRow(db, table, row, now) : null;
+                    if (id != null) {
+                        ids.put(id);
+                    }
+                }
+                ContentValues values = new ContentValues();
+                values.put("key", key);
+                values.put("type", table);
+                values.put("ids", ids.toString());
+                values.put("updated_at", now);
+                db.insertWithOnConflict(Helper.TABLE_COLLECTIONS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLiteException | JSONException e) {
+            Log.w(TAG, "Failed to store collection " + key, e);
+        }
+    }
+
+    @WorkerThread
+    public void upsert(@NonNull String table, @NonNull JSONArray rows) {
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            long now = System.currentTimeMillis();
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < rows.length(); i++) {
+                    JSONObject row = rows.optJSONObject(i);
+                    if (row != null) {
+                        writeRow(db, table, row, now);
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLiteException | JSONException e) {
+            Log.w(TAG, "Failed to store rows of " + table, e);
+        }
+    }
+
+    @WorkerThread
+    public void delete(@NonNull String table, @NonNull Collection<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (String id : ids) {
+                    db.delete(Helper.TABLE_ENTITIES, "type = ? AND id = ?", new String[]{table, id});
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Failed to delete rows of " + table, e);
+        }
+    }
+
+    // ========== Normalization ==========
+
+    /**
+     * Splits embedded rows out of {@code row}, merges everything into the entities table and
+     * returns the row's id, or null if it has none.
+     */
+    @Nullable
+    private String writeRow(SQLiteDatabase db, String table, JSONObject row, long now) throws JSONException {
+        String id = idOf(row);
+        if (id == null) {
+            return null;
+        }
+        JSONObject own = new JSONObject();
+        List<Relation> relations = RELATIONS.get(table);
+        Iterator<String> keys = row.keys();
+        while (keys.hasNext()) {
+            String column = keys.next();
+            Relation relation = find(relations, column);
+            Object value = row.get(column);
+            if (relation == null) {
+                own.put(column, value);
+                continue;
+            }
+            if (value instanceof JSONObject) {
+                JSONObject embedded = new JSONObject(value.toString());
+                if (idOf(embedded) == null && !row.isNull(relation.foreignKey)) {
+                    embedded.put("id", row.optString(relation.foreignKey));
+                }
+                String embeddedId = writeRow(db, relation.targetTable, embedded, now);
+                if (embeddedId != null && !row.has(relation.foreignKey)) {
+                    own.put(relation.foreignKey, embeddedId);
+                }
+            }
+        }
+
+        JSONObject merged = readOwn(db, table, id);
+        if (merged == null) {
+            merged = own;
+        } else {
+            Iterator<String> ownKeys = own.keys();
+            while (ownKeys.hasNext()) {
+                String column = ownKeys.next();
+                merged.put(column, own.get(column));
+            }
+        }
+        ContentValues values = new ContentValues();
+        values.put("type", table);
+        values.put("id", id);
+        values.put("data", merged.toString());
+        values.put("updated_at", now);
+        db.insertWithOnConflict(Helper.TABLE_ENTITIES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        return id;
+    }
+
+    /**
+     * Loads one row and re-attaches its embedded rows, at most {@link #MAX_EMBED_DEPTH} levels deep.
+     */
+    @Nullable
+    private JSONObject assemble(SQLiteDatabase db, String table, String id, int depth,
+                                Map<String, JSONObject> loaded) throws JSONException {
+        if (TextUtils.isEmpty(id)) {
+            return null;
+        }
+        String cacheKey = table + "/" + id + "@" + depth;
+        if (loaded.containsKey(cacheKey)) {
+            JSONObject cached = loaded.get(cacheKey);
+            return cached != null ? new JSONObject(cached.toString()) : null;
+        }
+        JSONObject row = readOwn(db, table, id);
+        if (row != null && depth < MAX_EMBED_DEPTH) {
+            for (Relation relation : relationsOf(table)) {
+                if (row.isNull(relation.foreignKey)) {
+                    continue;
+                }
+                JSONObject embedded = assemble(db, relation.targetTable, row.optString(relation.foreignKey), depth + 1, loaded);
+                if (embedded != null) {
+                    row.put(relation.embedKey, embedded);
+                }
+            }
+        }
+        loaded.put(cacheKey, row);
+        return row;
+    }
+
+    @Nullable
+    private static JSONObject readOwn(SQLiteDatabase db, String table, String id) throws JSONException {
+        try (Cursor cursor = db.query(Helper.TABLE_ENTITIES, new String[]{"data"},
+                "type = ? AND id = ?", new String[]{table, id}, null, null, null)) {
+            return cursor.moveToFirst() ? new JSONObject(cursor.getString(0)) : null;
+        }
+    }
+
+    @Nullable
+    private static String idOf(JSONObject row) {
+        if (row.isNull("id")) {
+            return null;
+        }
+        String id = row.optString("id");
+        return TextUtils.isEmpty(id) ? null : id;
+    }
+
+    @NonNull
+    private static List<Relation> relationsOf(String table) {
+        List<Relation> relations = RELATIONS.get(table);
+        return relations != null ? relations : Collections.emptyList();
+    }
+
+    @Nullable
+    private static Relation find(@Nullable List<Relation> relations, String embedKey) {
+        if (relations == null) {
+            return null;
+        }
+        for (Relation relation : relations) {
+            if (relation.embedKey.equals(embedKey)) {
+                return relation;
+            }
+        }
+        return null;
+    }
+
+    private void prune() {
+        try {
+            long cutoff = System.currentTimeMillis() - MAX_AGE_MS;
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.delete(Helper.TABLE_ENTITIES, "updated_at < ?", new String[]{String.valueOf(cutoff)});
+            db.delete(Helper.TABLE_COLLECTIONS, "updated_at < ?", new String[]{String.valueOf(cutoff)});
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Failed to prune entity store", e);
+        }
+    }
+
+    private static final class Relation {
+        final String embedKey;
+        final String targetTable;
+        final String foreignKey;
+
+        Relation(String embedKey, String targetTable, String foreignKey) {
+            this.embedKey = embedKey;
+            this.targetTable = targetTable;
+            this.foreignKey = foreignKey;
+        }
+    }
+
+    private static final class Helper extends SQLiteOpenHelper {
+        static final String TABLE_ENTITIES = "entities";
+        static final String TABLE_COLLECTIONS = "collections";
+
+        Helper(Context context) {
+            super(context, DB_NAME, null, DB_VERSION);
+            setWriteAheadLoggingEnabled(true);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + TABLE_ENTITIES + " ("
+                + "type TEXT NOT NULL, "
+                + "id TEXT NOT NULL, "
+                + "data TEXT NOT NULL, "
+                + "updated_at INTEGER NOT NULL, "
+                + "PRIMARY KEY (type, id)) WITHOUT ROWID");
+            db.execSQL("CREATE TABLE " + TABLE_COLLECTIONS + " ("
+                + "key TEXT PRIMARY KEY NOT NULL, "
+                + "type TEXT NOT NULL, "
+                + "ids TEXT NOT NULL, "
+                + "updated_at INTEGER NOT NULL)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // Everything here can be fetched again; start over rather than migrate.
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_ENTITIES);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_COLLECTIONS);
+            onCreate(db);
+        }
+    }
+}
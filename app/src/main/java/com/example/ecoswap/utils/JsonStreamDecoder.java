@@ -0,0 +1,84 @@
+package com.example.ecoswap.utils;
+
+import android.util.JsonReader;
+
+import androidx.annotation.NonNull;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Builds org.json values straight from a streaming {@link JsonReader}, so a streamed row is
+ * parsed once instead of being parsed into a tree, serialized and parsed again.
+ */
+final class JsonStreamDecoder {
+
+    private JsonStreamDecoder() {
+    }
+
+    @NonNull
+    static JSONObject readObject(@NonNull JsonReader reader) throws IOException, JSONException {
+        JSONObject object = new JSONObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            object.put(name, readValue(reader));
+        }
+        reader.endObject();
+        return object;
+    }
+
+    @NonNull
+    static JSONArray readArray(@NonNull JsonReader reader) throws IOException, JSONException {
+        JSONArray array = new JSONArray();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            array.put(readValue(reader));
+        }
+        reader.endArray();
+        return array;
+    }
+
+    @NonNull
+    private static Object readValue(@NonNull JsonReader reader) throws IOException, JSONException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                return readObject(reader);
+            case BEGIN_ARRAY:
+                return readArray(reader);
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NUMBER:
+                return toNumber(reader.nextString());
+            case NULL:
+                reader.nextNull();
+                return JSONObject.NULL;
+            default:
+                return reader.nextString();
+        }
+    }
+
+    /**
+     * Mirrors how org.json types numbers it parses itself: integral values become Integer or Long,
+     * everything else Double, with BigDecimal only for values neither can hold.
+     */
+    @NonNull
+    static Number toNumber(@NonNull String literal) {
+        try {
+            if (literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0) {
+                long value = Long.parseLong(literal);
+                if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                    return (int) value;
+                }
+                return value;
+            }
+            return Double.parseDouble(literal);
+        } catch (NumberFormatException e) {
+            return new BigDecimal(literal);
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.ecoswap.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Full-text index of the chat messages this device has seen, so messages can be searched across
+ * every conversation without a network round trip.
+ *
+ * Messages are added as threads sync and as inbox summaries arrive (which carry each
+ * conversation's last message). They are kept in a plain table keyed by message id, mirrored
+ * into an FTS4 table by triggers; a search is one MATCH query over that index. Rows belong to the
+ * signed-in user, and the index is cleared on sign-out. Messages not seen for
+ * {@link #MAX_AGE_MS} are pruned, and only the newest {@link #MAX_MESSAGES} are kept.
+ *
+ * Writes and searches run on the index's own thread; search results are delivered on the main
+ * thread.
+ */
+public final class MessageSearchIndex {
+
+    private static final String TAG = "MessageSearchIndex";
+    private static final String DB_NAME = "message_search.db";
+    private static final int DB_VERSION = 2;
+    private static final long MAX_AGE_MS = 30L * 24L * 60L * 60L * 1000L;
+    private static final int MAX_MESSAGES = 20_000;
+    // Inserts between size checks, so a long session cannot grow the index without bound.
+    private static final int PRUNE_EVERY_INSERTS = 1_000;
+
+    private static MessageSearchIndex instance;
+
+    private final Context appContext;
+    private final Helper helper;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Only touched on the executor thread.
+    private int insertsSincePrune = 0;
+
+    /**
+     * Receives the messages matching a search, newest first.
+     */
+    public interface OnSearchResults {
+        void onResults(@NonNull String query, @NonNull List<Message> results);
+    }
+
+    private MessageSearchIndex(@NonNull Context context) {
+        this.appContext = context.getApplicationContext();
+        this.helper = new Helper(appContext);
+        executor.execute(this::prune);
+    }
+
+    public static synchronized MessageSearchIndex getInstance(@Nullable Context context) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+        if (instance == null) {
+            instance = new MessageSearchIndex(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Adds or updates messages seen by {@code ownerId}. Messages without an id or body are skipped,
+     * and so is the whole batch once {@code ownerId} is no longer the signed-in user: a load that
+     * finishes after sign-out must not refill the index {@link #clear} emptied.
+     */
+    public void index(@NonNull String ownerId, @NonNull List<Message> messages) {
+        if (TextUtils.isEmpty(ownerId) || messages.isEmpty()) {
+            return;
+        }
+        List<Message> copy = new ArrayList<>(messages);
+        executor.execute(() -> put(ownerId, copy));
+    }
+
+    /**
+     * Searches {@code ownerId}'s messages for every word of {@code query}, each matched as a word
+     * prefix ("bik" finds "bike"). Queries without any word yield no results.
+     */
+    @MainThread
+    public void search(@NonNull String ownerId, @NonNull String query, int limit, @NonNull OnSearchResults callback) {
+        executor.execute(() -> {
+            List<Message> results = find(ownerId, query, limit);
+            mainHandler.post(() -> callback.onResults(query, results));
+        });
+    }
+
+    /**
+     * Forgets every indexed message, e.g. when the user signs out.
+     */
+    public void clear() {
+        executor.execute(() -> {
+            try {
+                helper.getWritableDatabase().delete(Helper.TABLE_MESSAGES, null, null);
+            } catch (SQLiteException e) {
+                Log.w(TAG, "Failed to clear message index", e);
+            }
+        });
+    }
+
+    @WorkerThread
+    private void put(@NonNull String ownerId, @NonNull List<Message> messages) {
+        // Sign-out resets the user before queueing clear(), so a batch that runs after the clear
+        // sees the change.
+        if (!ownerId.equals(SupabaseClient.getInstance(appContext).getCurrentUserId())) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (Message message : messages) {
+                    if (TextUtils.isEmpty(message.id) || TextUtils.isEmpty(message.body)) {
+                        continue;
+                    }
+                    ContentValues values = new ContentValues();
+                    values.put("id", message.id);
+                    values.put("owner_id", ownerId);
+                    values.put("counterpart_id", message.counterpartId);
+                    values.put("listing_id", message.listingId);
+                    values.put("sender_id", message.senderId);
+                    values.put("body", message.body);
+                    values.put("created_at", message.createdAt);
+                    values.put("indexed_at", now);
+                    // An update keeps the rowid, so the FTS triggers re-index the row in place.
+                    int updated = db.update(Helper.TABLE_MESSAGES, values, "id = ?", new String[]{message.id});
+                    if (updated == 0 && db.insert(Helper.TABLE_MESSAGES, null, values) != -1) {
+                        insertsSincePrune++;
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Failed to index " + messages.size() + " messages", e);
+        }
+        if (insertsSincePrune >= PRUNE_EVERY_INSERTS) {
+            prune();
+        }
+    }
+
+    /**
+     * Drops messages not indexed again for {@link #MAX_AGE_MS}, then all but the newest
+     * {@link #MAX_MESSAGES}. The triggers remove them from the FTS index too.
+     */
+    @WorkerThread
+    private void prune() {
+        insertsSincePrune = 0;
+        try {
+            long cutoff = System.currentTimeMillis() - MAX_AGE_MS;
+            SQLiteDatabase db = helper.getWritableDatabase();
+            db.delete(Helper.TABLE_MESSAGES, "indexed_at < ?", new String[]{String.valueOf(cutoff)});
+            db.delete(Helper.TABLE_MESSAGES, "rowid IN (SELECT rowid FROM " + Helper.TABLE_MESSAGES
+                + " ORDER BY created_at DESC LIMIT -1 OFFSET " + MAX_MESSAGES + ")", null);
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Failed to prune message index", e);
+        }
+    }
+
+    @WorkerThread
+    @NonNull
+    private List<Message> find(@NonNull String ownerId, @NonNull String query, int limit) {
+        String match = toMatchExpression(query);
+        if (match == null || TextUtils.isEmpty(ownerId)) {
+            return Collections.emptyList();
+        }
+        List<Message> results = new ArrayList<>();
+        try (Cursor cursor = helper.getReadableDatabase().rawQuery(
+                "SELECT m.id, m.counterpart_id, m.listing_id, m.sender_id, m.body, m.created_at"
+                    + " FROM " + Helper.TABLE_FTS + " f JOIN " + Helper.TABLE_MESSAGES + " m ON m.rowid = f.docid"
+                    + " WHERE " + Helper.TABLE_FTS + " MATCH ? AND m.owner_id = ?"
+                    + " ORDER BY m.created_at DESC LIMIT " + Math.max(1, limit),
+                new String[]{match, ownerId})) {
+            while (cursor.moveToNext()) {
+                results.add(new Message(
+                    cursor.getString(0),
+                    cursor.getString(1),
+                    cursor.getString(2),
+                    cursor.getString(3),
+                    cursor.getString(4),
+                    cursor.getString(5)
+                ));
+            }
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Message search failed", e);
+        }
+        return results;
+    }
+
+    /**
+     * Turns free text into an FTS query: each word becomes a quoted prefix term, so punctuation
+     * and FTS operators typed by the user are matched literally instead of parsed.
+     */
+    @Nullable
+    static String toMatchExpression(@NonNull String query) {
+        StringBuilder match = new StringBuilder();
+        for (String word : query.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(word).append("\"*");
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+
+    /**
+     * One indexed message. {@code counterpartId} and {@code listingId} identify the conversation
+     * it belongs to, as seen by the owner.
+     */
+    public static final class Message {
+        public final String id;
+        public final String counterpartId;
+        @Nullable public final String listingId;
+        public final String senderId;
+        public final String body;
+        @Nullable public final String createdAt;
+
+        public Message(String id, String counterpartId, @Nullable String listingId, String senderId,
+                       String body, @Nullable String createdAt) {
+            this.id = id;
+            this.counterpartId = counterpartId;
+            this.listingId = listingId;
+            this.senderId = senderId;
+            this.body = body;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private static final class Helper extends SQLiteOpenHelper {
+        static final String TABLE_MESSAGES = "messages";
+        static final String TABLE_FTS = "messages_fts";
+
+        Helper(Context context) {
+            super(context, DB_NAME, null, DB_VERSION);
+            setWriteAheadLoggingEnabled(true);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + TABLE_MESSAGES + " ("
+                + "id TEXT NOT NULL UNIQUE, "
+                + "owner_id TEXT NOT NULL, "
+                + "counterpart_id TEXT, "
+                + "listing_id TEXT, "
+                + "sender_id TEXT, "
+                + "body TEXT NOT NULL, "
+                + "created_at TEXT, "
+                + "indexed_at INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX idx_messages_owner_created ON " + TABLE_MESSAGES + "(owner_id, created_at)");
+            db.execSQL("CREATE INDEX idx_messages_indexed ON " + TABLE_MESSAGES + "(indexed_at)");
+            // External-content FTS4: the index holds only tokens; bodies stay in the messages table.
+            db.execSQL("CREATE VIRTUAL TABLE " + TABLE_FTS + " USING fts4("
+                + "content=\"" + TABLE_MESSAGES + "\", body, tokenize=unicode61)");
+            db.execSQL("CREATE TRIGGER messages_bu BEFORE UPDATE ON " + TABLE_MESSAGES + " BEGIN "
+                + "DELETE FROM " + TABLE_FTS + " WHERE docid = old.rowid; END");
+            db.execSQL("CREATE TRIGGER messages_bd BEFORE DELETE ON " + TABLE_MESSAGES + " BEGIN "
+                + "DELETE FROM " + TABLE_FTS + " WHERE docid = old.rowid; END");
+            db.execSQL("CREATE TRIGGER messages_au AFTER UPDATE ON " + TABLE_MESSAGES + " BEGIN "
+                + "INSERT INTO " + TABLE_FTS + "(docid, body) VALUES (new.rowid, new.body); END");
+            db.execSQL("CREATE TRIGGER messages_ai AFTER INSERT ON " + TABLE_MESSAGES + " BEGIN "
+                + "INSERT INTO " + TABLE_FTS + "(docid, body) VALUES (new.rowid, new.body); END");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            // The index is rebuilt as threads sync again; start over rather than migrate.
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_FTS);
+            db.execSQL("DROP TABLE IF EXISTS " + TABLE_MESSAGES);
+            onCreate(db);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.example.ecoswap.utils;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.HttpUrl;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * In-memory latency histograms for Supabase traffic, keyed by endpoint template.
+ *
+ * An OkHttp {@link EventListener} times DNS, connect, TLS, time to first byte (request headers
+ * sent until response headers start) and the whole call. It also counts bytes sent and received.
+ * Templates drop filter operands and path ids, so every call site keeps its own row no matter
+ * which record it asks for:
+ * {@code GET /rest/v1/profiles?id=eq.*&select=location}. Use {@link #snapshotJson()} to export.
+ */
+public final class NetworkMetrics {
+
+    private static final String TAG = "NetworkMetrics";
+    // Upper bounds in milliseconds; the final bucket catches everything slower.
+    private static final long[] BUCKET_BOUNDS_MS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+    private static final int MAX_ENDPOINTS = 200;
+    private static final String OVERFLOW_ENDPOINT = "(other)";
+    private static final Pattern ID_SEGMENT = Pattern.compile(
+        "^([0-9]+|[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12})$"
+    );
+
+    static final String PHASE_DNS = "dns";
+    static final String PHASE_CONNECT = "connect";
+    static final String PHASE_TLS = "tls";
+    static final String PHASE_TTFB = "ttfb";
+    static final String PHASE_TOTAL = "total";
+
+    private final Map<String, EndpointStats> endpoints = new LinkedHashMap<>();
+    private long startedAtMs = System.currentTimeMillis();
+
+    @NonNull
+    EventListener.Factory eventListenerFactory() {
+        return call -> new CallTimer(templateFor(call.request()));
+    }
+
+    /**
+     * JSON snapshot of every endpoint seen since the last reset, slowest mean total first.
+     */
+    @NonNull
+    public synchronized JSONObject snapshot() {
+        JSONObject root = new JSONObject();
+        try {
+            root.put("since_epoch_ms", startedAtMs);
+            root.put("taken_at_epoch_ms", System.currentTimeMillis());
+            List<Map.Entry<String, EndpointStats>> sorted = new ArrayList<>(endpoints.entrySet());
+            Collections.sort(sorted, (a, b) -> Double.compare(
+                b.getValue().phase(PHASE_TOTAL).meanMs(),
+                a.getValue().phase(PHASE_TOTAL).meanMs()
+            ));
+            JSONObject endpointsJson = new JSONObject();
+            for (Map.Entry<String, EndpointStats> entry : sorted) {
+                endpointsJson.put(entry.getKey(), entry.getValue().toJson());
+            }
+            root.put("endpoints", endpointsJson);
+        } catch (JSONException e) {
+            Log.w(TAG, "Unable to build metrics snapshot", e);
+        }
+        return root;
+    }
+
+    @NonNull
+    public String snapshotJson() {
+        return snapshot().toString();
+    }
+
+    public synchronized void reset() {
+        endpoints.clear();
+        startedAtMs = System.currentTimeMillis();
+    }
+
+    private synchronized void record(@NonNull String endpoint, @NonNull CallTimer timer, boolean failed) {
+        EndpointStats stats = endpoints.get(endpoint);
+        if (stats == null) {
+            if (endpoints.size() >= MAX_ENDPOINTS) {
+                endpoint = OVERFLOW_ENDPOINT;
+                stats = endpoints.get(endpoint);
+            }
+            if (stats == null) {
+                stats = new EndpointStats();
+                endpoints.put(endpoint, stats);
+            }
+        }
+        stats.calls++;
+        if (failed) {
+            stats.failures++;
+        }
+        if (timer.cacheHit) {
+            stats.cacheHits++;
+        }
+        stats.bytesOut += timer.bytesOut;
+        stats.bytesIn += timer.bytesIn;
+        stats.recordPhase(PHASE_DNS, timer.dnsStartMs, timer.dnsEndMs);
+        stats.recordPhase(PHASE_CONNECT, timer.connectStartMs, timer.connectEndMs);
+        stats.recordPhase(PHASE_TLS, timer.tlsStartMs, timer.tlsEndMs);
+        stats.recordPhase(PHASE_TTFB, timer.requestStartMs, timer.responseStartMs);
+        stats.recordPhase(PHASE_TOTAL, timer.callStartMs, timer.callEndMs);
+    }
+
+    /**
+     * Method plus path and query with ids and filter operands replaced by "*". The select, order
+     * and limit values are kept because they tell call sites on the same table apart.
+     */
+    @NonNull
+    static String templateFor(@NonNull Request request) {
+        HttpUrl url = request.url();
+        StringBuilder template = new StringBuilder(request.method()).append(' ');
+        List<String> segments = url.pathSegments();
+        boolean storageObject = segments.size() > 3 && "storage".equals(segments.get(0));
+        for (int i = 0; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            template.append('/');
+            if (storageObject && i > 3) {
+                // /storage/v1/object/<bucket>/<user path...>
+                template.append('*');
+                break;
+            }
+            template.append(ID_SEGMENT.matcher(segment).matches() ? "*" : segment);
+        }
+        List<String> names = new ArrayList<>(url.queryParameterNames());
+        Collections.sort(names);
+        char separator = '?';
+        for (String name : names) {
+            template.append(separator).append(name).append('=').append(templateValue(name, url.queryParameter(name)));
+            separator = '&';
+        }
+        return template.toString();
+    }
+
+    private static String templateValue(@NonNull String name, @Nullable String value) {
+        if (value == null) {
+            return "";
+        }
+        switch (name) {
+            case "select":
+            case "order":
+            case "limit":
+            case "on_conflict":
+            case "columns":
+                return value;
+            case "or":
+            case "and":
+                return "*";
+            default:
+                int dot = value.indexOf('.');
+                return dot > 0 ? value.substring(0, dot) + ".*" : "*";
+        }
+    }
+
+    private static final class EndpointStats {
+        long calls;
+        long failures;
+        long cacheHits;
+        long bytesOut;
+        long bytesIn;
+        final Map<String, Histogram> phases = new LinkedHashMap<>();
+
+        EndpointStats() {
+            for (String phase : new String[]{PHASE_DNS, PHASE_CONNECT, PHASE_TLS, PHASE_TTFB, PHASE_TOTAL}) {
+                phases.put(phase, new Histogram());
+            }
+        }
+
+        Histogram phase(String name) {
+            return phases.get(name);
+        }
+
+        void recordPhase(String name, long startMs, long endMs) {
+            if (startMs > 0 && endMs >= startMs) {
+                phases.get(name).record(endMs - startMs);
+            }
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("calls", calls);
+            json.put("failures", failures);
+            json.put("cache_hits", cacheHits);
+            json.put("bytes_out", bytesOut);
+            json.put("bytes_in", bytesIn);
+            JSONObject phasesJson = new JSONObject();
+            for (Map.Entry<String, Histogram> entry : phases.entrySet()) {
+                if (entry.getValue().count > 0) {
+                    phasesJson.put(entry.getKey(), entry.getValue().toJson());
+                }
+            }
+            json.put("phases_ms", phasesJson);
+            return json;
+        }
+    }
+
+    private static final class Histogram {
+        final long[] buckets = new long[BUCKET_BOUNDS_MS.length + 1];
+        long count;
+        long sumMs;
+        long minMs = Long.MAX_VALUE;
+        long maxMs;
+
+        void record(long valueMs) {
+            int index = 0;
+            while (index < BUCKET_BOUNDS_MS.length && valueMs > BUCKET_BOUNDS_MS[index]) {
+                index++;
+            }
+            buckets[index]++;
+            count++;
+            sumMs += valueMs;
+            minMs = Math.min(minMs, valueMs);
+            maxMs = Math.max(maxMs, valueMs);
+        }
+
+        double meanMs() {
+            return count == 0 ? 0d : (double) sumMs / count;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile, capped at the observed maximum.
+         */
+        long quantileMs(double quantile) {
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return i < BUCKET_BOUNDS_MS.length ? Math.min(BUCKET_BOUNDS_MS[i], maxMs) : maxMs;
+                }
+            }
+            return maxMs;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject json = new JSONObject();
+            json.put("count", count);
+            json.put("mean", Math.round(meanMs() * 10d) / 10d);
+            json.put("min", minMs);
+            json.put("max", maxMs);
+            json.put("p50", quantileMs(0.50));
+            json.put("p90", quantileMs(0.90));
+            json.put("p99", quantileMs(0.99));
+            JSONObject bucketsJson = new JSONObject();
+            for (int i = 0; i < buckets.length; i++) {
+                if (buckets[i] == 0) {
+                    continue;
+                }
+                String label = i < BUCKET_BOUNDS_MS.length
+                    ? String.format(Locale.US, "le_%d", BUCKET_BOUNDS_MS[i])
+                    : "gt_" + BUCKET_BOUNDS_MS[BUCKET_BOUNDS_MS.length - 1];
+                bucketsJson.put(label, buckets[i]);
+            }
+            json.put("buckets", bucketsJson);
+            return json;
+        }
+    }
+
+    /**
+     * Per-call listener. OkHttp creates one for every call and invokes it from a single thread at
+     * a time, so the fields need no locking until the result is recorded.
+     */
+    private final class CallTimer extends EventListener {
+        private final String endpoint;
+        long callStartMs;
+        long callEndMs;
+        long dnsStartMs;
+        long dnsEndMs;
+        long connectStartMs;
+        long connectEndMs;
+        long tlsStartMs;
+        long tlsEndMs;
+        long requestStartMs;
+        long responseStartMs;
+        long bytesOut;
+        long bytesIn;
+        boolean cacheHit;
+
+        CallTimer(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        private long now() {
+            return SystemClock.elapsedRealtime();
+        }
+
+        @Override
+        public void callStart(@NonNull Call call) {
+            callStartMs = now();
+        }
+
+        @Override
+        public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+            dnsStartMs = now();
+        }
+
+        @Override
+        public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> inetAddressList) {
+            dnsEndMs = now();
+        }
+
+        @Override
+        public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy) {
+            connectStartMs = now();
+        }
+
+        @Override
+        public void secureConnectStart(@NonNull Call call) {
+            tlsStartMs = now();
+        }
+
+        @Override
+        public void secureConnectEnd(@NonNull Call call, @Nullable Handshake handshake) {
+            tlsEndMs = now();
+        }
+
+        @Override
+        public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                               @NonNull Proxy proxy, @Nullable Protocol protocol) {
+            connectEndMs = now();
+        }
+
+        @Override
+        public void requestHeadersStart(@NonNull Call call) {
+            if (requestStartMs == 0) {
+                requestStartMs = now();
+            }
+        }
+
+        @Override
+        public void requestHeadersEnd(@NonNull Call call, @NonNull Request request) {
+            bytesOut += request.headers().byteCount();
+        }
+
+        @Override
+        public void requestBodyEnd(@NonNull Call call, long byteCount) {
+            bytesOut += byteCount;
+        }
+
+        @Override
+        public void responseHeadersStart(@NonNull Call call) {
+            if (responseStartMs == 0) {
+                responseStartMs = now();
+            }
+        }
+
+        @Override
+        public void responseHeadersEnd(@NonNull Call call, @NonNull Response response) {
+            bytesIn += response.headers().byteCount();
+        }
+
+        @Override
+        public void responseBodyEnd(@NonNull Call call, long byteCount) {
+            bytesIn += byteCount;
+        }
+
+        @Override
+        public void cacheHit(@NonNull Call call, @NonNull Response cachedResponse) {
+            cacheHit = true;
+        }
+
+        @Override
+        public void callEnd(@NonNull Call call) {
+            callEndMs = now();
+            record(endpoint, this, false);
+        }
+
+        @Override
+        public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+            callEndMs = now();
+            record(endpoint, this, true);
+        }
+    }
+}
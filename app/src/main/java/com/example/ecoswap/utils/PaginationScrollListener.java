@@ -0,0 +1,70 @@
+package com.example.ecoswap.utils;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.StaggeredGridLayoutManager;
+
+/**
+ * Requests the next page of a keyset-paginated list when the user scrolls close to its end.
+ * Works with {@link LinearLayoutManager} (including GridLayoutManager) and
+ * {@link StaggeredGridLayoutManager}.
+ *
+ * A list that does not fill the screen never scrolls, so screens call {@link #onItemsChanged}
+ * after showing a page; it loads the next page right away while the end is already visible.
+ */
+public class PaginationScrollListener extends RecyclerView.OnScrollListener {
+
+    private static final int DEFAULT_PREFETCH_DISTANCE = 5;
+
+    public interface Pager {
+        /** True when a next page exists and no page is currently loading. */
+        boolean canLoadMore();
+        void loadMore();
+    }
+
+    private final Pager pager;
+    private final int prefetchDistance;
+
+    public PaginationScrollListener(@NonNull Pager pager) {
+        this(pager, DEFAULT_PREFETCH_DISTANCE);
+    }
+
+    public PaginationScrollListener(@NonNull Pager pager, int prefetchDistance) {
+        this.pager = pager;
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy <= 0) {
+            return;
+        }
+        loadMoreIfNearEnd(recyclerView);
+    }
+
+    /**
+     * Checks, once the new items are laid out, whether the end of the list is already in view.
+     */
+    public void onItemsChanged(@NonNull RecyclerView recyclerView) {
+        recyclerView.post(() -> loadMoreIfNearEnd(recyclerView));
+    }
+
+    private void loadMoreIfNearEnd(@NonNull RecyclerView recyclerView) {
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        int lastVisible;
+        if (layoutManager instanceof LinearLayoutManager) {
+            lastVisible = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+        } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+            lastVisible = RecyclerView.NO_POSITION;
+            for (int position : ((StaggeredGridLayoutManager) layoutManager).findLastVisibleItemPositions(null)) {
+                lastVisible = Math.max(lastVisible, position);
+            }
+        } else {
+            return;
+        }
+        if (lastVisible >= layoutManager.getItemCount() - prefetchDistance && pager.canLoadMore()) {
+            pager.loadMore();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.ecoswap.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One shared clock for every screen that still polls Supabase.
+ *
+ * Each {@link Poller} has its own interval that adapts to what it sees: the screen calls
+ * {@link Poller#markActive()} when a poll found something new (the interval drops back to its
+ * minimum) and {@link Poller#markIdle()} when it found nothing (the interval doubles, up to the
+ * maximum). Pollers only run while their lifecycle owner is started, so they pause with the
+ * screen and with the whole app in the background, and a poller that comes back after its
+ * interval has passed polls right away.
+ *
+ * All pollers share a single timer. When it fires, every poller due within a short alignment
+ * window runs in the same tick, so several screens wake the radio once instead of each on its own
+ * schedule.
+ */
+@MainThread
+public final class PollingScheduler {
+
+    private static final long MAX_ALIGN_WINDOW_MS = 5_000L;
+
+    private static PollingScheduler instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<Poller> pollers = new ArrayList<>();
+    private final Runnable tick = this::tick;
+
+    private PollingScheduler() {
+    }
+
+    @NonNull
+    public static synchronized PollingScheduler getInstance() {
+        if (instance == null) {
+            instance = new PollingScheduler();
+        }
+        return instance;
+    }
+
+    /**
+     * Registers a poll that runs while {@code owner} is started and is removed when it is
+     * destroyed. The screen is assumed to have just loaded, so the first poll comes after
+     * {@code minIntervalMs}.
+     */
+    @NonNull
+    public Poller register(@NonNull LifecycleOwner owner, long minIntervalMs, long maxIntervalMs,
+                           @NonNull Runnable task) {
+        if (minIntervalMs <= 0 || maxIntervalMs < minIntervalMs) {
+            throw new IllegalArgumentException("Invalid polling interval " + minIntervalMs + ".." + maxIntervalMs);
+        }
+        Poller poller = new Poller(minIntervalMs, maxIntervalMs, task);
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            return poller;
+        }
+        pollers.add(poller);
+        lifecycle.addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onStart(@NonNull LifecycleOwner source) {
+                poller.started = true;
+                // Someone is looking at the screen again; start from the fast interval.
+                poller.intervalMs = poller.minIntervalMs;
+                reschedule();
+            }
+
+            @Override
+            public void onStop(@NonNull LifecycleOwner source) {
+                poller.started = false;
+                reschedule();
+            }
+
+            @Override
+            public void onDestroy(@NonNull LifecycleOwner source) {
+                source.getLifecycle().removeObserver(this);
+                pollers.remove(poller);
+                reschedule();
+            }
+        });
+        return poller;
+    }
+
+    private void tick() {
+        long now = SystemClock.elapsedRealtime();
+        List<Poller> due = new ArrayList<>();
+        for (Poller poller : pollers) {
+            if (poller.isRunnable() && poller.nextDueAt() <= now + poller.alignWindowMs()) {
+                due.add(poller);
+            }
+        }
+        for (Poller poller : due) {
+            poller.run(now);
+        }
+        reschedule();
+    }
+
+    private void reschedule() {
+        handler.removeCallbacks(tick);
+        long earliest = Long.MAX_VALUE;
+        for (Poller poller : pollers) {
+            if (poller.isRunnable()) {
+                earliest = Math.min(earliest, poller.nextDueAt());
+            }
+        }
+        if (earliest != Long.MAX_VALUE) {
+            handler.postDelayed(tick, Math.max(0L, earliest - SystemClock.elapsedRealtime()));
+        }
+    }
+
+    /**
+     * One screen's poll. All methods must be called on the main thread.
+     */
+    public final class Poller {
+        private final long minIntervalMs;
+        private final long maxIntervalMs;
+        private final Runnable task;
+        private long intervalMs;
+        private long lastRunAt;
+        private boolean started;
+        private boolean enabled = true;
+
+        private Poller(long minIntervalMs, long maxIntervalMs, Runnable task) {
+            this.minIntervalMs = minIntervalMs;
+            this.maxIntervalMs = maxIntervalMs;
+            this.task = task;
+            this.intervalMs = minIntervalMs;
+            this.lastRunAt = SystemClock.elapsedRealtime();
+        }
+
+        /** The last poll found new data, or the user is interacting; poll at the fastest rate. */
+        public void markActive() {
+            intervalMs = minIntervalMs;
+            reschedule();
+        }
+
+        /** The last poll found nothing new; wait twice as long before the next one. */
+        public void markIdle() {
+            intervalMs = Math.min(maxIntervalMs, intervalMs * 2);
+            reschedule();
+        }
+
+        /** The last poll failed transiently; back off, never sooner than the server asked. */
+        public void backOff(long retryAfterMs) {
+            intervalMs = Math.min(maxIntervalMs, Math.max(intervalMs * 2, retryAfterMs));
+            reschedule();
+        }
+
+        /** Polls right away if the owner is started, and restarts the interval from now. */
+        public void pollNow() {
+            if (isRunnable()) {
+                run(SystemClock.elapsedRealtime());
+                reschedule();
+            }
+        }
+
+        /**
+         * Suspends or resumes polling without unregistering, e.g. while a realtime channel is
+         * delivering the same data.
+         */
+        public void setEnabled(boolean enabled) {
+            if (this.enabled == enabled) {
+                return;
+            }
+            this.enabled = enabled;
+            if (enabled) {
+                intervalMs = minIntervalMs;
+            }
+            reschedule();
+        }
+
+        public long getIntervalMs() {
+            return intervalMs;
+        }
+
+        private boolean isRunnable() {
+            return started && enabled;
+        }
+
+        private long nextDueAt() {
+            return lastRunAt + intervalMs;
+        }
+
+        private long alignWindowMs() {
+            return Math.min(MAX_ALIGN_WINDOW_MS, intervalMs / 4);
+        }
+
+        private void run(long now) {
+            lastRunAt = now;
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.ecoswap.utils;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Process-wide cache of the public parts of user profiles (name, avatar, location, bio and trade
+ * counters) for screens that only need to label someone.
+ *
+ * Lookups are batched: every id requested before the next frame is resolved by a single
+ * {@code profiles?id=in.(...)} request, so a list with 40 counterparties costs one round trip.
+ * Ids already being fetched are not requested twice. Entries expire after {@link #TTL_MS} and the
+ * least recently used ones are evicted beyond {@link #MAX_ENTRIES}; writes to the profiles table
+ * drop the whole cache.
+ *
+ * All methods must be called on the main thread, and callbacks run there.
+ */
+@MainThread
+public final class ProfileCache {
+
+    private static final String TAG = "ProfileCache";
+    private static final long TTL_MS = 5 * 60_000L;
+    private static final int MAX_ENTRIES = 500;
+    // Keeps the id=in.(...) URL comfortably below gateway limits.
+    private static final int MAX_IDS_PER_REQUEST = 100;
+    private static final String[] COLUMNS = {
+        "id", "name", "profile_image_url", "location", "bio", "total_swaps", "total_donations"
+    };
+
+    private static ProfileCache instance;
+
+    private final SupabaseClient supabaseClient;
+    private final EntityStore entityStore;
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final Set<String> queued = new LinkedHashSet<>();
+    private final Set<String> inFlight = new LinkedHashSet<>();
+    private final List<Waiter> waiters = new ArrayList<>();
+    private final Choreographer.FrameCallback dispatch = frameTimeNanos -> dispatch();
+    private boolean dispatchScheduled = false;
+
+    /**
+     * Receives the profiles that could be resolved, keyed by id. Ids that do not exist or failed to
+     * load are missing from the map.
+     */
+    public interface OnProfilesLoaded {
+        void onLoaded(@NonNull Map<String, Profile> profiles);
+    }
+
+    private ProfileCache(@NonNull Context context) {
+        this.supabaseClient = SupabaseClient.getInstance(context);
+        this.entityStore = EntityStore.getInstance(context);
+    }
+
+    public static synchronized ProfileCache getInstance(@Nullable Context context) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+        if (instance == null) {
+            instance = new ProfileCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the cached profile if it is still fresh, without loading anything.
+     */
+    @Nullable
+    public Profile peek(@Nullable String id) {
+        if (TextUtils.isEmpty(id)) {
+            return null;
+        }
+        Entry entry = entries.get(id);
+        return entry != null && entry.isFresh() ? entry.profile : null;
+    }
+
+    public void get(@NonNull String id, @NonNull OnProfilesLoaded callback) {
+        get(Collections.singletonList(id), callback);
+    }
+
+    /**
+     * Resolves the given ids, from the cache where possible. The callback always runs
+     * asynchronously, after the batch it joined has completed.
+     */
+    public void get(@NonNull Collection<String> ids, @NonNull OnProfilesLoaded callback) {
+        Set<String> wanted = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (!TextUtils.isEmpty(id)) {
+                wanted.add(id);
+            }
+        }
+        Waiter waiter = new Waiter(wanted, callback);
+        for (String id : wanted) {
+            if (peek(id) != null) {
+                continue;
+            }
+            waiter.pending.add(id);
+            if (!inFlight.contains(id)) {
+                queued.add(id);
+            }
+        }
+        waiters.add(waiter);
+        if (!dispatchScheduled) {
+            dispatchScheduled = true;
+            Choreographer.getInstance().postFrameCallback(dispatch);
+        }
+    }
+
+    /**
+     * Forgets every cached profile, e.g. after the profiles table was written to.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    private void dispatch() {
+        dispatchScheduled = false;
+        List<String> ids = new ArrayList<>(queued);
+        queued.clear();
+        for (int start = 0; start < ids.size(); start += MAX_IDS_PER_REQUEST) {
+            fetch(ids.subList(start, Math.min(ids.size(), start + MAX_IDS_PER_REQUEST)));
+        }
+        settleWaiters();
+    }
+
+    private void fetch(@NonNull List<String> batch) {
+        List<String> ids = new ArrayList<>(batch);
+        inFlight.addAll(ids);
+        String endpoint = SupabaseQuery.from("profiles")
+            .select(COLUMNS)
+            .in("id", ids)
+            .build();
+        supabaseClient.query(endpoint, new SupabaseClient.OnDatabaseCallback() {
+            @Override
+            public void onSuccess(Object data) {
+                long now = SystemClock.elapsedRealtime();
+                try {
+                    JSONArray rows = new JSONArray(data.toString());
+                    for (int i = 0; i < rows.length(); i++) {
+                        JSONObject row = rows.optJSONObject(i);
+                        Profile profile = row != null ? Profile.fromRow(row) : null;
+                        if (profile != null) {
+                            entries.put(profile.id, new Entry(profile, now));
+                        }
+                    }
+                    entityStore.save("profiles", data);
+                } catch (JSONException e) {
+                    Log.w(TAG, "Failed to parse profiles", e);
+                }
+                complete(ids);
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.w(TAG, "Failed to load " + ids.size() + " profiles: " + error);
+                complete(ids);
+            }
+        });
+    }
+
+    private void complete(@NonNull List<String> ids) {
+        inFlight.removeAll(ids);
+        for (Waiter waiter : waiters) {
+            waiter.pending.removeAll(ids);
+        }
+        settleWaiters();
+    }
+
+    private void settleWaiters() {
+        Iterator<Waiter> iterator = waiters.iterator();
+        List<Waiter> ready = new ArrayList<>();
+        while (iterator.hasNext()) {
+            Waiter waiter = iterator.next();
+            if (waiter.pending.isEmpty()) {
+                iterator.remove();
+                ready.add(waiter);
+            }
+        }
+        for (Waiter waiter : ready) {
+            Map<String, Profile> result = new HashMap<>();
+            for (String id : waiter.ids) {
+                Entry entry = entries.get(id);
+                if (entry != null) {
+                    result.put(id, entry.profile);
+                }
+            }
+            waiter.callback.onLoaded(result);
+        }
+    }
+
+    /**
+     * The public columns of one profile.
+     */
+    public static final class Profile {
+        public final String id;
+        @Nullable public final String name;
+        @Nullable public final String avatarUrl;
+        @Nullable public final String location;
+        @Nullable public final String bio;
+        public final int totalSwaps;
+        public final int totalDonations;
+
+        private Profile(String id, @Nullable String name, @Nullable String avatarUrl, @Nullable String location,
+                        @Nullable String bio, int totalSwaps, int totalDonations) {
+            this.id = id;
+            this.name = name;
+            this.avatarUrl = avatarUrl;
+            this.location = location;
+            this.bio = bio;
+            this.totalSwaps = totalSwaps;
+            this.totalDonations = totalDonations;
+        }
+
+        @Nullable
+        static Profile fromRow(@NonNull JSONObject row) {
+            String id = optNullableString(row, "id");
+            if (TextUtils.isEmpty(id)) {
+                return null;
+            }
+            return new Profile(
+                id,
+                optNullableString(row, "name"),
+                optNullableString(row, "profile_image_url"),
+                optNullableString(row, "location"),
+                optNullableString(row, "bio"),
+                row.optInt("total_swaps", 0),
+                row.optInt("total_donations", 0)
+            );
+        }
+
+        @Nullable
+        private static String optNullableString(@NonNull JSONObject object, @NonNull String key) {
+            if (!object.has(key) || object.isNull(key)) {
+                return null;
+            }
+            return object.optString(key, null);
+        }
+    }
+
+    private static final class Entry {
+        final Profile profile;
+        final long fetchedAt;
+
+        Entry(Profile profile, long fetchedAt) {
+            this.profile = profile;
+            this.fetchedAt = fetchedAt;
+        }
+
+        boolean isFresh() {
+            return SystemClock.elapsedRealtime() - fetchedAt < TTL_MS;
+        }
+    }
+
+    private static final class Waiter {
+        final Set<String> ids;
+        final Set<String> pending = new LinkedHashSet<>();
+        final OnProfilesLoaded callback;
+
+        Waiter(Set<String> ids, OnProfilesLoaded callback) {
+            this.ids = ids;
+            this.callback = callback;
+        }
+    }
+}
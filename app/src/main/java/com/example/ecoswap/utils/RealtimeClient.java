@@ -0,0 +1,499 @@
+package com.example.ecoswap.utils;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+/**
+ * Supabase Realtime client speaking the Phoenix channel protocol (v1, JSON frames) over one
+ * shared websocket. Screens subscribe to Postgres changes on the tables they show instead of
+ * polling them.
+ *
+ * The socket is opened for the first subscription and closed with the last one. A missed
+ * heartbeat or a dropped connection reconnects with jittered exponential backoff and rejoins
+ * every channel. Realtime does not replay changes made while a channel was down, so listeners get
+ * {@link ChannelListener#onSubscribed()} after each join and should fetch what they missed, and
+ * {@link ChannelListener#onUnavailable()} whenever the channel cannot deliver, so they can fall
+ * back to polling until it is back.
+ *
+ * All listener methods run on the main thread. Obtain the instance from
+ * {@link SupabaseClient#getRealtime()}.
+ */
+public final class RealtimeClient {
+
+    private static final String TAG = "RealtimeClient";
+    private static final String PROTOCOL_VERSION = "1.0.0";
+    private static final long HEARTBEAT_INTERVAL_MS = 25_000L;
+    private static final long RECONNECT_BASE_DELAY_MS = 1_000L;
+    private static final long RECONNECT_MAX_DELAY_MS = 30_000L;
+    private static final int CLOSE_NORMAL = 1000;
+
+    /**
+     * Receives the state of a channel and the changes it carries.
+     */
+    public interface ChannelListener {
+        /** The channel joined, for the first time or after a reconnect. Catch up on missed rows. */
+        void onSubscribed();
+
+        /**
+         * A row changed. {@code type} is INSERT, UPDATE or DELETE; {@code oldRecord} is only set
+         * for UPDATE and DELETE when the table's replica identity includes the old values.
+         */
+        void onChange(@NonNull String table, @NonNull String type, @NonNull JSONObject record,
+                      @Nullable JSONObject oldRecord);
+
+        /** The channel is not delivering changes right now: not yet joined, rejected or offline. */
+        void onUnavailable();
+    }
+
+    /**
+     * One {@code postgres_changes} filter: an event (INSERT, UPDATE, DELETE or *) on a table,
+     * optionally narrowed by a single PostgREST-style filter such as {@code receiver_id=eq.<id>}.
+     */
+    public static final class Binding {
+        final String event;
+        final String table;
+        @Nullable
+        final String filter;
+
+        public Binding(@NonNull String event, @NonNull String table, @Nullable String filter) {
+            this.event = event;
+            this.table = table;
+            this.filter = filter;
+        }
+    }
+
+    /**
+     * Handle for an active subscription.
+     */
+    public final class Subscription {
+        private final Channel channel;
+
+        private Subscription(Channel channel) {
+            this.channel = channel;
+        }
+
+        public boolean isSubscribed() {
+            return channel.joined;
+        }
+
+        /** Leaves the channel. Safe to call more than once and from any state. */
+        public void unsubscribe() {
+            runOnMain(() -> leave(channel));
+        }
+    }
+
+    private final OkHttpClient httpClient;
+    private final String endpoint;
+    private final String apiKey;
+    private final Supplier<String> accessTokenSupplier;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Random jitter = new Random();
+    private final Map<String, Channel> channels = new HashMap<>();
+    private final Runnable heartbeat = this::sendHeartbeat;
+    private final Runnable reconnect = this::connect;
+
+    // Only touched on the main thread.
+    @Nullable
+    private WebSocket socket;
+    private boolean socketOpen;
+    private int ref;
+    private int topicSequence;
+    private int reconnectAttempt;
+    @Nullable
+    private String pendingHeartbeatRef;
+    @Nullable
+    private String lastSentAccessToken;
+
+    /**
+     * @param endpoint websocket URL without query, e.g.
+     *                 {@code wss://<project>.supabase.co/realtime/v1/websocket}
+     */
+    RealtimeClient(@NonNull OkHttpClient httpClient, @NonNull String endpoint, @NonNull String apiKey,
+                   @NonNull Supplier<String> accessTokenSupplier) {
+        this.httpClient = httpClient;
+        this.endpoint = endpoint;
+        this.apiKey = apiKey;
+        this.accessTokenSupplier = accessTokenSupplier;
+    }
+
+    /**
+     * Websocket endpoint for a Supabase project URL: https becomes wss and http becomes ws.
+     */
+    @NonNull
+    static String endpointFor(@NonNull String supabaseUrl) {
+        String base = supabaseUrl.endsWith("/") ? supabaseUrl.substring(0, supabaseUrl.length() - 1) : supabaseUrl;
+        if (base.startsWith("https://")) {
+            base = "wss://" + base.substring("https://".length());
+        } else if (base.startsWith("http://")) {
+            base = "ws://" + base.substring("http://".length());
+        }
+        return base + "/realtime/v1/websocket";
+    }
+
+    /**
+     * Subscribes to changes matching the bindings. The channel starts out unavailable;
+     * {@link ChannelListener#onSubscribed()} signals that changes are flowing.
+     */
+    @NonNull
+    public Subscription subscribe(@NonNull String name, @NonNull List<Binding> bindings,
+                                  @NonNull ChannelListener listener) {
+        if (bindings.isEmpty()) {
+            throw new IllegalArgumentException("At least one binding is required");
+        }
+        Channel channel = new Channel("realtime:" + name + ":" + (++topicSequence),
+            new ArrayList<>(bindings), listener);
+        runOnMain(() -> {
+            channels.put(channel.topic, channel);
+            if (socketOpen) {
+                join(channel);
+            } else {
+                connect();
+            }
+        });
+        return new Subscription(channel);
+    }
+
+    private void connect() {
+        mainHandler.removeCallbacks(reconnect);
+        if (socket != null || channels.isEmpty() || TextUtils.isEmpty(endpoint)) {
+            return;
+        }
+        String url = Uri.parse(endpoint).buildUpon()
+            .appendQueryParameter("apikey", apiKey)
+            .appendQueryParameter("vsn", PROTOCOL_VERSION)
+            .build()
+            .toString();
+        Request request;
+        try {
+            request = new Request.Builder().url(url).build();
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Invalid realtime endpoint " + endpoint, e);
+            return;
+        }
+        socket = httpClient.newWebSocket(request, new SocketListener());
+    }
+
+    private void onSocketOpen(@NonNull WebSocket webSocket) {
+        if (webSocket != socket) {
+            return;
+        }
+        socketOpen = true;
+        reconnectAttempt = 0;
+        pendingHeartbeatRef = null;
+        mainHandler.postDelayed(heartbeat, HEARTBEAT_INTERVAL_MS);
+        for (Channel channel : new ArrayList<>(channels.values())) {
+            join(channel);
+        }
+    }
+
+    private void onSocketLost(@NonNull WebSocket webSocket, @Nullable Throwable cause) {
+        if (webSocket != socket) {
+            return;
+        }
+        if (cause != null) {
+            Log.w(TAG, "Realtime connection lost: " + cause.getMessage());
+        }
+        socket = null;
+        socketOpen = false;
+        pendingHeartbeatRef = null;
+        mainHandler.removeCallbacks(heartbeat);
+        for (Channel channel : new ArrayList<>(channels.values())) {
+            markUnavailable(channel);
+        }
+        if (!channels.isEmpty()) {
+            // Full jitter so devices dropped by the same outage do not reconnect in lockstep.
+            long window = Math.min(RECONNECT_MAX_DELAY_MS, RECONNECT_BASE_DELAY_MS << Math.min(reconnectAttempt, 5));
+            reconnectAttempt++;
+            mainHandler.postDelayed(reconnect, RECONNECT_BASE_DELAY_MS / 2 + (long) (jitter.nextDouble() * window));
+        }
+    }
+
+    private void join(@NonNull Channel channel) {
+        JSONObject payload = new JSONObject();
+        try {
+            JSONArray changes = new JSONArray();
+            for (Binding binding : channel.bindings) {
+                JSONObject change = new JSONObject()
+                    .put("event", binding.event)
+                    .put("schema", "public")
+                    .put("table", binding.table);
+                if (!TextUtils.isEmpty(binding.filter)) {
+                    change.put("filter", binding.filter);
+                }
+                changes.put(change);
+            }
+            payload.put("config", new JSONObject()
+                .put("broadcast", new JSONObject().put("self", false))
+                .put("presence", new JSONObject().put("key", ""))
+                .put("postgres_changes", changes));
+            String accessToken = accessTokenSupplier.get();
+            if (!TextUtils.isEmpty(accessToken)) {
+                payload.put("access_token", accessToken);
+                lastSentAccessToken = accessToken;
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Unable to build join for " + channel.topic, e);
+            return;
+        }
+        channel.joinRef = push(channel.topic, "phx_join", payload, null);
+    }
+
+    private void leave(@NonNull Channel channel) {
+        if (channels.remove(channel.topic) == null) {
+            return;
+        }
+        if (channel.joinRef != null && socketOpen) {
+            push(channel.topic, "phx_leave", new JSONObject(), channel.joinRef);
+        }
+        channel.joined = false;
+        channel.joinRef = null;
+        if (channels.isEmpty()) {
+            disconnect();
+        }
+    }
+
+    private void disconnect() {
+        mainHandler.removeCallbacks(heartbeat);
+        mainHandler.removeCallbacks(reconnect);
+        reconnectAttempt = 0;
+        WebSocket current = socket;
+        socket = null;
+        socketOpen = false;
+        pendingHeartbeatRef = null;
+        if (current != null) {
+            current.close(CLOSE_NORMAL, null);
+        }
+    }
+
+    private void sendHeartbeat() {
+        WebSocket current = socket;
+        if (current == null || !socketOpen) {
+            return;
+        }
+        if (pendingHeartbeatRef != null) {
+            // The previous heartbeat was never answered; the connection is silently dead.
+            Log.w(TAG, "Realtime heartbeat timed out; reconnecting");
+            current.cancel();
+            onSocketLost(current, null);
+            return;
+        }
+        refreshAccessToken();
+        pendingHeartbeatRef = push("phoenix", "heartbeat", new JSONObject(), null);
+        mainHandler.postDelayed(heartbeat, HEARTBEAT_INTERVAL_MS);
+    }
+
+    /**
+     * Passes a refreshed access token to joined channels so row-level security keeps applying
+     * to the signed-in user after the join token expires.
+     */
+    private void refreshAccessToken() {
+        String accessToken = accessTokenSupplier.get();
+        if (TextUtils.isEmpty(accessToken) || TextUtils.equals(accessToken, lastSentAccessToken)) {
+            return;
+        }
+        lastSentAccessToken = accessToken;
+        for (Channel channel : channels.values()) {
+            if (!channel.joined) {
+                continue;
+            }
+            try {
+                push(channel.topic, "access_token", new JSONObject().put("access_token", accessToken), channel.joinRef);
+            } catch (JSONException e) {
+                Log.w(TAG, "Unable to send access token to " + channel.topic, e);
+            }
+        }
+    }
+
+    @Nullable
+    private String push(@NonNull String topic, @NonNull String event, @NonNull JSONObject payload,
+                        @Nullable String joinRef) {
+        WebSocket current = socket;
+        if (current == null) {
+            return null;
+        }
+        String messageRef = String.valueOf(++ref);
+        try {
+            JSONObject message = new JSONObject()
+                .put("topic", topic)
+                .put("event", event)
+                .put("payload", payload)
+                .put("ref", messageRef);
+            if (joinRef != null) {
+                message.put("join_ref", joinRef);
+            }
+            current.send(message.toString());
+        } catch (JSONException e) {
+            Log.e(TAG, "Unable to encode " + event + " for " + topic, e);
+            return null;
+        }
+        return messageRef;
+    }
+
+    private void onFrame(@NonNull String text) {
+        JSONObject message;
+        try {
+            message = new JSONObject(text);
+        } catch (JSONException e) {
+            Log.w(TAG, "Ignoring malformed realtime frame", e);
+            return;
+        }
+        String topic = message.optString("topic");
+        String event = message.optString("event");
+        String messageRef = message.isNull("ref") ? null : message.optString("ref", null);
+        JSONObject payload = message.optJSONObject("payload");
+        if (payload == null) {
+            payload = new JSONObject();
+        }
+
+        if ("phoenix".equals(topic)) {
+            if ("phx_reply".equals(event) && TextUtils.equals(messageRef, pendingHeartbeatRef)) {
+                pendingHeartbeatRef = null;
+            }
+            return;
+        }
+        Channel channel = channels.get(topic);
+        if (channel == null) {
+            return;
+        }
+        switch (event) {
+            case "phx_reply":
+                if (messageRef != null && messageRef.equals(channel.joinRef)) {
+                    if ("ok".equals(payload.optString("status"))) {
+                        channel.joined = true;
+                        channel.rejoinAttempt = 0;
+                        channel.listener.onSubscribed();
+                    } else {
+                        Log.w(TAG, "Join rejected for " + topic + ": " + payload.optJSONObject("response"));
+                        markUnavailable(channel);
+                        scheduleRejoin(channel);
+                    }
+                }
+                break;
+            case "system":
+                if ("error".equals(payload.optString("status"))) {
+                    Log.w(TAG, "Realtime error on " + topic + ": " + payload.optString("message"));
+                    markUnavailable(channel);
+                    scheduleRejoin(channel);
+                }
+                break;
+            case "phx_error":
+            case "phx_close":
+                markUnavailable(channel);
+                scheduleRejoin(channel);
+                break;
+            case "postgres_changes":
+                if (!channel.joined) {
+                    break;
+                }
+                JSONObject data = payload.optJSONObject("data");
+                if (data == null) {
+                    break;
+                }
+                JSONObject record = data.optJSONObject("record");
+                channel.listener.onChange(
+                    data.optString("table"),
+                    data.optString("type"),
+                    record != null ? record : new JSONObject(),
+                    data.optJSONObject("old_record")
+                );
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void markUnavailable(@NonNull Channel channel) {
+        channel.joined = false;
+        channel.joinRef = null;
+        channel.listener.onUnavailable();
+    }
+
+    private void scheduleRejoin(@NonNull Channel channel) {
+        long window = Math.min(RECONNECT_MAX_DELAY_MS, RECONNECT_BASE_DELAY_MS << Math.min(channel.rejoinAttempt, 5));
+        channel.rejoinAttempt++;
+        mainHandler.postDelayed(() -> {
+            if (channels.get(channel.topic) == channel && socketOpen && channel.joinRef == null) {
+                join(channel);
+            }
+        }, RECONNECT_BASE_DELAY_MS / 2 + (long) (jitter.nextDouble() * window));
+    }
+
+    private void runOnMain(@NonNull Runnable action) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            action.run();
+        } else {
+            mainHandler.post(action);
+        }
+    }
+
+    private final class SocketListener extends WebSocketListener {
+        @Override
+        public void onOpen(@NonNull WebSocket webSocket, @NonNull Response response) {
+            mainHandler.post(() -> onSocketOpen(webSocket));
+        }
+
+        @Override
+        public void onMessage(@NonNull WebSocket webSocket, @NonNull String text) {
+            mainHandler.post(() -> {
+                if (webSocket == socket) {
+                    onFrame(text);
+                }
+            });
+        }
+
+        @Override
+        public void onClosing(@NonNull WebSocket webSocket, int code, @NonNull String reason) {
+            webSocket.close(CLOSE_NORMAL, null);
+        }
+
+        @Override
+        public void onClosed(@NonNull WebSocket webSocket, int code, @NonNull String reason) {
+            mainHandler.post(() -> onSocketLost(webSocket, null));
+        }
+
+        @Override
+        public void onFailure(@NonNull WebSocket webSocket, @NonNull Throwable t, @Nullable Response response) {
+            mainHandler.post(() -> onSocketLost(webSocket, t));
+        }
+    }
+
+    private static final class Channel {
+        final String topic;
+        final List<Binding> bindings;
+        final ChannelListener listener;
+        @Nullable
+        String joinRef;
+        boolean joined;
+        int rejoinAttempt;
+
+        Channel(String topic, List<Binding> bindings, ChannelListener listener) {
+            this.topic = topic;
+            this.bindings = Collections.unmodifiableList(bindings);
+            this.listener = listener;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.ecoswap.utils;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Shares a single network call between identical reads that are in flight at the same time.
+ * The first caller for a key performs the request; later callers are parked until it completes
+ * and then receive the same result. The shared call is only cancelled when every caller that
+ * joined it belongs to a cancelled {@link RequestScope}.
+ */
+final class RequestCoalescer {
+
+    private final Map<String, Flight> inFlight = new HashMap<>();
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    /**
+     * Builds a key from the normalized URL (query parameters sorted by name) and the caller's
+     * auth identity so that results are never shared across users.
+     */
+    @NonNull
+    static String keyFor(@NonNull String url, @Nullable String authIdentity) {
+        String identity = authIdentity != null ? authIdentity : "anon";
+        HttpUrl parsed = HttpUrl.parse(url);
+        if (parsed == null || parsed.encodedQuery() == null) {
+            return identity + "|" + (parsed != null ? parsed.toString() : url);
+        }
+        List<String> pairs = new ArrayList<>(Arrays.asList(parsed.encodedQuery().split("&")));
+        // Stable sort keeps repeated filters on the same column (gte/lte) in their original order.
+        Collections.sort(pairs, Comparator.comparing(RequestCoalescer::parameterName));
+        return identity + "|" + parsed.newBuilder().encodedQuery(TextUtils.join("&", pairs)).build();
+    }
+
+    /**
+     * Registers the callback for the key. Returns true when the caller is the first one and must
+     * perform the request; false when the callback was attached to a request already in flight.
+     */
+    synchronized boolean join(@NonNull String key, @NonNull SupabaseClient.OnDatabaseCallback callback) {
+        Flight flight = inFlight.get(key);
+        boolean first = flight == null;
+        if (first) {
+            flight = new Flight(key);
+            inFlight.put(key, flight);
+        } else {
+            coalescedCount.incrementAndGet();
+        }
+        flight.waiters.add(callback);
+        RequestScope scope = RequestScope.of(callback);
+        if (scope == null) {
+            flight.unscopedWaiters++;
+        } else {
+            Flight joined = flight;
+            Runnable listener = () -> waiterCancelled(joined);
+            flight.scopeListeners.add(new ScopeListener(scope, listener));
+            scope.doOnCancel(listener);
+        }
+        return first;
+    }
+
+    /**
+     * Returns a callback that completes the in-flight entry for the key and delivers the outcome
+     * to every caller that joined it. The callback carries the flight's own scope, which is
+     * cancelled once every caller that joined has had its scope cancelled.
+     */
+    @NonNull
+    SupabaseClient.OnDatabaseCallback fanOut(@NonNull String key) {
+        Flight flight;
+        synchronized (this) {
+            flight = inFlight.get(key);
+        }
+        if (flight == null) {
+            // Every caller was cancelled before the request started.
+            flight = new Flight(key);
+            flight.scope.cancel();
+        }
+        Flight completed = flight;
+        return flight.scope.wrap(new SupabaseClient.OnDatabaseCallback() {
+            @Override
+            public void onSuccess(Object data) {
+                for (SupabaseClient.OnDatabaseCallback waiter : detach(completed)) {
+                    waiter.onSuccess(data);
+                }
+            }
+
+            @Override
+            public void onError(String error) {
+                for (SupabaseClient.OnDatabaseCallback waiter : detach(completed)) {
+                    waiter.onError(error);
+                }
+            }
+
+            @Override
+            public void onFailure(SupabaseError error) {
+                for (SupabaseClient.OnDatabaseCallback waiter : detach(completed)) {
+                    waiter.onFailure(error);
+                }
+            }
+        });
+    }
+
+    long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    private void waiterCancelled(@NonNull Flight flight) {
+        boolean abandoned;
+        synchronized (this) {
+            flight.cancelledWaiters++;
+            abandoned = flight.unscopedWaiters == 0
+                && flight.cancelledWaiters >= flight.waiters.size()
+                && inFlight.get(flight.key) == flight;
+            if (abandoned) {
+                inFlight.remove(flight.key);
+            }
+        }
+        if (abandoned) {
+            flight.scope.cancel();
+        }
+    }
+
+    private List<SupabaseClient.OnDatabaseCallback> detach(@NonNull Flight flight) {
+        synchronized (this) {
+            if (inFlight.get(flight.key) == flight) {
+                inFlight.remove(flight.key);
+            }
+        }
+        for (ScopeListener scopeListener : flight.scopeListeners) {
+            scopeListener.scope.removeOnCancel(scopeListener.listener);
+        }
+        return flight.waiters;
+    }
+
+    private static final class Flight {
+        final String key;
+        final RequestScope scope = new RequestScope();
+        final List<SupabaseClient.OnDatabaseCallback> waiters = new ArrayList<>();
+        final List<ScopeListener> scopeListeners = new ArrayList<>();
+        int unscopedWaiters;
+        int cancelledWaiters;
+
+        Flight(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final class ScopeListener {
+        final RequestScope scope;
+        final Runnable listener;
+
+        ScopeListener(RequestScope scope, Runnable listener) {
+            this.scope = scope;
+            this.listener = listener;
+        }
+    }
+
+    private static String parameterName(String pair) {
+        int separator = pair.indexOf('=');
+        return separator >= 0 ? pair.substring(0, separator) : pair;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.ecoswap.utils;
+
+/**
+ * Scheduling lane for Supabase requests.
+ */
+public enum RequestPriority {
+    /** Data the user is currently looking at or just asked for. */
+    INTERACTIVE,
+    /** Speculative reads such as the next marketplace page. Dropped if still queued when interactive traffic arrives. */
+    PREFETCH,
+    /** Best-effort writes such as read receipts and impact counters. Deferred while interactive traffic is active. */
+    BACKGROUND
+}
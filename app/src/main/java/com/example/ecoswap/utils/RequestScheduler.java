@@ -0,0 +1,178 @@
+package com.example.ecoswap.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Response;
+
+/**
+ * Hands Supabase calls to OkHttp lane by lane so best-effort traffic never occupies the
+ * connections an on-screen read is waiting for.
+ *
+ * Each lane has its own concurrency limit. Background calls only start while no interactive
+ * call is running or queued, unless they have waited longer than {@link #MAX_BACKGROUND_DEFERRAL_MS};
+ * a timer starts an overdue call even when no other call arrives or finishes to wake the queue.
+ * Prefetch calls that are still queued when an interactive call arrives are canceled and fail
+ * with an IOException.
+ */
+final class RequestScheduler {
+
+    private static final String TAG = "RequestScheduler";
+    private static final long MAX_BACKGROUND_DEFERRAL_MS = 10_000L;
+
+    private final EnumMap<RequestPriority, Integer> limits = new EnumMap<>(RequestPriority.class);
+    private final EnumMap<RequestPriority, Integer> running = new EnumMap<>(RequestPriority.class);
+    private final EnumMap<RequestPriority, ArrayDeque<PendingCall>> queues = new EnumMap<>(RequestPriority.class);
+    private final Handler timer = new Handler(Looper.getMainLooper());
+    private final Runnable promoteOverdue = this::promoteOverdue;
+    private boolean promotionScheduled;
+
+    RequestScheduler(int interactiveLimit, int prefetchLimit, int backgroundLimit) {
+        limits.put(RequestPriority.INTERACTIVE, interactiveLimit);
+        limits.put(RequestPriority.PREFETCH, prefetchLimit);
+        limits.put(RequestPriority.BACKGROUND, backgroundLimit);
+        for (RequestPriority lane : RequestPriority.values()) {
+            running.put(lane, 0);
+            queues.put(lane, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Total number of calls that may be in flight at once across every lane.
+     */
+    int totalCapacity() {
+        int total = 0;
+        for (int limit : limits.values()) {
+            total += limit;
+        }
+        return total;
+    }
+
+    void enqueue(@NonNull RequestPriority lane, @NonNull Call call, @NonNull Callback callback) {
+        List<PendingCall> dropped = new ArrayList<>();
+        List<PendingCall> ready;
+        synchronized (this) {
+            if (lane == RequestPriority.INTERACTIVE) {
+                dropped.addAll(queues.get(RequestPriority.PREFETCH));
+                queues.get(RequestPriority.PREFETCH).clear();
+            }
+            queues.get(lane).add(new PendingCall(lane, call, callback));
+            ready = takeReady();
+        }
+        for (PendingCall pending : dropped) {
+            Log.d(TAG, "Dropping queued prefetch " + pending.call.request().url().encodedPath());
+            pending.call.cancel();
+            pending.callback.onFailure(pending.call, new IOException("Canceled: superseded by interactive request"));
+        }
+        start(ready);
+    }
+
+    private void finished(@NonNull RequestPriority lane) {
+        List<PendingCall> ready;
+        synchronized (this) {
+            running.put(lane, running.get(lane) - 1);
+            ready = takeReady();
+        }
+        start(ready);
+    }
+
+    private void promoteOverdue() {
+        List<PendingCall> ready;
+        synchronized (this) {
+            promotionScheduled = false;
+            ready = takeReady();
+        }
+        start(ready);
+    }
+
+    /**
+     * Moves every call that may start now out of the queues, highest lane first. When a background
+     * call has to keep waiting, schedules a check for the moment it becomes overdue.
+     */
+    private List<PendingCall> takeReady() {
+        List<PendingCall> ready = new ArrayList<>();
+        for (RequestPriority lane : RequestPriority.values()) {
+            ArrayDeque<PendingCall> queue = queues.get(lane);
+            Iterator<PendingCall> iterator = queue.iterator();
+            while (iterator.hasNext() && running.get(lane) < limits.get(lane)) {
+                PendingCall pending = iterator.next();
+                if (lane == RequestPriority.BACKGROUND && interactiveBusy() && !pending.overdue()) {
+                    schedulePromotion(pending);
+                    break;
+                }
+                iterator.remove();
+                running.put(lane, running.get(lane) + 1);
+                ready.add(pending);
+            }
+        }
+        return ready;
+    }
+
+    private void schedulePromotion(@NonNull PendingCall pending) {
+        if (promotionScheduled) {
+            return;
+        }
+        promotionScheduled = true;
+        long delayMs = pending.queuedAtMs + MAX_BACKGROUND_DEFERRAL_MS - SystemClock.elapsedRealtime();
+        timer.postDelayed(promoteOverdue, Math.max(0L, delayMs));
+    }
+
+    private boolean interactiveBusy() {
+        return running.get(RequestPriority.INTERACTIVE) > 0
+            || !queues.get(RequestPriority.INTERACTIVE).isEmpty();
+    }
+
+    private void start(@NonNull List<PendingCall> ready) {
+        for (PendingCall pending : ready) {
+            pending.call.enqueue(new Callback() {
+                @Override
+                public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                    try {
+                        pending.callback.onFailure(call, e);
+                    } finally {
+                        finished(pending.lane);
+                    }
+                }
+
+                @Override
+                public void onResponse(@NonNull Call call, @NonNull Response response) throws IOException {
+                    try {
+                        pending.callback.onResponse(call, response);
+                    } finally {
+                        finished(pending.lane);
+                    }
+                }
+            });
+        }
+    }
+
+    private static final class PendingCall {
+        final RequestPriority lane;
+        final Call call;
+        final Callback callback;
+        final long queuedAtMs = SystemClock.elapsedRealtime();
+
+        PendingCall(RequestPriority lane, Call call, Callback callback) {
+            this.lane = lane;
+            this.call = call;
+            this.callback = callback;
+        }
+
+        boolean overdue() {
+            return SystemClock.elapsedRealtime() - queuedAtMs >= MAX_BACKGROUND_DEFERRAL_MS;
+        }
+    }
+}
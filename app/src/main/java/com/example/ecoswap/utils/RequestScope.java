@@ -0,0 +1,286 @@
+package com.example.ecoswap.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import okhttp3.Call;
+
+/**
+ * Ties Supabase reads to the lifetime of a screen. Callbacks wrapped by a scope are tagged with
+ * it; when the scope is cancelled, usually because its lifecycle owner was destroyed, every call
+ * made for them is cancelled, queued or running, and any result that still arrives is dropped
+ * instead of delivered.
+ *
+ * Fragments should bind to {@code getViewLifecycleOwner()} so that switching tabs abandons the
+ * old view's requests. Only wrap reads: writes the user triggered must land even after the
+ * screen is gone.
+ */
+public final class RequestScope {
+
+    private final Set<Call> calls = new HashSet<>();
+    private final List<Runnable> cancelListeners = new ArrayList<>();
+    private volatile boolean cancelled;
+
+    RequestScope() {
+    }
+
+    /**
+     * Creates a scope that is cancelled when the owner reaches ON_DESTROY.
+     */
+    @NonNull
+    public static RequestScope bind(@NonNull LifecycleOwner owner) {
+        RequestScope scope = new RequestScope();
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            scope.cancel();
+            return scope;
+        }
+        lifecycle.addObserver(new DefaultLifecycleObserver() {
+            @Override
+            public void onDestroy(@NonNull LifecycleOwner source) {
+                source.getLifecycle().removeObserver(this);
+                scope.cancel();
+            }
+        });
+        return scope;
+    }
+
+    /**
+     * Returns the scope a callback was wrapped with, or null for unscoped callbacks.
+     */
+    @Nullable
+    static RequestScope of(@Nullable Object callback) {
+        return callback instanceof Scoped ? ((Scoped) callback).scope : null;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        List<Call> toCancel;
+        List<Runnable> listeners;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toCancel = new ArrayList<>(calls);
+            listeners = new ArrayList<>(cancelListeners);
+            calls.clear();
+            cancelListeners.clear();
+        }
+        for (Call call : toCancel) {
+            call.cancel();
+        }
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Registers a call made on behalf of this scope. Returns false, after cancelling the call,
+     * if the scope is already cancelled.
+     */
+    boolean track(@NonNull Call call) {
+        synchronized (this) {
+            if (!cancelled) {
+                calls.add(call);
+                return true;
+            }
+        }
+        call.cancel();
+        return false;
+    }
+
+    synchronized void untrack(@NonNull Call call) {
+        calls.remove(call);
+    }
+
+    /**
+     * Runs the listener when the scope is cancelled, or right away if it already is.
+     */
+    void doOnCancel(@NonNull Runnable listener) {
+        synchronized (this) {
+            if (!cancelled) {
+                cancelListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    synchronized void removeOnCancel(@NonNull Runnable listener) {
+        cancelListeners.remove(listener);
+    }
+
+    @NonNull
+    public SupabaseClient.OnDatabaseCallback wrap(@NonNull SupabaseClient.OnDatabaseCallback callback) {
+        return new ScopedDatabaseCallback(this, callback);
+    }
+
+    @NonNull
+    public SupabaseClient.OnPageCallback wrap(@NonNull SupabaseClient.OnPageCallback callback) {
+        return new ScopedPageCallback(this, callback);
+    }
+
+    @NonNull
+    public SupabaseClient.OnRowStreamCallback wrap(@NonNull SupabaseClient.OnRowStreamCallback callback) {
+        return new ScopedRowStreamCallback(this, callback);
+    }
+
+    @NonNull
+    public SupabaseClient.OnStorageCallback wrap(@NonNull SupabaseClient.OnStorageCallback callback) {
+        return new ScopedStorageCallback(this, callback);
+    }
+
+    private abstract static class Scoped {
+        final RequestScope scope;
+
+        Scoped(RequestScope scope) {
+            this.scope = scope;
+        }
+
+        boolean live() {
+            return !scope.cancelled;
+        }
+    }
+
+    private static final class ScopedDatabaseCallback extends Scoped implements SupabaseClient.OnDatabaseCallback {
+        private final SupabaseClient.OnDatabaseCallback delegate;
+
+        ScopedDatabaseCallback(RequestScope scope, SupabaseClient.OnDatabaseCallback delegate) {
+            super(scope);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onSuccess(Object data) {
+            if (live()) {
+                delegate.onSuccess(data);
+            }
+        }
+
+        @Override
+        public void onError(String error) {
+            if (live()) {
+                delegate.onError(error);
+            }
+        }
+
+        @Override
+        public void onFailure(SupabaseError error) {
+            if (live()) {
+                delegate.onFailure(error);
+            }
+        }
+    }
+
+    private static final class ScopedPageCallback extends Scoped implements SupabaseClient.OnPageCallback {
+        private final SupabaseClient.OnPageCallback delegate;
+
+        ScopedPageCallback(RequestScope scope, SupabaseClient.OnPageCallback delegate) {
+            super(scope);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onSuccess(JSONArray rows, @Nullable String nextPageToken) {
+            if (live()) {
+                delegate.onSuccess(rows, nextPageToken);
+            }
+        }
+
+        @Override
+        public void onError(String error) {
+            if (live()) {
+                delegate.onError(error);
+            }
+        }
+
+        @Override
+        public void onFailure(SupabaseError error) {
+            if (live()) {
+                delegate.onFailure(error);
+            }
+        }
+    }
+
+    private static final class ScopedRowStreamCallback extends Scoped implements SupabaseClient.OnRowStreamCallback {
+        private final SupabaseClient.OnRowStreamCallback delegate;
+
+        ScopedRowStreamCallback(RequestScope scope, SupabaseClient.OnRowStreamCallback delegate) {
+            super(scope);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onRow(JSONObject row) {
+            if (live()) {
+                delegate.onRow(row);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (live()) {
+                delegate.onComplete();
+            }
+        }
+
+        @Override
+        public void onError(String error) {
+            if (live()) {
+                delegate.onError(error);
+            }
+        }
+
+        @Override
+        public void onFailure(SupabaseError error) {
+            if (live()) {
+                delegate.onFailure(error);
+            }
+        }
+    }
+
+    private static final class ScopedStorageCallback extends Scoped implements SupabaseClient.OnStorageCallback {
+        private final SupabaseClient.OnStorageCallback delegate;
+
+        ScopedStorageCallback(RequestScope scope, SupabaseClient.OnStorageCallback delegate) {
+            super(scope);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onSuccess(String url) {
+            if (live()) {
+                delegate.onSuccess(url);
+            }
+        }
+
+        @Override
+        public void onError(String error) {
+            if (live()) {
+                delegate.onError(error);
+            }
+        }
+
+        @Override
+        public void onFailure(SupabaseError error) {
+            if (live()) {
+                delegate.onFailure(error);
+            }
+        }
+    }
+}
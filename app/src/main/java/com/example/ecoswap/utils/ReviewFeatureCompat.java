@@ -0,0 +1,32 @@
+package com.example.ecoswap.utils;
+
+import android.text.TextUtils;
+import java.util.Locale;
+
+/**
+ * Feature switch utilities for the rating columns added to profiles by database/reviews.sql.
+ */
+public final class ReviewFeatureCompat {
+
+    private static volatile boolean profileRatingSupported = true;
+
+    private ReviewFeatureCompat() {
+        // Utility class
+    }
+
+    public static boolean isProfileRatingSupported() {
+        return profileRatingSupported;
+    }
+
+    public static void disableProfileRating() {
+        profileRatingSupported = false;
+    }
+
+    public static boolean isProfileRatingError(String error) {
+        if (TextUtils.isEmpty(error)) {
+            return false;
+        }
+        String lower = error.toLowerCase(Locale.US);
+        return lower.contains("42703") || lower.contains("review_count") || lower.contains("rating");
+    }
+}
@@ -1,16 +1,28 @@
 package com.example.ecoswap.utils;
 
 import android.content.Context;
+import android.net.Uri;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Base64;
+import android.util.JsonReader;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import com.example.ecoswap.BuildConfig;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import okhttp3.*;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -26,12 +38,36 @@ public class SupabaseClient {
     private final Handler mainHandler;
     private final SessionManager sessionManager;
     private final Context appContext;
+    private final RequestCoalescer readCoalescer = new RequestCoalescer();
+    private final TokenRefreshManager tokenRefreshManager;
+    private final SupabaseResponseCache responseCache;
+    private final EntityStore entityStore;
+    private final NetworkMetrics networkMetrics = new NetworkMetrics();
+    private final RequestScheduler scheduler = new RequestScheduler(
+        INTERACTIVE_MAX_REQUESTS, PREFETCH_MAX_REQUESTS, BACKGROUND_MAX_REQUESTS
+    );
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final Random retryJitter = new Random();
+    private RealtimeClient realtimeClient;
 
     private static final long TOKEN_EXPIRY_BUFFER_SECONDS = 30L;
+    private static final long PROACTIVE_REFRESH_LEAD_SECONDS = 60L;
+    private static final int INTERACTIVE_MAX_REQUESTS = 6;
+    private static final int PREFETCH_MAX_REQUESTS = 2;
+    private static final int BACKGROUND_MAX_REQUESTS = 2;
+    private static final int IMAGE_REQUEST_HEADROOM = 6;
+    private static final int MAX_READ_RETRIES = 2;
+    private static final long RETRY_BASE_DELAY_MS = 250L;
+    private static final long RETRY_MAX_DELAY_MS = 4_000L;
+
+    /** Page size for keyset-paginated lists; see {@link #queryPage}. */
+    public static final int DEFAULT_PAGE_SIZE = 20;
     
     private String accessToken = null;
     private String refreshToken = null;
     private long accessTokenExpiry = 0L;
+    // Whether the last failed token refresh was refused by the auth server rather than unreachable.
+    private volatile boolean refreshRejected = false;
     private String userId = null;
     
     private SupabaseClient(Context context) {
@@ -42,13 +78,37 @@ public class SupabaseClient {
         this.gson = new Gson();
         this.mainHandler = new Handler(Looper.getMainLooper());
         
+        this.responseCache = new SupabaseResponseCache(this.appContext);
+        this.entityStore = EntityStore.getInstance(this.appContext);
+
+        // Lanes are limited by RequestScheduler; the dispatcher only needs room for all of them
+        // plus auth calls, which bypass the scheduler, and Glide's storage image loads, which
+        // share this dispatcher (see newImageCallFactory).
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(scheduler.totalCapacity() + 2 + IMAGE_REQUEST_HEADROOM);
+
         // Configure OkHttp client
         this.httpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                // OkHttp's defaults already suit a single Supabase host: HTTP/2 is negotiated over
+                // TLS, so API calls and image loads multiplex over one pooled connection, and idle
+                // connections are kept for five minutes.
+                .eventListenerFactory(networkMetrics.eventListenerFactory())
+                .cache(responseCache.getCache())
+                .addInterceptor(responseCache.userKeyInterceptor(this::authIdentity))
+                .addNetworkInterceptor(responseCache.freshnessInterceptor())
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(30, TimeUnit.SECONDS)
                 .writeTimeout(30, TimeUnit.SECONDS)
                 .build();
 
+        this.tokenRefreshManager = new TokenRefreshManager(
+            this::performTokenRefresh,
+            mainHandler,
+            TOKEN_EXPIRY_BUFFER_SECONDS,
+            PROACTIVE_REFRESH_LEAD_SECONDS
+        );
+
         hydrateSession(
             sessionManager.getAccessToken(),
             sessionManager.getRefreshToken(),
@@ -85,6 +145,7 @@ public class SupabaseClient {
         this.refreshToken = (refreshToken != null && !refreshToken.trim().isEmpty()) ? refreshToken : null;
         this.accessTokenExpiry = expiryEpochSeconds;
         this.userId = (userId != null && !userId.trim().isEmpty()) ? userId : null;
+        scheduleProactiveRefresh();
     }
 
     public void hydrateSession(String accessToken, String userId) {
@@ -103,6 +164,83 @@ public class SupabaseClient {
     public long getAccessTokenExpiry() {
         return accessTokenExpiry;
     }
+
+    /**
+     * Opens a connection to the Supabase host in the background so the first real request
+     * skips DNS, TCP and TLS. Safe to call repeatedly; it is a no-op without network or
+     * configuration.
+     */
+    public void prewarmConnection() {
+        if (supabaseUrl == null || supabaseUrl.isEmpty() || !NetworkUtils.isOnline(appContext)) {
+            return;
+        }
+        Request request = new Request.Builder()
+                .url(supabaseUrl + "/auth/v1/health")
+                .get()
+                .addHeader("apikey", supabaseKey)
+                .build();
+        httpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                android.util.Log.d("SupabaseClient", "Connection pre-warm failed: " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                // Only the pooled connection matters; release it straight away.
+                response.close();
+            }
+        });
+    }
+
+    /**
+     * Call factory for image loading that shares this client's connection pool and dispatcher,
+     * so storage images reuse the warmed HTTP/2 connection. The REST response cache, freshness
+     * rules and metrics are left out; Glide keeps its own caches.
+     */
+    public Call.Factory newImageCallFactory() {
+        OkHttpClient.Builder builder = httpClient.newBuilder()
+                .cache(null)
+                .eventListener(EventListener.NONE);
+        builder.interceptors().clear();
+        builder.networkInterceptors().clear();
+        return builder.build();
+    }
+
+    /**
+     * Shared Supabase Realtime connection. It reuses this client's connection pool but has no read
+     * timeout, since the socket idles between heartbeats. {@code SUPABASE_REALTIME_URL} in
+     * local.properties points it at another server, such as the local stand-in in database/local.
+     */
+    public synchronized RealtimeClient getRealtime() {
+        if (realtimeClient == null) {
+            OkHttpClient.Builder builder = httpClient.newBuilder()
+                    .cache(null)
+                    .eventListener(EventListener.NONE)
+                    .readTimeout(0, TimeUnit.MILLISECONDS);
+            builder.interceptors().clear();
+            builder.networkInterceptors().clear();
+            String endpoint = !BuildConfig.SUPABASE_REALTIME_URL.isEmpty()
+                    ? BuildConfig.SUPABASE_REALTIME_URL
+                    : supabaseUrl.isEmpty() ? "" : RealtimeClient.endpointFor(supabaseUrl);
+            realtimeClient = new RealtimeClient(builder.build(), endpoint, supabaseKey, () -> accessToken);
+        }
+        return realtimeClient;
+    }
+
+    /**
+     * Per-endpoint latency and byte histograms for every call made through this client.
+     */
+    public NetworkMetrics getNetworkMetrics() {
+        return networkMetrics;
+    }
+
+    /**
+     * Number of reads that were served by joining an identical request already in flight.
+     */
+    public long getCoalescedRequestCount() {
+        return readCoalescer.getCoalescedCount();
+    }
     
     // ========== Authentication Methods ==========
     
@@ -360,32 +498,77 @@ public class SupabaseClient {
             @Override
             public void onFailure(Call call, IOException e) {
                 // Clear local session anyway
+                tokenRefreshManager.cancelProactiveRefresh();
                 accessToken = null;
                 refreshToken = null;
                 accessTokenExpiry = 0L;
                 userId = null;
                 sessionManager.logout();
+                responseCache.clear();
+                entityStore.clear();
+                MessageSearchIndex.getInstance(appContext).clear();
                 mainHandler.post(() -> callback.onSuccess(""));
             }
             
             @Override
             public void onResponse(Call call, Response response) throws IOException {
+                tokenRefreshManager.cancelProactiveRefresh();
                 accessToken = null;
                 refreshToken = null;
                 accessTokenExpiry = 0L;
                 userId = null;
                 sessionManager.logout();
+                responseCache.clear();
+                entityStore.clear();
+                MessageSearchIndex.getInstance(appContext).clear();
                 mainHandler.post(() -> callback.onSuccess(""));
             }
         });
     }
     
     // ========== Database Methods ==========
+
+    private void invalidateProfileCache() {
+        mainHandler.post(() -> ProfileCache.getInstance(appContext).invalidateAll());
+    }
+
+    /**
+     * Called after every successful REST write: drops cached reads of the table and folds the
+     * returned representation into the {@link EntityStore}, so screens rendering from the store
+     * show the new values (or stop showing a deleted row) before they revalidate.
+     */
+    private void recordWrite(@NonNull Request request, @Nullable String responseBody) {
+        responseCache.invalidateTable(request.url());
+        String table = SupabaseResponseCache.tableOf(request.url());
+        if (table == null || "rpc".equals(table)) {
+            return;
+        }
+        if ("profiles".equals(table)) {
+            invalidateProfileCache();
+        }
+        if ("DELETE".equals(request.method())) {
+            String idFilter = request.url().queryParameter("id");
+            if (idFilter != null && idFilter.startsWith("eq.")) {
+                entityStore.remove(table, Collections.singletonList(idFilter.substring(3)));
+            }
+            return;
+        }
+        if (responseBody != null && responseBody.trim().startsWith("[")) {
+            entityStore.save(table, responseBody);
+        }
+    }
     
     /**
      * Insert data into a table
      */
     public void insert(String table, Object data, OnDatabaseCallback callback) {
+        insert(table, data, RequestPriority.INTERACTIVE, callback);
+    }
+
+    /**
+     * Insert data into a table on the given scheduling lane.
+     */
+    public void insert(String table, Object data, RequestPriority priority, OnDatabaseCallback callback) {
         Runnable requestRunnable = () -> {
             String jsonData = gson.toJson(data);
 
@@ -405,10 +588,10 @@ public class SupabaseClient {
                 requestBuilder.addHeader("Authorization", "Bearer " + accessToken);
             }
 
-            httpClient.newCall(requestBuilder.build()).enqueue(new Callback() {
+            execute(priority, RequestScope.of(callback), requestBuilder.build(), new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
-                    mainHandler.post(() -> callback.onError("Network error: " + e.getMessage()));
+                    mainHandler.post(() -> callback.onFailure(SupabaseError.fromException(e)));
                 }
 
                 @Override
@@ -416,9 +599,10 @@ public class SupabaseClient {
                     String responseBody = response.body().string();
 
                     if (response.isSuccessful()) {
+                        recordWrite(call.request(), responseBody);
                         mainHandler.post(() -> callback.onSuccess(responseBody));
                     } else {
-                        mainHandler.post(() -> callback.onError("Insert failed: " + responseBody));
+                        mainHandler.post(() -> callback.onFailure(SupabaseError.fromResponse(response, "Insert failed: " + responseBody)));
                     }
                 }
             });
@@ -426,14 +610,171 @@ public class SupabaseClient {
 
         runWithSession(
             requestRunnable,
-            () -> mainHandler.post(() -> callback.onError("Session expired. Please log in again."))
+            () -> mainHandler.post(() -> callback.onFailure(SupabaseError.sessionExpired()))
         );
     }
     
     /**
-     * Select data from a table
+     * Apply the same PATCH to every row whose column matches one of the values, using a single
+     * {@code column=in.(...)} filter instead of one request per row. The patched rows come back
+     * like {@link #update}'s, so the {@link EntityStore} holds their new values.
      */
-    public void select(String table, String query, OnDatabaseCallback callback) {
+    public void updateWhereIn(String table, String column, Collection<String> values, Object data, OnDatabaseCallback callback) {
+        if (values == null || values.isEmpty()) {
+            mainHandler.post(() -> callback.onSuccess("[]"));
+            return;
+        }
+        executeJsonWrite(
+            "PATCH",
+            supabaseUrl + "/rest/v1/" + table + "?" + column + "=" + buildInFilter(values),
+            gson.toJson(data),
+            "return=representation",
+            "Update failed: ",
+            callback
+        );
+    }
+
+    /**
+     * Builds an encoded PostgREST {@code in.(...)} filter value with each entry double-quoted.
+     */
+    public static String buildInFilter(Collection<String> values) {
+        StringBuilder builder = new StringBuilder("(");
+        boolean first = true;
+        for (String value : values) {
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            if (!first) {
+                builder.append(",");
+            }
+            builder.append("\"").append(value.replace("\"", "\\\"")).append("\"");
+            first = false;
+        }
+        builder.append(")");
+        return "in." + Uri.encode(builder.toString());
+    }
+
+    private void executeJsonWrite(String method, String url, String jsonBody, String prefer,
+                                  String failurePrefix, OnDatabaseCallback callback) {
+        Runnable requestRunnable = () -> {
+            RequestBody body = RequestBody.create(
+                jsonBody,
+                MediaType.parse("application/json")
+            );
+
+            Request.Builder requestBuilder = new Request.Builder()
+                    .url(url)
+                    .method(method, body)
+                    .addHeader("apikey", supabaseKey)
+                    .addHeader("Content-Type", "application/json")
+                    .addHeader("Prefer", prefer);
+
+            if (accessToken != null) {
+                requestBuilder.addHeader("Authorization", "Bearer " + accessToken);
+            }
+
+            execute(RequestPriority.INTERACTIVE, RequestScope.of(callback), requestBuilder.build(), new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    mainHandler.post(() -> callback.onFailure(SupabaseError.fromException(e)));
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    String responseBody = response.body() != null ? response.body().string() : "";
+
+                    if (response.isSuccessful()) {
+                        recordWrite(call.request(), responseBody);
+                        mainHandler.post(() -> callback.onSuccess(responseBody));
+                    } else {
+                        mainHandler.post(() -> callback.onFailure(SupabaseError.fromResponse(response, failurePrefix + responseBody)));
+                    }
+                }
+            });
+        };
+
+        runWithSession(
+            requestRunnable,
+            () -> mainHandler.post(() -> callback.onFailure(SupabaseError.sessionExpired()))
+        );
+    }
+
+    /**
+     * Sends one write on behalf of {@link WriteOutbox}, reporting a structured error so the
+     * outbox can tell retryable failures from rejections.
+     */
+    void executeOutboxWrite(String method, String pathAndQuery, String jsonBody, String prefer,
+                            OnWriteResultCallback callback) {
+        Runnable requestRunnable = () -> {
+            RequestBody body = RequestBody.create(
+                jsonBody,
+                MediaType.parse("application/json")
+            );
+
+            Request.Builder requestBuilder = new Request.Builder()
+                    .url(supabaseUrl + pathAndQuery)
+                    .method(method, body)
+                    .addHeader("apikey", supabaseKey)
+                    .addHeader("Content-Type", "application/json")
+                    .addHeader("Prefer", prefer);
+
+            if (accessToken != null) {
+                requestBuilder.addHeader("Authorization", "Bearer " + accessToken);
+            }
+
+            execute(RequestPriority.INTERACTIVE, RequestScope.of(callback), requestBuilder.build(), new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    mainHandler.post(() -> callback.onFailure(SupabaseError.fromException(e)));
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    String responseBody = response.body() != null ? response.body().string() : "";
+
+                    if (response.isSuccessful()) {
+                        recordWrite(call.request(), responseBody);
+                        mainHandler.post(() -> callback.onSuccess(responseBody));
+                    } else {
+                        mainHandler.post(() -> callback.onFailure(SupabaseError.fromResponse(response, "Write failed: " + responseBody)));
+                    }
+                }
+            });
+        };
+
+        // The outbox must tell a revoked session, which needs a new sign-in, from a refresh that
+        // merely could not reach the server.
+        runWithSession(
+            requestRunnable,
+            () -> mainHandler.post(() -> callback.onFailure(
+                refreshRejected ? SupabaseError.sessionExpired() : SupabaseError.refreshUnavailable()))
+        );
+    }
+
+    /**
+     * Runs a read built with {@link SupabaseQuery}, which always names its columns.
+     */
+    public void select(SupabaseQuery query, OnDatabaseCallback callback) {
+        query(query.build(), callback);
+    }
+
+    /**
+     * Select every column of a table.
+     *
+     * @deprecated fetches whole rows; use {@link #select(SupabaseQuery, OnDatabaseCallback)} with
+     * an explicit projection instead.
+     */
+    @Deprecated
+    public void select(String table, String query, OnDatabaseCallback originalCallback) {
+        String flightKey = RequestCoalescer.keyFor(
+            supabaseUrl + "/rest/v1/" + table + "?select=*" + (query != null && !query.isEmpty() ? "&" + query : ""),
+            authIdentity()
+        );
+        if (!readCoalescer.join(flightKey, originalCallback)) {
+            return;
+        }
+        OnDatabaseCallback callback = readCoalescer.fanOut(flightKey);
+
         Runnable requestRunnable = () -> {
             HttpUrl.Builder urlBuilder = HttpUrl.parse(supabaseUrl + "/rest/v1/" + table).newBuilder();
             urlBuilder.addQueryParameter("select", "*");
@@ -452,10 +793,10 @@ public class SupabaseClient {
                 requestBuilder.addHeader("Authorization", "Bearer " + accessToken);
             }
 
-            httpClient.newCall(requestBuilder.build()).enqueue(new Callback() {
+            execute(RequestPriority.INTERACTIVE, RequestScope.of(callback), requestBuilder.build(), new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
-                    mainHandler.post(() -> callback.onError("Network error: " + e.getMessage()));
+                    mainHandler.post(() -> callback.onFailure(SupabaseError.fromException(e)));
                 }
 
                 @Override
@@ -465,7 +806,7 @@ public class SupabaseClient {
                     if (response.isSuccessful()) {
                         mainHandler.post(() -> callback.onSuccess(responseBody));
                     } else {
-                        mainHandler.post(() -> callback.onError("Select failed: " + responseBody));
+                        mainHandler.post(() -> callback.onFailure(SupabaseError.fromResponse(response, "Select failed: " + responseBody)));
                     }
                 }
             });
@@ -473,7 +814,7 @@ public class SupabaseClient {
 
         runWithSession(
             requestRunnable,
-            () -> mainHandler.post(() -> callback.onError("Session expired. Please log in again."))
+            () -> mainHandler.post(() -> callback.onFailure(SupabaseError.sessionExpired()))
         );
     }
     
@@ -481,13 +822,21 @@ public class SupabaseClient {
      * Update data in a table
      */
     public void update(String table, String id, Object data, OnDatabaseCallback callback) {
-        update(table, "id", id, data, callback);
+        update(table, "id", id, data, RequestPriority.INTERACTIVE, callback);
     }
 
     /**
      * Update data in a table by an arbitrary column (e.g., user_id).
      */
     public void update(String table, String column, String value, Object data, OnDatabaseCallback callback) {
+        update(table, column, value, data, RequestPriority.INTERACTIVE, callback);
+    }
+
+    /**
+     * Update data in a table by an arbitrary column on the given scheduling lane.
+     */
+    public void update(String table, String column, String value, Object data,
+                       RequestPriority priority, OnDatabaseCallback callback) {
         Runnable requestRunnable = () -> {
             String jsonData = gson.toJson(data);
 
@@ -507,10 +856,10 @@ public class SupabaseClient {
                 requestBuilder.addHeader("Authorization", "Bearer " + accessToken);
             }
 
-            httpClient.newCall(requestBuilder.build()).enqueue(new Callback() {
+            execute(priority, RequestScope.of(callback), requestBuilder.build(), new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
-                    mainHandler.post(() -> callback.onError("Network error: " + e.getMessage()));
+                    mainHandler.post(() -> callback.onFailure(SupabaseError.fromException(e)));
                 }
 
                 @Override
@@ -518,9 +867,10 @@ public class SupabaseClient {
                     String responseBody = response.body().string();
 
                     if (response.isSuccessful()) {
+                        recordWrite(call.request(), responseBody);
                         mainHandler.post(() -> callback.onSuccess(responseBody));
                     } else {
-                        mainHandler.post(() -> callback.onError("Update failed: " + responseBody));
+                        mainHandler.post(() -> callback.onFailure(SupabaseError.fromResponse(response, "Update failed: " + responseBody)));
                     }
                 }
             });
@@ -528,7 +878,7 @@ public class SupabaseClient {
 
         runWithSession(
             requestRunnable,
-            () -> mainHandler.post(() -> callback.onError("Session expired. Please log in again."))
+            () -> mainHandler.post(() -> callback.onFailure(SupabaseError.sessionExpired()))
         );
     }
     
@@ -554,19 +904,20 @@ public class SupabaseClient {
                 requestBuilder.addHeader("Authorization", "Bearer " + accessToken);
             }
 
-            httpClient.newCall(requestBuilder.build()).enqueue(new Callback() {
+            execute(RequestPriority.INTERACTIVE, RequestScope.of(callback), requestBuilder.build(), new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
-                    mainHandler.post(() -> callback.onError("Network error: " + e.getMessage()));
+                    mainHandler.post(() -> callback.onFailure(SupabaseError.fromException(e)));
                 }
 
                 @Override
                 public void onResponse(Call call, Response response) throws IOException {
                     if (response.isSuccessful()) {
+                        recordWrite(call.request(), null);
                         mainHandler.post(() -> callback.onSuccess("Deleted successfully"));
                     } else {
                         String responseBody = response.body().string();
-                        mainHandler.post(() -> callback.onError("Delete failed: " + responseBody));
+                        mainHandler.post(() -> callback.onFailure(SupabaseError.fromResponse(response, "Delete failed: " + responseBody)));
                     }
                 }
             });
@@ -574,7 +925,7 @@ public class SupabaseClient {
 
         runWithSession(
             requestRunnable,
-            () -> mainHandler.post(() -> callback.onError("Session expired. Please log in again."))
+            () -> mainHandler.post(() -> callback.onFailure(SupabaseError.sessionExpired()))
         );
     }
 
@@ -593,19 +944,20 @@ public class SupabaseClient {
                 requestBuilder.addHeader("Authorization", "Bearer " + accessToken);
             }
 
-            httpClient.newCall(requestBuilder.build()).enqueue(new Callback() {
+            execute(RequestPriority.INTERACTIVE, RequestScope.of(callback), requestBuilder.build(), new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
-                    mainHandler.post(() -> callback.onError("Network error: " + e.getMessage()));
+                    mainHandler.post(() -> callback.onFailure(SupabaseError.fromException(e)));
                 }
 
                 @Override
                 public void onResponse(Call call, Response response) throws IOException {
                     String responseBody = response.body() != null ? response.body().string() : "";
                     if (response.isSuccessful()) {
+                        recordWrite(call.request(), responseBody);
                         mainHandler.post(() -> callback.onSuccess(responseBody));
                     } else {
-                        mainHandler.post(() -> callback.onError("Delete failed: " + responseBody));
+                        mainHandler.post(() -> callback.onFailure(SupabaseError.fromResponse(response, "Delete failed: " + responseBody)));
                     }
                 }
             });
@@ -613,7 +965,7 @@ public class SupabaseClient {
 
         runWithSession(
             requestRunnable,
-            () -> mainHandler.post(() -> callback.onError("Session expired. Please log in again."))
+            () -> mainHandler.post(() -> callback.onFailure(SupabaseError.sessionExpired()))
         );
     }
     
@@ -635,7 +987,7 @@ public class SupabaseClient {
 
         runWithSession(
             requestRunnable,
-            () -> mainHandler.post(() -> callback.onError("Session expired. Please log in again."))
+            () -> mainHandler.post(() -> callback.onFailure(SupabaseError.sessionExpired()))
         );
     }
 
@@ -654,11 +1006,11 @@ public class SupabaseClient {
         }
         requestBuilder.addHeader("Authorization", "Bearer " + authToken);
 
-        httpClient.newCall(requestBuilder.build()).enqueue(new Callback() {
+        execute(RequestPriority.INTERACTIVE, RequestScope.of(callback), requestBuilder.build(), new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
                 android.util.Log.e("SupabaseClient", "uploadFile network failure", e);
-                mainHandler.post(() -> callback.onError("Network error: " + e.getMessage()));
+                mainHandler.post(() -> callback.onFailure(SupabaseError.fromException(e)));
             }
 
             @Override
@@ -673,7 +1025,7 @@ public class SupabaseClient {
                     android.util.Log.w("SupabaseClient", "Upload 403 with user token; retrying with anon key");
                     sendUploadRequest(bucket, path, body, true, callback);
                 } else {
-                    mainHandler.post(() -> callback.onError("Upload failed: " + responseBody));
+                    mainHandler.post(() -> callback.onFailure(SupabaseError.fromResponse(response, "Upload failed: " + responseBody)));
                 }
             }
         });
@@ -692,10 +1044,10 @@ public class SupabaseClient {
             String authToken = (accessToken != null && !accessToken.isEmpty()) ? accessToken : supabaseKey;
             requestBuilder.addHeader("Authorization", "Bearer " + authToken);
 
-            httpClient.newCall(requestBuilder.build()).enqueue(new Callback() {
+            execute(RequestPriority.INTERACTIVE, RequestScope.of(callback), requestBuilder.build(), new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
-                    mainHandler.post(() -> callback.onError("Network error: " + e.getMessage()));
+                    mainHandler.post(() -> callback.onFailure(SupabaseError.fromException(e)));
                 }
 
                 @Override
@@ -705,7 +1057,7 @@ public class SupabaseClient {
                         mainHandler.post(() -> callback.onSuccess(url));
                     } else {
                         String responseBody = response.body().string();
-                        mainHandler.post(() -> callback.onError("Download failed: " + responseBody));
+                        mainHandler.post(() -> callback.onFailure(SupabaseError.fromResponse(response, "Download failed: " + responseBody)));
                     }
                 }
             });
@@ -713,7 +1065,7 @@ public class SupabaseClient {
 
         runWithSession(
             requestRunnable,
-            () -> mainHandler.post(() -> callback.onError("Session expired. Please log in again."))
+            () -> mainHandler.post(() -> callback.onFailure(SupabaseError.sessionExpired()))
         );
     }
     
@@ -729,7 +1081,21 @@ public class SupabaseClient {
     /**
      * Generic GET request to Supabase REST API
      */
-    public void query(String endpoint, OnDatabaseCallback callback) {
+    public void query(String endpoint, OnDatabaseCallback originalCallback) {
+        query(endpoint, RequestPriority.INTERACTIVE, originalCallback);
+    }
+
+    /**
+     * Generic GET request on the given scheduling lane. Identical reads share one request
+     * regardless of the lane they were issued on.
+     */
+    public void query(String endpoint, RequestPriority priority, OnDatabaseCallback originalCallback) {
+        String flightKey = RequestCoalescer.keyFor(supabaseUrl + endpoint, authIdentity());
+        if (!readCoalescer.join(flightKey, originalCallback)) {
+            return;
+        }
+        OnDatabaseCallback callback = readCoalescer.fanOut(flightKey);
+
         Runnable requestRunnable = () -> {
             Request.Builder requestBuilder = new Request.Builder()
                 .url(supabaseUrl + endpoint)
@@ -742,10 +1108,10 @@ public class SupabaseClient {
 
             Request request = requestBuilder.build();
 
-            httpClient.newCall(request).enqueue(new Callback() {
+            execute(priority, RequestScope.of(callback), request, new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
-                    mainHandler.post(() -> callback.onError("Network error: " + e.getMessage()));
+                    mainHandler.post(() -> callback.onFailure(SupabaseError.fromException(e)));
                 }
 
                 @Override
@@ -755,7 +1121,7 @@ public class SupabaseClient {
                     if (response.isSuccessful()) {
                         mainHandler.post(() -> callback.onSuccess(responseBody));
                     } else {
-                        mainHandler.post(() -> callback.onError("Query failed: " + responseBody));
+                        mainHandler.post(() -> callback.onFailure(SupabaseError.fromResponse(response, "Query failed: " + responseBody)));
                     }
                 }
             });
@@ -763,14 +1129,176 @@ public class SupabaseClient {
 
         runWithSession(
             requestRunnable,
-            () -> mainHandler.post(() -> callback.onError("Session expired. Please log in again."))
+            () -> mainHandler.post(() -> callback.onFailure(SupabaseError.sessionExpired()))
         );
     }
     
+    /**
+     * Keyset-paginated GET. The endpoint carries the select and filters but no order or limit;
+     * rows are ordered newest first by (created_at, id), which must both be selected. Pass a null
+     * page token for the first page and the token handed to the callback for each following page.
+     * A null next token means the last page has been reached. Because every page is an index range
+     * scan from the cursor, latency stays the same however deep the user scrolls.
+     */
+    public void queryPage(String endpoint, @Nullable String pageToken, int pageSize, OnPageCallback callback) {
+        queryPage(endpoint, pageToken, pageSize, RequestPriority.INTERACTIVE, callback);
+    }
+
+    /**
+     * {@link #queryPage} on the given scheduling lane. A page requested on the PREFETCH lane fails
+     * with a network error if it is still queued when an interactive call arrives.
+     */
+    public void queryPage(String endpoint, @Nullable String pageToken, int pageSize, RequestPriority priority,
+                          OnPageCallback callback) {
+        StringBuilder pagedEndpoint = new StringBuilder(endpoint)
+            .append(endpoint.contains("?") ? "&" : "?")
+            .append("order=created_at.desc,id.desc&limit=").append(pageSize + 1);
+        if (pageToken != null) {
+            String[] cursor = decodePageToken(pageToken);
+            if (cursor == null) {
+                mainHandler.post(() -> callback.onFailure(SupabaseError.rejected("Invalid page token")));
+                return;
+            }
+            String createdAt = "\"" + cursor[0] + "\"";
+            String id = "\"" + cursor[1] + "\"";
+            pagedEndpoint.append("&and=").append(Uri.encode(
+                "(or(created_at.lt." + createdAt + ",and(created_at.eq." + createdAt + ",id.lt." + id + ")))"
+            ));
+        }
+
+        Runnable requestRunnable = () -> {
+            Request.Builder requestBuilder = new Request.Builder()
+                .url(supabaseUrl + pagedEndpoint)
+                .get()
+                .addHeader("apikey", supabaseKey)
+                .addHeader("Content-Type", "application/json");
+
+            String authToken = (accessToken != null && !accessToken.isEmpty()) ? accessToken : supabaseKey;
+            requestBuilder.addHeader("Authorization", "Bearer " + authToken);
+
+            execute(priority, RequestScope.of(callback), requestBuilder.build(), new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    mainHandler.post(() -> callback.onFailure(SupabaseError.fromException(e)));
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    String responseBody = response.body() != null ? response.body().string() : "";
+                    if (!response.isSuccessful()) {
+                        mainHandler.post(() -> callback.onFailure(SupabaseError.fromResponse(response, "Query failed: " + responseBody)));
+                        return;
+                    }
+                    try {
+                        // One extra row is requested to learn whether another page exists.
+                        JSONArray fetched = new JSONArray(responseBody);
+                        JSONArray page = new JSONArray();
+                        for (int i = 0; i < Math.min(pageSize, fetched.length()); i++) {
+                            page.put(fetched.get(i));
+                        }
+                        String nextToken = null;
+                        if (fetched.length() > pageSize) {
+                            JSONObject last = page.getJSONObject(page.length() - 1);
+                            nextToken = encodePageToken(last.optString("created_at"), last.optString("id"));
+                        }
+                        String finalNextToken = nextToken;
+                        mainHandler.post(() -> callback.onSuccess(page, finalNextToken));
+                    } catch (JSONException e) {
+                        mainHandler.post(() -> callback.onFailure(SupabaseError.parse(e)));
+                    }
+                }
+            });
+        };
+
+        runWithSession(
+            requestRunnable,
+            () -> mainHandler.post(() -> callback.onFailure(SupabaseError.sessionExpired()))
+        );
+    }
+
+    @Nullable
+    static String encodePageToken(String createdAt, String id) {
+        if (createdAt == null || createdAt.isEmpty() || id == null || id.isEmpty()) {
+            android.util.Log.w("SupabaseClient", "Page rows must select created_at and id; stopping pagination");
+            return null;
+        }
+        byte[] raw = (createdAt + "\n" + id).getBytes(StandardCharsets.UTF_8);
+        return Base64.encodeToString(raw, Base64.URL_SAFE | Base64.NO_WRAP | Base64.NO_PADDING);
+    }
+
+    @Nullable
+    static String[] decodePageToken(String pageToken) {
+        try {
+            String raw = new String(Base64.decode(pageToken, Base64.URL_SAFE | Base64.NO_WRAP), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\n", 2);
+            return parts.length == 2 && !parts[0].isEmpty() && !parts[1].isEmpty() ? parts : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Streaming GET request for endpoints that return a JSON array. The body is read with a
+     * streaming parser and each row is handed to the callback as soon as it has been parsed, so
+     * the payload is never held in memory as one String. Rows are delivered on the network thread.
+     */
+    public void queryStream(String endpoint, OnRowStreamCallback callback) {
+        Runnable requestRunnable = () -> {
+            Request.Builder requestBuilder = new Request.Builder()
+                .url(supabaseUrl + endpoint)
+                .get()
+                .addHeader("apikey", supabaseKey)
+                .addHeader("Content-Type", "application/json");
+
+            String authToken = (accessToken != null && !accessToken.isEmpty()) ? accessToken : supabaseKey;
+            requestBuilder.addHeader("Authorization", "Bearer " + authToken);
+
+            execute(RequestPriority.INTERACTIVE, RequestScope.of(callback), requestBuilder.build(), new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    callback.onFailure(SupabaseError.fromException(e));
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    try (ResponseBody responseBody = response.body()) {
+                        if (!response.isSuccessful() || responseBody == null) {
+                            String errorBody = responseBody != null ? responseBody.string() : "";
+                            callback.onFailure(SupabaseError.fromResponse(response, "Query failed: " + errorBody));
+                            return;
+                        }
+                        JsonReader reader = new JsonReader(responseBody.charStream());
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            callback.onRow(JsonStreamDecoder.readObject(reader));
+                        }
+                        reader.endArray();
+                        callback.onComplete();
+                    } catch (Exception e) {
+                        android.util.Log.e("SupabaseClient", "Stream parse error: " + e.getMessage(), e);
+                        callback.onFailure(SupabaseError.parse(e));
+                    }
+                }
+            });
+        };
+
+        runWithSession(
+            requestRunnable,
+            () -> callback.onFailure(SupabaseError.sessionExpired())
+        );
+    }
+
     /**
      * Generic PATCH request to Supabase REST API
      */
     public void updateRecord(String endpoint, JsonObject data, OnDatabaseCallback callback) {
+        updateRecord(endpoint, data, RequestPriority.INTERACTIVE, callback);
+    }
+
+    /**
+     * Generic PATCH request on the given scheduling lane.
+     */
+    public void updateRecord(String endpoint, JsonObject data, RequestPriority priority, OnDatabaseCallback callback) {
         Runnable requestRunnable = () -> {
             RequestBody body = RequestBody.create(
                 gson.toJson(data),
@@ -789,10 +1317,10 @@ public class SupabaseClient {
 
             Request request = requestBuilder.build();
 
-            httpClient.newCall(request).enqueue(new Callback() {
+            execute(priority, RequestScope.of(callback), request, new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
-                    mainHandler.post(() -> callback.onError("Network error: " + e.getMessage()));
+                    mainHandler.post(() -> callback.onFailure(SupabaseError.fromException(e)));
                 }
 
                 @Override
@@ -800,9 +1328,107 @@ public class SupabaseClient {
                     String responseBody = response.body() != null ? response.body().string() : "";
 
                     if (response.isSuccessful()) {
+                        recordWrite(call.request(), responseBody);
                         mainHandler.post(() -> callback.onSuccess(responseBody));
                     } else {
-                        mainHandler.post(() -> callback.onError("Update failed: " + responseBody));
+                        mainHandler.post(() -> callback.onFailure(SupabaseError.fromResponse(response, "Update failed: " + responseBody)));
+                    }
+                }
+            });
+        };
+
+        runWithSession(
+            requestRunnable,
+            () -> mainHandler.post(() -> callback.onFailure(SupabaseError.sessionExpired()))
+        );
+    }
+
+    // ========== RPC Methods ==========
+
+    /**
+     * Calls a Postgres function on the interactive lane. See {@link SupabaseRpc}.
+     */
+    public void rpc(SupabaseRpc rpc, OnDatabaseCallback callback) {
+        rpc(rpc, RequestPriority.INTERACTIVE, callback);
+    }
+
+    /**
+     * Calls a Postgres function through {@code /rest/v1/rpc/<name>} with the same session
+     * handling, scheduling, circuit breaking and scoping as table calls. The callback receives the
+     * raw response body: a JSON array for set-returning functions, a JSON value for scalar ones
+     * and an empty string for void ones. Read-only functions are sent as GET and share identical
+     * in-flight calls; all others are POSTed with the arguments as a JSON object.
+     */
+    public void rpc(SupabaseRpc rpc, RequestPriority priority, OnDatabaseCallback originalCallback) {
+        String functionUrl = supabaseUrl + "/rest/v1/rpc/" + rpc.getFunction();
+        HttpUrl url;
+        RequestBody body = null;
+        if (rpc.isReadOnly()) {
+            HttpUrl base = HttpUrl.parse(functionUrl);
+            if (base == null) {
+                mainHandler.post(() -> originalCallback.onFailure(SupabaseError.rejected("Invalid RPC url: " + functionUrl)));
+                return;
+            }
+            HttpUrl.Builder urlBuilder = base.newBuilder();
+            for (Map.Entry<String, Object> arg : rpc.getArgs().entrySet()) {
+                urlBuilder.addQueryParameter(arg.getKey(), SupabaseRpc.queryValue(arg.getValue()));
+            }
+            url = urlBuilder.build();
+        } else {
+            url = HttpUrl.parse(functionUrl);
+            if (url == null) {
+                mainHandler.post(() -> originalCallback.onFailure(SupabaseError.rejected("Invalid RPC url: " + functionUrl)));
+                return;
+            }
+            body = RequestBody.create(gson.toJson(rpc.getArgs()), MediaType.parse("application/json"));
+        }
+
+        OnDatabaseCallback callback = originalCallback;
+        if (rpc.isReadOnly()) {
+            String flightKey = RequestCoalescer.keyFor(url.toString(), authIdentity());
+            if (!readCoalescer.join(flightKey, originalCallback)) {
+                return;
+            }
+            callback = readCoalescer.fanOut(flightKey);
+        }
+        OnDatabaseCallback target = callback;
+        RequestBody requestBody = body;
+
+        Runnable requestRunnable = () -> {
+            Request.Builder requestBuilder = new Request.Builder()
+                .url(url)
+                .addHeader("apikey", supabaseKey)
+                .addHeader("Content-Type", "application/json");
+            if (requestBody != null) {
+                requestBuilder.post(requestBody);
+            } else {
+                requestBuilder.get();
+            }
+
+            String authToken = (accessToken != null && !accessToken.isEmpty()) ? accessToken : supabaseKey;
+            requestBuilder.addHeader("Authorization", "Bearer " + authToken);
+
+            execute(priority, RequestScope.of(target), requestBuilder.build(), new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    mainHandler.post(() -> target.onFailure(SupabaseError.fromException(e)));
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) throws IOException {
+                    String responseBody = response.body() != null ? response.body().string() : "";
+
+                    if (response.isSuccessful()) {
+                        for (String table : rpc.getInvalidatedTables()) {
+                            responseCache.invalidateTable(table);
+                            if ("profiles".equalsIgnoreCase(table)) {
+                                invalidateProfileCache();
+                            }
+                        }
+                        mainHandler.post(() -> target.onSuccess(responseBody));
+                    } else {
+                        mainHandler.post(() -> target.onFailure(SupabaseError.fromResponse(response,
+                            "RPC " + rpc.getFunction() + " failed: " + responseBody)));
                     }
                 }
             });
@@ -810,10 +1436,108 @@ public class SupabaseClient {
 
         runWithSession(
             requestRunnable,
-            () -> mainHandler.post(() -> callback.onError("Session expired. Please log in again."))
+            () -> mainHandler.post(() -> target.onFailure(SupabaseError.sessionExpired()))
         );
     }
 
+    /**
+     * Sends a data call through its endpoint group's circuit breaker and then the scheduler.
+     * Idempotent reads that fail transiently are retried with capped, jittered exponential
+     * backoff that honors Retry-After, while the group's retry budget lasts. Writes are never
+     * retried here; {@link WriteOutbox} owns retries for writes that must land.
+     *
+     * Calls made for a {@link RequestScope} are tracked by it. Once the scope is cancelled no
+     * further attempt is made and nothing is delivered to the callback.
+     */
+    private void execute(RequestPriority priority, @Nullable RequestScope scope, Request request, Callback callback) {
+        CircuitBreaker breaker = circuitBreakers.computeIfAbsent(
+            CircuitBreaker.groupFor(request.url()), CircuitBreaker::new
+        );
+        attempt(priority, scope, request, breaker, 0, callback);
+    }
+
+    private void attempt(RequestPriority priority, @Nullable RequestScope scope, Request request,
+                         CircuitBreaker breaker, int retry, Callback callback) {
+        if (scope != null && scope.isCancelled()) {
+            return;
+        }
+        Call call = httpClient.newCall(request);
+        if (!breaker.tryAcquire()) {
+            callback.onFailure(call, new CircuitBreaker.OpenException(breaker.getGroup(), breaker.remainingOpenMs()));
+            return;
+        }
+        if (scope != null && !scope.track(call)) {
+            breaker.recordCanceled();
+            return;
+        }
+        scheduler.enqueue(priority, call, new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (scope != null) {
+                    scope.untrack(call);
+                }
+                if (call.isCanceled()) {
+                    breaker.recordCanceled();
+                    if (scope == null || !scope.isCancelled()) {
+                        callback.onFailure(call, e);
+                    }
+                    return;
+                }
+                breaker.recordFailure(0L);
+                if (!scheduleRetry(priority, scope, request, breaker, retry, 0L, callback)) {
+                    callback.onFailure(call, e);
+                }
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) throws IOException {
+                if (scope != null) {
+                    scope.untrack(call);
+                    if (scope.isCancelled()) {
+                        // Abandoned while the headers arrived; skip reading and parsing the body.
+                        breaker.recordCanceled();
+                        response.close();
+                        return;
+                    }
+                }
+                int code = response.code();
+                if (code != 408 && code != 429 && code < 500) {
+                    breaker.recordSuccess();
+                    callback.onResponse(call, response);
+                    return;
+                }
+                long retryAfterMs = SupabaseError.retryAfterMs(response);
+                breaker.recordFailure(retryAfterMs);
+                if (scheduleRetry(priority, scope, request, breaker, retry, retryAfterMs, callback)) {
+                    response.close();
+                    return;
+                }
+                callback.onResponse(call, response);
+            }
+        });
+    }
+
+    private boolean scheduleRetry(RequestPriority priority, @Nullable RequestScope scope, Request request,
+                                  CircuitBreaker breaker, int retry, long retryAfterMs, Callback callback) {
+        boolean idempotent = "GET".equals(request.method()) || "HEAD".equals(request.method());
+        if (!idempotent || retry >= MAX_READ_RETRIES || retryAfterMs > RETRY_MAX_DELAY_MS
+                || !breaker.tryAcquireRetry()) {
+            return false;
+        }
+        // Full jitter: anywhere up to the capped exponential window, but not before Retry-After.
+        long window = Math.min(RETRY_MAX_DELAY_MS, RETRY_BASE_DELAY_MS << retry);
+        long delayMs = Math.max(retryAfterMs, (long) (retryJitter.nextDouble() * window));
+        mainHandler.postDelayed(() -> attempt(priority, scope, request, breaker, retry + 1, callback), delayMs);
+        return true;
+    }
+
+    /**
+     * Identity used to partition shared reads; row-level security makes results user specific.
+     */
+    private String authIdentity() {
+        return (accessToken != null && userId != null) ? "user:" + userId : "anon";
+    }
+
     private boolean isAccessTokenExpired() {
         if (accessToken == null) {
             return false;
@@ -902,13 +1626,35 @@ public class SupabaseClient {
         refreshAccessToken(onReady, onAuthFailure);
     }
 
+    /**
+     * Refreshes the access token, sharing a single /auth/v1/token call between all callers that
+     * need a fresh token at the same time.
+     */
     private void refreshAccessToken(Runnable onSuccess, Runnable onFailure) {
         if (refreshToken == null || refreshToken.isEmpty()) {
+            refreshRejected = true;
             if (onFailure != null) {
                 onFailure.run();
             }
             return;
         }
+        tokenRefreshManager.refresh(onSuccess, onFailure);
+    }
+
+    private void scheduleProactiveRefresh() {
+        if (refreshToken != null && !refreshToken.isEmpty()) {
+            tokenRefreshManager.scheduleProactiveRefresh(accessTokenExpiry);
+        } else {
+            tokenRefreshManager.cancelProactiveRefresh();
+        }
+    }
+
+    private void performTokenRefresh(Runnable onSuccess, Runnable onFailure) {
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            refreshRejected = true;
+            mainHandler.post(onFailure);
+            return;
+        }
 
         JsonObject payload = new JsonObject();
         payload.addProperty("refresh_token", refreshToken);
@@ -928,14 +1674,15 @@ public class SupabaseClient {
         httpClient.newCall(request).enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
-                if (onFailure != null) {
-                    mainHandler.post(onFailure);
-                }
+                refreshRejected = false;
+                mainHandler.post(onFailure);
             }
 
             @Override
             public void onResponse(Call call, Response response) throws IOException {
                 String responseBody = response.body() != null ? response.body().string() : "";
+                // A 4xx means the refresh token was revoked or has expired; a 5xx may pass.
+                refreshRejected = response.code() >= 400 && response.code() < 500;
                 if (response.isSuccessful()) {
                     try {
                         JsonObject result = gson.fromJson(responseBody, JsonObject.class);
@@ -955,20 +1702,14 @@ public class SupabaseClient {
                             }
                             persistSession();
                         }
-                        if (onSuccess != null) {
-                            mainHandler.post(onSuccess);
-                        }
+                        mainHandler.post(onSuccess);
                     } catch (Exception e) {
                         android.util.Log.e("SupabaseClient", "Refresh parse error", e);
-                        if (onFailure != null) {
-                            mainHandler.post(onFailure);
-                        }
+                        mainHandler.post(onFailure);
                     }
                 } else {
                     android.util.Log.e("SupabaseClient", "Refresh failed: " + responseBody);
-                    if (onFailure != null) {
-                        mainHandler.post(onFailure);
-                    }
+                    mainHandler.post(onFailure);
                 }
             }
         });
@@ -982,6 +1723,7 @@ public class SupabaseClient {
             sessionManager.saveUserId(userId);
         }
         sessionManager.setLoggedIn(accessToken != null && userId != null);
+        scheduleProactiveRefresh();
     }
     
     // ========== Callback Interfaces ==========
@@ -991,13 +1733,59 @@ public class SupabaseClient {
         void onError(String error);
     }
     
+    /**
+     * Database results. Failures arrive through {@link #onFailure}, which by default forwards the
+     * message to {@link #onError}; override it to react to transient errors differently.
+     */
     public interface OnDatabaseCallback {
         void onSuccess(Object data);
         void onError(String error);
+
+        default void onFailure(SupabaseError error) {
+            onError(error.getMessage());
+        }
+    }
+
+    /**
+     * Receives one page from {@link #queryPage}; nextPageToken is null on the last page.
+     */
+    public interface OnPageCallback {
+        void onSuccess(JSONArray rows, @Nullable String nextPageToken);
+        void onError(String error);
+
+        default void onFailure(SupabaseError error) {
+            onError(error.getMessage());
+        }
     }
-    
+
+    /**
+     * Receives rows from {@link #queryStream}. Unlike the other callbacks this one is not posted
+     * to the main thread; implementations must hand results over themselves.
+     */
+    public interface OnRowStreamCallback {
+        void onRow(JSONObject row);
+        void onComplete();
+        void onError(String error);
+
+        default void onFailure(SupabaseError error) {
+            onError(error.getMessage());
+        }
+    }
+
+    /**
+     * Result of {@link #executeOutboxWrite}.
+     */
+    interface OnWriteResultCallback {
+        void onSuccess(String body);
+        void onFailure(SupabaseError error);
+    }
+
     public interface OnStorageCallback {
         void onSuccess(String url);
         void onError(String error);
+
+        default void onFailure(SupabaseError error) {
+            onError(error.getMessage());
+        }
     }
 }
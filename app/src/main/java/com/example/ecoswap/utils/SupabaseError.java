@@ -0,0 +1,143 @@
+package com.example.ecoswap.utils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Date;
+
+import okhttp3.Response;
+
+/**
+ * Structured failure of a Supabase call. Callbacks that only need a message keep receiving
+ * {@code onError(String)}; callbacks that override {@code onFailure(SupabaseError)} can also tell
+ * whether trying again later is worthwhile.
+ */
+public final class SupabaseError {
+
+    public enum Kind {
+        /** No HTTP response: offline, DNS, timeout or a dropped connection. */
+        NETWORK,
+        /** HTTP 429. */
+        RATE_LIMITED,
+        /** HTTP 5xx or 408. */
+        SERVER,
+        /** Not sent because the endpoint group's circuit breaker is open. */
+        CIRCUIT_OPEN,
+        /** The access token could not be refreshed; the user has to sign in again. */
+        SESSION_EXPIRED,
+        /** Any other 4xx, or a request the client refused to build. Retrying will not help. */
+        REJECTED,
+        /** The server answered but the body could not be decoded. */
+        PARSE
+    }
+
+    private final Kind kind;
+    private final int statusCode;
+    private final String message;
+    private final long retryAfterMs;
+
+    private SupabaseError(@NonNull Kind kind, int statusCode, @NonNull String message, long retryAfterMs) {
+        this.kind = kind;
+        this.statusCode = statusCode;
+        this.message = message;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    @NonNull
+    public Kind getKind() {
+        return kind;
+    }
+
+    /** HTTP status, or 0 when no response was received. */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    @NonNull
+    public String getMessage() {
+        return message;
+    }
+
+    /** How long the server or circuit breaker asked callers to wait, or 0 if unspecified. */
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
+    /** True when the same request may succeed later without any change on the client. */
+    public boolean isTransient() {
+        return kind == Kind.NETWORK || kind == Kind.RATE_LIMITED
+            || kind == Kind.SERVER || kind == Kind.CIRCUIT_OPEN;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return message;
+    }
+
+    @NonNull
+    static SupabaseError fromException(@NonNull IOException e) {
+        if (e instanceof CircuitBreaker.OpenException) {
+            return new SupabaseError(Kind.CIRCUIT_OPEN, 0,
+                "Service temporarily unavailable. Please try again shortly.",
+                ((CircuitBreaker.OpenException) e).getRetryAfterMs());
+        }
+        return new SupabaseError(Kind.NETWORK, 0, "Network error: " + e.getMessage(), 0L);
+    }
+
+    @NonNull
+    static SupabaseError fromResponse(@NonNull Response response, @NonNull String message) {
+        int code = response.code();
+        Kind kind;
+        if (code == 429) {
+            kind = Kind.RATE_LIMITED;
+        } else if (code >= 500 || code == 408) {
+            kind = Kind.SERVER;
+        } else {
+            kind = Kind.REJECTED;
+        }
+        return new SupabaseError(kind, code, message, retryAfterMs(response));
+    }
+
+    @NonNull
+    static SupabaseError sessionExpired() {
+        return new SupabaseError(Kind.SESSION_EXPIRED, 0, "Session expired. Please log in again.", 0L);
+    }
+
+    /**
+     * The access token had expired and refreshing it failed without a verdict from the auth
+     * server (no response or a 5xx), so the session may still be valid.
+     */
+    @NonNull
+    static SupabaseError refreshUnavailable() {
+        return new SupabaseError(Kind.NETWORK, 0, "Unable to refresh the session. Please check your connection.", 0L);
+    }
+
+    @NonNull
+    static SupabaseError rejected(@NonNull String message) {
+        return new SupabaseError(Kind.REJECTED, 0, message, 0L);
+    }
+
+    @NonNull
+    static SupabaseError parse(@NonNull Exception e) {
+        return new SupabaseError(Kind.PARSE, 0, "Parse error: " + e.getMessage(), 0L);
+    }
+
+    /**
+     * Reads a Retry-After header given either as delta-seconds or as an HTTP date.
+     */
+    static long retryAfterMs(@NonNull Response response) {
+        String value = response.header("Retry-After");
+        if (value == null) {
+            return 0L;
+        }
+        try {
+            return Math.max(0L, Long.parseLong(value.trim()) * 1000L);
+        } catch (NumberFormatException ignored) {
+            // Fall through to the HTTP-date form.
+        }
+        @Nullable Date date = response.headers().getDate("Retry-After");
+        return date != null ? Math.max(0L, date.getTime() - System.currentTimeMillis()) : 0L;
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.ecoswap.utils;
+
+import android.net.Uri;
+import android.text.TextUtils;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Builds PostgREST read endpoints for {@link SupabaseClient#query}. Every query must name the
+ * columns it needs, so wide rows such as profiles and posts are never fetched whole by accident:
+ *
+ * <pre>
+ * String endpoint = SupabaseQuery.from("posts")
+ *     .select("id", "title", "image_url", "created_at")
+ *     .embed("profiles", "name", "profile_image_url")
+ *     .eq("user_id", userId)
+ *     .order("created_at", false)
+ *     .limit(20)
+ *     .build();
+ * </pre>
+ *
+ * The part of the URL that does not depend on filter values (path, encoded projection, filter
+ * columns and operators, ordering) is compiled once per query shape and cached, so building the
+ * same query again only encodes the values.
+ */
+public final class SupabaseQuery {
+
+    private static final int TEMPLATE_CACHE_SIZE = 64;
+    private static final String PROJECTION_SAFE_CHARS = ",()!:*.";
+    private static final String EXPRESSION_SAFE_CHARS = ",().:*";
+    private static final LruCache<String, String[]> TEMPLATES = new LruCache<>(TEMPLATE_CACHE_SIZE);
+
+    private final String table;
+    private final List<String> projection = new ArrayList<>();
+    private final List<String> filterNames = new ArrayList<>();
+    private final List<String> filterValues = new ArrayList<>();
+    private final List<String> orders = new ArrayList<>();
+    private int limit = -1;
+    private int offset = -1;
+
+    private SupabaseQuery(@NonNull String table) {
+        this.table = table;
+    }
+
+    @NonNull
+    public static SupabaseQuery from(@NonNull String table) {
+        if (TextUtils.isEmpty(table)) {
+            throw new IllegalArgumentException("Table name is required");
+        }
+        return new SupabaseQuery(table);
+    }
+
+    /** Adds columns of the table itself. At least one column or embed is required. */
+    @NonNull
+    public SupabaseQuery select(@NonNull String... columns) {
+        for (String column : columns) {
+            if (TextUtils.isEmpty(column) || "*".equals(column.trim())) {
+                throw new IllegalArgumentException("Select explicit columns instead of '" + column + "'");
+            }
+            projection.add(column.trim());
+        }
+        return this;
+    }
+
+    /** Embeds a related resource, e.g. {@code embed("profiles", "name")}. */
+    @NonNull
+    public SupabaseQuery embed(@NonNull String resource, @NonNull String... columns) {
+        return embedAs(null, resource, columns);
+    }
+
+    /**
+     * Embeds a related resource under an alias, e.g.
+     * {@code embedAs("sender", "profiles!chats_sender_id_fkey", "id", "name")}.
+     */
+    @NonNull
+    public SupabaseQuery embedAs(@Nullable String alias, @NonNull String resource, @NonNull String... columns) {
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("Embedded " + resource + " needs explicit columns");
+        }
+        StringBuilder embed = new StringBuilder();
+        if (!TextUtils.isEmpty(alias)) {
+            embed.append(alias).append(':');
+        }
+        embed.append(resource).append('(').append(TextUtils.join(",", columns)).append(')');
+        projection.add(embed.toString());
+        return this;
+    }
+
+    /** Embeds the number of related rows, read back as {@code resource[0].count}. */
+    @NonNull
+    public SupabaseQuery embedCount(@NonNull String resource) {
+        projection.add(resource + "(count)");
+        return this;
+    }
+
+    @NonNull
+    public SupabaseQuery eq(@NonNull String column, @NonNull Object value) {
+        return filter(column, "eq", value);
+    }
+
+    @NonNull
+    public SupabaseQuery neq(@NonNull String column, @NonNull Object value) {
+        return filter(column, "neq", value);
+    }
+
+    @NonNull
+    public SupabaseQuery gt(@NonNull String column, @NonNull Object value) {
+        return filter(column, "gt", value);
+    }
+
+    @NonNull
+    public SupabaseQuery gte(@NonNull String column, @NonNull Object value) {
+        return filter(column, "gte", value);
+    }
+
+    @NonNull
+    public SupabaseQuery lt(@NonNull String column, @NonNull Object value) {
+        return filter(column, "lt", value);
+    }
+
+    @NonNull
+    public SupabaseQuery lte(@NonNull String column, @NonNull Object value) {
+        return filter(column, "lte", value);
+    }
+
+    @NonNull
+    public SupabaseQuery ilike(@NonNull String column, @NonNull String pattern) {
+        return filter(column, "ilike", pattern);
+    }
+
+    /** {@code is.null}, {@code is.true} or {@code is.false}. */
+    @NonNull
+    public SupabaseQuery is(@NonNull String column, @NonNull String literal) {
+        return filter(column, "is", literal);
+    }
+
+    @NonNull
+    public SupabaseQuery in(@NonNull String column, @NonNull Collection<String> values) {
+        filterNames.add(column + "=in.");
+        // buildInFilter already quotes and encodes each entry.
+        filterValues.add(SupabaseClient.buildInFilter(values).substring("in.".length()));
+        return this;
+    }
+
+    /**
+     * Adds a logical filter in PostgREST syntax, e.g. {@code or("(sender_id.eq.a,receiver_id.eq.a)")}.
+     */
+    @NonNull
+    public SupabaseQuery or(@NonNull String expression) {
+        filterNames.add("or=");
+        filterValues.add(Uri.encode(expression, EXPRESSION_SAFE_CHARS));
+        return this;
+    }
+
+    @NonNull
+    public SupabaseQuery order(@NonNull String column, boolean ascending) {
+        orders.add(column + (ascending ? ".asc" : ".desc"));
+        return this;
+    }
+
+    @NonNull
+    public SupabaseQuery limit(int count) {
+        this.limit = count;
+        return this;
+    }
+
+    /** Rows {@code from} to {@code to}, both inclusive and zero based. */
+    @NonNull
+    public SupabaseQuery range(int from, int to) {
+        if (from < 0 || to < from) {
+            throw new IllegalArgumentException("Invalid range " + from + ".." + to);
+        }
+        this.offset = from;
+        this.limit = to - from + 1;
+        return this;
+    }
+
+    /**
+     * Returns the endpoint path and query, relative to the Supabase URL.
+     *
+     * @throws IllegalStateException if no columns were selected
+     */
+    @NonNull
+    public String build() {
+        if (projection.isEmpty()) {
+            throw new IllegalStateException("Query on " + table + " must select explicit columns");
+        }
+        String[] template = template();
+        StringBuilder url = new StringBuilder(template[0]);
+        for (int i = 0; i < filterValues.size(); i++) {
+            url.append(filterValues.get(i)).append(template[i + 1]);
+        }
+        if (limit >= 0) {
+            url.append("&limit=").append(limit);
+        }
+        if (offset >= 0) {
+            url.append("&offset=").append(offset);
+        }
+        return url.toString();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return build();
+    }
+
+    /**
+     * Static URL fragments around each filter value: fragment i precedes value i and the last
+     * one follows the final value.
+     */
+    private String[] template() {
+        String key = table + '|' + TextUtils.join(",", projection) + '|' + TextUtils.join("&", filterNames)
+            + '|' + TextUtils.join(",", orders);
+        String[] cached = TEMPLATES.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        List<String> parts = new ArrayList<>(filterNames.size() + 1);
+        StringBuilder part = new StringBuilder("/rest/v1/").append(table)
+            .append("?select=").append(Uri.encode(TextUtils.join(",", projection), PROJECTION_SAFE_CHARS));
+        for (String filterName : filterNames) {
+            part.append('&').append(filterName);
+            parts.add(part.toString());
+            part.setLength(0);
+        }
+        if (!orders.isEmpty()) {
+            part.append("&order=").append(TextUtils.join(",", orders));
+        }
+        parts.add(part.toString());
+        String[] compiled = parts.toArray(new String[0]);
+        TEMPLATES.put(key, compiled);
+        return compiled;
+    }
+
+    /** Number of builds served from a cached template; exposed for tests. */
+    static int templateHitCount() {
+        return TEMPLATES.hitCount();
+    }
+
+    private SupabaseQuery filter(String column, String operator, Object value) {
+        filterNames.add(column + "=" + operator + ".");
+        filterValues.add(Uri.encode(String.valueOf(value)));
+        return this;
+    }
+}
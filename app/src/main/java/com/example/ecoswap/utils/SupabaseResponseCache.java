@@ -0,0 +1,184 @@
+package com.example.ecoswap.utils;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import okhttp3.Cache;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Disk-backed HTTP cache for PostgREST reads.
+ *
+ * PostgREST does not send cache headers, so a network interceptor assigns a freshness window per
+ * table. Stale entries are revalidated with If-None-Match / If-Modified-Since whenever the
+ * gateway supplied an ETag or Last-Modified, so unchanged data comes back as a 304.
+ *
+ * Row-level security makes results user specific, so reads carry the signed-in user in
+ * {@value #USER_HEADER} and cached responses vary on it. Keying on the user rather than the
+ * Authorization header keeps entries valid across access-token refreshes while never serving one
+ * account's rows to another.
+ */
+final class SupabaseResponseCache {
+
+    private static final String TAG = "SupabaseResponseCache";
+    private static final String CACHE_DIR = "supabase_http";
+    private static final long CACHE_SIZE_BYTES = 20L * 1024L * 1024L;
+    private static final String REST_PREFIX = "/rest/v1/";
+    private static final int NO_STORE = -1;
+    static final String USER_HEADER = "X-Cache-User";
+
+    private final Cache cache;
+
+    SupabaseResponseCache(@NonNull Context context) {
+        this.cache = new Cache(new File(context.getCacheDir(), CACHE_DIR), CACHE_SIZE_BYTES);
+    }
+
+    @NonNull
+    Cache getCache() {
+        return cache;
+    }
+
+    /**
+     * Application interceptor that tags REST reads with the cache partition of the current user,
+     * so the cache's Vary matching sees it.
+     */
+    @NonNull
+    Interceptor userKeyInterceptor(@NonNull Supplier<String> identity) {
+        return chain -> {
+            Request request = chain.request();
+            if (!"GET".equals(request.method()) || tableOf(request.url()) == null) {
+                return chain.proceed(request);
+            }
+            return chain.proceed(request.newBuilder().header(USER_HEADER, identity.get()).build());
+        };
+    }
+
+    /**
+     * Network interceptor that rewrites cache headers on REST responses according to the
+     * per-table freshness policy.
+     */
+    @NonNull
+    Interceptor freshnessInterceptor() {
+        return chain -> {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            String table = tableOf(request.url());
+            if (table == null || !"GET".equals(request.method())) {
+                return response;
+            }
+            if (!response.isSuccessful() && response.code() != 304) {
+                return response;
+            }
+            int maxAgeSeconds = maxAgeSecondsFor(table);
+            boolean hasValidator = response.header("ETag") != null || response.header("Last-Modified") != null;
+            Response.Builder builder = response.newBuilder().removeHeader("Pragma");
+            if (maxAgeSeconds == NO_STORE || (maxAgeSeconds == 0 && !hasValidator)) {
+                // Nothing to gain from storing a body that can never be reused.
+                return builder.header("Cache-Control", "no-store").build();
+            }
+            return builder
+                .header("Cache-Control", "private, max-age=" + maxAgeSeconds)
+                .header("Vary", withUserVary(response.header("Vary")))
+                .build();
+        };
+    }
+
+    /**
+     * Drops every cached read of the table the given write targeted.
+     */
+    void invalidateTable(@NonNull HttpUrl writeUrl) {
+        String table = tableOf(writeUrl);
+        if (table != null) {
+            invalidateTable(table);
+        }
+    }
+
+    /**
+     * Drops cached reads of a table written by something other than a table call, such as an RPC.
+     */
+    void invalidateTable(@NonNull String table) {
+        String normalized = table.toLowerCase(Locale.US);
+        try {
+            Iterator<String> urls = cache.urls();
+            while (urls.hasNext()) {
+                HttpUrl cachedUrl = HttpUrl.parse(urls.next());
+                if (cachedUrl != null && normalized.equals(tableOf(cachedUrl))) {
+                    urls.remove();
+                }
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to invalidate cached reads for " + table, e);
+        }
+    }
+
+    void clear() {
+        try {
+            cache.evictAll();
+        } catch (IOException e) {
+            Log.w(TAG, "Unable to clear response cache", e);
+        }
+    }
+
+    /**
+     * Freshness window in seconds for reads of a table. Zero means "always revalidate".
+     */
+    private static int maxAgeSecondsFor(@NonNull String table) {
+        switch (table) {
+            case "profiles":
+                return 120;
+            case "reviews":
+            case "eco_savings":
+                return 60;
+            case "posts":
+                return 30;
+            case "swaps":
+            case "donations":
+            case "bids":
+            case "comments":
+                return 15;
+            case "chats":
+            case "conversations":
+            case "notifications":
+                return 0;
+            default:
+                return NO_STORE;
+        }
+    }
+
+    @Nullable
+    static String tableOf(@NonNull HttpUrl url) {
+        String path = url.encodedPath();
+        if (!path.startsWith(REST_PREFIX)) {
+            return null;
+        }
+        List<String> segments = url.pathSegments();
+        if (segments.size() < 3 || TextUtils.isEmpty(segments.get(2))) {
+            return null;
+        }
+        return segments.get(2).toLowerCase(Locale.US);
+    }
+
+    private static String withUserVary(@Nullable String existing) {
+        if (TextUtils.isEmpty(existing)) {
+            return USER_HEADER;
+        }
+        if (existing.toLowerCase(Locale.US).contains(USER_HEADER.toLowerCase(Locale.US))) {
+            return existing;
+        }
+        return existing + ", " + USER_HEADER;
+    }
+}
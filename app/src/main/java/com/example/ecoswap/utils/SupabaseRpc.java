@@ -0,0 +1,122 @@
+package com.example.ecoswap.utils;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Describes a call to a Postgres function exposed by PostgREST at {@code /rest/v1/rpc/<name>},
+ * for {@link SupabaseClient#rpc}. A multi-step flow that used to be a chain of dependent reads
+ * and writes from the phone becomes one function and one round trip:
+ *
+ * <pre>
+ * SupabaseRpc rpc = SupabaseRpc.call("record_trade_impact")
+ *     .arg("p_trade_type", "swap")
+ *     .arg("p_trade_id", swapId)
+ *     .invalidates("profiles", "eco_savings");
+ * </pre>
+ *
+ * Functions are called with POST and never retried automatically, because the client cannot tell
+ * whether they write. Functions declared STABLE or IMMUTABLE may be marked {@link #readOnly()};
+ * they are then sent as GET, so they share in-flight requests and are retried like table reads.
+ */
+public final class SupabaseRpc {
+
+    private final String function;
+    private final Map<String, Object> args = new LinkedHashMap<>();
+    private final List<String> invalidatedTables = new ArrayList<>();
+    private boolean readOnly;
+
+    private SupabaseRpc(@NonNull String function) {
+        this.function = function;
+    }
+
+    @NonNull
+    public static SupabaseRpc call(@NonNull String function) {
+        if (TextUtils.isEmpty(function) || function.contains("/")) {
+            throw new IllegalArgumentException("Invalid function name '" + function + "'");
+        }
+        return new SupabaseRpc(function);
+    }
+
+    /**
+     * Adds a named argument. Values are serialized with Gson, so strings, numbers, booleans,
+     * collections and JSON objects map onto the matching Postgres parameter types.
+     */
+    @NonNull
+    public SupabaseRpc arg(@NonNull String name, @Nullable Object value) {
+        args.put(name, value);
+        return this;
+    }
+
+    /**
+     * Marks the function as free of side effects. Only valid for STABLE or IMMUTABLE functions,
+     * which PostgREST also accepts over GET.
+     */
+    @NonNull
+    public SupabaseRpc readOnly() {
+        this.readOnly = true;
+        return this;
+    }
+
+    /**
+     * Tables the function writes to. Their cached reads are dropped when the call succeeds.
+     */
+    @NonNull
+    public SupabaseRpc invalidates(@NonNull String... tables) {
+        invalidatedTables.addAll(Arrays.asList(tables));
+        return this;
+    }
+
+    @NonNull
+    public String getFunction() {
+        return function;
+    }
+
+    @NonNull
+    public Map<String, Object> getArgs() {
+        return Collections.unmodifiableMap(args);
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    @NonNull
+    public List<String> getInvalidatedTables() {
+        return Collections.unmodifiableList(invalidatedTables);
+    }
+
+    /**
+     * Encodes an argument for a GET call: arrays use the Postgres literal form {@code {a,b}}.
+     */
+    @NonNull
+    static String queryValue(@Nullable Object value) {
+        if (value == null) {
+            return "";
+        }
+        if (value instanceof Collection) {
+            List<String> items = new ArrayList<>();
+            for (Object item : (Collection<?>) value) {
+                items.add('"' + String.valueOf(item).replace("\\", "\\\\").replace("\"", "\\\"") + '"');
+            }
+            return "{" + TextUtils.join(",", items) + "}";
+        }
+        return String.valueOf(value);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "rpc/" + function + args.keySet();
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.ecoswap.utils;
+
+import android.os.Handler;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the Supabase access token fresh. At most one refresh runs at a time and every caller
+ * that needs a token while it is running waits for that same refresh. A background refresh is
+ * also scheduled ahead of expiry so regular requests rarely have to wait at all.
+ */
+final class TokenRefreshManager {
+
+    private static final String TAG = "TokenRefreshManager";
+    // Floor between proactive refreshes so very short-lived tokens cannot cause a refresh loop.
+    private static final long MIN_PROACTIVE_DELAY_MS = 10_000L;
+
+    /**
+     * Performs the actual network refresh and reports the outcome on the main thread.
+     */
+    interface Refresher {
+        void refresh(@NonNull Runnable onSuccess, @NonNull Runnable onFailure);
+    }
+
+    private final Refresher refresher;
+    private final Handler mainHandler;
+    private final long expiryBufferSeconds;
+    private final long proactiveLeadSeconds;
+    private final List<Runnable> successWaiters = new ArrayList<>();
+    private final List<Runnable> failureWaiters = new ArrayList<>();
+    private final Runnable proactiveRefresh = () -> refresh(null, null);
+    private boolean refreshing = false;
+
+    TokenRefreshManager(@NonNull Refresher refresher,
+                        @NonNull Handler mainHandler,
+                        long expiryBufferSeconds,
+                        long proactiveLeadSeconds) {
+        this.refresher = refresher;
+        this.mainHandler = mainHandler;
+        this.expiryBufferSeconds = expiryBufferSeconds;
+        this.proactiveLeadSeconds = proactiveLeadSeconds;
+    }
+
+    /**
+     * Joins the refresh in progress, or starts one if none is running.
+     */
+    void refresh(@Nullable Runnable onSuccess, @Nullable Runnable onFailure) {
+        synchronized (this) {
+            if (onSuccess != null) {
+                successWaiters.add(onSuccess);
+            }
+            if (onFailure != null) {
+                failureWaiters.add(onFailure);
+            }
+            if (refreshing) {
+                return;
+            }
+            refreshing = true;
+        }
+        refresher.refresh(() -> complete(true), () -> complete(false));
+    }
+
+    /**
+     * Schedules a background refresh shortly before the token enters the expiry buffer.
+     */
+    void scheduleProactiveRefresh(long expiryEpochSeconds) {
+        mainHandler.removeCallbacks(proactiveRefresh);
+        if (expiryEpochSeconds <= 0L) {
+            return;
+        }
+        long refreshAtMillis = (expiryEpochSeconds - expiryBufferSeconds - proactiveLeadSeconds) * 1000L;
+        long delayMillis = Math.max(MIN_PROACTIVE_DELAY_MS, refreshAtMillis - System.currentTimeMillis());
+        Log.d(TAG, "Next proactive token refresh in " + delayMillis + "ms");
+        mainHandler.postDelayed(proactiveRefresh, delayMillis);
+    }
+
+    void cancelProactiveRefresh() {
+        mainHandler.removeCallbacks(proactiveRefresh);
+    }
+
+    private void complete(boolean success) {
+        List<Runnable> toRun;
+        synchronized (this) {
+            toRun = new ArrayList<>(success ? successWaiters : failureWaiters);
+            successWaiters.clear();
+            failureWaiters.clear();
+            refreshing = false;
+        }
+        for (Runnable runnable : toRun) {
+            runnable.run();
+        }
+    }
+}
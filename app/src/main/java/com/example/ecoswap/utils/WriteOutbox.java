@@ -0,0 +1,480 @@
+package com.example.ecoswap.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Disk-backed queue for user writes that must survive a dropped connection.
+ *
+ * Writes are replayed one at a time in the order they were queued. Transient failures (network
+ * errors, timeouts, 429s, 5xx responses and open circuit breakers) are retried with jittered
+ * exponential backoff that respects Retry-After, and the queue resumes as soon as connectivity
+ * returns. An entry that still fails after {@link #MAX_ATTEMPTS} tries is dropped and reported,
+ * so one poisoned write cannot hold up the rest of the queue forever. Any other error is a
+ * rejection: the write is dropped and its callback receives onFailure.
+ *
+ * An expired session pauses the whole queue instead, since no write can succeed without one. The
+ * {@link #setSignInRequiredListener sign-in listener} is told, and the queue resumes on the first
+ * flush after the user has signed in again.
+ *
+ * Inserts are idempotent. Each row gets a client-generated UUID primary key, which doubles as the
+ * idempotency key, and is sent as an ON CONFLICT (id) DO NOTHING upsert. A replay of a write that
+ * already landed therefore never creates a second row. The outbox only queues inserts: a replayed
+ * PATCH would overwrite whatever changed on the server in the meantime, so a counter such as a
+ * post's likes is kept by inserting one row per change and counting on the server.
+ *
+ * All methods must be called on the main thread. Callbacks are kept in memory only; writes queued
+ * before a process restart are still delivered, just without notifying anyone. A callback wrapped
+ * in a {@link RequestScope} is released when the scope is cancelled, so a queued write never keeps
+ * a destroyed screen alive; the write itself still lands. A recreated screen reads what is still
+ * queued through {@link #pendingInserts}.
+ */
+public class WriteOutbox {
+
+    private static final String TAG = "WriteOutbox";
+    private static final String PREFS = "write_outbox";
+    private static final String KEY_ENTRIES = "entries";
+    private static final long BASE_BACKOFF_MS = 2_000L;
+    private static final long MAX_BACKOFF_MS = 5 * 60_000L;
+    static final int MAX_ATTEMPTS = 10;
+    private static final String INSERT_PREFER = "resolution=ignore-duplicates,return=representation";
+
+    private static WriteOutbox instance;
+
+    /**
+     * The session and transport the outbox replays writes through.
+     */
+    interface Backend {
+        void executeOutboxWrite(String method, String pathAndQuery, String jsonBody, String prefer,
+                                SupabaseClient.OnWriteResultCallback callback);
+
+        @Nullable
+        String getCurrentUserId();
+
+        @Nullable
+        String getAccessToken();
+    }
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+    private final Backend backend;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Random random = new Random();
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Listener> listeners = new HashMap<>();
+    private final Runnable flushRunnable = this::flush;
+    private boolean inFlight = false;
+    // Set while the queue waits for a new sign-in: the access token the session expired with.
+    @Nullable private String expiredAccessToken;
+    private boolean pausedForSignIn = false;
+    @Nullable private Runnable signInRequiredListener;
+
+    WriteOutbox(@NonNull Context context, @NonNull Backend backend) {
+        this.appContext = context.getApplicationContext();
+        this.prefs = appContext.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        this.backend = backend;
+        load();
+        registerConnectivityCallback();
+    }
+
+    public static synchronized WriteOutbox getInstance(@Nullable Context context) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+        if (instance == null) {
+            instance = new WriteOutbox(context, new SupabaseBackend(SupabaseClient.getInstance(context)));
+        }
+        return instance;
+    }
+
+    /**
+     * Queues an insert of a single row and returns the row's id. A missing "id" property is filled
+     * in with a new UUID, so callers can show the row optimistically under its final id.
+     */
+    @NonNull
+    public String enqueueInsert(@NonNull String table, @NonNull JsonObject row,
+                                @Nullable SupabaseClient.OnDatabaseCallback callback) {
+        if (!row.has("id") || row.get("id").isJsonNull()) {
+            row.addProperty("id", UUID.randomUUID().toString());
+        }
+        String rowId = row.get("id").getAsString();
+        Entry entry = new Entry(
+            UUID.randomUUID().toString(),
+            "POST",
+            "/rest/v1/" + table + "?on_conflict=id",
+            table,
+            row.toString(),
+            INSERT_PREFER
+        );
+        add(entry, callback);
+        return rowId;
+    }
+
+    /**
+     * Rows of the given table that are queued for insert but not yet confirmed by the server,
+     * oldest first.
+     */
+    @NonNull
+    public List<JSONObject> pendingInserts(@NonNull String table) {
+        List<JSONObject> rows = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (!"POST".equals(entry.method) || !table.equals(entry.table)) {
+                continue;
+            }
+            try {
+                rows.add(new JSONObject(entry.body));
+            } catch (JSONException ignored) {
+                // Bodies are written by this class; an unreadable one is simply not shown.
+            }
+        }
+        return rows;
+    }
+
+    public int getPendingCount() {
+        return entries.size();
+    }
+
+    /**
+     * Registers the screen that sends the user to sign in when the queue pauses on an expired
+     * session. Runs right away if the queue is already paused. Pass null to unregister.
+     */
+    public void setSignInRequiredListener(@Nullable Runnable listener) {
+        signInRequiredListener = listener;
+        if (listener != null && pausedForSignIn && !entries.isEmpty()) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Attempts the next queued write if the device is online and its backoff has elapsed.
+     */
+    public void flush() {
+        mainHandler.removeCallbacks(flushRunnable);
+        if (inFlight || entries.isEmpty()) {
+            return;
+        }
+        dropEntriesOfOtherUsers();
+        if (entries.isEmpty()) {
+            return;
+        }
+        if (pausedForSignIn) {
+            String accessToken = backend.getAccessToken();
+            if (TextUtils.isEmpty(accessToken) || TextUtils.equals(accessToken, expiredAccessToken)) {
+                return;
+            }
+            pausedForSignIn = false;
+            expiredAccessToken = null;
+        }
+        if (!NetworkUtils.isOnline(appContext)) {
+            // The connectivity callback resumes the queue.
+            return;
+        }
+        Entry head = entries.get(0);
+        long waitMs = head.nextAttemptAtMs - SystemClock.elapsedRealtime();
+        if (waitMs > 0) {
+            mainHandler.postDelayed(flushRunnable, waitMs);
+            return;
+        }
+
+        inFlight = true;
+        backend.executeOutboxWrite(head.method, head.path, head.body, head.prefer,
+            new SupabaseClient.OnWriteResultCallback() {
+                @Override
+                public void onSuccess(String body) {
+                    inFlight = false;
+                    remove(head);
+                    SupabaseClient.OnDatabaseCallback listener = releaseListener(head.key);
+                    if (listener != null) {
+                        listener.onSuccess(body);
+                    }
+                    flush();
+                }
+
+                @Override
+                public void onFailure(SupabaseError error) {
+                    inFlight = false;
+                    if (error.getKind() == SupabaseError.Kind.SESSION_EXPIRED) {
+                        pauseForSignIn();
+                        return;
+                    }
+                    head.attempts++;
+                    if (isRetryable(error) && head.attempts < MAX_ATTEMPTS) {
+                        long delayMs = Math.max(backoffMs(head.attempts), error.getRetryAfterMs());
+                        head.nextAttemptAtMs = SystemClock.elapsedRealtime() + delayMs;
+                        persist();
+                        Log.d(TAG, "Write to " + head.table + " failed (" + error.getKind() + "), retry " + head.attempts + " in " + delayMs + "ms");
+                        mainHandler.postDelayed(flushRunnable, delayMs);
+                        return;
+                    }
+                    if (isRetryable(error)) {
+                        Log.w(TAG, "Write to " + head.table + " dropped after " + head.attempts + " attempts: " + error);
+                    } else {
+                        Log.w(TAG, "Write to " + head.table + " rejected: " + error);
+                    }
+                    remove(head);
+                    SupabaseClient.OnDatabaseCallback listener = releaseListener(head.key);
+                    if (listener != null) {
+                        listener.onFailure(error);
+                    }
+                    flush();
+                }
+            });
+    }
+
+    private void add(@NonNull Entry entry, @Nullable SupabaseClient.OnDatabaseCallback callback) {
+        entry.userId = backend.getCurrentUserId();
+        entries.add(entry);
+        if (callback != null) {
+            addListener(entry.key, callback);
+        }
+        persist();
+        flush();
+    }
+
+    private void addListener(@NonNull String key, @NonNull SupabaseClient.OnDatabaseCallback callback) {
+        RequestScope scope = RequestScope.of(callback);
+        if (scope == null) {
+            listeners.put(key, new Listener(callback, null, null));
+            return;
+        }
+        if (scope.isCancelled()) {
+            return;
+        }
+        Runnable onCancel = () -> mainHandler.post(() -> listeners.remove(key));
+        listeners.put(key, new Listener(callback, scope, onCancel));
+        scope.doOnCancel(onCancel);
+    }
+
+    @Nullable
+    private SupabaseClient.OnDatabaseCallback releaseListener(@NonNull String key) {
+        Listener listener = listeners.remove(key);
+        if (listener == null) {
+            return null;
+        }
+        if (listener.scope != null) {
+            listener.scope.removeOnCancel(listener.onCancel);
+        }
+        return listener.callback;
+    }
+
+    private void remove(@NonNull Entry entry) {
+        entries.remove(entry);
+        persist();
+    }
+
+    /**
+     * Writes queued under a previous account cannot be sent with the current session.
+     */
+    private void dropEntriesOfOtherUsers() {
+        String currentUserId = backend.getCurrentUserId();
+        boolean changed = false;
+        Iterator<Entry> iterator = entries.iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (!TextUtils.equals(entry.userId, currentUserId)) {
+                iterator.remove();
+                releaseListener(entry.key);
+                changed = true;
+            }
+        }
+        if (changed) {
+            persist();
+        }
+    }
+
+    private void pauseForSignIn() {
+        if (!pausedForSignIn) {
+            Log.w(TAG, "Session expired; holding " + entries.size() + " writes until the next sign-in");
+        }
+        pausedForSignIn = true;
+        expiredAccessToken = backend.getAccessToken();
+        if (signInRequiredListener != null) {
+            signInRequiredListener.run();
+        }
+    }
+
+    /**
+     * A refresh that failed for lack of connectivity arrives as a network error and is retried;
+     * an expired session is handled separately by pausing the queue.
+     */
+    private static boolean isRetryable(SupabaseError error) {
+        return error.isTransient();
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": half of the window is fixed, half random, so
+     * clients that lost connectivity together do not retry in lockstep.
+     */
+    private long backoffMs(int attempts) {
+        long window = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << Math.min(attempts - 1, 16));
+        long half = window / 2;
+        return half + (long) (random.nextDouble() * half);
+    }
+
+    private void registerConnectivityCallback() {
+        ConnectivityManager cm = (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) {
+            return;
+        }
+        try {
+            cm.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override
+                public void onAvailable(@NonNull Network network) {
+                    mainHandler.post(WriteOutbox.this::onConnectivityRestored);
+                }
+            });
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Unable to observe connectivity; retries fall back to backoff only", e);
+        }
+    }
+
+    private void onConnectivityRestored() {
+        long now = SystemClock.elapsedRealtime();
+        for (Entry entry : entries) {
+            entry.nextAttemptAtMs = Math.min(entry.nextAttemptAtMs, now);
+        }
+        flush();
+    }
+
+    private void load() {
+        String raw = prefs.getString(KEY_ENTRIES, null);
+        if (TextUtils.isEmpty(raw)) {
+            return;
+        }
+        try {
+            JSONArray array = new JSONArray(raw);
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject object = array.optJSONObject(i);
+                if (object != null) {
+                    entries.add(Entry.fromJson(object));
+                }
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "Discarding unreadable outbox", e);
+            prefs.edit().remove(KEY_ENTRIES).apply();
+        }
+    }
+
+    private void persist() {
+        JSONArray array = new JSONArray();
+        for (Entry entry : entries) {
+            try {
+                array.put(entry.toJson());
+            } catch (JSONException e) {
+                Log.w(TAG, "Unable to persist outbox entry " + entry.key, e);
+            }
+        }
+        prefs.edit().putString(KEY_ENTRIES, array.toString()).apply();
+    }
+
+    private static final class SupabaseBackend implements Backend {
+        private final SupabaseClient client;
+
+        SupabaseBackend(SupabaseClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public void executeOutboxWrite(String method, String pathAndQuery, String jsonBody, String prefer,
+                                       SupabaseClient.OnWriteResultCallback callback) {
+            client.executeOutboxWrite(method, pathAndQuery, jsonBody, prefer, callback);
+        }
+
+        @Nullable
+        @Override
+        public String getCurrentUserId() {
+            return client.getCurrentUserId();
+        }
+
+        @Nullable
+        @Override
+        public String getAccessToken() {
+            return client.getAccessToken();
+        }
+    }
+
+    private static final class Listener {
+        final SupabaseClient.OnDatabaseCallback callback;
+        @Nullable final RequestScope scope;
+        @Nullable final Runnable onCancel;
+
+        Listener(SupabaseClient.OnDatabaseCallback callback, @Nullable RequestScope scope, @Nullable Runnable onCancel) {
+            this.callback = callback;
+            this.scope = scope;
+            this.onCancel = onCancel;
+        }
+    }
+
+    private static final class Entry {
+        final String key;
+        final String method;
+        final String path;
+        final String table;
+        final String body;
+        final String prefer;
+        String userId;
+        int attempts;
+        // Backoff deadlines are not persisted; a restarted process retries immediately.
+        long nextAttemptAtMs;
+
+        Entry(String key, String method, String path, String table, String body, String prefer) {
+            this.key = key;
+            this.method = method;
+            this.path = path;
+            this.table = table;
+            this.body = body;
+            this.prefer = prefer;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject object = new JSONObject();
+            object.put("key", key);
+            object.put("method", method);
+            object.put("path", path);
+            object.put("table", table);
+            object.put("body", body);
+            object.put("prefer", prefer);
+            object.put("user_id", userId != null ? userId : JSONObject.NULL);
+            object.put("attempts", attempts);
+            return object;
+        }
+
+        static Entry fromJson(JSONObject object) throws JSONException {
+            Entry entry = new Entry(
+                object.getString("key"),
+                object.getString("method"),
+                object.getString("path"),
+                object.getString("table"),
+                object.getString("body"),
+                object.getString("prefer")
+            );
+            entry.userId = object.isNull("user_id") ? null : object.optString("user_id", null);
+            entry.attempts = object.optInt("attempts", 0);
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.ecoswap.chat;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class ChatFragmentTest {
+
+    @Test
+    public void shiftTimestamp_movesServerTimestampsAndWritesUtc() {
+        assertEquals("2026-10-18T20:16:41.123Z",
+            ChatFragment.shiftTimestamp("2026-10-18T20:16:46.123456+00:00", -5_000L));
+        assertEquals("2026-10-18T14:46:41.500Z",
+            ChatFragment.shiftTimestamp("2026-10-18T20:16:46.5+05:30", -5_000L));
+        assertEquals("2026-10-18T20:16:41.000Z",
+            ChatFragment.shiftTimestamp("2026-10-18T20:16:46Z", -5_000L));
+    }
+
+    @Test
+    public void shiftTimestamp_crossesMidnight() {
+        assertEquals("2026-10-17T23:59:58.000Z",
+            ChatFragment.shiftTimestamp("2026-10-18T00:00:03+00:00", -5_000L));
+    }
+
+    @Test
+    public void shiftTimestamp_returnsNullForUnreadableValues() {
+        assertNull(ChatFragment.shiftTimestamp(null, -5_000L));
+        assertNull(ChatFragment.shiftTimestamp("yesterday", -5_000L));
+        assertNull(ChatFragment.shiftTimestamp("2026-10-18T20:16:46", -5_000L));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.ecoswap.dashboard;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.ecoswap.repository.ChatRepository;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class MessagesFragmentTest {
+
+    @Test
+    public void sortsAfter_olderConversationSortsAfter() {
+        assertTrue(MessagesFragment.sortsAfter(
+            row("b", "2026-10-01T10:00:00+00:00"), row("a", "2026-10-02T10:00:00+00:00")));
+        assertFalse(MessagesFragment.sortsAfter(
+            row("a", "2026-10-02T10:00:00+00:00"), row("b", "2026-10-01T10:00:00+00:00")));
+    }
+
+    @Test
+    public void sortsAfter_equalTimesAreOrderedByIdDescending() {
+        String time = "2026-10-02T10:00:00+00:00";
+        assertTrue(MessagesFragment.sortsAfter(row("a", time), row("b", time)));
+        assertFalse(MessagesFragment.sortsAfter(row("b", time), row("a", time)));
+    }
+
+    @Test
+    public void sortsAfter_boundaryItselfDoesNotSortAfter() {
+        ChatRepository.ConversationRow boundary = row("a", "2026-10-02T10:00:00+00:00");
+        assertFalse(MessagesFragment.sortsAfter(row("a", "2026-10-02T10:00:00+00:00"), boundary));
+    }
+
+    @Test
+    public void sortsAfter_missingTimeFallsBackToId() {
+        assertTrue(MessagesFragment.sortsAfter(row("a", null), row("b", "2026-10-02T10:00:00+00:00")));
+        assertFalse(MessagesFragment.sortsAfter(row(null, null), row("b", null)));
+    }
+
+    private static ChatRepository.ConversationRow row(String id, String createdAt) {
+        ChatRepository.ConversationRow row = new ChatRepository.ConversationRow();
+        row.id = id;
+        row.createdAt = createdAt;
+        return row;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.ecoswap.repository;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ChatRepositoryTest {
+
+    @Test
+    public void groupConversations_keepsLastMessageAndAddsUnreadCounts() {
+        List<ChatRepository.ConversationRow> grouped = ChatRepository.groupConversations(Arrays.asList(
+            message("m3", "bob", null, "newest", 1),
+            message("m2", "carol", "listing-1", "about the bike", 0),
+            message("m1", "bob", null, "older", 1)
+        ));
+
+        assertEquals(2, grouped.size());
+        assertEquals("bob|direct", grouped.get(0).id);
+        assertEquals("m3", grouped.get(0).lastMessageId);
+        assertEquals("newest", grouped.get(0).lastMessage);
+        assertEquals(2, grouped.get(0).unreadCount);
+        assertEquals("carol|listing-1", grouped.get(1).id);
+    }
+
+    @Test
+    public void groupConversations_separatesListingsWithTheSameCounterpart() {
+        List<ChatRepository.ConversationRow> grouped = ChatRepository.groupConversations(Arrays.asList(
+            message("m2", "bob", "listing-1", "a", 0),
+            message("m1", "bob", "listing-2", "b", 0)
+        ));
+
+        assertEquals(2, grouped.size());
+    }
+
+    @Test
+    public void groupConversations_skipsRowsWithoutCounterpart() {
+        List<ChatRepository.ConversationRow> grouped = ChatRepository.groupConversations(Arrays.asList(
+            message("m1", "", null, "a", 0)
+        ));
+
+        assertEquals(0, grouped.size());
+    }
+
+    private static ChatRepository.ConversationRow message(String id, String counterpartId, String listingId,
+                                                          String text, int unread) {
+        ChatRepository.ConversationRow row = new ChatRepository.ConversationRow();
+        row.lastMessageId = id;
+        row.counterpartId = counterpartId;
+        row.listingId = listingId;
+        row.lastMessage = text;
+        row.unreadCount = unread;
+        return row;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.ecoswap.repository;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ListingsRepositoryTest {
+
+    @Test
+    public void searchFilter_matchesEveryTextColumn() {
+        assertEquals(
+            "(title.ilike.\"*bike*\",description.ilike.\"*bike*\",location.ilike.\"*bike*\",category.ilike.\"*bike*\")",
+            ListingsRepository.searchFilter("bike")
+        );
+    }
+
+    @Test
+    public void searchFilter_quotesPostgrestSyntax() {
+        String filter = ListingsRepository.searchFilter("a,b.(c)");
+        assertEquals(0, filter.indexOf("(title.ilike.\"*a,b.(c)*\","));
+    }
+
+    @Test
+    public void searchFilter_escapesQuotesAndBackslashes() {
+        String filter = ListingsRepository.searchFilter("say \"hi\" \\o/");
+        assertEquals(0, filter.indexOf("(title.ilike.\"*say \\\"hi\\\" \\\\o/*\","));
+    }
+}
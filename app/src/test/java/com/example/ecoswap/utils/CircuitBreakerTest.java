@@ -0,0 +1,154 @@
+package com.example.ecoswap.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowSystemClock;
+
+import java.time.Duration;
+
+import okhttp3.HttpUrl;
+
+@RunWith(RobolectricTestRunner.class)
+public class CircuitBreakerTest {
+
+    @Test
+    public void staysClosedBelowMinimumSamples() {
+        CircuitBreaker breaker = new CircuitBreaker("rest/posts");
+
+        for (int i = 0; i < 5; i++) {
+            breaker.recordFailure(0L);
+        }
+
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void staysClosedWhileMostCallsSucceed() {
+        CircuitBreaker breaker = new CircuitBreaker("rest/posts");
+
+        for (int i = 0; i < 4; i++) {
+            breaker.recordSuccess();
+        }
+        breaker.recordFailure(0L);
+        breaker.recordFailure(0L);
+
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    public void opensAtFailureThresholdAndFailsFast() {
+        CircuitBreaker breaker = tripped();
+
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(5_000L, breaker.remainingOpenMs());
+    }
+
+    @Test
+    public void admitsSingleProbeAfterCooldown() {
+        CircuitBreaker breaker = tripped();
+
+        ShadowSystemClock.advanceBy(Duration.ofMillis(5_000L));
+
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        assertTrue(breaker.isOpen());
+    }
+
+    @Test
+    public void successfulProbeClosesBreaker() {
+        CircuitBreaker breaker = tripped();
+        ShadowSystemClock.advanceBy(Duration.ofMillis(5_000L));
+        breaker.tryAcquire();
+
+        breaker.recordSuccess();
+
+        assertFalse(breaker.isOpen());
+        assertEquals(0L, breaker.remainingOpenMs());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void failedProbeReopensWithDoubledCooldown() {
+        CircuitBreaker breaker = tripped();
+        ShadowSystemClock.advanceBy(Duration.ofMillis(5_000L));
+        breaker.tryAcquire();
+
+        breaker.recordFailure(0L);
+
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(10_000L, breaker.remainingOpenMs());
+    }
+
+    @Test
+    public void cooldownHonorsRetryAfter() {
+        CircuitBreaker breaker = new CircuitBreaker("rest/posts");
+        for (int i = 0; i < 6; i++) {
+            breaker.recordFailure(30_000L);
+        }
+
+        assertEquals(30_000L, breaker.remainingOpenMs());
+    }
+
+    @Test
+    public void canceledProbeLetsNextCallProbe() {
+        CircuitBreaker breaker = tripped();
+        ShadowSystemClock.advanceBy(Duration.ofMillis(5_000L));
+        breaker.tryAcquire();
+
+        breaker.recordCanceled();
+
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    public void retryBudgetDrainsAndRefills() {
+        CircuitBreaker breaker = new CircuitBreaker("rest/posts");
+        for (int i = 0; i < 10; i++) {
+            assertTrue(breaker.tryAcquireRetry());
+        }
+        assertFalse(breaker.tryAcquireRetry());
+
+        // Each success earns back a fifth of a token.
+        for (int i = 0; i < 6; i++) {
+            breaker.recordSuccess();
+        }
+
+        assertTrue(breaker.tryAcquireRetry());
+        assertFalse(breaker.tryAcquireRetry());
+    }
+
+    @Test
+    public void retriesAreRefusedWhileOpen() {
+        assertFalse(tripped().tryAcquireRetry());
+    }
+
+    @Test
+    public void groupFor_groupsByTableFunctionAndBucket() {
+        assertEquals("rest/posts", CircuitBreaker.groupFor(url("/rest/v1/posts?select=*")));
+        assertEquals("rpc/record_trade_impact", CircuitBreaker.groupFor(url("/rest/v1/rpc/record_trade_impact")));
+        assertEquals("storage/avatars", CircuitBreaker.groupFor(url("/storage/v1/object/avatars/a.png")));
+        assertEquals("storage/avatars", CircuitBreaker.groupFor(url("/storage/v1/object/public/avatars/a.png")));
+        assertEquals("auth", CircuitBreaker.groupFor(url("/auth/v1/token")));
+    }
+
+    private static CircuitBreaker tripped() {
+        CircuitBreaker breaker = new CircuitBreaker("rest/posts");
+        for (int i = 0; i < 6; i++) {
+            breaker.recordFailure(0L);
+        }
+        return breaker;
+    }
+
+    private static HttpUrl url(String path) {
+        return HttpUrl.get("https://example.supabase.co" + path);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.ecoswap.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.util.JsonReader;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.StringReader;
+
+@RunWith(RobolectricTestRunner.class)
+public class JsonStreamDecoderTest {
+
+    @Test
+    public void readObject_decodesNestedValues() throws Exception {
+        JsonReader reader = new JsonReader(new StringReader(
+            "{\"id\":\"a\",\"count\":3,\"big\":9876543210,\"price\":1.5,\"ok\":true,"
+                + "\"missing\":null,\"owner\":{\"name\":\"Sam\"},\"tags\":[\"x\",2]}"));
+
+        JSONObject row = JsonStreamDecoder.readObject(reader);
+
+        assertEquals("a", row.getString("id"));
+        assertEquals(3, row.get("count"));
+        assertEquals(9876543210L, row.get("big"));
+        assertEquals(1.5, row.getDouble("price"), 0.0);
+        assertTrue(row.getBoolean("ok"));
+        assertTrue(row.isNull("missing"));
+        assertEquals("Sam", row.getJSONObject("owner").getString("name"));
+        JSONArray tags = row.getJSONArray("tags");
+        assertEquals("x", tags.getString(0));
+        assertEquals(2, tags.getInt(1));
+    }
+
+    @Test
+    public void readObject_readsRowsOneAtATime() throws Exception {
+        JsonReader reader = new JsonReader(new StringReader("[{\"id\":\"1\"},{\"id\":\"2\"}]"));
+        reader.beginArray();
+
+        assertEquals("1", JsonStreamDecoder.readObject(reader).getString("id"));
+        assertEquals("2", JsonStreamDecoder.readObject(reader).getString("id"));
+        assertFalse(reader.hasNext());
+        reader.endArray();
+    }
+
+    @Test
+    public void toNumber_fallsBackToBigDecimalForHugeIntegers() {
+        assertEquals(new java.math.BigDecimal("123456789012345678901234567890"),
+            JsonStreamDecoder.toNumber("123456789012345678901234567890"));
+    }
+}
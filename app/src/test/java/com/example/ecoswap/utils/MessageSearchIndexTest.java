@@ -0,0 +1,36 @@
+package com.example.ecoswap.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class MessageSearchIndexTest {
+
+    @Test
+    public void toMatchExpression_quotesEachWordAsPrefix() {
+        assertEquals("\"red\"* \"bike\"*", MessageSearchIndex.toMatchExpression("red bike"));
+    }
+
+    @Test
+    public void toMatchExpression_lowercasesWords() {
+        assertEquals("\"bike\"*", MessageSearchIndex.toMatchExpression("BiKe"));
+    }
+
+    @Test
+    public void toMatchExpression_treatsOperatorsAndPunctuationAsSeparators() {
+        assertEquals("\"a\"* \"or\"* \"b\"* \"c\"*",
+            MessageSearchIndex.toMatchExpression("a OR \"b\" -c*"));
+    }
+
+    @Test
+    public void toMatchExpression_keepsLettersAndDigitsOfAnyScript() {
+        assertEquals("\"café\"* \"42\"*", MessageSearchIndex.toMatchExpression("café, 42!"));
+    }
+
+    @Test
+    public void toMatchExpression_returnsNullWithoutWords() {
+        assertNull(MessageSearchIndex.toMatchExpression(""));
+        assertNull(MessageSearchIndex.toMatchExpression("  ?!* "));
+    }
+}
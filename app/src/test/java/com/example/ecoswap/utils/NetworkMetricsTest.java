@@ -0,0 +1,57 @@
+package com.example.ecoswap.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import okhttp3.Request;
+
+public class NetworkMetricsTest {
+
+    private static final String HOST = "https://example.supabase.co";
+
+    private static Request get(String path) {
+        return new Request.Builder().url(HOST + path).get().build();
+    }
+
+    @Test
+    public void templateFor_masksFilterOperands() {
+        assertEquals(
+            "GET /rest/v1/posts?id=eq.*&select=id,title",
+            NetworkMetrics.templateFor(get("/rest/v1/posts?select=id,title&id=eq.42"))
+        );
+    }
+
+    @Test
+    public void templateFor_keepsShapeParameters() {
+        assertEquals(
+            "GET /rest/v1/chats?limit=50&or=*&order=created_at.desc",
+            NetworkMetrics.templateFor(get("/rest/v1/chats?or=(sender_id.eq.a,receiver_id.eq.a)&order=created_at.desc&limit=50"))
+        );
+    }
+
+    @Test
+    public void templateFor_masksIdPathSegments() {
+        assertEquals(
+            "GET /rest/v1/items/*",
+            NetworkMetrics.templateFor(get("/rest/v1/items/5f0c2a1e-1b2c-4d3e-8f90-0123456789ab"))
+        );
+        assertEquals("GET /rest/v1/items/*", NetworkMetrics.templateFor(get("/rest/v1/items/123")));
+    }
+
+    @Test
+    public void templateFor_collapsesStorageObjectPaths() {
+        assertEquals(
+            "GET /storage/v1/object/listing-photos/*",
+            NetworkMetrics.templateFor(get("/storage/v1/object/listing-photos/user-1/photo.jpg"))
+        );
+    }
+
+    @Test
+    public void templateFor_sameShapeSharesTemplate() {
+        assertEquals(
+            NetworkMetrics.templateFor(get("/rest/v1/posts?select=id&user_id=eq.a")),
+            NetworkMetrics.templateFor(get("/rest/v1/posts?user_id=eq.b&select=id"))
+        );
+    }
+}
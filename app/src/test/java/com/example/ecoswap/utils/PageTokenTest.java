@@ -0,0 +1,52 @@
+package com.example.ecoswap.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.util.Base64;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.nio.charset.StandardCharsets;
+
+@RunWith(RobolectricTestRunner.class)
+public class PageTokenTest {
+
+    @Test
+    public void token_roundTripsCursor() {
+        String token = SupabaseClient.encodePageToken("2024-05-01T10:00:00.123+00:00", "5f1c-42");
+        assertNotNull(token);
+        assertArrayEquals(new String[]{"2024-05-01T10:00:00.123+00:00", "5f1c-42"},
+            SupabaseClient.decodePageToken(token));
+    }
+
+    @Test
+    public void token_isUrlSafe() {
+        String token = SupabaseClient.encodePageToken("2024-05-01T10:00:00+00:00", "???>>>");
+        assertNotNull(token);
+        assertFalse(token.contains("+"));
+        assertFalse(token.contains("/"));
+        assertFalse(token.contains("="));
+    }
+
+    @Test
+    public void encode_requiresBothColumns() {
+        assertNull(SupabaseClient.encodePageToken(null, "id"));
+        assertNull(SupabaseClient.encodePageToken("2024-05-01T10:00:00+00:00", ""));
+    }
+
+    @Test
+    public void decode_rejectsMalformedTokens() {
+        assertNull(SupabaseClient.decodePageToken("not base64 !!"));
+        String missingId = Base64.encodeToString("2024-05-01".getBytes(StandardCharsets.UTF_8),
+            Base64.URL_SAFE | Base64.NO_WRAP);
+        assertNull(SupabaseClient.decodePageToken(missingId));
+        String emptyId = Base64.encodeToString("2024-05-01\n".getBytes(StandardCharsets.UTF_8),
+            Base64.URL_SAFE | Base64.NO_WRAP);
+        assertNull(SupabaseClient.decodePageToken(emptyId));
+    }
+}
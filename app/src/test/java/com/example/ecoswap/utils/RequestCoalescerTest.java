@@ -0,0 +1,176 @@
+package com.example.ecoswap.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class RequestCoalescerTest {
+
+    private static final String BASE = "https://example.supabase.co/rest/v1/listings";
+
+    @Test
+    public void keyFor_ignoresParameterOrder() {
+        assertEquals(
+            RequestCoalescer.keyFor(BASE + "?select=id&status=eq.available", "user-a"),
+            RequestCoalescer.keyFor(BASE + "?status=eq.available&select=id", "user-a")
+        );
+    }
+
+    @Test
+    public void keyFor_keepsRepeatedFiltersInOrder() {
+        assertNotEquals(
+            RequestCoalescer.keyFor(BASE + "?price=gte.5&price=lte.10", "user-a"),
+            RequestCoalescer.keyFor(BASE + "?price=lte.10&price=gte.5", "user-a")
+        );
+    }
+
+    @Test
+    public void keyFor_separatesUsers() {
+        String url = BASE + "?select=id";
+        assertNotEquals(RequestCoalescer.keyFor(url, "user-a"), RequestCoalescer.keyFor(url, "user-b"));
+    }
+
+    @Test
+    public void keyFor_usesAnonWithoutIdentity() {
+        assertEquals(
+            RequestCoalescer.keyFor(BASE + "?select=id", "anon"),
+            RequestCoalescer.keyFor(BASE + "?select=id", null)
+        );
+    }
+
+    @Test
+    public void keyFor_acceptsUrlWithoutQuery() {
+        assertEquals("user-a|" + BASE, RequestCoalescer.keyFor(BASE, "user-a"));
+    }
+
+    @Test
+    public void join_onlyFirstCallerPerformsTheRequest() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+
+        assertTrue(coalescer.join("k", new Recorder()));
+        assertFalse(coalescer.join("k", new Recorder()));
+        assertTrue(coalescer.join("other", new Recorder()));
+        assertEquals(1, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void fanOut_deliversTheResultToEveryWaiter() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        coalescer.join("k", first);
+        coalescer.join("k", second);
+
+        coalescer.fanOut("k").onSuccess("[1]");
+
+        assertEquals("[1]", first.result);
+        assertEquals("[1]", second.result);
+        // The flight is finished; the next caller starts a new request.
+        assertTrue(coalescer.join("k", new Recorder()));
+    }
+
+    @Test
+    public void fanOut_deliversErrorsToEveryWaiter() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        coalescer.join("k", first);
+        coalescer.join("k", second);
+
+        coalescer.fanOut("k").onError("boom");
+
+        assertEquals("boom", first.error);
+        assertEquals("boom", second.error);
+    }
+
+    @Test
+    public void cancellingOneWaiter_keepsTheSharedFlight() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        RequestScope cancelledScope = new RequestScope();
+        RequestScope liveScope = new RequestScope();
+        Recorder cancelled = new Recorder();
+        Recorder live = new Recorder();
+        coalescer.join("k", cancelledScope.wrap(cancelled));
+        coalescer.join("k", liveScope.wrap(live));
+        SupabaseClient.OnDatabaseCallback flight = coalescer.fanOut("k");
+
+        cancelledScope.cancel();
+        assertFalse(flightScope(flight).isCancelled());
+        flight.onSuccess("[1]");
+
+        assertEquals("[1]", live.result);
+        assertNull(cancelled.result);
+    }
+
+    @Test
+    public void cancellingEveryWaiter_cancelsTheFlight() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        RequestScope first = new RequestScope();
+        RequestScope second = new RequestScope();
+        coalescer.join("k", first.wrap(new Recorder()));
+        coalescer.join("k", second.wrap(new Recorder()));
+        SupabaseClient.OnDatabaseCallback flight = coalescer.fanOut("k");
+
+        first.cancel();
+        second.cancel();
+
+        assertTrue(flightScope(flight).isCancelled());
+        // An abandoned flight is not joined; a new caller performs its own request.
+        assertTrue(coalescer.join("k", new Recorder()));
+    }
+
+    @Test
+    public void unscopedWaiter_keepsTheFlightAlive() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        RequestScope scope = new RequestScope();
+        Recorder unscoped = new Recorder();
+        coalescer.join("k", scope.wrap(new Recorder()));
+        coalescer.join("k", unscoped);
+        SupabaseClient.OnDatabaseCallback flight = coalescer.fanOut("k");
+
+        scope.cancel();
+        assertFalse(flightScope(flight).isCancelled());
+        flight.onSuccess("[1]");
+
+        assertEquals("[1]", unscoped.result);
+    }
+
+    @Test
+    public void fanOut_afterEveryWaiterLeft_returnsCancelledCallback() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        RequestScope scope = new RequestScope();
+        coalescer.join("k", scope.wrap(new Recorder()));
+        scope.cancel();
+
+        assertTrue(flightScope(coalescer.fanOut("k")).isCancelled());
+    }
+
+    private static RequestScope flightScope(SupabaseClient.OnDatabaseCallback callback) {
+        RequestScope scope = RequestScope.of(callback);
+        assertNotNull(scope);
+        return scope;
+    }
+
+    private static final class Recorder implements SupabaseClient.OnDatabaseCallback {
+        Object result;
+        String error;
+
+        @Override
+        public void onSuccess(Object data) {
+            result = data;
+        }
+
+        @Override
+        public void onError(String error) {
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.ecoswap.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Timeout;
+
+@RunWith(RobolectricTestRunner.class)
+public class RequestSchedulerTest {
+
+    private final List<FakeCall> started = new ArrayList<>();
+    private final RequestScheduler scheduler = new RequestScheduler(1, 1, 1);
+
+    @Test
+    public void interactiveRunsBeforeDeferredBackground() {
+        FakeCall interactive = enqueue(RequestPriority.INTERACTIVE);
+        FakeCall background = enqueue(RequestPriority.BACKGROUND);
+
+        assertEquals(List.of(interactive), started);
+
+        interactive.complete();
+        assertEquals(List.of(interactive, background), started);
+    }
+
+    @Test
+    public void laneLimitQueuesUntilACallFinishes() {
+        FakeCall first = enqueue(RequestPriority.INTERACTIVE);
+        FakeCall second = enqueue(RequestPriority.INTERACTIVE);
+        assertEquals(List.of(first), started);
+
+        first.complete();
+        assertEquals(List.of(first, second), started);
+    }
+
+    @Test
+    public void lanesRunSideBySideWithinTheirOwnLimits() {
+        FakeCall prefetch = enqueue(RequestPriority.PREFETCH);
+        FakeCall background = enqueue(RequestPriority.BACKGROUND);
+
+        assertEquals(List.of(prefetch, background), started);
+    }
+
+    @Test
+    public void queuedPrefetchIsCanceledWhenInteractiveArrives() {
+        FakeCall runningPrefetch = enqueue(RequestPriority.PREFETCH);
+        FakeCall queuedPrefetch = enqueue(RequestPriority.PREFETCH);
+
+        FakeCall interactive = enqueue(RequestPriority.INTERACTIVE);
+
+        assertTrue(queuedPrefetch.isCanceled());
+        assertTrue(queuedPrefetch.failure instanceof IOException);
+        // A prefetch already on the wire is left to finish.
+        assertFalse(runningPrefetch.isCanceled());
+        assertEquals(List.of(runningPrefetch, interactive), started);
+    }
+
+    @Test
+    public void overdueBackgroundStartsOnTimerWhileInteractiveIsBusy() {
+        FakeCall interactive = enqueue(RequestPriority.INTERACTIVE);
+        FakeCall background = enqueue(RequestPriority.BACKGROUND);
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(9));
+        assertEquals(List.of(interactive), started);
+
+        // Nothing is enqueued or finished; the timer alone starts the overdue call.
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(2));
+        assertEquals(List.of(interactive, background), started);
+    }
+
+    @Test
+    public void timerPromotesQueuedBackgroundCallsOneAfterAnother() {
+        enqueue(RequestPriority.INTERACTIVE);
+        FakeCall first = enqueue(RequestPriority.BACKGROUND);
+        FakeCall second = enqueue(RequestPriority.BACKGROUND);
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofSeconds(11));
+        assertTrue(started.contains(first));
+        assertFalse(started.contains(second));
+
+        // The second call waited as long as the first, so it starts as soon as the lane frees up.
+        first.complete();
+        assertTrue(started.contains(second));
+    }
+
+    private FakeCall enqueue(RequestPriority lane) {
+        FakeCall call = new FakeCall();
+        scheduler.enqueue(lane, call, call.delivered);
+        return call;
+    }
+
+    /**
+     * A call that never touches the network: enqueueing records it as started and
+     * {@link #complete()} reports it finished.
+     */
+    private final class FakeCall implements Call {
+        private final Request request = new Request.Builder()
+            .url("https://x.supabase.co/rest/v1/posts")
+            .build();
+        private Callback callback;
+        private boolean canceled;
+        IOException failure;
+
+        final Callback delivered = new Callback() {
+            @Override
+            public void onFailure(@NonNull Call call, @NonNull IOException e) {
+                failure = e;
+            }
+
+            @Override
+            public void onResponse(@NonNull Call call, @NonNull Response response) {
+            }
+        };
+
+        void complete() {
+            callback.onFailure(this, new IOException("done"));
+        }
+
+        @NonNull
+        @Override
+        public Request request() {
+            return request;
+        }
+
+        @NonNull
+        @Override
+        public Response execute() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void enqueue(@NonNull Callback responseCallback) {
+            callback = responseCallback;
+            started.add(this);
+        }
+
+        @Override
+        public void cancel() {
+            canceled = true;
+        }
+
+        @Override
+        public boolean isExecuted() {
+            return callback != null;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled;
+        }
+
+        @NonNull
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @NonNull
+        @Override
+        public Call clone() {
+            return new FakeCall();
+        }
+    }
+}
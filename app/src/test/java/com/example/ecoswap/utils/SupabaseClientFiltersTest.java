@@ -0,0 +1,41 @@
+package com.example.ecoswap.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import android.net.Uri;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+public class SupabaseClientFiltersTest {
+
+    @Test
+    public void buildInFilter_quotesEachValue() {
+        String filter = SupabaseClient.buildInFilter(Arrays.asList("a1", "b2"));
+        assertEquals("in.(\"a1\",\"b2\")", Uri.decode(filter));
+    }
+
+    @Test
+    public void buildInFilter_skipsEmptyValues() {
+        String filter = SupabaseClient.buildInFilter(Arrays.asList("", "a1", null, "b2"));
+        assertEquals("in.(\"a1\",\"b2\")", Uri.decode(filter));
+    }
+
+    @Test
+    public void buildInFilter_escapesQuotesAndEncodesReservedCharacters() {
+        String filter = SupabaseClient.buildInFilter(Collections.singletonList("say \"hi\", ok"));
+        assertEquals("in.(\"say \\\"hi\\\", ok\")", Uri.decode(filter));
+        assertEquals(-1, filter.indexOf(','));
+        assertEquals(-1, filter.indexOf(' '));
+    }
+
+    @Test
+    public void buildInFilter_emptyCollectionYieldsEmptyList() {
+        assertEquals("in.()", Uri.decode(SupabaseClient.buildInFilter(Collections.emptyList())));
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.ecoswap.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+public class SupabaseErrorTest {
+
+    @Test
+    public void fromResponse_classifiesStatusCodes() {
+        assertEquals(SupabaseError.Kind.RATE_LIMITED, SupabaseError.fromResponse(response(429), "slow down").getKind());
+        assertEquals(SupabaseError.Kind.SERVER, SupabaseError.fromResponse(response(503), "down").getKind());
+        assertEquals(SupabaseError.Kind.SERVER, SupabaseError.fromResponse(response(500), "oops").getKind());
+        assertEquals(SupabaseError.Kind.SERVER, SupabaseError.fromResponse(response(408), "timeout").getKind());
+        assertEquals(SupabaseError.Kind.REJECTED, SupabaseError.fromResponse(response(400), "bad").getKind());
+        assertEquals(SupabaseError.Kind.REJECTED, SupabaseError.fromResponse(response(409), "conflict").getKind());
+    }
+
+    @Test
+    public void fromResponse_keepsStatusAndMessage() {
+        SupabaseError error = SupabaseError.fromResponse(response(404), "missing");
+
+        assertEquals(404, error.getStatusCode());
+        assertEquals("missing", error.getMessage());
+        assertFalse(error.isTransient());
+    }
+
+    @Test
+    public void transientKinds_areRetryable() {
+        assertTrue(SupabaseError.fromResponse(response(429), "").isTransient());
+        assertTrue(SupabaseError.fromResponse(response(502), "").isTransient());
+        assertTrue(SupabaseError.fromException(new IOException("reset")).isTransient());
+        assertTrue(SupabaseError.refreshUnavailable().isTransient());
+        assertFalse(SupabaseError.sessionExpired().isTransient());
+        assertFalse(SupabaseError.rejected("no").isTransient());
+    }
+
+    @Test
+    public void retryAfterMs_readsDeltaSeconds() {
+        Response response = response(429).newBuilder().header("Retry-After", " 7 ").build();
+
+        assertEquals(7_000L, SupabaseError.retryAfterMs(response));
+        assertEquals(7_000L, SupabaseError.fromResponse(response, "").getRetryAfterMs());
+    }
+
+    @Test
+    public void retryAfterMs_readsHttpDate() {
+        Date inOneMinute = new Date(System.currentTimeMillis() + 60_000L);
+        Response response = response(503).newBuilder()
+            .header("Retry-After", httpDate(inOneMinute))
+            .build();
+
+        long retryAfterMs = SupabaseError.retryAfterMs(response);
+
+        // HTTP dates have second precision.
+        assertTrue(retryAfterMs > 55_000L && retryAfterMs <= 60_000L);
+    }
+
+    @Test
+    public void retryAfterMs_isZeroWhenMissingPastOrInvalid() {
+        assertEquals(0L, SupabaseError.retryAfterMs(response(429)));
+        assertEquals(0L, SupabaseError.retryAfterMs(
+            response(429).newBuilder().header("Retry-After", "-5").build()));
+        assertEquals(0L, SupabaseError.retryAfterMs(
+            response(429).newBuilder().header("Retry-After", "soon").build()));
+        assertEquals(0L, SupabaseError.retryAfterMs(
+            response(429).newBuilder().header("Retry-After", httpDate(new Date(0L))).build()));
+    }
+
+    private static String httpDate(Date date) {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format.format(date);
+    }
+
+    private static Response response(int code) {
+        return new Response.Builder()
+            .request(new Request.Builder().url("https://example.supabase.co/rest/v1/posts").build())
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message("")
+            .build();
+    }
+}
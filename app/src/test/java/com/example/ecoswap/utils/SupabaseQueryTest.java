@@ -0,0 +1,91 @@
+package com.example.ecoswap.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import android.net.Uri;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+public class SupabaseQueryTest {
+
+    @Test
+    public void build_writesProjectionFiltersOrderAndLimit() {
+        String endpoint = SupabaseQuery.from("posts")
+            .select("id", "title")
+            .embed("profiles", "name", "profile_image_url")
+            .eq("user_id", "u1")
+            .order("created_at", false)
+            .limit(20)
+            .build();
+
+        assertEquals("/rest/v1/posts?select=id,title,profiles(name,profile_image_url)"
+            + "&user_id=eq.u1&order=created_at.desc&limit=20", endpoint);
+    }
+
+    @Test
+    public void build_encodesFilterValues() {
+        String endpoint = SupabaseQuery.from("posts")
+            .select("id")
+            .ilike("title", "*bike & helmet*")
+            .build();
+
+        assertEquals("/rest/v1/posts?select=id&title=ilike.*bike%20%26%20helmet*", endpoint);
+    }
+
+    @Test
+    public void build_writesAliasesCountsInAndOr() {
+        String endpoint = SupabaseQuery.from("chats")
+            .select("id")
+            .embedAs("sender", "profiles!chats_sender_id_fkey", "name")
+            .embedCount("reactions")
+            .in("id", Arrays.asList("a", "b"))
+            .or("(sender_id.eq.a,receiver_id.eq.a)")
+            .range(20, 39)
+            .build();
+
+        assertEquals("/rest/v1/chats?select=id,sender:profiles!chats_sender_id_fkey(name),reactions(count)"
+            + "&id=in.(\"a\",\"b\")&or=(sender_id.eq.a,receiver_id.eq.a)&limit=20&offset=20", Uri.decode(endpoint));
+    }
+
+    @Test
+    public void build_reusesTemplateForSameShape() {
+        SupabaseQuery.from("profiles").select("id", "name").eq("id", "first").build();
+        int hits = SupabaseQuery.templateHitCount();
+
+        String second = SupabaseQuery.from("profiles").select("id", "name").eq("id", "second").build();
+
+        assertEquals(hits + 1, SupabaseQuery.templateHitCount());
+        assertEquals("/rest/v1/profiles?select=id,name&id=eq.second", second);
+    }
+
+    @Test
+    public void build_keepsShapesThatDifferOnlyInOrderOrOperatorApart() {
+        SupabaseQuery.from("swaps").select("id").eq("status", "done").order("created_at", true).build();
+
+        assertEquals("/rest/v1/swaps?select=id&status=eq.done&order=created_at.desc",
+            SupabaseQuery.from("swaps").select("id").eq("status", "done").order("created_at", false).build());
+        assertEquals("/rest/v1/swaps?select=id&status=neq.done&order=created_at.asc",
+            SupabaseQuery.from("swaps").select("id").neq("status", "done").order("created_at", true).build());
+    }
+
+    @Test
+    public void select_rejectsWildcard() {
+        assertThrows(IllegalArgumentException.class, () -> SupabaseQuery.from("posts").select("*"));
+    }
+
+    @Test
+    public void build_requiresProjection() {
+        assertThrows(IllegalStateException.class, () -> SupabaseQuery.from("posts").eq("id", "1").build());
+    }
+
+    @Test
+    public void range_rejectsInvertedBounds() {
+        assertThrows(IllegalArgumentException.class, () -> SupabaseQuery.from("posts").select("id").range(5, 4));
+    }
+}
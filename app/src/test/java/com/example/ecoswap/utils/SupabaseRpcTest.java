@@ -0,0 +1,68 @@
+package com.example.ecoswap.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+public class SupabaseRpcTest {
+
+    @Test
+    public void queryValue_writesScalarsAsText() {
+        assertEquals("swap", SupabaseRpc.queryValue("swap"));
+        assertEquals("42", SupabaseRpc.queryValue(42));
+        assertEquals("true", SupabaseRpc.queryValue(true));
+        assertEquals("", SupabaseRpc.queryValue(null));
+    }
+
+    @Test
+    public void queryValue_writesCollectionsAsPostgresArrays() {
+        assertEquals("{\"a\",\"b\"}", SupabaseRpc.queryValue(Arrays.asList("a", "b")));
+        assertEquals("{\"1\",\"2\"}", SupabaseRpc.queryValue(Arrays.asList(1, 2)));
+        assertEquals("{}", SupabaseRpc.queryValue(Collections.emptyList()));
+    }
+
+    @Test
+    public void queryValue_escapesQuotesAndBackslashesInArrayItems() {
+        assertEquals("{\"say \\\"hi\\\"\",\"a\\\\b\",\"x,y\"}",
+            SupabaseRpc.queryValue(Arrays.asList("say \"hi\"", "a\\b", "x,y")));
+    }
+
+    @Test
+    public void args_serializeAsJsonBodyInOrder() {
+        SupabaseRpc rpc = SupabaseRpc.call("record_trade_impact")
+            .arg("p_trade_type", "swap")
+            .arg("p_trade_id", "5a0")
+            .arg("p_ids", Arrays.asList("a", "b"))
+            .arg("p_limit", 3);
+
+        assertEquals("{\"p_trade_type\":\"swap\",\"p_trade_id\":\"5a0\",\"p_ids\":[\"a\",\"b\"],\"p_limit\":3}",
+            new Gson().toJson(rpc.getArgs()));
+    }
+
+    @Test
+    public void call_describesFunctionAndCacheEffects() {
+        SupabaseRpc rpc = SupabaseRpc.call("record_trade_impact").invalidates("profiles", "eco_savings");
+
+        assertEquals("record_trade_impact", rpc.getFunction());
+        assertEquals(Arrays.asList("profiles", "eco_savings"), rpc.getInvalidatedTables());
+        assertFalse(rpc.isReadOnly());
+        assertTrue(SupabaseRpc.call("search").readOnly().isReadOnly());
+    }
+
+    @Test
+    public void call_rejectsNamesThatAreNotFunctions() {
+        assertThrows(IllegalArgumentException.class, () -> SupabaseRpc.call(""));
+        assertThrows(IllegalArgumentException.class, () -> SupabaseRpc.call("../posts"));
+    }
+}
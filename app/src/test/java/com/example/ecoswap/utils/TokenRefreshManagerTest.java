@@ -0,0 +1,166 @@
+package com.example.ecoswap.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+public class TokenRefreshManagerTest {
+
+    private static final long EXPIRY_BUFFER_SECONDS = 60L;
+    private static final long PROACTIVE_LEAD_SECONDS = 30L;
+
+    private final FakeRefresher refresher = new FakeRefresher();
+    private final TokenRefreshManager manager = new TokenRefreshManager(
+        refresher, new Handler(Looper.getMainLooper()), EXPIRY_BUFFER_SECONDS, PROACTIVE_LEAD_SECONDS);
+
+    @Test
+    public void concurrentCallersShareOneRefresh() {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            manager.refresh(succeeded::incrementAndGet, failed::incrementAndGet);
+        }
+        assertEquals(1, refresher.calls());
+
+        refresher.succeed();
+        assertEquals(3, succeeded.get());
+        assertEquals(0, failed.get());
+    }
+
+    @Test
+    public void failedRefreshNotifiesEveryWaiterOfFailure() {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        manager.refresh(succeeded::incrementAndGet, failed::incrementAndGet);
+        manager.refresh(succeeded::incrementAndGet, failed::incrementAndGet);
+
+        refresher.fail();
+
+        assertEquals(0, succeeded.get());
+        assertEquals(2, failed.get());
+    }
+
+    @Test
+    public void refreshAfterCompletionStartsANewOne() {
+        AtomicInteger succeeded = new AtomicInteger();
+        manager.refresh(succeeded::incrementAndGet, null);
+        refresher.succeed();
+
+        manager.refresh(succeeded::incrementAndGet, null);
+
+        assertEquals(2, refresher.calls());
+        refresher.succeed();
+        // Waiters of the first refresh are not run again.
+        assertEquals(2, succeeded.get());
+    }
+
+    @Test
+    public void proactiveRefreshRunsAheadOfExpiry() {
+        manager.scheduleProactiveRefresh(expiryInSeconds(60L));
+
+        idleFor(Duration.ofSeconds(58));
+        assertEquals(0, refresher.calls());
+
+        idleFor(Duration.ofSeconds(3));
+        assertEquals(1, refresher.calls());
+    }
+
+    @Test
+    public void proactiveRefreshJoinsARefreshInProgress() {
+        manager.refresh(null, null);
+        manager.scheduleProactiveRefresh(expiryInSeconds(60L));
+
+        idleFor(Duration.ofSeconds(61));
+
+        assertEquals(1, refresher.calls());
+    }
+
+    @Test
+    public void reschedulingReplacesThePendingRefresh() {
+        manager.scheduleProactiveRefresh(expiryInSeconds(60L));
+        manager.scheduleProactiveRefresh(expiryInSeconds(120L));
+
+        idleFor(Duration.ofSeconds(61));
+        assertEquals(0, refresher.calls());
+
+        idleFor(Duration.ofSeconds(60));
+        assertEquals(1, refresher.calls());
+    }
+
+    @Test
+    public void expiredTokenIsRefreshedAfterTheMinimumDelay() {
+        manager.scheduleProactiveRefresh(System.currentTimeMillis() / 1000L - 600L);
+
+        idleFor(Duration.ofSeconds(9));
+        assertEquals(0, refresher.calls());
+
+        idleFor(Duration.ofSeconds(2));
+        assertEquals(1, refresher.calls());
+    }
+
+    @Test
+    public void cancelStopsTheScheduledRefresh() {
+        manager.scheduleProactiveRefresh(expiryInSeconds(60L));
+
+        // What sign-out does.
+        manager.cancelProactiveRefresh();
+        idleFor(Duration.ofMinutes(10));
+
+        assertEquals(0, refresher.calls());
+    }
+
+    @Test
+    public void unknownExpiryCancelsTheScheduledRefresh() {
+        manager.scheduleProactiveRefresh(expiryInSeconds(60L));
+
+        manager.scheduleProactiveRefresh(0L);
+        idleFor(Duration.ofMinutes(10));
+
+        assertEquals(0, refresher.calls());
+    }
+
+    /** An expiry whose proactive refresh is due in {@code delaySeconds}. */
+    private static long expiryInSeconds(long delaySeconds) {
+        return System.currentTimeMillis() / 1000L + EXPIRY_BUFFER_SECONDS + PROACTIVE_LEAD_SECONDS + delaySeconds;
+    }
+
+    private static void idleFor(Duration duration) {
+        shadowOf(Looper.getMainLooper()).idleFor(duration);
+    }
+
+    private static final class FakeRefresher implements TokenRefreshManager.Refresher {
+        private final List<Runnable[]> pending = new ArrayList<>();
+        private int calls;
+
+        @Override
+        public void refresh(Runnable onSuccess, Runnable onFailure) {
+            calls++;
+            pending.add(new Runnable[]{onSuccess, onFailure});
+        }
+
+        int calls() {
+            return calls;
+        }
+
+        void succeed() {
+            pending.remove(0)[0].run();
+        }
+
+        void fail() {
+            pending.remove(0)[1].run();
+        }
+    }
+}
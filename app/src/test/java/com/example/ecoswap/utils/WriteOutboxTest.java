@@ -0,0 +1,328 @@
+package com.example.ecoswap.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
+import android.os.Looper;
+
+import com.google.gson.JsonObject;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowNetworkCapabilities;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class WriteOutboxTest {
+
+    private static final String USER = "user-a";
+
+    private final Context context = RuntimeEnvironment.getApplication();
+    private final FakeBackend backend = new FakeBackend(USER);
+
+    @Before
+    public void setUp() {
+        ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkCapabilities capabilities = ShadowNetworkCapabilities.newInstance();
+        shadowOf(capabilities).addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+        shadowOf(cm).setNetworkCapabilities(cm.getActiveNetwork(), capabilities);
+    }
+
+    @Test
+    public void replaysWritesOneAtATimeInQueueOrder() {
+        WriteOutbox outbox = new WriteOutbox(context, backend);
+        outbox.enqueueInsert("messages", row(1), null);
+        outbox.enqueueInsert("messages", row(2), null);
+        outbox.enqueueInsert("messages", row(3), null);
+
+        assertEquals(List.of(1), backend.sentRows());
+
+        backend.succeed();
+        assertEquals(List.of(1, 2), backend.sentRows());
+
+        backend.succeed();
+        backend.succeed();
+        assertEquals(List.of(1, 2, 3), backend.sentRows());
+        assertEquals(0, outbox.getPendingCount());
+    }
+
+    @Test
+    public void insertsAreSentAsIdempotentUpserts() {
+        WriteOutbox outbox = new WriteOutbox(context, backend);
+        String id = outbox.enqueueInsert("messages", row(1), null);
+
+        Write write = backend.sent.get(0);
+        assertEquals("POST", write.method);
+        assertEquals("/rest/v1/messages?on_conflict=id", write.path);
+        assertEquals(id, write.row().optString("id"));
+    }
+
+    @Test
+    public void queuedWritesSurviveARestart() throws JSONException {
+        WriteOutbox outbox = new WriteOutbox(context, backend);
+        String firstId = outbox.enqueueInsert("messages", row(1), null);
+        outbox.enqueueInsert("messages", row(2), null);
+
+        FakeBackend restarted = new FakeBackend(USER);
+        WriteOutbox reloaded = new WriteOutbox(context, restarted);
+        assertEquals(2, reloaded.getPendingCount());
+        assertEquals(firstId, reloaded.pendingInserts("messages").get(0).getString("id"));
+
+        reloaded.flush();
+        restarted.succeed();
+        restarted.succeed();
+        assertEquals(List.of(1, 2), restarted.sentRows());
+        // The same row goes out under the id the user already saw.
+        assertEquals(firstId, restarted.sent.get(0).row().getString("id"));
+        assertEquals(0, new WriteOutbox(context, new FakeBackend(USER)).getPendingCount());
+    }
+
+    @Test
+    public void attemptsSurviveARestart() {
+        WriteOutbox outbox = new WriteOutbox(context, backend);
+        outbox.enqueueInsert("messages", row(1), null);
+        for (int i = 1; i < WriteOutbox.MAX_ATTEMPTS; i++) {
+            backend.fail(networkError());
+            idleFor(Duration.ofMinutes(5));
+        }
+
+        FakeBackend restarted = new FakeBackend(USER);
+        WriteOutbox reloaded = new WriteOutbox(context, restarted);
+        reloaded.flush();
+        restarted.fail(networkError());
+
+        // The restart did not reset the count, so this was the last attempt.
+        assertEquals(0, reloaded.getPendingCount());
+    }
+
+    @Test
+    public void retriesAfterJitteredExponentialBackoff() {
+        WriteOutbox outbox = new WriteOutbox(context, backend);
+        outbox.enqueueInsert("messages", row(1), null);
+
+        // First retry waits between half and all of the 2s window.
+        backend.fail(networkError());
+        idleFor(Duration.ofMillis(999));
+        assertEquals(1, backend.sent.size());
+        idleFor(Duration.ofMillis(1_001));
+        assertEquals(2, backend.sent.size());
+
+        // The window doubles to 4s.
+        backend.fail(networkError());
+        idleFor(Duration.ofMillis(1_999));
+        assertEquals(2, backend.sent.size());
+        idleFor(Duration.ofMillis(2_001));
+        assertEquals(3, backend.sent.size());
+    }
+
+    @Test
+    public void dropsWriteAfterMaxAttemptsAndMovesOn() {
+        WriteOutbox outbox = new WriteOutbox(context, backend);
+        Result poisoned = new Result();
+        outbox.enqueueInsert("messages", row(1), poisoned);
+        outbox.enqueueInsert("messages", row(2), null);
+
+        for (int i = 0; i < WriteOutbox.MAX_ATTEMPTS; i++) {
+            assertNull(poisoned.error);
+            backend.fail(networkError());
+            idleFor(Duration.ofMinutes(5));
+        }
+
+        assertNotNull(poisoned.error);
+        assertEquals(WriteOutbox.MAX_ATTEMPTS + 1, backend.sent.size());
+        assertEquals(2, backend.sentRows().get(WriteOutbox.MAX_ATTEMPTS).intValue());
+        assertEquals(1, outbox.getPendingCount());
+    }
+
+    @Test
+    public void rejectedWriteIsDroppedWithoutRetry() {
+        WriteOutbox outbox = new WriteOutbox(context, backend);
+        Result result = new Result();
+        outbox.enqueueInsert("messages", row(1), result);
+
+        backend.fail(SupabaseError.rejected("violates check constraint"));
+        idleFor(Duration.ofMinutes(5));
+
+        assertEquals(1, backend.sent.size());
+        assertNotNull(result.error);
+        assertEquals(0, outbox.getPendingCount());
+    }
+
+    @Test
+    public void expiredSessionPausesUntilANewSignInWithoutCountingAnAttempt() {
+        WriteOutbox outbox = new WriteOutbox(context, backend);
+        int[] signInRequests = {0};
+        outbox.setSignInRequiredListener(() -> signInRequests[0]++);
+        outbox.enqueueInsert("messages", row(1), null);
+
+        backend.fail(SupabaseError.sessionExpired());
+        assertEquals(1, signInRequests[0]);
+
+        idleFor(Duration.ofMinutes(10));
+        outbox.flush();
+        assertEquals(1, backend.sent.size());
+
+        backend.accessToken = "token-2";
+        outbox.flush();
+        assertEquals(2, backend.sent.size());
+
+        // Every attempt is still available after the pause.
+        for (int i = 1; i < WriteOutbox.MAX_ATTEMPTS; i++) {
+            backend.fail(networkError());
+            idleFor(Duration.ofMinutes(5));
+        }
+        assertEquals(1, outbox.getPendingCount());
+        backend.fail(networkError());
+        assertEquals(0, outbox.getPendingCount());
+    }
+
+    @Test
+    public void dropsWritesQueuedByAnotherUser() {
+        WriteOutbox outbox = new WriteOutbox(context, backend);
+        outbox.enqueueInsert("messages", row(1), null);
+        outbox.enqueueInsert("messages", row(2), null);
+
+        FakeBackend otherUser = new FakeBackend("user-b");
+        WriteOutbox reloaded = new WriteOutbox(context, otherUser);
+        reloaded.flush();
+
+        assertEquals(0, otherUser.sent.size());
+        assertEquals(0, reloaded.getPendingCount());
+        assertEquals(0, new WriteOutbox(context, otherUser).getPendingCount());
+    }
+
+    @Test
+    public void signingOutMidQueueReleasesTheRemainingCallbacks() {
+        WriteOutbox outbox = new WriteOutbox(context, backend);
+        Result first = new Result();
+        Result second = new Result();
+        outbox.enqueueInsert("messages", row(1), first);
+        outbox.enqueueInsert("messages", row(2), second);
+
+        backend.userId = "user-b";
+        backend.succeed();
+
+        assertNotNull(first.body);
+        assertEquals(1, backend.sent.size());
+        assertNull(second.body);
+        assertNull(second.error);
+        assertEquals(0, outbox.getPendingCount());
+    }
+
+    private static JsonObject row(int n) {
+        JsonObject row = new JsonObject();
+        row.addProperty("n", n);
+        return row;
+    }
+
+    private static SupabaseError networkError() {
+        return SupabaseError.fromException(new IOException("offline"));
+    }
+
+    private static void idleFor(Duration duration) {
+        shadowOf(Looper.getMainLooper()).idleFor(duration);
+    }
+
+    private static final class Write {
+        final String method;
+        final String path;
+        final String body;
+        final SupabaseClient.OnWriteResultCallback callback;
+
+        Write(String method, String path, String body, SupabaseClient.OnWriteResultCallback callback) {
+            this.method = method;
+            this.path = path;
+            this.body = body;
+            this.callback = callback;
+        }
+
+        JSONObject row() {
+            try {
+                return new JSONObject(body);
+            } catch (JSONException e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /**
+     * Records every write instead of sending it; the test answers the oldest unanswered one.
+     */
+    private static final class FakeBackend implements WriteOutbox.Backend {
+        final List<Write> sent = new ArrayList<>();
+        private int answered;
+        String userId;
+        String accessToken = "token-1";
+
+        FakeBackend(String userId) {
+            this.userId = userId;
+        }
+
+        @Override
+        public void executeOutboxWrite(String method, String pathAndQuery, String jsonBody, String prefer,
+                                       SupabaseClient.OnWriteResultCallback callback) {
+            sent.add(new Write(method, pathAndQuery, jsonBody, callback));
+        }
+
+        @Override
+        public String getCurrentUserId() {
+            return userId;
+        }
+
+        @Override
+        public String getAccessToken() {
+            return accessToken;
+        }
+
+        void succeed() {
+            Write write = sent.get(answered++);
+            write.callback.onSuccess("[" + write.body + "]");
+        }
+
+        void fail(SupabaseError error) {
+            sent.get(answered++).callback.onFailure(error);
+        }
+
+        List<Integer> sentRows() {
+            List<Integer> rows = new ArrayList<>();
+            for (Write write : sent) {
+                rows.add(write.row().optInt("n"));
+            }
+            return rows;
+        }
+    }
+
+    private static final class Result implements SupabaseClient.OnDatabaseCallback {
+        Object body;
+        SupabaseError error;
+
+        @Override
+        public void onSuccess(Object data) {
+            body = data;
+        }
+
+        @Override
+        public void onError(String message) {
+            throw new AssertionError("onFailure is overridden");
+        }
+
+        @Override
+        public void onFailure(SupabaseError error) {
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+-- One summary row per user and conversation, kept up to date by triggers on chats, so the inbox
+-- reads one row per conversation instead of every message the user ever sent or received.
+-- A conversation is a counterpart plus the listing it is about (or none), the same grouping the
+-- app used to do on the phone. Each participant has their own row with their own unread count.
+-- Execute in the Supabase SQL Editor after schema.sql. Safe to re-run; the backfill at the end
+-- rebuilds every summary from chats. Until it has run, the app builds the inbox from chats on
+-- the phone as before (ChatRepository.loadConversations), loading every message in one request.
+
+CREATE TABLE IF NOT EXISTS public.conversations (
+    id UUID DEFAULT uuid_generate_v4() PRIMARY KEY,
+    user_id UUID NOT NULL REFERENCES public.profiles(id) ON DELETE CASCADE,
+    counterpart_id UUID NOT NULL REFERENCES public.profiles(id) ON DELETE CASCADE,
+    -- Deleting a listing drops its summaries; the chats move to the direct conversation (their
+    -- listing_id is set to NULL), which the listing trigger below rebuilds.
+    listing_id UUID REFERENCES public.posts(id) ON DELETE CASCADE,
+    listing_title_snapshot TEXT,
+    listing_image_url_snapshot TEXT,
+    last_message_id UUID,
+    last_message TEXT,
+    last_sender_id UUID,
+    unread_count INTEGER NOT NULL DEFAULT 0,
+    -- created_at of the last message. Named like every other keyset-paginated table so the inbox
+    -- pages with SupabaseClient.queryPage (created_at DESC, id DESC).
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW()
+);
+
+-- listing_id is NULL for direct conversations; the key treats all of those as one.
+CREATE UNIQUE INDEX IF NOT EXISTS idx_conversations_key ON public.conversations(
+    user_id, counterpart_id, COALESCE(listing_id, '00000000-0000-0000-0000-000000000000'::uuid)
+);
+CREATE INDEX IF NOT EXISTS idx_conversations_user_created_id
+    ON public.conversations(user_id, created_at DESC, id DESC);
+
+ALTER TABLE public.conversations ENABLE ROW LEVEL SECURITY;
+
+-- Read-only for clients; only the triggers below write summaries.
+DROP POLICY IF EXISTS "Users can view their own conversations" ON public.conversations;
+CREATE POLICY "Users can view their own conversations"
+    ON public.conversations FOR SELECT
+    USING (auth.uid() = user_id);
+
+REVOKE INSERT, UPDATE, DELETE ON public.conversations FROM anon, authenticated;
+
+-- ============================================
+-- Triggers on chats
+-- ============================================
+
+-- New message: becomes the last message of both participants' summaries and counts as unread
+-- for the receiver. Messages older than the current last one (late inserts from the outbox)
+-- only add to the unread count.
+CREATE OR REPLACE FUNCTION public.conversations_on_chat_insert()
+RETURNS TRIGGER
+LANGUAGE plpgsql
+SECURITY DEFINER
+SET search_path = public
+AS $$
+BEGIN
+    -- Messages to oneself have no counterpart to summarize.
+    IF NEW.sender_id IS NULL OR NEW.receiver_id IS NULL OR NEW.sender_id = NEW.receiver_id THEN
+        RETURN NULL;
+    END IF;
+
+    INSERT INTO public.conversations AS c (user_id, counterpart_id, listing_id, listing_title_snapshot,
+                                           listing_image_url_snapshot, last_message_id, last_message,
+                                           last_sender_id, unread_count, created_at)
+    VALUES
+        (NEW.sender_id, NEW.receiver_id, NEW.listing_id, NEW.listing_title_snapshot,
+         NEW.listing_image_url_snapshot, NEW.id, NEW.message, NEW.sender_id, 0, NEW.created_at),
+        (NEW.receiver_id, NEW.sender_id, NEW.listing_id, NEW.listing_title_snapshot,
+         NEW.listing_image_url_snapshot, NEW.id, NEW.message, NEW.sender_id,
+         CASE WHEN COALESCE(NEW.is_read, FALSE) THEN 0 ELSE 1 END, NEW.created_at)
+    ON CONFLICT (user_id, counterpart_id, COALESCE(listing_id, '00000000-0000-0000-0000-000000000000'::uuid))
+    DO UPDATE SET
+        unread_count = c.unread_count + EXCLUDED.unread_count,
+        listing_title_snapshot = COALESCE(EXCLUDED.listing_title_snapshot, c.listing_title_snapshot),
+        listing_image_url_snapshot = COALESCE(EXCLUDED.listing_image_url_snapshot, c.listing_image_url_snapshot),
+        last_message_id = CASE WHEN EXCLUDED.created_at >= c.created_at
+                               THEN EXCLUDED.last_message_id ELSE c.last_message_id END,
+        last_message = CASE WHEN EXCLUDED.created_at >= c.created_at
+                            THEN EXCLUDED.last_message ELSE c.last_message END,
+        last_sender_id = CASE WHEN EXCLUDED.created_at >= c.created_at
+                              THEN EXCLUDED.last_sender_id ELSE c.last_sender_id END,
+        created_at = GREATEST(c.created_at, EXCLUDED.created_at);
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS conversations_chat_insert ON public.chats;
+CREATE TRIGGER conversations_chat_insert
+    AFTER INSERT ON public.chats
+    FOR EACH ROW EXECUTE FUNCTION public.conversations_on_chat_insert();
+
+-- Messages marked read (or unread) adjust the receiver's unread count.
+CREATE OR REPLACE FUNCTION public.conversations_on_chat_read()
+RETURNS TRIGGER
+LANGUAGE plpgsql
+SECURITY DEFINER
+SET search_path = public
+AS $$
+BEGIN
+    IF COALESCE(OLD.is_read, FALSE) = COALESCE(NEW.is_read, FALSE) THEN
+        RETURN NULL;
+    END IF;
+    UPDATE public.conversations
+    SET unread_count = GREATEST(0, unread_count + CASE WHEN NEW.is_read THEN -1 ELSE 1 END)
+    WHERE user_id = NEW.receiver_id
+      AND counterpart_id = NEW.sender_id
+      AND listing_id IS NOT DISTINCT FROM NEW.listing_id;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS conversations_chat_read ON public.chats;
+CREATE TRIGGER conversations_chat_read
+    AFTER UPDATE OF is_read ON public.chats
+    FOR EACH ROW EXECUTE FUNCTION public.conversations_on_chat_read();
+
+-- Recomputes one participant's summary of one conversation from the chats table. Used where a
+-- change cannot be applied incrementally: deleted messages and messages moved to another listing.
+-- Profiles and listings deleted in the same transaction are skipped; their summaries go with them.
+CREATE OR REPLACE FUNCTION public.conversations_rebuild(p_user_id UUID, p_counterpart_id UUID, p_listing_id UUID)
+RETURNS VOID
+LANGUAGE plpgsql
+SECURITY DEFINER
+SET search_path = public
+AS $$
+BEGIN
+    DELETE FROM public.conversations
+    WHERE user_id = p_user_id
+      AND counterpart_id = p_counterpart_id
+      AND listing_id IS NOT DISTINCT FROM p_listing_id;
+
+    IF p_user_id IS NULL OR p_counterpart_id IS NULL
+       OR NOT EXISTS (SELECT 1 FROM public.profiles WHERE id = p_user_id)
+       OR NOT EXISTS (SELECT 1 FROM public.profiles WHERE id = p_counterpart_id)
+       OR (p_listing_id IS NOT NULL AND NOT EXISTS (SELECT 1 FROM public.posts WHERE id = p_listing_id)) THEN
+        RETURN;
+    END IF;
+
+    INSERT INTO public.conversations (user_id, counterpart_id, listing_id, listing_title_snapshot,
+                                      listing_image_url_snapshot, last_message_id, last_message,
+                                      last_sender_id, unread_count, created_at)
+    SELECT p_user_id, p_counterpart_id, p_listing_id,
+           (SELECT t.listing_title_snapshot FROM public.chats t
+            WHERE ((t.sender_id = p_user_id AND t.receiver_id = p_counterpart_id)
+                   OR (t.sender_id = p_counterpart_id AND t.receiver_id = p_user_id))
+              AND t.listing_id IS NOT DISTINCT FROM p_listing_id
+              AND t.listing_title_snapshot IS NOT NULL
+            ORDER BY t.created_at DESC LIMIT 1),
+           (SELECT t.listing_image_url_snapshot FROM public.chats t
+            WHERE ((t.sender_id = p_user_id AND t.receiver_id = p_counterpart_id)
+                   OR (t.sender_id = p_counterpart_id AND t.receiver_id = p_user_id))
+              AND t.listing_id IS NOT DISTINCT FROM p_listing_id
+              AND t.listing_image_url_snapshot IS NOT NULL
+            ORDER BY t.created_at DESC LIMIT 1),
+           l.id, l.message, l.sender_id,
+           (SELECT COUNT(*)::INTEGER FROM public.chats u
+            WHERE u.sender_id = p_counterpart_id AND u.receiver_id = p_user_id
+              AND u.listing_id IS NOT DISTINCT FROM p_listing_id
+              AND NOT COALESCE(u.is_read, FALSE)),
+           COALESCE(l.created_at, NOW())
+    FROM (
+        SELECT c.id, c.message, c.sender_id, c.created_at
+        FROM public.chats c
+        WHERE ((c.sender_id = p_user_id AND c.receiver_id = p_counterpart_id)
+               OR (c.sender_id = p_counterpart_id AND c.receiver_id = p_user_id))
+          AND c.listing_id IS NOT DISTINCT FROM p_listing_id
+        ORDER BY c.created_at DESC, c.id DESC
+        LIMIT 1
+    ) l;
+END;
+$$;
+
+-- Only the triggers may call it; through RPC it would let anyone rewrite other users' inboxes.
+REVOKE ALL ON FUNCTION public.conversations_rebuild(UUID, UUID, UUID) FROM PUBLIC, anon, authenticated;
+
+-- Deleted messages (including cascades from deleted profiles) rebuild the affected summaries
+-- from what is left, once per statement and conversation.
+CREATE OR REPLACE FUNCTION public.conversations_on_chat_delete()
+RETURNS TRIGGER
+LANGUAGE plpgsql
+SECURITY DEFINER
+SET search_path = public
+AS $$
+BEGIN
+    PERFORM public.conversations_rebuild(t.user_id, t.counterpart_id, t.listing_id)
+    FROM (
+        SELECT d.sender_id AS user_id, d.receiver_id AS counterpart_id, d.listing_id FROM deleted_chats d
+        UNION
+        SELECT d.receiver_id, d.sender_id, d.listing_id FROM deleted_chats d
+    ) t;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS conversations_chat_delete ON public.chats;
+CREATE TRIGGER conversations_chat_delete
+    AFTER DELETE ON public.chats
+    REFERENCING OLD TABLE AS deleted_chats
+    FOR EACH STATEMENT EXECUTE FUNCTION public.conversations_on_chat_delete();
+
+-- A message moved to another listing (in practice: its listing was deleted and listing_id set to
+-- NULL) leaves one conversation and joins another.
+CREATE OR REPLACE FUNCTION public.conversations_on_chat_listing_change()
+RETURNS TRIGGER
+LANGUAGE plpgsql
+SECURITY DEFINER
+SET search_path = public
+AS $$
+BEGIN
+    IF OLD.listing_id IS NOT DISTINCT FROM NEW.listing_id THEN
+        RETURN NULL;
+    END IF;
+    PERFORM public.conversations_rebuild(OLD.sender_id, OLD.receiver_id, OLD.listing_id);
+    PERFORM public.conversations_rebuild(OLD.receiver_id, OLD.sender_id, OLD.listing_id);
+    PERFORM public.conversations_rebuild(NEW.sender_id, NEW.receiver_id, NEW.listing_id);
+    PERFORM public.conversations_rebuild(NEW.receiver_id, NEW.sender_id, NEW.listing_id);
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS conversations_chat_listing_change ON public.chats;
+CREATE TRIGGER conversations_chat_listing_change
+    AFTER UPDATE OF listing_id ON public.chats
+    FOR EACH ROW EXECUTE FUNCTION public.conversations_on_chat_listing_change();
+
+-- ============================================
+-- Backfill
+-- ============================================
+BEGIN;
+LOCK TABLE public.chats IN SHARE MODE;
+DELETE FROM public.conversations;
+DO $$
+BEGIN
+    PERFORM public.conversations_rebuild(p.user_id, p.counterpart_id, p.listing_id)
+    FROM (
+        SELECT sender_id AS user_id, receiver_id AS counterpart_id, listing_id FROM public.chats
+        WHERE sender_id IS DISTINCT FROM receiver_id
+        UNION
+        SELECT receiver_id, sender_id, listing_id FROM public.chats
+        WHERE sender_id IS DISTINCT FROM receiver_id
+    ) p;
+END;
+$$;
+COMMIT;
+
+-- Open inboxes learn about new conversations the same way open chats learn about new messages.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_publication WHERE pubname = 'supabase_realtime')
+       AND NOT EXISTS (SELECT 1 FROM pg_publication_tables
+                       WHERE pubname = 'supabase_realtime' AND schemaname = 'public'
+                         AND tablename = 'conversations') THEN
+        ALTER PUBLICATION supabase_realtime ADD TABLE public.conversations;
+    END IF;
+END;
+$$;
+
+NOTIFY pgrst, 'reload schema';
@@ -0,0 +1,9 @@
+-- Composite indexes backing keyset pagination (SupabaseClient.queryPage).
+-- Pages are ordered by (created_at DESC, id DESC) and resume from the last row of the previous
+-- page, so each page is a short index range scan instead of an OFFSET over every earlier row.
+
+CREATE INDEX IF NOT EXISTS idx_posts_created_id ON public.posts(created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_posts_category_created_id ON public.posts(category, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_posts_listing_type_created_id ON public.posts(listing_type, status, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_bids_post_created_id ON public.bids(post_id, created_at DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_notifications_user_created_id ON public.notifications(user_id, created_at DESC, id DESC);
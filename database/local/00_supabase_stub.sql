@@ -0,0 +1,28 @@
+-- Minimal stand-ins for the parts of Supabase that schema.sql and the RPC functions rely on:
+-- the API roles, auth.users and auth.uid(). Local harness only; never run this on Supabase.
+
+CREATE ROLE anon NOLOGIN;
+CREATE ROLE authenticated NOLOGIN;
+CREATE ROLE authenticator LOGIN NOINHERIT PASSWORD 'authenticator';
+GRANT anon, authenticated TO authenticator;
+
+CREATE SCHEMA auth;
+
+CREATE TABLE auth.users (
+    id UUID PRIMARY KEY,
+    email TEXT,
+    raw_user_meta_data JSONB DEFAULT '{}'::jsonb
+);
+
+-- PostgREST exposes the verified JWT claims as request.jwt.claims; Supabase's auth.uid() reads
+-- the subject from the same place.
+CREATE FUNCTION auth.uid() RETURNS UUID
+LANGUAGE sql STABLE
+AS $$
+    SELECT NULLIF(current_setting('request.jwt.claims', true)::json ->> 'sub', '')::uuid
+$$;
+
+GRANT USAGE ON SCHEMA auth TO anon, authenticated;
+GRANT USAGE ON SCHEMA public TO anon, authenticated;
+ALTER DEFAULT PRIVILEGES IN SCHEMA public GRANT SELECT, INSERT, UPDATE, DELETE ON TABLES TO anon, authenticated;
+ALTER DEFAULT PRIVILEGES IN SCHEMA public GRANT USAGE, SELECT ON SEQUENCES TO anon, authenticated;
@@ -0,0 +1,113 @@
+#!/usr/bin/env python3
+"""Stand-in for Supabase Realtime, for exercising RealtimeClient without a Supabase project.
+
+Speaks the Phoenix v1 JSON protocol: it answers joins, leaves, heartbeats and access_token
+pushes. Each line typed on stdin is a JSON row; it is sent as a postgres_changes INSERT to every
+joined channel whose bindings name the row's "table" (default "chats"). Type "drop" to close
+every connection, which exercises the client's reconnect and rejoin.
+
+    pip install websockets
+    python3 realtime_standin.py --port 4000
+
+Then set SUPABASE_REALTIME_URL=ws://10.0.2.2:4000/realtime/v1/websocket in local.properties
+(10.0.2.2 is the host machine as seen from the Android emulator) and rebuild.
+"""
+import argparse
+import asyncio
+import json
+import sys
+from datetime import datetime, timezone
+
+import websockets
+
+clients = {}  # websocket -> {topic: [bindings]}
+
+
+def reply(topic, ref, status="ok", response=None):
+    return json.dumps({
+        "topic": topic,
+        "event": "phx_reply",
+        "payload": {"status": status, "response": response or {}},
+        "ref": ref,
+    })
+
+
+async def handle(websocket):
+    channels = clients.setdefault(websocket, {})
+    print(f"connected: {websocket.remote_address}", flush=True)
+    try:
+        async for frame in websocket:
+            message = json.loads(frame)
+            topic, event, ref = message.get("topic"), message.get("event"), message.get("ref")
+            if topic == "phoenix" and event == "heartbeat":
+                await websocket.send(reply(topic, ref))
+            elif event == "phx_join":
+                config = message.get("payload", {}).get("config", {})
+                channels[topic] = config.get("postgres_changes", [])
+                print(f"joined {topic}: {channels[topic]}", flush=True)
+                await websocket.send(reply(topic, ref, response={"postgres_changes": channels[topic]}))
+            elif event == "phx_leave":
+                channels.pop(topic, None)
+                print(f"left {topic}", flush=True)
+                await websocket.send(reply(topic, ref))
+            elif event == "access_token":
+                print(f"access token refreshed on {topic}", flush=True)
+    except websockets.ConnectionClosed:
+        pass
+    finally:
+        clients.pop(websocket, None)
+        print("disconnected", flush=True)
+
+
+async def broadcast(row):
+    table = row.pop("table", "chats")
+    row.setdefault("created_at", datetime.now(timezone.utc).isoformat())
+    for websocket, channels in list(clients.items()):
+        for topic, bindings in channels.items():
+            if not any(b.get("table") == table for b in bindings):
+                continue
+            await websocket.send(json.dumps({
+                "topic": topic,
+                "event": "postgres_changes",
+                "payload": {"data": {
+                    "schema": "public",
+                    "table": table,
+                    "type": "INSERT",
+                    "commit_timestamp": row["created_at"],
+                    "record": row,
+                    "old_record": None,
+                }},
+                "ref": None,
+            }))
+
+
+async def read_stdin():
+    loop = asyncio.get_running_loop()
+    while True:
+        line = await loop.run_in_executor(None, sys.stdin.readline)
+        if not line:
+            return
+        line = line.strip()
+        if not line:
+            continue
+        if line == "drop":
+            for websocket in list(clients):
+                await websocket.close()
+            continue
+        try:
+            await broadcast(json.loads(line))
+        except json.JSONDecodeError as e:
+            print(f"not JSON: {e}", flush=True)
+
+
+async def main():
+    parser = argparse.ArgumentParser(description=__doc__, formatter_class=argparse.RawDescriptionHelpFormatter)
+    parser.add_argument("--port", type=int, default=4000)
+    args = parser.parse_args()
+    async with websockets.serve(handle, "0.0.0.0", args.port):
+        print(f"realtime stand-in on ws://0.0.0.0:{args.port}/realtime/v1/websocket", flush=True)
+        await read_stdin()
+
+
+if __name__ == "__main__":
+    asyncio.run(main())
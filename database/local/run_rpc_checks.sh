@@ -0,0 +1,155 @@
+#!/usr/bin/env bash
+# Calls each RPC function through the local PostgREST the way SupabaseClient.rpc does and checks
+# the results. Expects `docker compose up -d` to have been run in this directory.
+set -euo pipefail
+
+cd "$(dirname "$0")"
+
+REST_URL="${REST_URL:-http://localhost:54321}"
+JWT_SECRET="local-postgrest-jwt-secret-at-least-32-chars"
+USER_A="00000000-0000-0000-0000-00000000000a"
+USER_B="00000000-0000-0000-0000-00000000000b"
+USER_C="00000000-0000-0000-0000-00000000000c"
+
+b64url() {
+    openssl base64 -A | tr '+/' '-_' | tr -d '='
+}
+
+token_for() {
+    local header payload signature
+    header=$(printf '{"alg":"HS256","typ":"JWT"}' | b64url)
+    payload=$(printf '{"sub":"%s","role":"authenticated","exp":%d}' "$1" $(( $(date +%s) + 600 )) | b64url)
+    signature=$(printf '%s.%s' "$header" "$payload" | openssl dgst -sha256 -hmac "$JWT_SECRET" -binary | b64url)
+    printf '%s.%s.%s' "$header" "$payload" "$signature"
+}
+
+psql_exec() {
+    docker compose exec -T db psql -U postgres -v ON_ERROR_STOP=1 -qAt -c "$1"
+}
+
+rpc() {
+    curl -s -o /tmp/rpc_body -w '%{http_code}' -X POST "$REST_URL/rpc/$1" \
+        -H "Authorization: Bearer $2" -H "Content-Type: application/json" -d "$3"
+}
+
+fail() {
+    echo "FAIL: $1" >&2
+    [ -f /tmp/rpc_body ] && cat /tmp/rpc_body >&2 && echo >&2
+    exit 1
+}
+
+expect_sql() {
+    local actual
+    actual=$(psql_exec "$1")
+    [ "$actual" = "$2" ] || fail "$3: expected '$2', got '$actual'"
+}
+
+# Fresh users; the on_auth_user_created trigger creates their profiles and eco_savings rows.
+psql_exec "DELETE FROM recorded_trade_impacts;
+           DELETE FROM auth.users WHERE id IN ('$USER_A', '$USER_B', '$USER_C');
+           INSERT INTO auth.users (id, email) VALUES
+               ('$USER_A', 'a@example.com'), ('$USER_B', 'b@example.com'), ('$USER_C', 'c@example.com');"
+
+TOKEN_A=$(token_for "$USER_A")
+TOKEN_B=$(token_for "$USER_B")
+TOKEN_C=$(token_for "$USER_C")
+
+# Trades to record. Triggers are off while the fixtures go in, so the counters start at zero
+# and only move when record_trade_impact runs.
+SWAP_AB="00000000-0000-0000-0000-0000000005a0"
+SWAP_PENDING="00000000-0000-0000-0000-0000000005a1"
+psql_exec "SET session_replication_role = replica;
+           INSERT INTO swaps (id, user1_id, user2_id, status) VALUES
+               ('$SWAP_AB', '$USER_A', '$USER_B', 'completed'),
+               ('$SWAP_PENDING', '$USER_A', '$USER_B', 'pending');
+           INSERT INTO donations (id, donor_id, receiver_id, status)
+           SELECT ('00000000-0000-0000-0000-0000000d000' || n)::uuid, '$USER_A', '$USER_C', 'completed'
+           FROM generate_series(1, 4) AS n;"
+
+echo "record_trade_impact: completed swap between A and B, called by A"
+status=$(rpc record_trade_impact "$TOKEN_A" "{\"p_trade_type\":\"swap\",\"p_trade_id\":\"$SWAP_AB\"}")
+[ "$status" = "200" ] || fail "expected 200, got $status"
+expect_sql "SELECT total_swaps, impact_score FROM profiles WHERE id = '$USER_B'" "1|2" "counterparty profile"
+expect_sql "SELECT items_swapped, co2_saved::int FROM eco_savings WHERE user_id = '$USER_A'" "1|5" "caller savings"
+
+echo "record_trade_impact: the same swap is credited once, whoever records it"
+rpc record_trade_impact "$TOKEN_A" "{\"p_trade_type\":\"swap\",\"p_trade_id\":\"$SWAP_AB\"}" > /dev/null
+status=$(rpc record_trade_impact "$TOKEN_B" "{\"p_trade_type\":\"swap\",\"p_trade_id\":\"$SWAP_AB\"}")
+[ "$status" = "200" ] || fail "expected 200, got $status"
+expect_sql "SELECT total_swaps FROM profiles WHERE id IN ('$USER_A', '$USER_B') ORDER BY id" "1
+1" "swap counters after repeats"
+expect_sql "SELECT items_swapped FROM eco_savings WHERE user_id = '$USER_B'" "1" "counterparty savings after repeats"
+
+echo "record_trade_impact: four donations reach Rising Recycler"
+for n in 1 2 3 4; do
+    rpc record_trade_impact "$TOKEN_A" "{\"p_trade_type\":\"donation\",\"p_trade_id\":\"00000000-0000-0000-0000-0000000d000$n\"}" > /dev/null
+done
+expect_sql "SELECT impact_score, eco_level FROM profiles WHERE id = '$USER_A'" "14|Rising Recycler" "level after donations"
+
+echo "record_trade_impact: repeating one donation four times credits it once"
+for _ in 1 2 3 4; do
+    rpc record_trade_impact "$TOKEN_C" "{\"p_trade_type\":\"donation\",\"p_trade_id\":\"00000000-0000-0000-0000-0000000d0001\"}" > /dev/null
+done
+expect_sql "SELECT total_donations, impact_score FROM profiles WHERE id = '$USER_A'" "4|14" "donor after repeats"
+
+echo "record_trade_impact: outsider is refused"
+status=$(rpc record_trade_impact "$TOKEN_C" "{\"p_trade_type\":\"swap\",\"p_trade_id\":\"$SWAP_PENDING\"}")
+[ "$status" = "403" ] || fail "expected 403, got $status"
+
+echo "record_trade_impact: unknown trade is refused"
+status=$(rpc record_trade_impact "$TOKEN_A" "{\"p_trade_type\":\"swap\",\"p_trade_id\":\"00000000-0000-0000-0000-000000000999\"}")
+[ "$status" = "403" ] || fail "expected 403, got $status"
+
+echo "record_trade_impact: trade that is not completed is rejected"
+status=$(rpc record_trade_impact "$TOKEN_A" "{\"p_trade_type\":\"swap\",\"p_trade_id\":\"$SWAP_PENDING\"}")
+[ "$status" = "400" ] || fail "expected 400, got $status"
+expect_sql "SELECT total_swaps FROM profiles WHERE id = '$USER_B'" "1" "counterparty untouched"
+
+echo "record_trade_impact: unknown trade type is rejected"
+status=$(rpc record_trade_impact "$TOKEN_A" "{\"p_trade_type\":\"sale\",\"p_trade_id\":\"$SWAP_AB\"}")
+[ "$status" = "400" ] || fail "expected 400, got $status"
+
+echo "conversations: inserts keep one summary per participant"
+psql_exec "DELETE FROM chats WHERE sender_id IN ('$USER_A', '$USER_B') OR receiver_id IN ('$USER_A', '$USER_B');
+           INSERT INTO chats (sender_id, receiver_id, message, created_at) VALUES
+               ('$USER_A', '$USER_B', 'hello', NOW() - INTERVAL '2 minutes'),
+               ('$USER_B', '$USER_A', 'hi', NOW() - INTERVAL '1 minute'),
+               ('$USER_B', '$USER_A', 'still there?', NOW());"
+expect_sql "SELECT last_message, unread_count FROM conversations WHERE user_id = '$USER_A'" "still there?|2" "receiver summary"
+expect_sql "SELECT last_message, unread_count FROM conversations WHERE user_id = '$USER_B'" "still there?|0" "sender summary"
+
+echo "conversations: reading messages clears the unread count"
+psql_exec "UPDATE chats SET is_read = TRUE WHERE receiver_id = '$USER_A';"
+expect_sql "SELECT unread_count FROM conversations WHERE user_id = '$USER_A'" "0" "unread after read"
+
+echo "conversations: deleting the last message falls back to the one before"
+psql_exec "DELETE FROM chats WHERE message = 'still there?' AND sender_id = '$USER_B';"
+expect_sql "SELECT last_message FROM conversations WHERE user_id = '$USER_A'" "hi" "summary after delete"
+
+echo "conversations: other users cannot read the summaries"
+status=$(curl -s -o /tmp/rpc_body -w '%{http_code}' "$REST_URL/conversations?user_id=eq.$USER_A" \
+    -H "Authorization: Bearer $TOKEN_C")
+[ "$status" = "200" ] && [ "$(cat /tmp/rpc_body)" = "[]" ] || fail "expected no rows for an outsider"
+
+echo "post_likes: each like adds one to the post, a replayed like is counted once"
+POST_A="00000000-0000-0000-0000-0000000001a0"
+LIKE_B="00000000-0000-0000-0000-0000000001b0"
+psql_exec "DELETE FROM posts WHERE id = '$POST_A';
+           INSERT INTO posts (id, user_id, title, category, likes) VALUES ('$POST_A', '$USER_A', 'Bike', 'community', 5);"
+like() {
+    curl -s -o /tmp/rpc_body -w '%{http_code}' -X POST "$REST_URL/post_likes?on_conflict=id" \
+        -H "Authorization: Bearer $2" -H "Content-Type: application/json" \
+        -H "Prefer: resolution=ignore-duplicates,return=representation" -d "$1"
+}
+status=$(like "{\"id\":\"$LIKE_B\",\"post_id\":\"$POST_A\",\"user_id\":\"$USER_B\"}" "$TOKEN_B")
+[ "$status" = "201" ] || fail "expected 201, got $status"
+like "{\"id\":\"$LIKE_B\",\"post_id\":\"$POST_A\",\"user_id\":\"$USER_B\"}" "$TOKEN_B" > /dev/null
+like "{\"post_id\":\"$POST_A\",\"user_id\":\"$USER_C\",\"id\":\"00000000-0000-0000-0000-0000000001c0\"}" "$TOKEN_C" > /dev/null
+expect_sql "SELECT likes FROM posts WHERE id = '$POST_A'" "7" "likes after a replay"
+
+echo "post_likes: liking as someone else is refused"
+status=$(like "{\"id\":\"00000000-0000-0000-0000-0000000001c1\",\"post_id\":\"$POST_A\",\"user_id\":\"$USER_B\"}" "$TOKEN_C")
+[ "$status" = "403" ] || fail "expected 403, got $status"
+expect_sql "SELECT likes FROM posts WHERE id = '$POST_A'" "7" "likes after a refused like"
+
+echo "All RPC checks passed"
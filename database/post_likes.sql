@@ -0,0 +1,50 @@
+-- One row per like of a community post. posts.likes is maintained here on the server, so a like
+-- never sends a count the phone read earlier: such a count would overwrite the likes other users
+-- added in the meantime, which is what happened when the app PATCHed posts.likes directly and the
+-- outbox replayed the PATCH after reconnecting.
+-- The app generates each row's id when the user taps like and the outbox sends it as an
+-- ON CONFLICT (id) DO NOTHING upsert, so a replayed like is counted once.
+-- Execute in the Supabase SQL Editor after schema.sql. Safe to re-run.
+
+CREATE TABLE IF NOT EXISTS public.post_likes (
+    id UUID PRIMARY KEY,
+    post_id UUID NOT NULL REFERENCES public.posts(id) ON DELETE CASCADE,
+    user_id UUID NOT NULL REFERENCES public.profiles(id) ON DELETE CASCADE,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT NOW()
+);
+CREATE INDEX IF NOT EXISTS idx_post_likes_post ON public.post_likes(post_id);
+
+ALTER TABLE public.post_likes ENABLE ROW LEVEL SECURITY;
+
+DROP POLICY IF EXISTS "Users can view their own likes" ON public.post_likes;
+CREATE POLICY "Users can view their own likes"
+    ON public.post_likes FOR SELECT
+    USING (auth.uid() = user_id);
+
+DROP POLICY IF EXISTS "Users can like as themselves" ON public.post_likes;
+CREATE POLICY "Users can like as themselves"
+    ON public.post_likes FOR INSERT
+    WITH CHECK (auth.uid() = user_id);
+
+-- Likes are only ever added; changing or removing a row would leave posts.likes out of step.
+REVOKE UPDATE, DELETE ON public.post_likes FROM anon, authenticated;
+
+-- New like: one more on the post. Runs as the owner because only a post's author may update it.
+CREATE OR REPLACE FUNCTION public.post_likes_on_insert()
+RETURNS TRIGGER
+LANGUAGE plpgsql
+SECURITY DEFINER
+SET search_path = public
+AS $$
+BEGIN
+    UPDATE public.posts
+    SET likes = COALESCE(likes, 0) + 1
+    WHERE id = NEW.post_id;
+    RETURN NULL;
+END;
+$$;
+
+DROP TRIGGER IF EXISTS post_likes_insert ON public.post_likes;
+CREATE TRIGGER post_likes_insert
+    AFTER INSERT ON public.post_likes
+    FOR EACH ROW EXECUTE FUNCTION public.post_likes_on_insert();
@@ -0,0 +1,7 @@
+-- Publishes chat and listing changes to Supabase Realtime so open chat screens receive new
+-- messages over the websocket (RealtimeClient) instead of polling.
+-- Execute in the Supabase SQL Editor. Realtime applies the same row-level security as REST,
+-- so each user only receives messages they can already read.
+
+ALTER PUBLICATION supabase_realtime ADD TABLE public.chats;
+ALTER PUBLICATION supabase_realtime ADD TABLE public.posts;
@@ -0,0 +1,145 @@
+-- Server-side functions called through PostgREST RPC (SupabaseClient.rpc, /rest/v1/rpc/<name>).
+-- Each function replaces one multi-request flow the app used to run from the phone, so the flow
+-- costs one round trip and runs in a single transaction.
+-- Required migration: the app has no fallback for these functions, so a flow whose function is
+-- missing fails (PostgREST answers 404) instead of running the old multi-request version.
+-- Execute in the Supabase SQL Editor after schema.sql. Safe to re-run.
+
+-- ============================================
+-- record_trade_impact
+-- ============================================
+-- Credits a completed swap or donation to everyone involved: bumps the profile counters,
+-- recomputes impact score, level and icon, and adds the per-trade eco savings.
+-- Replaces a read profile -> update profile -> read eco_savings -> update eco_savings chain per
+-- user, which lost increments when two devices completed trades at the same time and could not
+-- update the counterparty's rows under row-level security.
+-- The participants and status come from the trade row, not from the caller: the trade must be
+-- completed, the caller must be one of its parties, and each trade is credited at most once.
+
+-- One row per credited trade; only record_trade_impact writes here.
+CREATE TABLE IF NOT EXISTS public.recorded_trade_impacts (
+    trade_type TEXT NOT NULL CHECK (trade_type IN ('swap', 'donation')),
+    trade_id UUID NOT NULL,
+    recorded_by UUID NOT NULL,
+    recorded_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (trade_type, trade_id)
+);
+
+ALTER TABLE public.recorded_trade_impacts ENABLE ROW LEVEL SECURITY;
+
+-- The first version took the participants from the caller.
+DROP FUNCTION IF EXISTS public.record_trade_impact(UUID[], TEXT);
+
+CREATE OR REPLACE FUNCTION public.record_trade_impact(p_trade_type TEXT, p_trade_id UUID)
+RETURNS TABLE (
+    user_id UUID,
+    total_swaps INTEGER,
+    total_donations INTEGER,
+    impact_score INTEGER,
+    eco_level TEXT,
+    eco_icon TEXT
+)
+LANGUAGE plpgsql
+SECURITY DEFINER
+SET search_path = public
+AS $$
+#variable_conflict use_column
+DECLARE
+    targets UUID[];
+    trade_status TEXT;
+    swapped INTEGER := CASE WHEN p_trade_type = 'swap' THEN 1 ELSE 0 END;
+    donated INTEGER := CASE WHEN p_trade_type = 'donation' THEN 1 ELSE 0 END;
+BEGIN
+    IF p_trade_type = 'swap' THEN
+        SELECT ARRAY[s.user1_id, s.user2_id], s.status INTO targets, trade_status
+        FROM public.swaps s WHERE s.id = p_trade_id
+        FOR UPDATE;
+    ELSIF p_trade_type = 'donation' THEN
+        SELECT ARRAY[d.donor_id, d.receiver_id], d.status INTO targets, trade_status
+        FROM public.donations d WHERE d.id = p_trade_id
+        FOR UPDATE;
+    ELSE
+        RAISE EXCEPTION 'Unsupported trade type %', p_trade_type USING ERRCODE = '22023';
+    END IF;
+
+    -- SECURITY DEFINER bypasses row-level security, so only a party to the trade may record it.
+    -- A trade the caller cannot see is reported the same way as one that does not exist.
+    IF auth.uid() IS NULL OR targets IS NULL OR NOT (auth.uid() = ANY (targets)) THEN
+        RAISE EXCEPTION 'Only a participant can record this trade' USING ERRCODE = '42501';
+    END IF;
+    IF trade_status IS DISTINCT FROM 'completed' THEN
+        RAISE EXCEPTION 'Trade % is not completed', p_trade_id USING ERRCODE = '22023';
+    END IF;
+
+    SELECT array_agg(DISTINCT u) INTO targets FROM unnest(targets) AS u WHERE u IS NOT NULL;
+
+    -- Recording the same trade again, from either party, returns the totals unchanged.
+    INSERT INTO public.recorded_trade_impacts (trade_type, trade_id, recorded_by)
+    VALUES (p_trade_type, p_trade_id, auth.uid())
+    ON CONFLICT DO NOTHING;
+    IF NOT FOUND THEN
+        RETURN QUERY
+        SELECT p.id, p.total_swaps, p.total_donations, p.impact_score, p.eco_level, p.eco_icon
+        FROM public.profiles p
+        WHERE p.id = ANY (targets);
+        RETURN;
+    END IF;
+
+    UPDATE public.profiles p
+    SET total_swaps = COALESCE(p.total_swaps, 0) + swapped,
+        total_donations = COALESCE(p.total_donations, 0) + donated
+    WHERE p.id = ANY (targets);
+
+    UPDATE public.profiles p
+    SET impact_score = s.score,
+        eco_level = CASE
+            WHEN s.score >= 100 THEN 'Planet Pioneer'
+            WHEN s.score >= 50 THEN 'Eco Guardian'
+            WHEN s.score >= 25 THEN 'Sustainable Hero'
+            WHEN s.score >= 10 THEN 'Rising Recycler'
+            ELSE 'Beginner EcoSaver'
+        END,
+        eco_icon = CASE
+            WHEN s.score >= 100 THEN '🌞'
+            WHEN s.score >= 50 THEN '🦋'
+            WHEN s.score >= 25 THEN '🌍'
+            WHEN s.score >= 10 THEN '♻️'
+            ELSE '🌱'
+        END
+    FROM (
+        SELECT id,
+               (COALESCE(total_swaps, 0) * 2) + (COALESCE(total_donations, 0) * 3)
+                   + COALESCE(total_purchases, 0) AS score
+        FROM public.profiles
+        WHERE id = ANY (targets)
+    ) s
+    WHERE p.id = s.id;
+
+    -- Same per-trade savings as update_user_impact(): swap 5kg CO2, 100L water, 2kg waste,
+    -- 10kWh; donation 7kg CO2, 150L water, 3kg waste, 15kWh.
+    INSERT INTO public.eco_savings AS e (user_id, co2_saved, water_saved, waste_diverted, energy_saved,
+                                         items_swapped, items_donated)
+    SELECT p.id, 5 * swapped + 7 * donated, 100 * swapped + 150 * donated, 2 * swapped + 3 * donated,
+           10 * swapped + 15 * donated, swapped, donated
+    FROM public.profiles p
+    WHERE p.id = ANY (targets)
+    ON CONFLICT (user_id) DO UPDATE
+    SET co2_saved = COALESCE(e.co2_saved, 0) + EXCLUDED.co2_saved,
+        water_saved = COALESCE(e.water_saved, 0) + EXCLUDED.water_saved,
+        waste_diverted = COALESCE(e.waste_diverted, 0) + EXCLUDED.waste_diverted,
+        energy_saved = COALESCE(e.energy_saved, 0) + EXCLUDED.energy_saved,
+        items_swapped = COALESCE(e.items_swapped, 0) + EXCLUDED.items_swapped,
+        items_donated = COALESCE(e.items_donated, 0) + EXCLUDED.items_donated;
+
+    RETURN QUERY
+    SELECT p.id, p.total_swaps, p.total_donations, p.impact_score, p.eco_level, p.eco_icon
+    FROM public.profiles p
+    WHERE p.id = ANY (targets);
+END;
+$$;
+
+REVOKE ALL ON FUNCTION public.record_trade_impact(TEXT, UUID) FROM PUBLIC, anon;
+GRANT EXECUTE ON FUNCTION public.record_trade_impact(TEXT, UUID) TO authenticated;
+
+-- Tell PostgREST to pick up new or changed functions without a restart.
+NOTIFY pgrst, 'reload schema';
@@ -467,6 +467,12 @@ CREATE INDEX idx_purchases_buyer ON public.purchases(buyer_id);
 CREATE INDEX idx_transactions_users ON public.transactions(from_user_id, to_user_id);
 CREATE INDEX idx_chats_users ON public.chats(sender_id, receiver_id);
 CREATE INDEX idx_chats_created ON public.chats(created_at DESC);
+-- Keyset pagination (created_at, id); see keyset_pagination_indexes.sql for existing databases.
+CREATE INDEX idx_posts_created_id ON public.posts(created_at DESC, id DESC);
+CREATE INDEX idx_posts_category_created_id ON public.posts(category, created_at DESC, id DESC);
+CREATE INDEX idx_posts_listing_type_created_id ON public.posts(listing_type, status, created_at DESC, id DESC);
+CREATE INDEX idx_bids_post_created_id ON public.bids(post_id, created_at DESC, id DESC);
+CREATE INDEX idx_notifications_user_created_id ON public.notifications(user_id, created_at DESC, id DESC);
 
 -- ============================================
 -- UTILITY FUNCTIONS